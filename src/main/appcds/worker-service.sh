@@ -0,0 +1,13 @@
+#!/bin/sh
+# Starts WorkerService with the AppCDS archive built by `mvn -Pappcds package`.
+#
+# The archive only matches the JDK it was dumped with (@JAVA_HOME@) and the exact jars
+# in lib/, in classpath.txt order; on a mismatch the JVM warns and starts without it.
+# Extra JVM options go in JAVA_OPTS, service arguments are passed through.
+
+APP_HOME=$(cd "$(dirname "$0")/.." && pwd)
+JAVA=${JAVA:-@JAVA_HOME@/bin/java}
+CP=$(sed "s#lib/#$APP_HOME/lib/#g" "$APP_HOME/classpath.txt")
+
+exec "$JAVA" -XX:SharedArchiveFile="$APP_HOME/worker-service.jsa" -Xshare:auto $JAVA_OPTS \
+    -cp "$CP" com.gft.service.WorkerService "$@"
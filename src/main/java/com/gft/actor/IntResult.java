@@ -0,0 +1,61 @@
+package com.gft.actor;
+
+import java.io.Serializable;
+import java.util.function.IntSupplier;
+
+/**
+ * Typed {@code int} reply. Instances for small values are shared (like {@link Integer#valueOf}),
+ * but with a wider cache range, so steady-state compute loops over small domains allocate nothing.
+ */
+public final class IntResult implements Serializable, IntSupplier {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CACHE_LOW = -128;
+    static final int CACHE_HIGH = 4095;
+
+    private static final IntResult[] CACHE = new IntResult[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IntResult(CACHE_LOW + i);
+        }
+    }
+
+    public final int value;
+
+    private IntResult(int value) {
+        this.value = value;
+    }
+
+    public static IntResult of(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+        return new IntResult(value);
+    }
+
+    private Object readResolve() {
+        return of(value);
+    }
+
+    @Override
+    public int getAsInt() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IntResult && ((IntResult) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return "IntResult(" + value + ")";
+    }
+}
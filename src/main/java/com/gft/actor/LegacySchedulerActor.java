@@ -0,0 +1,87 @@
+package com.gft.actor;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Props;
+import com.gft.timer.TickBus;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Periodic actor driven by its own scheduler entry (production counterpart of the TestAkka1 fixture):
+ * forwards a {@link Tick} to {@code replyTo} every 200 ms. With {@link #propsWithTickBus} the ticks come
+ * from the shared {@link TickBus} instead, for deployments with many such actors.
+ */
+public class LegacySchedulerActor extends AbstractActor {
+
+    public static final Duration INITIAL_DELAY = Duration.ofMillis(100);
+    public static final Duration INTERVAL = Duration.ofMillis(200);
+
+    /** Stateless singleton message. */
+    public static final class Tick implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public static final Tick INSTANCE = new Tick();
+
+        private Tick() { }
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    private final ActorRef replyTo;
+    private final boolean useTickBus;
+    private Cancellable cancellable;
+
+    public static Props props(ActorRef replyTo) {
+        return Props.create(LegacySchedulerActor.class, () -> new LegacySchedulerActor(replyTo));
+    }
+
+    public static Props propsWithTickBus(ActorRef replyTo) {
+        return Props.create(LegacySchedulerActor.class, () -> new LegacySchedulerActor(replyTo, true));
+    }
+
+    public LegacySchedulerActor(ActorRef replyTo) {
+        this(replyTo, false);
+    }
+
+    public LegacySchedulerActor(ActorRef replyTo, boolean useTickBus) {
+        this.replyTo = replyTo;
+        this.useTickBus = useTickBus;
+    }
+
+    @Override
+    public void preStart() {
+        if (useTickBus) {
+            // unsubscribed in postStop, which also runs before a restart
+            TickBus.get(getContext().getSystem()).subscribe(getSelf(), INTERVAL, Tick.INSTANCE);
+            return;
+        }
+        cancellable = getContext().getSystem().scheduler().scheduleAtFixedRate(
+                INITIAL_DELAY,
+                INTERVAL,
+                getSelf(),
+                Tick.INSTANCE,
+                getContext().getDispatcher(),
+                getSelf());
+    }
+
+    @Override
+    public void postStop() {
+        if (useTickBus) {
+            TickBus.get(getContext().getSystem()).unsubscribe(getSelf());
+        }
+        if (cancellable != null && !cancellable.isCancelled()) {
+            cancellable.cancel();
+        }
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Tick.class, t -> replyTo.tell(t, getSelf()))
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.gft.actor;
+
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import com.gft.timer.TickBus;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Periodic actor driven by {@link akka.actor.TimerScheduler} (production counterpart of the TestAkka1
+ * fixture): forwards a {@link TimerTick} to {@code replyTo} every 150 ms. With {@link #propsWithTickBus}
+ * the ticks come from the shared {@link TickBus} instead, for deployments with many such actors.
+ */
+public class LegacyTimerActor extends AbstractActorWithTimers {
+
+    public static final Duration INTERVAL = Duration.ofMillis(150);
+
+    /** Stateless singleton message. */
+    public static final class Start implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public static final Start INSTANCE = new Start();
+
+        private Start() { }
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    /** Stateless singleton message. */
+    public static final class TimerTick implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public static final TimerTick INSTANCE = new TimerTick();
+
+        private TimerTick() { }
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    private static final Object TIMER_KEY = "legacy-timer-key";
+    private final ActorRef replyTo;
+    private final boolean useTickBus;
+
+    public static Props props(ActorRef replyTo) {
+        return Props.create(LegacyTimerActor.class, () -> new LegacyTimerActor(replyTo));
+    }
+
+    public static Props propsWithTickBus(ActorRef replyTo) {
+        return Props.create(LegacyTimerActor.class, () -> new LegacyTimerActor(replyTo, true));
+    }
+
+    public LegacyTimerActor(ActorRef replyTo) {
+        this(replyTo, false);
+    }
+
+    public LegacyTimerActor(ActorRef replyTo, boolean useTickBus) {
+        this.replyTo = replyTo;
+        this.useTickBus = useTickBus;
+    }
+
+    @Override
+    public void preStart() {
+        // auto-start
+        getSelf().tell(Start.INSTANCE, getSelf());
+    }
+
+    @Override
+    public void postStop() {
+        // also runs before a restart, whose preStart subscribes again
+        if (useTickBus) {
+            TickBus.get(getContext().getSystem()).unsubscribe(getSelf());
+        }
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Start.class, s -> {
+                    if (useTickBus) {
+                        TickBus.get(getContext().getSystem()).subscribe(getSelf(), INTERVAL, TimerTick.INSTANCE);
+                    } else {
+                        getTimers().startTimerAtFixedRate(TIMER_KEY, TimerTick.INSTANCE, INTERVAL);
+                    }
+                })
+                .match(TimerTick.class, tick -> replyTo.tell(tick, getSelf()))
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.gft.actor;
+
+import java.io.Serializable;
+import java.util.function.LongSupplier;
+
+/**
+ * Typed {@code long} reply. Instances for small values are shared (like {@link Long#valueOf}),
+ * but with a wider cache range, so steady-state compute loops over small domains allocate nothing.
+ */
+public final class LongResult implements Serializable, LongSupplier {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CACHE_LOW = -128;
+    static final int CACHE_HIGH = 4095;
+
+    private static final LongResult[] CACHE = new LongResult[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new LongResult(CACHE_LOW + i);
+        }
+    }
+
+    public final long value;
+
+    private LongResult(long value) {
+        this.value = value;
+    }
+
+    public static LongResult of(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) (value - CACHE_LOW)];
+        }
+        return new LongResult(value);
+    }
+
+    private Object readResolve() {
+        return of(value);
+    }
+
+    @Override
+    public long getAsLong() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LongResult && ((LongResult) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return "LongResult(" + value + ")";
+    }
+}
@@ -0,0 +1,152 @@
+package com.gft.actor;
+
+import akka.actor.AbstractActor;
+import akka.actor.NoSerializationVerificationNeeded;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.gft.shutdown.WorkDrain;
+import com.gft.telemetry.ActorTelemetry;
+
+import java.io.Serializable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compute worker (production counterpart of the TestAkka3/TestAkka4 fixture actor).
+ *
+ * Protocol:
+ * - {@link Compute}: replies {@code x * 2}, either as a boxed {@code Integer} (legacy contract)
+ *   or as an {@link IntResult} when created with {@link Compute#typed(int)}
+ * - {@link ComputeLong}: replies {@code x * 2} as a {@link LongResult}
+ * - {@link ComputeBatch}: replies one {@link BatchResult} with {@code x * 2} for every operand
+ * - {@link Ping}: counts down the latch
+ *
+ * Workers register with {@link WorkDrain}, so queued computations are finished on shutdown.
+ */
+public class WorkerActor extends AbstractActor {
+    private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+    private final WorkDrain drain = WorkDrain.get(getContext().getSystem());
+
+    public static Props props() {
+        return Props.create(WorkerActor.class, WorkerActor::new);
+    }
+
+    /**
+     * Immutable by contract: instances may be shared between senders and reused across sends.
+     * {@link #of(int)} and {@link #typed(int)} return pooled instances for small operands.
+     */
+    public static final class Compute implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final int POOL_SIZE = 1024;
+
+        private static final Compute[] LEGACY_POOL = new Compute[POOL_SIZE];
+        private static final Compute[] TYPED_POOL = new Compute[POOL_SIZE];
+
+        static {
+            for (int i = 0; i < POOL_SIZE; i++) {
+                LEGACY_POOL[i] = new Compute(i, false);
+                TYPED_POOL[i] = new Compute(i, true);
+            }
+        }
+
+        public final int x;
+        public final boolean typedReply;
+
+        public Compute(int x) {
+            this(x, false);
+        }
+
+        private Compute(int x, boolean typedReply) {
+            this.x = x;
+            this.typedReply = typedReply;
+        }
+
+        /** Pooled request replied with a boxed {@code Integer}. */
+        public static Compute of(int x) {
+            return x >= 0 && x < POOL_SIZE ? LEGACY_POOL[x] : new Compute(x, false);
+        }
+
+        /** Pooled request replied with an {@link IntResult}. */
+        public static Compute typed(int x) {
+            return x >= 0 && x < POOL_SIZE ? TYPED_POOL[x] : new Compute(x, true);
+        }
+
+        private Object readResolve() {
+            return typedReply ? typed(x) : of(x);
+        }
+    }
+
+    public static final class ComputeLong implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final long x;
+        public ComputeLong(long x) { this.x = x; }
+    }
+
+    /** Several {@code Compute} operands in one message; {@code id} is echoed in the {@link BatchResult}. */
+    public static final class ComputeBatch implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final long id;
+        public final int[] xs;
+
+        public ComputeBatch(long id, int[] xs) {
+            this.id = id;
+            this.xs = xs;
+        }
+    }
+
+    /** Reply to {@link ComputeBatch}: {@code values[i] = xs[i] * 2}. */
+    public static final class BatchResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final long id;
+        public final int[] values;
+
+        public BatchResult(long id, int[] values) {
+            this.id = id;
+            this.values = values;
+        }
+    }
+
+    /** Carries a local latch: never leaves the JVM, so it is exempt from serialization checks. */
+    public static final class Ping implements NoSerializationVerificationNeeded {
+        public final CountDownLatch latch;
+        public Ping(CountDownLatch latch) { this.latch = latch; }
+    }
+
+    @Override
+    public void preStart() {
+        drain.register(getSelf());
+    }
+
+    @Override
+    public void postStop() {
+        drain.unregister(getSelf());
+    }
+
+    @Override
+    public Receive createReceive() {
+        return ActorTelemetry.get(getContext().getSystem()).instrument(getContext(), receiveBuilder()
+                .match(Compute.class, msg -> {
+                    if (msg.typedReply) {
+                        getSender().tell(IntResult.of(msg.x * 2), getSelf());
+                    } else {
+                        getSender().tell(msg.x * 2, getSelf());
+                    }
+                    drain.recordProcessed();
+                })
+                .match(ComputeLong.class, msg -> {
+                    getSender().tell(LongResult.of(msg.x * 2), getSelf());
+                    drain.recordProcessed();
+                })
+                .match(ComputeBatch.class, msg -> {
+                    int[] values = new int[msg.xs.length];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = msg.xs[i] * 2;
+                    }
+                    getSender().tell(new BatchResult(msg.id, values), getSelf());
+                    drain.recordProcessed();
+                })
+                .match(Ping.class, msg -> msg.latch.countDown())
+                .matchAny(o -> log.warning("Unknown: {}", o))
+                .build());
+    }
+}
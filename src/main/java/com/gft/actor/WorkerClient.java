@@ -0,0 +1,40 @@
+package com.gft.actor;
+
+import akka.actor.ActorRef;
+import akka.japi.pf.FI;
+import akka.pattern.Patterns;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Caller-side API for {@link WorkerActor} typed replies: no {@code (Integer)} casts and no unboxing.
+ */
+public final class WorkerClient {
+
+    private WorkerClient() { }
+
+    public static CompletionStage<IntResult> computeInt(ActorRef worker, int x, Duration timeout) {
+        return Patterns.ask(worker, WorkerActor.Compute.typed(x), timeout)
+                .thenApply(IntResult.class::cast);
+    }
+
+    public static CompletionStage<LongResult> computeLong(ActorRef worker, long x, Duration timeout) {
+        return Patterns.ask(worker, new WorkerActor.ComputeLong(x), timeout)
+                .thenApply(LongResult.class::cast);
+    }
+
+    /**
+     * Handler for actors receiving typed replies directly (tell instead of ask), e.g.
+     * {@code receiveBuilder().match(IntResult.class, WorkerClient.onInt(v -> sum += v))}.
+     */
+    public static FI.UnitApply<IntResult> onInt(IntConsumer consumer) {
+        return r -> consumer.accept(r.value);
+    }
+
+    public static FI.UnitApply<LongResult> onLong(LongConsumer consumer) {
+        return r -> consumer.accept(r.value);
+    }
+}
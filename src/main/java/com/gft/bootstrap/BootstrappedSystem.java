@@ -0,0 +1,40 @@
+package com.gft.bootstrap;
+
+import akka.actor.ActorSystem;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** An actor system started by {@link SystemBootstrap}, with its startup breakdown. */
+public final class BootstrappedSystem implements AutoCloseable {
+    private final ActorSystem system;
+    private final StartupReport report;
+
+    BootstrappedSystem(ActorSystem system, StartupReport report) {
+        this.system = system;
+        this.report = report;
+    }
+
+    public ActorSystem system() {
+        return system;
+    }
+
+    public StartupReport report() {
+        return report;
+    }
+
+    /** Terminates the system and waits for it, at most 30 seconds. */
+    @Override
+    public void close() {
+        system.terminate();
+        try {
+            system.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while terminating " + system.name(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException(system.name() + " did not terminate", e);
+        }
+    }
+}
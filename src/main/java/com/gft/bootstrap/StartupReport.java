@@ -0,0 +1,44 @@
+package com.gft.bootstrap;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Where {@link SystemBootstrap} spent the startup time, phase by phase in execution order:
+ * - {@code config}: configuration load, from the cache when {@link #configCacheHit}
+ * - {@code actor-system}: {@code ActorSystem.create}, including the essential library extensions
+ * - {@code extension:<class>}: each of {@code gft.bootstrap.eager-extensions}
+ */
+public final class StartupReport {
+    public final boolean configCacheHit;
+    private final Map<String, Duration> phases;
+
+    StartupReport(boolean configCacheHit, Map<String, Duration> phases) {
+        this.configCacheHit = configCacheHit;
+        this.phases = Collections.unmodifiableMap(new LinkedHashMap<>(phases));
+    }
+
+    public Map<String, Duration> phases() {
+        return phases;
+    }
+
+    public Duration total() {
+        Duration total = Duration.ZERO;
+        for (Duration d : phases.values()) {
+            total = total.plus(d);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Startup ").append(total().toMillis()).append(" ms (config cache ")
+                .append(configCacheHit ? "hit" : "miss").append(')');
+        for (Map.Entry<String, Duration> phase : phases.entrySet()) {
+            sb.append("\n  ").append(phase.getKey()).append(": ").append(phase.getValue().toMillis()).append(" ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,288 @@
+package com.gft.bootstrap;
+
+import akka.actor.ActorSystem;
+import akka.actor.ExtensionId;
+import akka.actor.ExtensionIdProvider;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValueFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Faster replacement for {@code ActorSystem.create(name, overrides.withFallback(ConfigFactory.load()))}.
+ *
+ * - config cache: the unresolved merge of every {@code reference.conf} on the class path is stored once as
+ *   HOCON under {@code gft.bootstrap.cache-dir} (system property, default
+ *   {@code <java.io.tmpdir>/gft-config-cache-<user.name>}, owner-only), keyed by the class path entries' size
+ *   and timestamp, the {@code config.*} system properties, the {@code config.file} size and timestamp and the
+ *   {@code CONFIG_FORCE_*} environment. Later JVMs parse that single file instead of locating and parsing all
+ *   of them; within one JVM the parsed result is reused. {@code -Dgft.bootstrap.config-cache=off} disables it.
+ *   A cache directory owned by another user is not used.
+ * - lazy extensions: {@code gft.bootstrap.deferred-extensions} are taken out of
+ *   {@code akka.library-extensions}; they still load on their first {@code get(system)}.
+ * - eager extensions: {@code gft.bootstrap.eager-extensions} are loaded after startup, each timed, and the
+ *   {@code BlockingDetector} unless {@code gft.blocking-detector.mode} is off.
+ * - a {@link StartupReport} with the time spent per phase.
+ *
+ * Precedence is unchanged: overrides, then system properties, then the application config (honouring
+ * {@code config.file}, {@code config.resource} and {@code config.url}), then reference.conf; everything is
+ * resolved together at startup as by {@code ConfigFactory.load}, so the cache holds no application settings
+ * and no resolved substitutions.
+ */
+public final class SystemBootstrap {
+
+    public static final String CACHE_DIR_PROPERTY = "gft.bootstrap.cache-dir";
+    public static final String CACHE_ENABLED_PROPERTY = "gft.bootstrap.config-cache";
+
+    private static final String BLOCKING_DETECTOR = "com.gft.telemetry.BlockingDetector$Id";
+    private static final String REFERENCE = "reference.conf";
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+    private static final String[] CONFIG_RESOURCES = {REFERENCE, "application.conf", "application.json", "application.properties"};
+
+    /** fingerprint -> class loader serving the cached defaults as its only reference.conf */
+    private static final Map<String, CachedConfigClassLoader> LOADERS = new ConcurrentHashMap<>();
+
+    private SystemBootstrap() { }
+
+    public static BootstrappedSystem create(String name) {
+        return create(name, ConfigFactory.empty());
+    }
+
+    public static BootstrappedSystem create(String name, Config overrides) {
+        Map<String, Duration> phases = new LinkedHashMap<>();
+        ClassLoader parent = Thread.currentThread().getContextClassLoader();
+
+        long start = System.nanoTime();
+        ClassLoader loader = parent;
+        boolean hit = false;
+        CachedConfigClassLoader cached = null;
+        if (!"off".equals(System.getProperty(CACHE_ENABLED_PROPERTY))) {
+            String key = fingerprint();
+            cached = LOADERS.get(key);
+            hit = cached != null || Files.exists(cacheFile(key));
+            if (cached == null) {
+                Path file = writeCacheIfMissing(key, parent);
+                if (file != null) {
+                    LOADERS.putIfAbsent(key, new CachedConfigClassLoader(parent, file));
+                    cached = LOADERS.get(key);
+                }
+            }
+        }
+        if (cached != null) {
+            // the cache file is the only reference.conf this loader serves, already merged
+            loader = cached;
+        }
+        Config config = deferExtensions(overrides
+                .withFallback(ConfigFactory.defaultOverrides(loader))
+                .withFallback(ConfigFactory.defaultApplication(loader))
+                .withFallback(ConfigFactory.defaultReferenceUnresolved(loader))
+                .resolve());
+        phases.put("config", since(start));
+
+        start = System.nanoTime();
+        ActorSystem system = ActorSystem.create(name, config, loader);
+        phases.put("actor-system", since(start));
+
+        List<String> eager = new ArrayList<>(config.getStringList("gft.bootstrap.eager-extensions"));
+        if (!"off".equals(config.getString("gft.blocking-detector.mode")) && !eager.contains(BLOCKING_DETECTOR)) {
+            eager.add(BLOCKING_DETECTOR);
+        }
+        for (String fqcn : eager) {
+            start = System.nanoTime();
+            system.registerExtension(extensionId(loader, fqcn));
+            phases.put("extension:" + fqcn, since(start));
+        }
+        return new BootstrappedSystem(system, new StartupReport(hit, phases));
+    }
+
+    private static Config deferExtensions(Config config) {
+        List<String> deferred = config.getStringList("gft.bootstrap.deferred-extensions");
+        List<String> library = new ArrayList<>(config.getStringList("akka.library-extensions"));
+        library.removeAll(deferred);
+        return config.withValue("akka.library-extensions", ConfigValueFactory.fromIterable(library));
+    }
+
+    /** Same names as {@code akka.extensions}: a Scala object ({@code Foo$}) or a class, resolved through its provider. */
+    private static ExtensionId<?> extensionId(ClassLoader loader, String fqcn) {
+        try {
+            Class<?> c = Class.forName(fqcn, true, loader);
+            Object id;
+            if (fqcn.endsWith("$")) {
+                id = c.getField("MODULE$").get(null);
+            } else {
+                Constructor<?> constructor = c.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                id = constructor.newInstance();
+            }
+            return id instanceof ExtensionIdProvider ? ((ExtensionIdProvider) id).lookup() : (ExtensionId<?>) id;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Not an extension id: " + fqcn, e);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Config cache
+    // ------------------------------------------------------------
+
+    private static Path cacheDir() {
+        return Paths.get(System.getProperty(CACHE_DIR_PROPERTY, Paths.get(System.getProperty("java.io.tmpdir"),
+                "gft-config-cache-" + System.getProperty("user.name")).toString()));
+    }
+
+    private static Path cacheFile(String key) {
+        return cacheDir().resolve(key + ".conf");
+    }
+
+    /** Returns the cache file, or null when it cannot be written. */
+    private static Path writeCacheIfMissing(String key, ClassLoader parent) {
+        Path file = cacheFile(key);
+        try {
+            if (!ownCacheDir(file.getParent())) {
+                return null;
+            }
+            if (Files.exists(file)) {
+                return file;
+            }
+            Config reference = ConfigFactory.defaultReferenceUnresolved(parent);
+            // created owner-only on POSIX file systems
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(tmp, reference.root().render(ConfigRenderOptions.concise().setJson(false))
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // best effort: an unwritable cache dir only costs the uncached startup
+            return null;
+        }
+        return file;
+    }
+
+    /** Creates the directory for this user only; false when it belongs to someone else. */
+    private static boolean ownCacheDir(Path dir) throws IOException {
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectories(dir.getParent() == null ? dir : dir.getParent());
+            try {
+                Files.createDirectory(dir, posix
+                        ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(OWNER_ONLY)}
+                        : new FileAttribute<?>[0]);
+            } catch (FileAlreadyExistsException e) {
+                // created concurrently: checked below like any existing directory
+            }
+        }
+        if (!Files.getOwner(dir).getName().equals(System.getProperty("user.name"))) {
+            return false;
+        }
+        if (posix && !Files.getPosixFilePermissions(dir).equals(OWNER_ONLY)) {
+            Files.setPosixFilePermissions(dir, OWNER_ONLY);
+        }
+        return true;
+    }
+
+    /**
+     * Identifies the configuration sources without reading them: size and timestamp of every class path jar,
+     * and of the config files inside class path directories, plus the settings choosing the application config.
+     */
+    static String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                File f = new File(entry);
+                update(digest, entry);
+                if (f.isDirectory()) {
+                    for (String resource : CONFIG_RESOURCES) {
+                        File r = new File(f, resource);
+                        update(digest, r.length() + ":" + r.lastModified());
+                    }
+                } else {
+                    update(digest, f.length() + ":" + f.lastModified());
+                }
+            }
+            for (String property : new TreeSet<>(System.getProperties().stringPropertyNames())) {
+                if (property.startsWith("config.")) {
+                    update(digest, property + "=" + System.getProperty(property));
+                }
+            }
+            String configFile = System.getProperty("config.file");
+            if (configFile != null) {
+                File f = new File(configFile);
+                update(digest, f.length() + ":" + f.lastModified());
+            }
+            for (Map.Entry<String, String> env : new TreeMap<>(System.getenv()).entrySet()) {
+                if (env.getKey().startsWith("CONFIG_FORCE_")) {
+                    update(digest, env.getKey() + "=" + env.getValue());
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static Duration since(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Parent-first loader that answers {@code reference.conf} with the cache file. Akka always falls back to
+     * {@code ConfigFactory.defaultReference(classLoader)}, which Typesafe Config memoizes per loader, so the
+     * system and anything else going through this loader parse the defaults once.
+     */
+    private static final class CachedConfigClassLoader extends ClassLoader {
+        private final URL reference;
+
+        CachedConfigClassLoader(ClassLoader parent, Path cacheFile) {
+            super(parent);
+            try {
+                this.reference = cacheFile.toUri().toURL();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            return REFERENCE.equals(name) ? reference : super.getResource(name);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            return REFERENCE.equals(name) ? Collections.enumeration(Collections.singletonList(reference)) : super.getResources(name);
+        }
+    }
+}
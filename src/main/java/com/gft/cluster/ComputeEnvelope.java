@@ -0,0 +1,26 @@
+package com.gft.cluster;
+
+import com.gft.actor.WorkerActor;
+
+import java.io.Serializable;
+
+/**
+ * Routes a {@link WorkerActor.Compute} to the sharded worker entity owning {@code key}.
+ * The entity receives the bare {@code Compute} and replies exactly as a local worker does.
+ */
+public final class ComputeEnvelope implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final String key;
+    public final WorkerActor.Compute compute;
+
+    public ComputeEnvelope(String key, WorkerActor.Compute compute) {
+        this.key = key;
+        this.compute = compute;
+    }
+
+    @Override
+    public String toString() {
+        return "ComputeEnvelope(" + key + ", " + compute.x + ")";
+    }
+}
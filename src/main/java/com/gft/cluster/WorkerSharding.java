@@ -0,0 +1,59 @@
+package com.gft.cluster;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.cluster.sharding.ClusterSharding;
+import akka.cluster.sharding.ClusterShardingSettings;
+import akka.cluster.sharding.ShardRegion;
+import com.gft.actor.WorkerActor;
+import com.typesafe.config.Config;
+
+import java.util.Optional;
+
+/**
+ * Deploys {@link WorkerActor} as cluster-sharded entities keyed by a compute key.
+ *
+ * Requires {@code akka.actor.provider = cluster}; the single-node API ({@code WorkerActor.props()})
+ * is unaffected. Callers send {@link ComputeEnvelope}s to the region returned by {@link #start}
+ * (or {@link #startProxy} on nodes that do not host workers) and get the usual replies.
+ *
+ * Settings under {@code gft.sharding.worker}.
+ */
+public final class WorkerSharding {
+
+    private WorkerSharding() { }
+
+    public static ActorRef start(ActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.sharding.worker");
+        return ClusterSharding.get(system).start(
+                config.getString("type-name"),
+                WorkerActor.props(),
+                ClusterShardingSettings.create(system),
+                new Extractor(config.getInt("number-of-shards")));
+    }
+
+    public static ActorRef startProxy(ActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.sharding.worker");
+        return ClusterSharding.get(system).startProxy(
+                config.getString("type-name"),
+                Optional.empty(),
+                new Extractor(config.getInt("number-of-shards")));
+    }
+
+    static final class Extractor extends ShardRegion.HashCodeMessageExtractor {
+
+        Extractor(int numberOfShards) {
+            super(numberOfShards);
+        }
+
+        @Override
+        public String entityId(Object message) {
+            return message instanceof ComputeEnvelope ? ((ComputeEnvelope) message).key : null;
+        }
+
+        @Override
+        public Object entityMessage(Object message) {
+            return message instanceof ComputeEnvelope ? ((ComputeEnvelope) message).compute : message;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.gft.interop;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of one bridge executor.
+ * Getter-based so that it maps to {@code CompositeData} on the MXBean.
+ */
+public final class BridgeExecutorSnapshot {
+
+    private final String name;
+    private final int threads;
+    private final int activeThreads;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long completedTasks;
+    private final long rejectedTasks;
+
+    @ConstructorProperties({"name", "threads", "activeThreads", "queueDepth", "queueCapacity", "completedTasks", "rejectedTasks"})
+    public BridgeExecutorSnapshot(String name, int threads, int activeThreads, int queueDepth, int queueCapacity,
+                                  long completedTasks, long rejectedTasks) {
+        this.name = name;
+        this.threads = threads;
+        this.activeThreads = activeThreads;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.completedTasks = completedTasks;
+        this.rejectedTasks = rejectedTasks;
+    }
+
+    public String getName() { return name; }
+
+    /** Configured pool size. */
+    public int getThreads() { return threads; }
+
+    /** Threads currently running a task. */
+    public int getActiveThreads() { return activeThreads; }
+
+    /** Tasks waiting for a thread. */
+    public int getQueueDepth() { return queueDepth; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+
+    public long getCompletedTasks() { return completedTasks; }
+
+    /** Submissions refused because the queue was full ({@code on-full = reject}). */
+    public long getRejectedTasks() { return rejectedTasks; }
+
+    @Override
+    public String toString() {
+        return "BridgeExecutorSnapshot(" + name + ", active=" + activeThreads + "/" + threads
+                + ", queue=" + queueDepth + "/" + queueCapacity + ", completed=" + completedTasks
+                + ", rejected=" + rejectedTasks + ")";
+    }
+}
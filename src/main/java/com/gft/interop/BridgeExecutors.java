@@ -0,0 +1,223 @@
+package com.gft.interop;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.dispatch.ExecutionContexts;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigUtil;
+import scala.concurrent.ExecutionContextExecutor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named, bounded executors for {@code CompletionStage} work, so that {@code supplyAsync} and friends stop
+ * running on {@code ForkJoinPool.commonPool} (shared with parallel streams and everything else in the JVM).
+ *
+ * - executors are declared under {@code gft.bridge.executors}, each a fixed pool with a bounded queue, and
+ *   started on first use
+ * - a full queue either rejects the task (the stage returned by {@link #supplyAsync} / {@link #runAsync} fails
+ *   with {@code RejectedExecutionException}; a plain {@code execute} on {@link #executor} throws it) or runs it
+ *   on the submitting thread, see {@code on-full}
+ * - queue depth, active threads and rejections per executor via {@link #getExecutors()} and JMX
+ * - results go back to actors with {@link PipeTo}, without a dispatcher hop
+ *
+ * Usage:
+ * <pre>
+ * BridgeExecutors bridge = BridgeExecutors.get(system);
+ * bridge.supplyAsync("blocking-io", () -> repository.load(id)).whenComplete(PipeTo.to(getSelf()));
+ * </pre>
+ */
+public final class BridgeExecutors implements Extension, BridgeExecutorsMXBean {
+
+    public static final Id ID = new Id();
+
+    public static BridgeExecutors get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<BridgeExecutors> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public BridgeExecutors createExtension(ExtendedActorSystem system) {
+            return new BridgeExecutors(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final ActorSystem system;
+    private final LoggingAdapter log;
+    private final Config executorsConfig;
+    private final Config defaults;
+    private final ConcurrentHashMap<String, BridgeExecutor> executors = new ConcurrentHashMap<>();
+
+    private BridgeExecutors(ExtendedActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.bridge");
+        this.system = system;
+        this.log = Logging.getLogger(system, getClass());
+        this.executorsConfig = config.getConfig("executors");
+        this.defaults = config.getConfig("executor-defaults");
+        system.registerOnTermination(() -> executors.values().forEach(BridgeExecutor::shutdown));
+        if (config.getBoolean("jmx-enabled")) {
+            registerMBean(system);
+        }
+    }
+
+    private void registerMBean(ActorSystem system) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("com.gft:type=BridgeExecutors,system=" + ObjectName.quote(system.name()));
+            server.registerMBean(this, name);
+            system.registerOnTermination(() -> {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException e) {
+                    log.debug("Could not unregister {}: {}", name, e.getMessage());
+                }
+            });
+        } catch (JMException e) {
+            log.warning("BridgeExecutors MBean not registered: {}", e.getMessage());
+        }
+    }
+
+    /** The executor declared as {@code gft.bridge.executors.<name>}. */
+    public ThreadPoolExecutor executor(String name) {
+        return executors.computeIfAbsent(name, this::create).pool;
+    }
+
+    /** The same executor as an Akka {@code ExecutionContext}, e.g. for {@code Future} callbacks. */
+    public ExecutionContextExecutor executionContext(String name) {
+        return ExecutionContexts.fromExecutor(executor(name));
+    }
+
+    /**
+     * {@code CompletableFuture.supplyAsync} on the named executor instead of the common pool. A rejected task
+     * fails the returned stage instead of throwing, so it reaches {@link PipeTo} as a {@code Status.Failure}.
+     */
+    public <T> CompletableFuture<T> supplyAsync(String name, Supplier<T> supplier) {
+        ThreadPoolExecutor executor = executor(name);
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return failed(e);
+        }
+    }
+
+    /** As {@link #supplyAsync}. */
+    public CompletableFuture<Void> runAsync(String name, Runnable runnable) {
+        ThreadPoolExecutor executor = executor(name);
+        try {
+            return CompletableFuture.runAsync(runnable, executor);
+        } catch (RejectedExecutionException e) {
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable cause) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /** Sends the outcome of {@code stage} to {@code target}, see {@link PipeTo}. */
+    public static <T> CompletionStage<T> pipe(CompletionStage<T> stage, ActorRef target, ActorRef sender) {
+        return stage.whenComplete(PipeTo.to(target, sender));
+    }
+
+    @Override
+    public List<BridgeExecutorSnapshot> getExecutors() {
+        Map<String, BridgeExecutor> sorted = new TreeMap<>(executors);
+        List<BridgeExecutorSnapshot> result = new ArrayList<>(sorted.size());
+        for (BridgeExecutor executor : sorted.values()) {
+            result.add(executor.snapshot());
+        }
+        return result;
+    }
+
+    public BridgeExecutorSnapshot snapshot(String name) {
+        return executors.computeIfAbsent(name, this::create).snapshot();
+    }
+
+    private BridgeExecutor create(String name) {
+        if (!executorsConfig.hasPath(ConfigUtil.quoteString(name))) {
+            throw new IllegalArgumentException("No bridge executor gft.bridge.executors." + name
+                    + ", configured: " + executorsConfig.root().keySet());
+        }
+        Config config = executorsConfig.getConfig(ConfigUtil.quoteString(name)).withFallback(defaults);
+        return new BridgeExecutor(system.name() + "-bridge-" + name, name,
+                config.getInt("threads"), config.getInt("queue-size"), config.getString("on-full"));
+    }
+
+    // ------------------------------------------------------------
+    // One executor
+    // ------------------------------------------------------------
+
+    private static final class BridgeExecutor {
+        final String name;
+        final ThreadPoolExecutor pool;
+        final ArrayBlockingQueue<Runnable> queue;
+        final LongAdder rejected = new LongAdder();
+
+        BridgeExecutor(String threadPrefix, String name, int threads, int queueSize, String onFull) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            AtomicInteger counter = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, r -> {
+                Thread t = new Thread(r, threadPrefix + "-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, rejectionHandler(onFull));
+        }
+
+        private RejectedExecutionHandler rejectionHandler(String onFull) {
+            switch (onFull) {
+                case "reject":
+                    return (task, executor) -> {
+                        rejected.increment();
+                        new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, executor);
+                    };
+                case "caller-runs":
+                    return new ThreadPoolExecutor.CallerRunsPolicy();
+                default:
+                    throw new IllegalArgumentException("on-full must be reject or caller-runs: " + onFull);
+            }
+        }
+
+        BridgeExecutorSnapshot snapshot() {
+            return new BridgeExecutorSnapshot(name, pool.getCorePoolSize(), pool.getActiveCount(), queue.size(),
+                    queue.size() + queue.remainingCapacity(), pool.getCompletedTaskCount(), rejected.sum());
+        }
+
+        void shutdown() {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.gft.interop;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link BridgeExecutors}, registered as
+ * {@code com.gft:type=BridgeExecutors,system=<system name>}.
+ */
+public interface BridgeExecutorsMXBean {
+
+    /** The executors started so far (they are created on first use). */
+    List<BridgeExecutorSnapshot> getExecutors();
+}
@@ -0,0 +1,48 @@
+package com.gft.interop;
+
+import akka.actor.ActorRef;
+import akka.actor.Status;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Completion callback sending the outcome of a stage to an actor: the value as is, a failure as
+ * {@link Status.Failure} with the {@link CompletionException} unwrapped (as {@code Patterns.pipe} does).
+ *
+ * Unlike {@code Patterns.pipe(stage, dispatcher)} it tells from the completing thread instead of hopping to a
+ * dispatcher first, and it is stateless, so an actor can keep one instance and attach it to every stage:
+ * <pre>
+ * private final PipeTo toSelf = PipeTo.to(getSelf());
+ * ...
+ * bridge.supplyAsync("blocking-io", this::load).whenComplete(toSelf);
+ * </pre>
+ */
+public final class PipeTo implements BiConsumer<Object, Throwable> {
+
+    private final ActorRef target;
+    private final ActorRef sender;
+
+    private PipeTo(ActorRef target, ActorRef sender) {
+        this.target = target;
+        this.sender = sender;
+    }
+
+    public static PipeTo to(ActorRef target) {
+        return new PipeTo(target, ActorRef.noSender());
+    }
+
+    public static PipeTo to(ActorRef target, ActorRef sender) {
+        return new PipeTo(target, sender);
+    }
+
+    @Override
+    public void accept(Object value, Throwable failure) {
+        if (failure == null) {
+            target.tell(value, sender);
+        } else {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            target.tell(new Status.Failure(cause), sender);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gft.persistence;
+
+import akka.actor.NoSerializationVerificationNeeded;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.persistence.AbstractPersistentActor;
+import akka.persistence.DeleteMessagesFailure;
+import akka.persistence.DeleteMessagesSuccess;
+import akka.persistence.DeleteSnapshotsFailure;
+import akka.persistence.DeleteSnapshotsSuccess;
+import akka.persistence.RecoveryCompleted;
+import akka.persistence.SaveSnapshotFailure;
+import akka.persistence.SaveSnapshotSuccess;
+import akka.persistence.SnapshotOffer;
+import akka.persistence.SnapshotSelectionCriteria;
+import com.gft.actor.IntResult;
+import com.gft.actor.WorkerActor;
+import com.typesafe.config.Config;
+
+import java.io.Serializable;
+
+/**
+ * Event-sourced variant of {@link WorkerActor}: same {@code Compute} protocol, plus a durable
+ * {@link WorkerAggregate} of every result.
+ *
+ * Events go to the segment-file journal with {@code persistAsync}, so commands are not stashed while
+ * a write is in flight and many events share one journal batch (and fsync). A snapshot is saved every
+ * {@code snapshot-every} events, so recovery replays at most that many events. Settings under
+ * {@code gft.persistence.worker}.
+ */
+public class PersistentWorkerActor extends AbstractPersistentActor {
+
+    /** Event: one {@code Compute(x)} was handled. */
+    public static final class Computed implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final int x;
+        public Computed(int x) { this.x = x; }
+    }
+
+    /** Replied with the current {@link WorkerAggregate}. */
+    public static final class GetAggregate implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public static final GetAggregate INSTANCE = new GetAggregate();
+
+        private GetAggregate() { }
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    /** Local diagnostics: replied with {@link RecoveryStats}. */
+    public static final class GetRecoveryStats implements NoSerializationVerificationNeeded {
+        public static final GetRecoveryStats INSTANCE = new GetRecoveryStats();
+
+        private GetRecoveryStats() { }
+    }
+
+    public static final class RecoveryStats implements NoSerializationVerificationNeeded {
+        public final long snapshotSequenceNr;
+        public final long eventsReplayed;
+        public final long recoveryNanos;
+
+        public RecoveryStats(long snapshotSequenceNr, long eventsReplayed, long recoveryNanos) {
+            this.snapshotSequenceNr = snapshotSequenceNr;
+            this.eventsReplayed = eventsReplayed;
+            this.recoveryNanos = recoveryNanos;
+        }
+    }
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+
+    private final String persistenceId;
+    private final long snapshotEvery;
+    private final boolean deleteEventsOnSnapshot;
+
+    private WorkerAggregate aggregate = WorkerAggregate.EMPTY;
+
+    private final long recoveryStart = System.nanoTime();
+    private long snapshotSequenceNr;
+    private long eventsReplayed;
+    private RecoveryStats recoveryStats;
+
+    public static Props props(String workerId) {
+        return Props.create(PersistentWorkerActor.class, () -> new PersistentWorkerActor(workerId));
+    }
+
+    public PersistentWorkerActor(String workerId) {
+        Config config = getContext().getSystem().settings().config().getConfig("gft.persistence.worker");
+        this.persistenceId = "worker-" + workerId;
+        this.snapshotEvery = config.getLong("snapshot-every");
+        this.deleteEventsOnSnapshot = config.getBoolean("delete-events-on-snapshot");
+    }
+
+    @Override
+    public String persistenceId() {
+        return persistenceId;
+    }
+
+    // read from config on each call: Eventsourced resolves the plugins before this constructor runs
+
+    @Override
+    public String journalPluginId() {
+        return getContext().getSystem().settings().config().getString("gft.persistence.worker.journal-plugin");
+    }
+
+    @Override
+    public String snapshotPluginId() {
+        return getContext().getSystem().settings().config().getString("gft.persistence.worker.snapshot-plugin");
+    }
+
+    @Override
+    public Receive createReceiveRecover() {
+        return receiveBuilder()
+                .match(SnapshotOffer.class, offer -> {
+                    aggregate = (WorkerAggregate) offer.snapshot();
+                    snapshotSequenceNr = offer.metadata().sequenceNr();
+                })
+                .match(Computed.class, event -> {
+                    aggregate = aggregate.plus(event.x * 2);
+                    eventsReplayed++;
+                })
+                .match(RecoveryCompleted.class, done -> {
+                    recoveryStats = new RecoveryStats(snapshotSequenceNr, eventsReplayed, System.nanoTime() - recoveryStart);
+                    log.debug("Recovered {} from snapshot {} + {} events", persistenceId, snapshotSequenceNr, eventsReplayed);
+                })
+                .build();
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(WorkerActor.Compute.class, msg -> {
+                    int result = msg.x * 2;
+                    Object reply = msg.typedReply ? IntResult.of(result) : (Object) result;
+                    persistAsync(new Computed(msg.x), event -> {
+                        aggregate = aggregate.plus(result);
+                        getSender().tell(reply, getSelf());
+                        if (lastSequenceNr() % snapshotEvery == 0) {
+                            saveSnapshot(aggregate);
+                        }
+                    });
+                })
+                .match(GetAggregate.class, msg -> deferAsync(msg, m -> getSender().tell(aggregate, getSelf())))
+                .match(GetRecoveryStats.class, msg -> getSender().tell(recoveryStats, getSelf()))
+                .match(SaveSnapshotSuccess.class, ok -> {
+                    // keep the previous snapshot as a fallback, drop everything older
+                    long previous = ok.metadata().sequenceNr() - snapshotEvery;
+                    if (previous > 0) {
+                        deleteSnapshots(SnapshotSelectionCriteria.create(previous - 1, Long.MAX_VALUE));
+                        if (deleteEventsOnSnapshot) {
+                            deleteMessages(previous);
+                        }
+                    }
+                })
+                .match(SaveSnapshotFailure.class, f -> log.warning("Snapshot of {} failed: {}", persistenceId, f.cause()))
+                .match(DeleteSnapshotsSuccess.class, ok -> { })
+                .match(DeleteMessagesSuccess.class, ok -> { })
+                .match(DeleteSnapshotsFailure.class, f -> log.warning("Deleting snapshots of {} failed: {}", persistenceId, f.cause()))
+                .match(DeleteMessagesFailure.class, f -> log.warning("Deleting events of {} failed: {}", persistenceId, f.cause()))
+                .build();
+    }
+}
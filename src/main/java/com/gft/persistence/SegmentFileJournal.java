@@ -0,0 +1,354 @@
+package com.gft.persistence;
+
+import akka.dispatch.Futures;
+import akka.persistence.AtomicWrite;
+import akka.persistence.PersistentRepr;
+import akka.persistence.journal.japi.AsyncWriteJournal;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import com.typesafe.config.Config;
+import scala.concurrent.Future;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Local journal plugin storing each persistence id in append-only segment files.
+ *
+ * Layout: {@code <dir>/<url-encoded persistence id>/<first sequence nr, 20 digits>.seg}, records are
+ * {@code [int length][long sequenceNr][int crc32][serialized PersistentRepr]}. A segment is rolled once
+ * it exceeds {@code segment-size}; segments below a deletion mark are removed, so together with snapshots
+ * replay only touches the tail of the log.
+ *
+ * All writes of one {@code asyncWriteMessages} call (Akka already groups concurrent persist calls into
+ * one batch, see {@code max-message-batch-size}) are followed by a single fsync per touched segment.
+ * A torn record at the end of the last segment (crash during write) is truncated on open, and a last segment
+ * left empty by the crash is dropped.
+ *
+ * IO is synchronous on the plugin dispatcher (pinned by default), which is the intended place for it.
+ */
+public class SegmentFileJournal extends AsyncWriteJournal {
+
+    static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DELETED_TO_FILE = "deleted-to";
+
+    private final Path dir;
+    private final long segmentSize;
+    private final boolean fsync;
+    private final Serialization serialization;
+    private final Map<String, PidLog> logs = new HashMap<>();
+
+    public SegmentFileJournal(Config config) {
+        this.dir = Paths.get(config.getString("dir"));
+        this.segmentSize = config.getBytes("segment-size");
+        this.fsync = config.getBoolean("fsync");
+        this.serialization = SerializationExtension.get(context().system());
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        for (PidLog log : logs.values()) {
+            log.close();
+        }
+        logs.clear();
+        super.postStop();
+    }
+
+    // ------------------------------------------------------------
+    // AsyncWriteJournal
+    // ------------------------------------------------------------
+
+    @Override
+    public Future<Iterable<Optional<Exception>>> doAsyncWriteMessages(Iterable<AtomicWrite> messages) {
+        List<Optional<Exception>> results = new ArrayList<>();
+        Set<PidLog> touched = new HashSet<>();
+        try {
+            for (AtomicWrite write : messages) {
+                // serialize the whole atomic write first: a rejection must not leave partial writes behind
+                List<byte[]> payloads = new ArrayList<>();
+                List<Long> sequenceNrs = new ArrayList<>();
+                Exception rejection = null;
+                scala.collection.Iterator<PersistentRepr> it = write.payload().iterator();
+                while (it.hasNext()) {
+                    PersistentRepr repr = it.next();
+                    scala.util.Try<byte[]> bytes = serialization.serialize(repr);
+                    if (bytes.isFailure()) {
+                        rejection = (Exception) bytes.failed().get();
+                        break;
+                    }
+                    payloads.add(bytes.get());
+                    sequenceNrs.add(repr.sequenceNr());
+                }
+                if (rejection != null) {
+                    results.add(Optional.of(rejection));
+                    continue;
+                }
+                PidLog log = log(write.persistenceId());
+                for (int i = 0; i < payloads.size(); i++) {
+                    log.append(sequenceNrs.get(i), payloads.get(i));
+                }
+                touched.add(log);
+                results.add(Optional.empty());
+            }
+            for (PidLog log : touched) {
+                log.flush();
+            }
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+        return Futures.successful(results);
+    }
+
+    @Override
+    public Future<Void> doAsyncDeleteMessagesTo(String persistenceId, long toSequenceNr) {
+        try {
+            log(persistenceId).deleteTo(toSequenceNr);
+            return Futures.successful(null);
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+    }
+
+    @Override
+    public Future<Void> doAsyncReplayMessages(String persistenceId, long fromSequenceNr, long toSequenceNr, long max,
+                                              Consumer<PersistentRepr> replayCallback) {
+        try {
+            log(persistenceId).replay(fromSequenceNr, toSequenceNr, max, bytes ->
+                    replayCallback.accept(serialization.deserialize(bytes, PersistentRepr.class).get()));
+            return Futures.successful(null);
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+    }
+
+    @Override
+    public Future<Long> doAsyncReadHighestSequenceNr(String persistenceId, long fromSequenceNr) {
+        try {
+            return Futures.successful(log(persistenceId).highestSequenceNr);
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+    }
+
+    private PidLog log(String persistenceId) throws IOException {
+        PidLog log = logs.get(persistenceId);
+        if (log == null) {
+            log = new PidLog(dir.resolve(encode(persistenceId)));
+            logs.put(persistenceId, log);
+        }
+        return log;
+    }
+
+    private static String encode(String persistenceId) {
+        try {
+            return URLEncoder.encode(persistenceId, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // One persistence id
+    // ------------------------------------------------------------
+
+    private final class PidLog {
+        private final Path pidDir;
+        /** first sequence nr -> segment file, ascending */
+        private final TreeMap<Long, Path> segments = new TreeMap<>();
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        private FileChannel current;
+        private long currentSize;
+        private boolean dirty;
+        long highestSequenceNr;
+        long deletedTo;
+
+        PidLog(Path pidDir) throws IOException {
+            this.pidDir = pidDir;
+            Files.createDirectories(pidDir);
+            File[] files = pidDir.toFile().listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+            if (files != null) {
+                for (File f : files) {
+                    String name = f.getName();
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), f.toPath());
+                }
+            }
+            Path deletedToFile = pidDir.resolve(DELETED_TO_FILE);
+            if (Files.exists(deletedToFile)) {
+                deletedTo = Long.parseLong(new String(Files.readAllBytes(deletedToFile), "UTF-8").trim());
+            }
+            highestSequenceNr = deletedTo;
+            if (!segments.isEmpty()) {
+                openLastSegment();
+            }
+        }
+
+        /**
+         * Scans the last segment for the highest sequence nr and cuts off a torn tail record. A last segment left
+         * empty (rolled right before a crash, or holding only a torn first record) is deleted and the one before
+         * it scanned instead: the highest sequence nr must not fall back to the deletion mark.
+         */
+        private void openLastSegment() throws IOException {
+            while (true) {
+                Map.Entry<Long, Path> last = segments.lastEntry();
+                current = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long validEnd = scan(current, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, null);
+                if (validEnd == 0 && segments.size() > 1) {
+                    current.close();
+                    Files.delete(last.getValue());
+                    segments.remove(last.getKey());
+                    continue;
+                }
+                if (validEnd < current.size()) {
+                    current.truncate(validEnd);
+                    current.force(true);
+                }
+                // the segment was rolled for its first sequence nr, so all below it were written
+                highestSequenceNr = Math.max(highestSequenceNr, last.getKey() - 1);
+                currentSize = validEnd;
+                current.position(validEnd);
+                return;
+            }
+        }
+
+        void append(long sequenceNr, byte[] payload) throws IOException {
+            if (current == null || currentSize >= segmentSize) {
+                roll(sequenceNr);
+            }
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            header.clear();
+            header.putInt(payload.length).putLong(sequenceNr).putInt((int) crc.getValue()).flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                current.write(new ByteBuffer[] {header, body});
+            }
+            currentSize += HEADER_SIZE + payload.length;
+            highestSequenceNr = Math.max(highestSequenceNr, sequenceNr);
+            dirty = true;
+        }
+
+        private void roll(long firstSequenceNr) throws IOException {
+            if (current != null) {
+                flush();
+                current.close();
+            }
+            Path segment = pidDir.resolve(String.format("%020d%s", firstSequenceNr, SEGMENT_SUFFIX));
+            current = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            currentSize = current.size();
+            current.position(currentSize);
+            segments.put(firstSequenceNr, segment);
+        }
+
+        void flush() throws IOException {
+            if (dirty && fsync) {
+                current.force(false);
+            }
+            dirty = false;
+        }
+
+        void replay(long from, long to, long max, Consumer<byte[]> callback) throws IOException {
+            long effectiveFrom = Math.max(from, deletedTo + 1);
+            // start at the segment containing effectiveFrom: earlier ones are never read
+            Long start = segments.floorKey(effectiveFrom);
+            long[] remaining = {max};
+            for (Path segment : (start == null ? segments : segments.tailMap(start, true)).values()) {
+                if (remaining[0] <= 0) {
+                    return;
+                }
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    scan(channel, effectiveFrom, to, remaining[0], bytes -> {
+                        remaining[0]--;
+                        callback.accept(bytes);
+                    });
+                }
+            }
+        }
+
+        /**
+         * Reads records from position 0, passing payloads within [from, to] (at most {@code max}) to
+         * {@code callback}. Returns the end offset of the last intact record.
+         */
+        private long scan(FileChannel channel, long from, long to, long max, Consumer<byte[]> callback) throws IOException {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE);
+            long size = channel.size();
+            long position = 0;
+            long delivered = 0;
+            while (position + HEADER_SIZE <= size) {
+                head.clear();
+                channel.read(head, position);
+                head.flip();
+                int length = head.getInt();
+                long sequenceNr = head.getLong();
+                int checksum = head.getInt();
+                if (length < 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                highestSequenceNr = Math.max(highestSequenceNr, sequenceNr);
+                if (callback != null && (sequenceNr > to || delivered >= max)) {
+                    return position;
+                }
+                if (callback != null && sequenceNr >= from) {
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    channel.read(payload, position + HEADER_SIZE);
+                    crc.reset();
+                    crc.update(payload.array(), 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        throw new IOException("Corrupt record " + sequenceNr + " in " + pidDir);
+                    }
+                    callback.accept(payload.array());
+                    delivered++;
+                }
+                position += HEADER_SIZE + length;
+            }
+            return position;
+        }
+
+        void deleteTo(long toSequenceNr) throws IOException {
+            long target = Math.min(toSequenceNr, highestSequenceNr);
+            if (target <= deletedTo) {
+                return;
+            }
+            deletedTo = target;
+            Path tmp = pidDir.resolve(DELETED_TO_FILE + ".tmp");
+            Files.write(tmp, Long.toString(deletedTo).getBytes("UTF-8"));
+            Files.move(tmp, pidDir.resolve(DELETED_TO_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // a segment is fully deleted when the next one starts at or below deletedTo + 1; the last stays
+            List<Long> starts = new ArrayList<>(segments.keySet());
+            for (int i = 0; i + 1 < starts.size(); i++) {
+                if (starts.get(i + 1) <= deletedTo + 1) {
+                    Files.deleteIfExists(segments.remove(starts.get(i)));
+                }
+            }
+        }
+
+        void close() throws IOException {
+            if (current != null) {
+                flush();
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.gft.persistence;
+
+import java.io.Serializable;
+
+/**
+ * Running aggregate of the results computed by a {@link PersistentWorkerActor}; also its snapshot.
+ */
+public final class WorkerAggregate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final WorkerAggregate EMPTY = new WorkerAggregate(0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+    public final long count;
+    public final long sum;
+    public final int min;
+    public final int max;
+
+    public WorkerAggregate(long count, long sum, int min, int max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public WorkerAggregate plus(int result) {
+        return new WorkerAggregate(count + 1, sum + result, Math.min(min, result), Math.max(max, result));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WorkerAggregate)) {
+            return false;
+        }
+        WorkerAggregate other = (WorkerAggregate) o;
+        return count == other.count && sum == other.sum && min == other.min && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (31 * (31 * (31 * count + sum) + min) + max);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerAggregate(count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ")";
+    }
+}
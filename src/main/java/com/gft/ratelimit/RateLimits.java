@@ -0,0 +1,113 @@
+package com.gft.ratelimit;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigUtil;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named {@link TokenBucket}s shared across the ActorSystem, one per external quota, so that direct calls and
+ * every stream calling the same remote draw from one bucket instead of splitting the quota up front.
+ *
+ * Buckets are declared under {@code gft.rate-limits.buckets} and created on first use. Usage:
+ * <pre>
+ * TokenBucket quota = RateLimits.get(system).bucket("remote");
+ * // synchronous path
+ * if (!quota.tryAcquire(1, Duration.ofMillis(200))) { throw new QuotaExceededException(); }
+ * // streams
+ * requests.via(quota.throttle()).mapAsync(4, collaborator::callRemoteAsync)
+ * </pre>
+ */
+public final class RateLimits implements Extension, RateLimitsMXBean {
+
+    public static final Id ID = new Id();
+
+    public static RateLimits get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<RateLimits> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public RateLimits createExtension(ExtendedActorSystem system) {
+            return new RateLimits(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final LoggingAdapter log;
+    private final Config bucketsConfig;
+    private final Config defaults;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private RateLimits(ExtendedActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.rate-limits");
+        this.log = Logging.getLogger(system, getClass());
+        this.bucketsConfig = config.getConfig("buckets");
+        this.defaults = config.getConfig("bucket-defaults");
+        if (config.getBoolean("jmx-enabled")) {
+            registerMBean(system);
+        }
+    }
+
+    private void registerMBean(ActorSystem system) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("com.gft:type=RateLimits,system=" + ObjectName.quote(system.name()));
+            server.registerMBean(this, name);
+            system.registerOnTermination(() -> {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException e) {
+                    log.debug("Could not unregister {}: {}", name, e.getMessage());
+                }
+            });
+        } catch (JMException e) {
+            log.warning("RateLimits MBean not registered: {}", e.getMessage());
+        }
+    }
+
+    /** The bucket declared as {@code gft.rate-limits.buckets.<name>}. */
+    public TokenBucket bucket(String name) {
+        return buckets.computeIfAbsent(name, this::create);
+    }
+
+    @Override
+    public List<TokenBucketSnapshot> getBuckets() {
+        Map<String, TokenBucket> sorted = new TreeMap<>(buckets);
+        List<TokenBucketSnapshot> result = new ArrayList<>(sorted.size());
+        for (TokenBucket bucket : sorted.values()) {
+            result.add(bucket.snapshot());
+        }
+        return result;
+    }
+
+    private TokenBucket create(String name) {
+        if (!bucketsConfig.hasPath(ConfigUtil.quoteString(name))) {
+            throw new IllegalArgumentException("No rate limit gft.rate-limits.buckets." + name
+                    + ", configured: " + bucketsConfig.root().keySet());
+        }
+        Config config = bucketsConfig.getConfig(ConfigUtil.quoteString(name)).withFallback(defaults);
+        return new TokenBucket(name, config.getDouble("permits-per-second"), config.getInt("burst"));
+    }
+}
@@ -0,0 +1,13 @@
+package com.gft.ratelimit;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link RateLimits}, registered as
+ * {@code com.gft:type=RateLimits,system=<system name>}.
+ */
+public interface RateLimitsMXBean {
+
+    /** The buckets used so far (they are created on first use). */
+    List<TokenBucketSnapshot> getBuckets();
+}
@@ -0,0 +1,156 @@
+package com.gft.ratelimit;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Flow;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+
+/**
+ * A lock-free token bucket shared by synchronous callers and streams, so that one quota covers both:
+ * - {@link #tryAcquire(int)}: take permits now or not at all
+ * - {@link #tryAcquire(int, Duration)}: block the calling thread up to a timeout
+ * - {@link #throttle()}: a stream operator that backpressures instead of blocking
+ *
+ * The state is a single {@code AtomicLong}, the theoretical time at which the bucket is full again (GCRA):
+ * taking {@code n} permits moves it {@code n / permitsPerSecond} forward, and it may run at most
+ * {@code burst / permitsPerSecond} ahead of the clock. A waiting caller reserves its permits first and then
+ * waits for their time, so callers are served in arrival order and no permit is left unused while someone
+ * waits: the bucket runs exactly at quota under contention.
+ *
+ * Streams wait on the materializer's scheduler, which fires with tick granularity
+ * ({@code akka.scheduler.tick-duration}, 10ms by default); a burst of at least {@code permitsPerSecond}
+ * times the tick keeps a throttled stream at the full rate.
+ */
+public final class TokenBucket {
+
+    private final String name;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    /** Time (System.nanoTime) at which all permits are available again; behind the clock when full. */
+    private final AtomicLong fullAt;
+
+    final LongAdder granted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+
+    public TokenBucket(String name, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || permitsPerSecond > 1e9) {
+            throw new IllegalArgumentException("permitsPerSecond must be in (0, 1e9], got " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive, got " + burst);
+        }
+        this.name = name;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.nanosPerPermit = Math.max(1L, Math.round(1e9 / permitsPerSecond));
+        this.burstNanos = burst * nanosPerPermit;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int burst() {
+        return burst;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /** Takes {@code permits} if they are available now; never waits. */
+    public boolean tryAcquire(int permits) {
+        if (reserve(permits, 0L) < 0) {
+            rejected.increment();
+            return false;
+        }
+        granted.add(permits);
+        return true;
+    }
+
+    /**
+     * Takes {@code permits}, waiting for them if they become available within {@code timeout}. Returns
+     * {@code false} immediately, without taking anything, when they would not.
+     *
+     * @throws InterruptedException if interrupted while waiting; the permits are then lost
+     */
+    public boolean tryAcquire(int permits, Duration timeout) throws InterruptedException {
+        long wait = reserve(permits, timeout.toNanos());
+        if (wait < 0) {
+            rejected.increment();
+            return false;
+        }
+        granted.add(permits);
+        if (wait > 0) {
+            long deadline = System.nanoTime() + wait;
+            long remaining = wait;
+            while (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Interrupted waiting for " + permits + " permits of " + name);
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        return true;
+    }
+
+    /** Permits that {@link #tryAcquire(int)} could take right now. */
+    public int availablePermits() {
+        long ahead = Math.max(0L, fullAt.get() - System.nanoTime());
+        return (int) ((burstNanos - ahead) / nanosPerPermit);
+    }
+
+    /** Elements pass at the bucket's rate, one permit each; upstream is backpressured meanwhile. */
+    public <T> Flow<T, T, NotUsed> throttle() {
+        return throttle(element -> 1);
+    }
+
+    /** Elements pass at the bucket's rate, {@code cost} permits each (at most {@link #burst()}). */
+    public <T> Flow<T, T, NotUsed> throttle(ToIntFunction<T> cost) {
+        return Flow.fromGraph(new TokenBucketStage<>(this, cost));
+    }
+
+    /**
+     * Takes {@code permits} if they are available within {@code maxWaitNanos} and returns the nanos to wait
+     * before using them; {@code -1} (nothing taken) otherwise.
+     */
+    long reserve(int permits, long maxWaitNanos) {
+        if (permits < 1 || permits > burst) {
+            throw new IllegalArgumentException("permits must be in [1, " + burst + "] for " + name + ", got " + permits);
+        }
+        long cost = permits * nanosPerPermit;
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1L;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0L, wait);
+            }
+        }
+    }
+
+    TokenBucketSnapshot snapshot() {
+        return new TokenBucketSnapshot(name, permitsPerSecond, burst, availablePermits(), granted.sum(), rejected.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket(" + name + ", " + permitsPerSecond + "/s, burst " + burst + ")";
+    }
+}
@@ -0,0 +1,48 @@
+package com.gft.ratelimit;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of one {@link TokenBucket}.
+ * Getter-based so that it maps to {@code CompositeData} on the MXBean.
+ */
+public final class TokenBucketSnapshot {
+
+    private final String name;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int availablePermits;
+    private final long granted;
+    private final long rejected;
+
+    @ConstructorProperties({"name", "permitsPerSecond", "burst", "availablePermits", "granted", "rejected"})
+    public TokenBucketSnapshot(String name, double permitsPerSecond, int burst, int availablePermits,
+                               long granted, long rejected) {
+        this.name = name;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.availablePermits = availablePermits;
+        this.granted = granted;
+        this.rejected = rejected;
+    }
+
+    public String getName() { return name; }
+
+    public double getPermitsPerSecond() { return permitsPerSecond; }
+
+    public int getBurst() { return burst; }
+
+    public int getAvailablePermits() { return availablePermits; }
+
+    /** Permits handed out, to synchronous callers and streams. */
+    public long getGranted() { return granted; }
+
+    /** {@code tryAcquire} calls that returned {@code false}. */
+    public long getRejected() { return rejected; }
+
+    @Override
+    public String toString() {
+        return "TokenBucketSnapshot(" + name + ", " + permitsPerSecond + "/s, burst=" + burst
+                + ", available=" + availablePermits + ", granted=" + granted + ", rejected=" + rejected + ")";
+    }
+}
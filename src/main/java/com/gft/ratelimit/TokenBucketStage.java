@@ -0,0 +1,92 @@
+package com.gft.ratelimit;
+
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+/**
+ * Passes each element once its permits are reserved in a shared {@link TokenBucket} and their time has come.
+ * At most one element waits in the stage, and upstream is not pulled meanwhile, so a stream never holds more
+ * than one reservation ahead of the synchronous callers of the same bucket.
+ */
+final class TokenBucketStage<T> extends GraphStage<FlowShape<T, T>> {
+
+    private static final String RELEASE = "release";
+
+    private final Inlet<T> in = Inlet.create("TokenBucket.in");
+    private final Outlet<T> out = Outlet.create("TokenBucket.out");
+    private final FlowShape<T, T> shape = FlowShape.of(in, out);
+    private final TokenBucket bucket;
+    private final ToIntFunction<T> cost;
+
+    TokenBucketStage(TokenBucket bucket, ToIntFunction<T> cost) {
+        this.bucket = bucket;
+        this.cost = cost;
+    }
+
+    @Override
+    public FlowShape<T, T> shape() {
+        return shape;
+    }
+
+    @Override
+    public Attributes initialAttributes() {
+        return Attributes.name("tokenBucket");
+    }
+
+    @Override
+    public GraphStageLogic createLogic(Attributes attributes) {
+        return new TimerGraphStageLogic(shape) {
+            private T waiting;
+
+            {
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        T element = grab(in);
+                        int permits = cost.applyAsInt(element);
+                        long wait = bucket.reserve(permits, Long.MAX_VALUE);
+                        bucket.granted.add(permits);
+                        if (wait == 0) {
+                            push(out, element);
+                        } else {
+                            waiting = element;
+                            scheduleOnce(RELEASE, Duration.ofNanos(wait));
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        if (waiting == null) {
+                            completeStage();
+                        }
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        pull(in);
+                    }
+                });
+            }
+
+            @Override
+            public void onTimer(Object key) {
+                push(out, waiting);
+                waiting = null;
+                if (isClosed(in)) {
+                    completeStage();
+                }
+            }
+        };
+    }
+}
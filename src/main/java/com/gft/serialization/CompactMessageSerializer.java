@@ -0,0 +1,295 @@
+package com.gft.serialization;
+
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.SerializerWithStringManifest;
+import com.gft.actor.IntResult;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.LegacyTimerActor;
+import com.gft.actor.LongResult;
+import com.gft.actor.WorkerActor;
+import com.gft.cluster.ComputeEnvelope;
+import com.gft.persistence.PersistentWorkerActor;
+import com.gft.persistence.WorkerAggregate;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary serializer for the worker and tick protocols.
+ *
+ * Manifests are a single character; numeric payloads are zig-zag varints (1 byte for |x| < 64),
+ * and stateless singleton messages encode to zero bytes. Deserialized {@code Compute} and result
+ * messages come from the same pools as locally created ones.
+ *
+ * Bound in reference.conf under {@code akka.actor.serialization-bindings}.
+ */
+public final class CompactMessageSerializer extends SerializerWithStringManifest {
+
+    public static final int IDENTIFIER = 7401;
+
+    static final String COMPUTE = "C";
+    static final String COMPUTE_TYPED = "T";
+    static final String COMPUTE_LONG = "L";
+    static final String INT_RESULT = "I";
+    static final String LONG_RESULT = "J";
+    static final String TICK = "S";
+    static final String TIMER_TICK = "R";
+    static final String TIMER_START = "B";
+    static final String COMPUTE_ENVELOPE = "K";
+    static final String COMPUTED = "E";
+    static final String GET_AGGREGATE = "G";
+    static final String AGGREGATE = "A";
+    static final String COMPUTE_BATCH = "M";
+    static final String BATCH_RESULT = "N";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    public CompactMessageSerializer(ExtendedActorSystem system) {
+        // stateless
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof WorkerActor.Compute) {
+            return ((WorkerActor.Compute) o).typedReply ? COMPUTE_TYPED : COMPUTE;
+        } else if (o instanceof IntResult) {
+            return INT_RESULT;
+        } else if (o instanceof LongResult) {
+            return LONG_RESULT;
+        } else if (o instanceof WorkerActor.ComputeLong) {
+            return COMPUTE_LONG;
+        } else if (o instanceof LegacySchedulerActor.Tick) {
+            return TICK;
+        } else if (o instanceof LegacyTimerActor.TimerTick) {
+            return TIMER_TICK;
+        } else if (o instanceof LegacyTimerActor.Start) {
+            return TIMER_START;
+        } else if (o instanceof ComputeEnvelope) {
+            return COMPUTE_ENVELOPE;
+        } else if (o instanceof PersistentWorkerActor.Computed) {
+            return COMPUTED;
+        } else if (o instanceof PersistentWorkerActor.GetAggregate) {
+            return GET_AGGREGATE;
+        } else if (o instanceof WorkerAggregate) {
+            return AGGREGATE;
+        } else if (o instanceof WorkerActor.ComputeBatch) {
+            return COMPUTE_BATCH;
+        } else if (o instanceof WorkerActor.BatchResult) {
+            return BATCH_RESULT;
+        }
+        throw new IllegalArgumentException("Can't serialize object of type " + o.getClass() + " in " + getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        if (o instanceof WorkerActor.Compute) {
+            return writeVarLong(zigZag(((WorkerActor.Compute) o).x));
+        } else if (o instanceof IntResult) {
+            return writeVarLong(zigZag(((IntResult) o).value));
+        } else if (o instanceof LongResult) {
+            return writeVarLong(zigZag(((LongResult) o).value));
+        } else if (o instanceof WorkerActor.ComputeLong) {
+            return writeVarLong(zigZag(((WorkerActor.ComputeLong) o).x));
+        } else if (o instanceof PersistentWorkerActor.Computed) {
+            return writeVarLong(zigZag(((PersistentWorkerActor.Computed) o).x));
+        } else if (o instanceof LegacySchedulerActor.Tick
+                || o instanceof LegacyTimerActor.TimerTick
+                || o instanceof LegacyTimerActor.Start
+                || o instanceof PersistentWorkerActor.GetAggregate) {
+            return EMPTY;
+        } else if (o instanceof ComputeEnvelope) {
+            return envelopeToBinary((ComputeEnvelope) o);
+        } else if (o instanceof WorkerAggregate) {
+            return aggregateToBinary((WorkerAggregate) o);
+        } else if (o instanceof WorkerActor.ComputeBatch) {
+            WorkerActor.ComputeBatch batch = (WorkerActor.ComputeBatch) o;
+            return intsToBinary(batch.id, batch.xs);
+        } else if (o instanceof WorkerActor.BatchResult) {
+            WorkerActor.BatchResult result = (WorkerActor.BatchResult) o;
+            return intsToBinary(result.id, result.values);
+        }
+        throw new IllegalArgumentException("Can't serialize object of type " + o.getClass() + " in " + getClass().getName());
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        switch (manifest) {
+            case COMPUTE:
+                return WorkerActor.Compute.of((int) unZigZag(readVarLong(bytes)));
+            case COMPUTE_TYPED:
+                return WorkerActor.Compute.typed((int) unZigZag(readVarLong(bytes)));
+            case INT_RESULT:
+                return IntResult.of((int) unZigZag(readVarLong(bytes)));
+            case LONG_RESULT:
+                return LongResult.of(unZigZag(readVarLong(bytes)));
+            case COMPUTE_LONG:
+                return new WorkerActor.ComputeLong(unZigZag(readVarLong(bytes)));
+            case TICK:
+                return LegacySchedulerActor.Tick.INSTANCE;
+            case TIMER_TICK:
+                return LegacyTimerActor.TimerTick.INSTANCE;
+            case TIMER_START:
+                return LegacyTimerActor.Start.INSTANCE;
+            case COMPUTE_ENVELOPE:
+                return envelopeFromBinary(bytes);
+            case COMPUTED:
+                return new PersistentWorkerActor.Computed((int) unZigZag(readVarLong(bytes)));
+            case GET_AGGREGATE:
+                return PersistentWorkerActor.GetAggregate.INSTANCE;
+            case AGGREGATE:
+                return aggregateFromBinary(bytes);
+            case COMPUTE_BATCH:
+                return new WorkerActor.ComputeBatch(readVarLong(bytes), intsFromBinary(bytes));
+            case BATCH_RESULT:
+                return new WorkerActor.BatchResult(readVarLong(bytes), intsFromBinary(bytes));
+            default:
+                throw new NotSerializableException("Unimplemented deserialization of message with manifest [" + manifest
+                        + "] in " + getClass().getName());
+        }
+    }
+
+    /** Layout: [typedReply flag][varint x][UTF-8 key to the end]. */
+    private static byte[] envelopeToBinary(ComputeEnvelope envelope) {
+        long x = zigZag(envelope.compute.x);
+        byte[] key = envelope.key.getBytes(StandardCharsets.UTF_8);
+        int xSize = varLongSize(x);
+        byte[] out = new byte[1 + xSize + key.length];
+        out[0] = (byte) (envelope.compute.typedReply ? 1 : 0);
+        writeVarLong(x, out, 1);
+        System.arraycopy(key, 0, out, 1 + xSize, key.length);
+        return out;
+    }
+
+    private static ComputeEnvelope envelopeFromBinary(byte[] bytes) throws NotSerializableException {
+        if (bytes.length < 2) {
+            throw new NotSerializableException("Truncated ComputeEnvelope in " + CompactMessageSerializer.class.getName());
+        }
+        long zz = readVarLong(bytes, 1);
+        int x = (int) unZigZag(zz);
+        int keyOffset = 1 + varLongSize(zz);
+        String key = new String(bytes, keyOffset, bytes.length - keyOffset, StandardCharsets.UTF_8);
+        return new ComputeEnvelope(key, bytes[0] != 0 ? WorkerActor.Compute.typed(x) : WorkerActor.Compute.of(x));
+    }
+
+    /** Layout: four consecutive varints (count, zig-zag sum, zig-zag min, zig-zag max). */
+    private static byte[] aggregateToBinary(WorkerAggregate aggregate) {
+        long[] fields = {aggregate.count, zigZag(aggregate.sum), zigZag(aggregate.min), zigZag(aggregate.max)};
+        int size = 0;
+        for (long f : fields) {
+            size += varLongSize(f);
+        }
+        byte[] out = new byte[size];
+        int offset = 0;
+        for (long f : fields) {
+            writeVarLong(f, out, offset);
+            offset += varLongSize(f);
+        }
+        return out;
+    }
+
+    private static WorkerAggregate aggregateFromBinary(byte[] bytes) throws NotSerializableException {
+        long[] fields = new long[4];
+        int offset = 0;
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = readVarLong(bytes, offset);
+            offset += varLongSize(fields[i]);
+        }
+        return new WorkerAggregate(fields[0], unZigZag(fields[1]), (int) unZigZag(fields[2]), (int) unZigZag(fields[3]));
+    }
+
+    /** Layout: varint id, varint count, then count zig-zag varints. */
+    private static byte[] intsToBinary(long id, int[] values) {
+        int size = varLongSize(id) + varLongSize(values.length);
+        for (int v : values) {
+            size += varLongSize(zigZag(v));
+        }
+        byte[] out = new byte[size];
+        writeVarLong(id, out, 0);
+        int offset = varLongSize(id);
+        writeVarLong(values.length, out, offset);
+        offset += varLongSize(values.length);
+        for (int v : values) {
+            long zz = zigZag(v);
+            writeVarLong(zz, out, offset);
+            offset += varLongSize(zz);
+        }
+        return out;
+    }
+
+    private static int[] intsFromBinary(byte[] bytes) throws NotSerializableException {
+        int offset = varLongSize(readVarLong(bytes));
+        long count = readVarLong(bytes, offset);
+        offset += varLongSize(count);
+        if (count > bytes.length - offset) {
+            throw new NotSerializableException("Truncated int batch in " + CompactMessageSerializer.class.getName());
+        }
+        int[] values = new int[(int) count];
+        for (int i = 0; i < values.length; i++) {
+            long zz = readVarLong(bytes, offset);
+            values[i] = (int) unZigZag(zz);
+            offset += varLongSize(zz);
+        }
+        return values;
+    }
+
+    // ------------------------------------------------------------
+    // Varint encoding
+    // ------------------------------------------------------------
+
+    static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static int varLongSize(long v) {
+        int size = 1;
+        for (long rest = v >>> 7; rest != 0; rest >>>= 7) {
+            size++;
+        }
+        return size;
+    }
+
+    static byte[] writeVarLong(long v) {
+        byte[] out = new byte[varLongSize(v)];
+        writeVarLong(v, out, 0);
+        return out;
+    }
+
+    static void writeVarLong(long v, byte[] out, int offset) {
+        int i = offset;
+        while ((v & ~0x7FL) != 0) {
+            out[i++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[i] = (byte) v;
+    }
+
+    static long readVarLong(byte[] bytes) throws NotSerializableException {
+        return readVarLong(bytes, 0);
+    }
+
+    static long readVarLong(byte[] bytes, int offset) throws NotSerializableException {
+        long result = 0;
+        int shift = 0;
+        for (int i = offset; i < bytes.length; i++) {
+            byte b = bytes[i];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                break;
+            }
+        }
+        throw new NotSerializableException("Malformed varint in " + CompactMessageSerializer.class.getName());
+    }
+}
@@ -0,0 +1,108 @@
+package com.gft.service;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.gft.actor.IntResult;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.WorkerActor;
+import com.gft.actor.WorkerClient;
+import com.gft.bootstrap.BootstrappedSystem;
+import com.gft.bootstrap.SystemBootstrap;
+import com.gft.persistence.WorkerAggregate;
+import com.gft.shutdown.WorkDrain;
+import com.gft.telemetry.ActorTelemetry;
+import com.gft.timer.TickBus;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone worker node: boots the actor system, starts a {@link WorkerActor} and serves its first request,
+ * printing {@code FIRST-REQUEST <millis since JVM start>} once answered.
+ *
+ * Modes:
+ * - no argument: keeps running until the JVM is stopped (CoordinatedShutdown drains the worker)
+ * - {@code --exit-after-first-request}: terminates right after the first reply (startup measurements)
+ * - {@code --training}: also exercises the tick bus, streams, serialization and telemetry, then exits;
+ *   used by the {@code appcds} Maven profile to record the classes a typical startup loads
+ */
+public final class WorkerService {
+
+    private WorkerService() { }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = Arrays.asList(args);
+        BootstrappedSystem bootstrapped = SystemBootstrap.create("worker-service");
+        ActorSystem system = bootstrapped.system();
+
+        ActorRef worker = system.actorOf(WorkerActor.props(), "worker");
+        IntResult first = WorkerClient.computeInt(worker, 21, Duration.ofSeconds(10))
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+        System.out.println("FIRST-REQUEST " + uptimeMillis() + " (result " + first.value + ")");
+        System.out.println(bootstrapped.report());
+
+        if (options.contains("--training")) {
+            train(system, worker);
+        }
+        if (options.contains("--training") || options.contains("--exit-after-first-request")) {
+            bootstrapped.close();
+            return;
+        }
+        system.getWhenTerminated().toCompletableFuture().get();
+    }
+
+    /** The paths a running node touches soon after startup, so their classes end up in the archive. */
+    private static void train(ActorSystem system, ActorRef worker) throws Exception {
+        WorkerClient.computeLong(worker, 1L << 40, Duration.ofSeconds(10)).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        CompletableFuture<Object> tick = new CompletableFuture<>();
+        ActorRef ticking = system.actorOf(LegacySchedulerActor.propsWithTickBus(system.actorOf(
+                Props.create(Forwarder.class, () -> new Forwarder(tick)))));
+        tick.get(10, TimeUnit.SECONDS);
+        system.stop(ticking);
+
+        Source.range(1, 1000).map(i -> i * 2).runWith(Sink.fold(0, Integer::sum), system)
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        Serialization serialization = SerializationExtension.get(system);
+        for (Object message : new Object[] {WorkerActor.Compute.of(1), IntResult.of(2), WorkerAggregate.EMPTY.plus(2)}) {
+            Serializer serializer = serialization.findSerializerFor(message);
+            byte[] bytes = serializer.toBinary(message);
+            serialization.deserialize(bytes, serializer.identifier(), Serializers.manifestFor(serializer, message)).get();
+        }
+
+        ActorTelemetry.get(system).getActors();
+        WorkDrain.get(system).registeredCount();
+        TickBus.get(system).subscriberCount();
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /** Completes a future with the first message it receives. */
+    private static final class Forwarder extends AbstractActor {
+        private final CompletableFuture<Object> first;
+
+        Forwarder(CompletableFuture<Object> first) {
+            this.first = first;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().matchAny(first::complete).build();
+        }
+    }
+}
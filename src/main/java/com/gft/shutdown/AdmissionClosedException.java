@@ -0,0 +1,13 @@
+package com.gft.shutdown;
+
+/**
+ * Work refused by {@link WorkDrain#admit} because the system is shutting down. Nothing was sent, so
+ * the caller can route the request to another node right away.
+ */
+public class AdmissionClosedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionClosedException(String systemName) {
+        super("Actor system " + systemName + " is draining and no longer admits work");
+    }
+}
@@ -0,0 +1,33 @@
+package com.gft.shutdown;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a {@link WorkDrain#drain(Duration)}.
+ *
+ * - {@code drainedMessages}: work processed after admission closed (as recorded by
+ *   {@link WorkDrain#recordProcessed()})
+ * - {@code droppedMessages}: messages still queued in actors that missed the deadline, counted as
+ *   they went to dead letters when those actors were stopped
+ */
+public final class DrainReport {
+    public final int actors;
+    public final int timedOutActors;
+    public final long drainedMessages;
+    public final long droppedMessages;
+    public final Duration elapsed;
+
+    public DrainReport(int actors, int timedOutActors, long drainedMessages, long droppedMessages, Duration elapsed) {
+        this.actors = actors;
+        this.timedOutActors = timedOutActors;
+        this.drainedMessages = drainedMessages;
+        this.droppedMessages = droppedMessages;
+        this.elapsed = elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "DrainReport(actors=" + actors + ", timedOut=" + timedOutActors + ", drained=" + drainedMessages
+                + ", dropped=" + droppedMessages + ", elapsed=" + elapsed.toMillis() + "ms)";
+    }
+}
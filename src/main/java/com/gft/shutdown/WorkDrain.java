@@ -0,0 +1,250 @@
+package com.gft.shutdown;
+
+import akka.Done;
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorIdentity;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.CoordinatedShutdown;
+import akka.actor.DeadLetter;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.actor.Identify;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Drains in-flight actor work on shutdown instead of dropping it with the mailboxes.
+ *
+ * Hooked into {@link CoordinatedShutdown} when {@code gft.shutdown.drain.enabled}:
+ * - {@code service-unbind}: admission closes, {@link #admit} fails fast with {@link AdmissionClosedException}
+ * - {@code service-requests-done}: every registered actor gets an {@link Identify}, answered only after the
+ *   messages queued before it, so all actors work through their mailboxes in parallel; actors still busy at
+ *   {@code deadline} are stopped and what was left in their mailboxes is reported as dropped
+ *
+ * Workers {@link #register} themselves and call {@link #recordProcessed()} per unit of work; a router only
+ * needs registering if it has a mailbox of its own (pool routers route on the sender's thread).
+ * The phase timeout {@code akka.coordinated-shutdown.phases.service-requests-done.timeout} must exceed
+ * {@code deadline + stop-grace}.
+ */
+public final class WorkDrain implements Extension {
+
+    public static final Id ID = new Id();
+
+    public static WorkDrain get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<WorkDrain> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public WorkDrain createExtension(ExtendedActorSystem system) {
+            return new WorkDrain(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final ExtendedActorSystem system;
+    private final LoggingAdapter log;
+    private final Duration deadline;
+    private final Duration stopGrace;
+
+    private final Set<ActorRef> registered = ConcurrentHashMap.newKeySet();
+    private final LongAdder drained = new LongAdder();
+    private final AtomicInteger drains = new AtomicInteger();
+    private volatile boolean admitting = true;
+    private volatile boolean draining;
+    private volatile DrainReport lastReport;
+
+    private WorkDrain(ExtendedActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.shutdown.drain");
+        this.system = system;
+        this.log = Logging.getLogger(system, getClass());
+        this.deadline = config.getDuration("deadline");
+        this.stopGrace = config.getDuration("stop-grace");
+        if (config.getBoolean("enabled")) {
+            Supplier<CompletionStage<Done>> closeAdmission = () -> {
+                closeAdmission();
+                return CompletableFuture.completedFuture(Done.getInstance());
+            };
+            Supplier<CompletionStage<Done>> drainWork = () -> drain(deadline).thenApply(report -> {
+                log.info("Shutdown drain: {}", report);
+                return Done.getInstance();
+            });
+            CoordinatedShutdown shutdown = CoordinatedShutdown.get(system);
+            shutdown.addTask(CoordinatedShutdown.PhaseServiceUnbind(), "gft-close-admission", closeAdmission);
+            shutdown.addTask(CoordinatedShutdown.PhaseServiceRequestsDone(), "gft-drain-work", drainWork);
+        }
+    }
+
+    public void register(ActorRef actor) {
+        registered.add(actor);
+    }
+
+    public void unregister(ActorRef actor) {
+        registered.remove(actor);
+    }
+
+    public int registeredCount() {
+        return registered.size();
+    }
+
+    public boolean isAdmitting() {
+        return admitting;
+    }
+
+    public void closeAdmission() {
+        admitting = false;
+    }
+
+    /**
+     * Runs {@code work} (typically an ask to a worker) unless admission is closed, in which case nothing is
+     * sent and the stage fails with {@link AdmissionClosedException}.
+     */
+    public <T> CompletionStage<T> admit(Supplier<CompletionStage<T>> work) {
+        if (!admitting) {
+            CompletableFuture<T> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new AdmissionClosedException(system.name()));
+            return refused;
+        }
+        return work.get();
+    }
+
+    /** Counts one unit of work toward {@link DrainReport#drainedMessages}; a volatile read until draining. */
+    public void recordProcessed() {
+        if (draining) {
+            drained.increment();
+        }
+    }
+
+    /** Closes admission and drains the registered actors; used by the shutdown phase, callable directly. */
+    public CompletionStage<DrainReport> drain(Duration deadline) {
+        closeAdmission();
+        draining = true;
+        CompletableFuture<DrainReport> result = new CompletableFuture<>();
+        Set<ActorRef> targets = new HashSet<>(registered);
+        system.systemActorOf(Props.create(Drainer.class, () -> new Drainer(this, targets, deadline, result)),
+                "gft-work-drain-" + drains.incrementAndGet());
+        return result.thenApply(report -> {
+            lastReport = report;
+            return report;
+        });
+    }
+
+    public Optional<DrainReport> lastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    // ------------------------------------------------------------
+    // One drain run
+    // ------------------------------------------------------------
+
+    private static final class Deadline {
+        static final Deadline INSTANCE = new Deadline();
+    }
+
+    private static final class Finish {
+        static final Finish INSTANCE = new Finish();
+    }
+
+    private static final class Drainer extends AbstractActorWithTimers {
+        private final WorkDrain drain;
+        private final Set<ActorRef> pending;
+        private final Duration deadline;
+        private final CompletableFuture<DrainReport> result;
+        private final long startNanos = System.nanoTime();
+        private final long drainedAtStart;
+        private final int actors;
+        private Set<ActorRef> late;
+        private long dropped;
+
+        Drainer(WorkDrain drain, Set<ActorRef> targets, Duration deadline, CompletableFuture<DrainReport> result) {
+            this.drain = drain;
+            this.pending = targets;
+            this.deadline = deadline;
+            this.result = result;
+            this.drainedAtStart = drain.drained.sum();
+            this.actors = targets.size();
+        }
+
+        @Override
+        public void preStart() {
+            if (pending.isEmpty()) {
+                getSelf().tell(Finish.INSTANCE, getSelf());
+                return;
+            }
+            getContext().getSystem().getEventStream().subscribe(getSelf(), DeadLetter.class);
+            for (ActorRef target : pending) {
+                // the correlation id names the target even if it is already gone
+                target.tell(new Identify(target), getSelf());
+            }
+            getTimers().startSingleTimer(Deadline.INSTANCE, Deadline.INSTANCE, deadline);
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(ActorIdentity.class, id -> {
+                        if (late == null && pending.remove((ActorRef) id.correlationId()) && pending.isEmpty()) {
+                            finish();
+                        }
+                    })
+                    .match(Deadline.class, d -> stopLate())
+                    .match(Terminated.class, t -> {
+                        if (pending.remove(t.getActor()) && pending.isEmpty()) {
+                            // dead letters of the stopped actors are ordinary messages, queued ahead of this
+                            getSelf().tell(Finish.INSTANCE, getSelf());
+                        }
+                    })
+                    .match(DeadLetter.class, d -> {
+                        if (late != null && late.contains(d.recipient()) && !(d.message() instanceof Identify)) {
+                            dropped++;
+                        }
+                    })
+                    .match(Finish.class, f -> finish())
+                    .build();
+        }
+
+        /** Stops the actors that missed the deadline; their queued messages go to dead letters. */
+        private void stopLate() {
+            late = new HashSet<>(pending);
+            for (ActorRef ref : late) {
+                getContext().watch(ref);
+                getContext().getSystem().stop(ref);
+            }
+            // the message each one is processing still has to finish
+            getTimers().startSingleTimer(Finish.INSTANCE, Finish.INSTANCE, drain.stopGrace);
+        }
+
+        private void finish() {
+            if (result.isDone()) {
+                return;
+            }
+            getContext().getSystem().getEventStream().unsubscribe(getSelf());
+            result.complete(new DrainReport(actors, late == null ? 0 : late.size(),
+                    drain.drained.sum() - drainedAtStart, dropped, Duration.ofNanos(System.nanoTime() - startNanos)));
+            getContext().stop(getSelf());
+        }
+    }
+}
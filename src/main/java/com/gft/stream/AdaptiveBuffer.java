@@ -0,0 +1,208 @@
+package com.gft.stream;
+
+import akka.japi.Pair;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.javadsl.Flow;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+
+/**
+ * A buffer stage whose capacity follows the rate mismatch it observes, configured through stream attributes.
+ *
+ * Akka sizes a stage's input buffer once, at materialization ({@code Attributes.inputBuffer}); this stage is
+ * the resizable counterpart, placed where a fixed {@code withInputBuffer(initial, max)} used to be guessed.
+ * Every {@code adjust-interval} it looks at what happened since the last adjustment:
+ * - downstream found it empty and upstream found it full: bursts on both sides, the capacity doubles
+ * - occupancy never went above a quarter of the capacity: the capacity halves
+ * - otherwise (a steadily faster or slower side) it stays, since a larger buffer would only add latency
+ *
+ * Bounds come from the {@link Bounds} attribute, inherited like any attribute, so
+ * {@code graph.withAttributes(AdaptiveBuffer.bounds(1, 256))} applies to every adaptive buffer inside
+ * {@code graph}; without it from {@code gft.stream.adaptive-buffer}. The materialized {@link Stats} show the
+ * current capacity.
+ */
+public final class AdaptiveBuffer {
+
+    private static final String ADJUST = "adjust";
+
+    private AdaptiveBuffer() { }
+
+    /** Capacity bounds of the adaptive buffers a graph contains. */
+    public static final class Bounds implements Attributes.Attribute {
+        public final int initial;
+        public final int min;
+        public final int max;
+
+        public Bounds(int initial, int min, int max) {
+            if (min < 1 || max < min || initial < min || initial > max) {
+                throw new IllegalArgumentException("Expected 1 <= min <= initial <= max, got " + min + ", " + initial + ", " + max);
+            }
+            this.initial = initial;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public String toString() {
+            return "AdaptiveBuffer.Bounds(" + initial + ", " + min + ".." + max + ")";
+        }
+    }
+
+    /** Live view of one materialized buffer, updated by its stage. */
+    public static final class Stats {
+        private volatile int capacity;
+        private volatile int growths;
+        private volatile int shrinks;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public int getGrowths() {
+            return growths;
+        }
+
+        public int getShrinks() {
+            return shrinks;
+        }
+
+        @Override
+        public String toString() {
+            return "AdaptiveBuffer.Stats(capacity=" + capacity + ", growths=" + growths + ", shrinks=" + shrinks + ")";
+        }
+    }
+
+    /** Starts at {@code min} capacity. */
+    public static Attributes bounds(int min, int max) {
+        return Attributes.apply(new Bounds(min, min, max));
+    }
+
+    public static Attributes bounds(int initial, int min, int max) {
+        return Attributes.apply(new Bounds(initial, min, max));
+    }
+
+    public static <T> Flow<T, T, Stats> create() {
+        return Flow.fromGraph(new Stage<>());
+    }
+
+    private static final class Stage<T> extends AbstractGraphStageWithMaterializedValue<FlowShape<T, T>, Stats> {
+        private final Inlet<T> in = Inlet.create("AdaptiveBuffer.in");
+        private final Outlet<T> out = Outlet.create("AdaptiveBuffer.out");
+        private final FlowShape<T, T> shape = FlowShape.of(in, out);
+
+        @Override
+        public FlowShape<T, T> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("adaptiveBuffer");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, Stats> createLogicAndMaterializedValuePair(Attributes attributes) {
+            Stats stats = new Stats();
+            return Pair.create(new Logic(attributes, stats), stats);
+        }
+
+        private final class Logic extends TimerGraphStageLogic {
+            private final Attributes attributes;
+            private final Stats stats;
+            private final ArrayDeque<T> queue = new ArrayDeque<>();
+            private Bounds bounds;
+            private int capacity;
+
+            // since the last adjustment
+            private int starved;
+            private int filled;
+            private int maxOccupancy;
+
+            Logic(Attributes attributes, Stats stats) {
+                super(shape);
+                this.attributes = attributes;
+                this.stats = stats;
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        queue.add(grab(in));
+                        if (isAvailable(out)) {
+                            push(out, queue.poll());
+                        }
+                        maxOccupancy = Math.max(maxOccupancy, queue.size());
+                        if (queue.size() < capacity) {
+                            pull(in);
+                        } else {
+                            filled++;
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        if (queue.isEmpty()) {
+                            completeStage();
+                        }
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        T element = queue.poll();
+                        if (element != null) {
+                            push(out, element);
+                        } else if (!isClosed(in)) {
+                            starved++;
+                        }
+                        if (isClosed(in)) {
+                            if (queue.isEmpty()) {
+                                completeStage();
+                            }
+                        } else if (!hasBeenPulled(in) && queue.size() < capacity) {
+                            pull(in);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void preStart() {
+                Config config = materializer().system().settings().config().getConfig("gft.stream.adaptive-buffer");
+                bounds = attributes.getAttribute(Bounds.class).orElseGet(() -> new Bounds(
+                        config.getInt("initial-size"), config.getInt("min-size"), config.getInt("max-size")));
+                capacity = bounds.initial;
+                stats.capacity = capacity;
+                Duration interval = config.getDuration("adjust-interval");
+                scheduleWithFixedDelay(ADJUST, interval, interval);
+                pull(in);
+            }
+
+            @Override
+            public void onTimer(Object key) {
+                if (starved > 0 && filled > 0 && capacity < bounds.max) {
+                    capacity = Math.min(bounds.max, capacity * 2);
+                    stats.growths++;
+                } else if (maxOccupancy <= capacity / 4 && capacity > bounds.min) {
+                    capacity = Math.max(bounds.min, capacity / 2);
+                    stats.shrinks++;
+                }
+                stats.capacity = capacity;
+                starved = 0;
+                filled = 0;
+                maxOccupancy = queue.size();
+                if (!isClosed(in) && !hasBeenPulled(in) && queue.size() < capacity) {
+                    pull(in);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gft.stream;
+
+import java.util.Objects;
+
+/**
+ * A value or an error, returned by the function given to {@link ErrorChannel#mapEither}: the way to report
+ * an expected failure without constructing and throwing an exception.
+ *
+ * By convention {@code left} is the error and {@code right} the value.
+ */
+public final class Either<L, R> {
+
+    private final L left;
+    private final R right;
+    private final boolean isRight;
+
+    private Either(L left, R right, boolean isRight) {
+        this.left = left;
+        this.right = right;
+        this.isRight = isRight;
+    }
+
+    public static <L, R> Either<L, R> left(L error) {
+        return new Either<>(error, null, false);
+    }
+
+    public static <L, R> Either<L, R> right(R value) {
+        return new Either<>(null, value, true);
+    }
+
+    public boolean isRight() {
+        return isRight;
+    }
+
+    public boolean isLeft() {
+        return !isRight;
+    }
+
+    /** The error; only meaningful when {@link #isLeft()}. */
+    public L left() {
+        return left;
+    }
+
+    /** The value; only meaningful when {@link #isRight()}. */
+    public R right() {
+        return right;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Either)) {
+            return false;
+        }
+        Either<?, ?> other = (Either<?, ?>) o;
+        return isRight == other.isRight && Objects.equals(left, other.left) && Objects.equals(right, other.right);
+    }
+
+    @Override
+    public int hashCode() {
+        return isRight ? Objects.hashCode(right) : ~Objects.hashCode(left);
+    }
+
+    @Override
+    public String toString() {
+        return isRight ? "Right(" + right + ")" : "Left(" + left + ")";
+    }
+}
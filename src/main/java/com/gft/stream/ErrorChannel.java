@@ -0,0 +1,73 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.japi.function.Function;
+import akka.stream.FanOutShape2;
+import akka.stream.FlowShape;
+import akka.stream.Graph;
+import akka.stream.SinkShape;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.GraphDSL;
+import akka.stream.javadsl.Sink;
+
+/**
+ * Error-as-value stream operators, an alternative to a {@code Supervision.resume} decider for element errors
+ * that are expected: failed elements leave the main flow as {@link Failed} values on a side channel sink
+ * instead of going through the supervision machinery.
+ *
+ * - {@link #mapTry}: the mapping may throw; exceptions of the given type are diverted, any other fails the stream
+ * - {@link #mapEither}: the mapping returns an {@link Either}, so no exception is created at all
+ * - {@link #deadLetters}: a side channel publishing each failed element as a dead letter
+ *
+ * Usage:
+ * <pre>
+ * Source.from(input)
+ *     .via(ErrorChannel.mapEither(i -> i == 3 ? Either.left("division by zero") : Either.right(10 / (i - 3)),
+ *             ErrorChannel.deadLetters(system)))
+ *     .runWith(Sink.seq(), system);
+ * </pre>
+ * The materialized value is the side channel sink's, e.g. {@code Sink.seq()} to collect the failures. The main
+ * flow keeps running when the side channel cancels, e.g. {@code Sink.head()} to keep the first failure only;
+ * later failed elements are then dropped.
+ */
+public final class ErrorChannel {
+
+    private ErrorChannel() { }
+
+    /**
+     * Maps with {@code mapper}; elements failing with {@code errorType} go to {@code failures}. Fatal errors
+     * ({@code VirtualMachineError}, {@code InterruptedException}...) fail the stream even when they are an
+     * {@code errorType}.
+     */
+    public static <In, Out, E extends Throwable, M> Flow<In, Out, M> mapTry(
+            Function<In, Out> mapper, Class<E> errorType, Graph<SinkShape<Failed<In, E>>, M> failures) {
+        return withSideChannel(TryMapStage.catching(mapper, errorType), failures);
+    }
+
+    /** Maps with {@code mapper}; elements mapped to a {@link Either#left} go to {@code failures}. */
+    public static <In, Out, E, M> Flow<In, Out, M> mapEither(
+            Function<In, Either<E, Out>> mapper, Graph<SinkShape<Failed<In, E>>, M> failures) {
+        return withSideChannel(TryMapStage.either(mapper), failures);
+    }
+
+    /**
+     * Side channel sending every element to {@code system.deadLetters()}, where it is logged as a dead letter
+     * ({@code akka.log-dead-letters}) and published as {@code DeadLetter} on the event stream.
+     */
+    public static <T> Sink<T, NotUsed> deadLetters(ActorSystem system) {
+        ActorRef deadLetters = system.deadLetters();
+        return Flow.<T>create()
+                .to(Sink.foreach(failed -> deadLetters.tell(failed, ActorRef.noSender())));
+    }
+
+    private static <In, Out, E, M> Flow<In, Out, M> withSideChannel(
+            TryMapStage<In, Out, E> stage, Graph<SinkShape<Failed<In, E>>, M> failures) {
+        return Flow.fromGraph(GraphDSL.create(failures, (builder, sink) -> {
+            FanOutShape2<In, Out, Failed<In, E>> tryMap = builder.add(stage);
+            builder.from(tryMap.out1()).to(sink);
+            return FlowShape.of(tryMap.in(), tryMap.out0());
+        }));
+    }
+}
@@ -0,0 +1,37 @@
+package com.gft.stream;
+
+import java.util.Objects;
+
+/**
+ * An element that a {@link ErrorChannel} operator could not map, with the error, as sent to the failure
+ * side channel.
+ */
+public final class Failed<In, E> {
+
+    public final In element;
+    public final E error;
+
+    public Failed(In element, E error) {
+        this.element = element;
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Failed)) {
+            return false;
+        }
+        Failed<?, ?> other = (Failed<?, ?>) o;
+        return Objects.equals(element, other.element) && Objects.equals(error, other.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(element) + Objects.hashCode(error);
+    }
+
+    @Override
+    public String toString() {
+        return "Failed(" + element + ", " + error + ")";
+    }
+}
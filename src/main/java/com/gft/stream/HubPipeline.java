@@ -0,0 +1,195 @@
+package com.gft.stream;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import akka.japi.Pair;
+import akka.stream.BoundedSourceQueue;
+import akka.stream.KillSwitches;
+import akka.stream.QueueOfferResult;
+import akka.stream.SharedKillSwitch;
+import akka.stream.javadsl.BroadcastHub;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.FlowWithContext;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.MergeHub;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A processing stream materialized once and shared by all requests, instead of a
+ * {@code Source...runWith(sink)} graph (and its actors) per request.
+ *
+ * Layout: {@link #submit} queue and {@link #ingress} producers, then a {@code MergeHub}, then the processing
+ * flow, then a {@code BroadcastHub}. The hub's permanent first consumer completes the submitted requests, and
+ * {@link #results} attaches further consumers.
+ *
+ * Each request travels with a {@link Ticket} as its stream context, so the processing is a
+ * {@code FlowWithContext} (start from {@link #flow()}). It must emit exactly one response per request:
+ * - a request dropped by the processing (e.g. {@code filter}) fails with a {@code TimeoutException} after
+ *   {@code request-timeout}
+ * - an exception in the processing stops the pipeline and fails every pending request; map errors to
+ *   responses inside the flow instead
+ *
+ * Settings: {@code gft.stream.hub-pipeline}.
+ */
+public final class HubPipeline<Req, Resp> {
+
+    /** Correlates a response with its request; opaque to the processing flow, which only carries it along. */
+    public static final class Ticket {
+        private final Object request;
+        private final CompletableFuture<Object> promise;
+        private final Set<Ticket> pending;
+        private volatile Cancellable timeout;
+
+        private Ticket(Object request, CompletableFuture<Object> promise, Set<Ticket> pending) {
+            this.request = request;
+            this.promise = promise;
+            this.pending = pending;
+        }
+
+        private void complete(Object response) {
+            if (finish()) {
+                promise.complete(response);
+            }
+        }
+
+        private void fail(Throwable cause) {
+            if (finish()) {
+                promise.completeExceptionally(cause);
+            }
+        }
+
+        /** Leaves {@code pending} before the promise completes, so a completed request is never counted. */
+        private boolean finish() {
+            if (promise == null || !pending.remove(this)) {
+                return false;
+            }
+            Cancellable t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+            return true;
+        }
+    }
+
+    private final ActorSystem system;
+    private final String name;
+    private final Duration requestTimeout;
+    private final Set<Ticket> pending = ConcurrentHashMap.newKeySet();
+    private final SharedKillSwitch killSwitch;
+    private final BoundedSourceQueue<Pair<Req, Ticket>> queue;
+    private final Sink<Pair<Req, Ticket>, NotUsed> hubSink;
+    private final Source<Pair<Resp, Ticket>, NotUsed> hubSource;
+    private final CompletionStage<Done> done;
+    private volatile boolean stopped;
+
+    private HubPipeline(ActorSystem system, String name, FlowWithContext<Req, Ticket, Resp, Ticket, ?> processing) {
+        Config config = system.settings().config().getConfig("gft.stream.hub-pipeline");
+        this.system = system;
+        this.name = name;
+        this.requestTimeout = config.getDuration("request-timeout");
+        this.killSwitch = KillSwitches.shared(name);
+
+        Pair<Sink<Pair<Req, Ticket>, NotUsed>, Source<Pair<Resp, Ticket>, NotUsed>> hubs =
+                MergeHub.of(HubPipeline.<Req>envelopeClass(), config.getInt("per-producer-buffer"))
+                        .via(killSwitch.flow())
+                        .via(processing.asFlow())
+                        .toMat(BroadcastHub.of(HubPipeline.<Resp>envelopeClass(), config.getInt("broadcast-buffer")), Keep.both())
+                        .run(system);
+        this.hubSink = hubs.first();
+        this.hubSource = hubs.second();
+        this.queue = Source.<Pair<Req, Ticket>>queue(config.getInt("queue-size")).to(hubSink).run(system);
+        this.done = hubSource.runWith(Sink.foreach(response -> response.second().complete(response.first())), system);
+        done.whenComplete((ok, failure) -> {
+            stopped = true;
+            IllegalStateException stop = new IllegalStateException("Pipeline " + name + " stopped", failure);
+            for (Ticket ticket : pending) {
+                ticket.fail(stop);
+            }
+        });
+    }
+
+    /** Materializes the pipeline; {@code name} names its kill switch and appears in errors. */
+    public static <Req, Resp> HubPipeline<Req, Resp> start(ActorSystem system, String name,
+                                                           FlowWithContext<Req, Ticket, Resp, Ticket, ?> processing) {
+        return new HubPipeline<>(system, name, processing);
+    }
+
+    /** Starting point for the processing flow, e.g. {@code HubPipeline.<Integer>flow().map(i -> i * 2)}. */
+    public static <Req> FlowWithContext<Req, Ticket, Req, Ticket, NotUsed> flow() {
+        return FlowWithContext.create();
+    }
+
+    /**
+     * Processes {@code request} and completes with its response. Fails immediately with a
+     * {@code RejectedExecutionException} when the submit queue is full, or an {@code IllegalStateException}
+     * once the pipeline has stopped.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletionStage<Resp> submit(Req request) {
+        CompletableFuture<Object> promise = new CompletableFuture<>();
+        if (stopped) {
+            promise.completeExceptionally(new IllegalStateException("Pipeline " + name + " stopped"));
+            return (CompletionStage<Resp>) (CompletionStage<?>) promise;
+        }
+        Ticket ticket = new Ticket(request, promise, pending);
+        pending.add(ticket);
+        if (!requestTimeout.isZero()) {
+            ticket.timeout = system.scheduler().scheduleOnce(requestTimeout, () -> ticket.fail(new TimeoutException(
+                    "No response from pipeline " + name + " within " + requestTimeout)), system.dispatcher());
+        }
+        QueueOfferResult result = queue.offer(Pair.create(request, ticket));
+        if (result == QueueOfferResult.dropped()) {
+            ticket.fail(new RejectedExecutionException("Submit queue of pipeline " + name + " is full"));
+        } else if (result instanceof QueueOfferResult.Failure) {
+            ticket.fail(((QueueOfferResult.Failure) result).cause());
+        } else if (result != QueueOfferResult.enqueued()) {
+            ticket.fail(new IllegalStateException("Pipeline " + name + " stopped"));
+        }
+        return (CompletionStage<Resp>) (CompletionStage<?>) promise;
+    }
+
+    /** Entry for streaming producers, each materialization one MergeHub producer; responses go to {@link #results}. */
+    public Sink<Req, NotUsed> ingress() {
+        return Flow.<Req>create()
+                .map(request -> Pair.create(request, new Ticket(request, null, pending)))
+                .to(hubSink);
+    }
+
+    /**
+     * Every request with its response, from the moment of materialization. A slow consumer slows the whole
+     * pipeline down (BroadcastHub backpressure): buffer or drop on the consumer side if it cannot keep up.
+     */
+    @SuppressWarnings("unchecked")
+    public Source<Pair<Req, Resp>, NotUsed> results() {
+        return hubSource.map(response -> Pair.create((Req) response.second().request, response.first()));
+    }
+
+    /** Requests submitted and not yet completed. */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /** Stops the pipeline; requests not yet processed fail. Completes when the pipeline has stopped. */
+    public CompletionStage<Done> shutdown() {
+        queue.complete();
+        killSwitch.shutdown();
+        return done.handle((ok, failure) -> Done.getInstance());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<Pair<T, Ticket>> envelopeClass() {
+        return (Class<Pair<T, Ticket>>) (Class<?>) Pair.class;
+    }
+}
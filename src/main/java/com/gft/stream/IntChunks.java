@@ -0,0 +1,158 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.japi.Pair;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Streams of {@code int[]} chunks with operators that work inside a chunk, so numeric pipelines cost one
+ * stream element and one allocation per chunk instead of a boxed {@code Integer} per element and per stage.
+ *
+ * Chunks are never empty and never modified once emitted: {@link #map} and {@link #filter} allocate the
+ * chunk they emit ({@link #filter} passes a chunk through when every value is kept).
+ *
+ * Usage, the chunked form of {@code Source.range(1, n).map(i -> i * 2).filter(i -> i % 4 == 0)}:
+ * <pre>
+ * IntChunks.range(1, n, 1024)
+ *     .via(IntChunks.map(i -&gt; i * 2))
+ *     .via(IntChunks.filter(i -&gt; i % 4 == 0))
+ *     .runWith(IntChunks.sum(), system);
+ * </pre>
+ * {@link #chunked} and {@link #flatten} convert from and to boxed streams at the edges.
+ */
+public final class IntChunks {
+
+    private IntChunks() { }
+
+    /** {@code from..to} inclusive, like {@code Source.range}, in chunks of {@code chunkSize}. */
+    public static Source<int[], NotUsed> range(int from, int to, int chunkSize) {
+        requirePositive(chunkSize);
+        if (from > to) {
+            return Source.empty();
+        }
+        return Source.unfold((long) from, next -> {
+            if (next > to) {
+                return Optional.empty();
+            }
+            int[] chunk = new int[(int) Math.min(chunkSize, to - next + 1)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = (int) (next + i);
+            }
+            return Optional.of(Pair.create(next + chunk.length, chunk));
+        });
+    }
+
+    /** The values in chunks of {@code chunkSize}; the array is copied, not shared. */
+    public static Source<int[], NotUsed> from(int[] values, int chunkSize) {
+        requirePositive(chunkSize);
+        return Source.unfold(0, offset -> offset >= values.length
+                ? Optional.empty()
+                : Optional.of(Pair.create(offset + chunkSize,
+                        Arrays.copyOfRange(values, offset, Math.min(values.length, offset + chunkSize)))));
+    }
+
+    public static Flow<int[], int[], NotUsed> map(IntUnaryOperator f) {
+        return Flow.<int[]>create().map(chunk -> {
+            int[] out = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                out[i] = f.applyAsInt(chunk[i]);
+            }
+            return out;
+        });
+    }
+
+    /** Chunks left without any value are dropped. */
+    public static Flow<int[], int[], NotUsed> filter(IntPredicate p) {
+        return Flow.<int[]>create().mapConcat(chunk -> {
+            int[] kept = new int[chunk.length];
+            int count = 0;
+            for (int value : chunk) {
+                if (p.test(value)) {
+                    kept[count++] = value;
+                }
+            }
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(count == chunk.length ? chunk : Arrays.copyOf(kept, count));
+        });
+    }
+
+    /** Folds every value into a {@code long}: {@code acc = f(acc, value)}. */
+    public static Sink<int[], CompletionStage<Long>> fold(long zero, LongBinaryOperator f) {
+        return Sink.<Long, int[]>fold(zero, (acc, chunk) -> {
+            long result = acc;
+            for (int value : chunk) {
+                result = f.applyAsLong(result, value);
+            }
+            return result;
+        });
+    }
+
+    public static Sink<int[], CompletionStage<Long>> sum() {
+        return Sink.<Long, int[]>fold(0L, (acc, chunk) -> {
+            long result = acc;
+            for (int value : chunk) {
+                result += value;
+            }
+            return result;
+        });
+    }
+
+    /** Count, sum, min and max of all values, as {@link PrimitiveSinks#stats()} on the boxed stream. */
+    public static Sink<int[], CompletionStage<IntStats>> stats() {
+        return Sink.fold(new IntStats(0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE), (acc, chunk) -> {
+            long sum = acc.sum;
+            int min = acc.min;
+            int max = acc.max;
+            for (int value : chunk) {
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            return new IntStats(acc.count + chunk.length, sum, min, max);
+        });
+    }
+
+    /** Boxed elements to chunks of up to {@code chunkSize}, for entering a chunked pipeline. */
+    public static Flow<Integer, int[], NotUsed> chunked(int chunkSize) {
+        requirePositive(chunkSize);
+        return Flow.of(Integer.class).grouped(chunkSize).map(IntChunks::toArray);
+    }
+
+    /** Chunks to boxed elements, for leaving a chunked pipeline. */
+    public static Flow<int[], Integer, NotUsed> flatten() {
+        return Flow.<int[]>create().mapConcat(chunk -> {
+            Integer[] boxed = new Integer[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                boxed[i] = chunk[i];
+            }
+            return Arrays.asList(boxed);
+        });
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] chunk = new int[values.size()];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = values.get(i);
+        }
+        return chunk;
+    }
+
+    private static void requirePositive(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive, got " + chunkSize);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gft.stream;
+
+/**
+ * Fixed-size quantile sketch over {@code int} values, as materialized by {@link PrimitiveSinks#quantiles()}.
+ *
+ * Values are counted in log-linear buckets: magnitudes below {@code 2^precision} exactly, larger ones with
+ * {@code precision} bits of mantissa, so every reported quantile is within a relative error of
+ * {@code 2^-precision} of a value of the right rank (under 1% at the default 7 bits). Memory is
+ * {@code 2 * (32 - precision) * 2^precision} counters whatever the stream length: 50 KiB at 7 bits.
+ *
+ * Not thread-safe: filled by one stream stage, read after it completes.
+ */
+public final class IntQuantileSketch {
+
+    private final int precision;
+    private final int subBuckets;
+    /** Non-negative values {@code u}, and negative values {@code v} by {@code u = ~v}. */
+    private final long[] positive;
+    private final long[] negative;
+    private long count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    public IntQuantileSketch(int precision) {
+        if (precision < 1 || precision > 16) {
+            throw new IllegalArgumentException("precision must be within 1..16, got " + precision);
+        }
+        this.precision = precision;
+        this.subBuckets = 1 << precision;
+        this.positive = new long[(32 - precision) * subBuckets];
+        this.negative = new long[(32 - precision) * subBuckets];
+    }
+
+    public void add(int value) {
+        if (value >= 0) {
+            positive[bucket(value)]++;
+        } else {
+            negative[bucket(~value)]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /** Adds every value counted by {@code other}, which must have the same precision. */
+    public void merge(IntQuantileSketch other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        for (int b = 0; b < positive.length; b++) {
+            positive[b] += other.positive[b];
+            negative[b] += other.negative[b];
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public int min() {
+        return min;
+    }
+
+    public int max() {
+        return max;
+    }
+
+    /** Value of rank {@code ceil(q * count)}, {@code 0 <= q <= 1}; throws on an empty sketch. */
+    public int quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be within 0..1, got " + q);
+        }
+        if (count == 0) {
+            throw new IllegalStateException("Empty sketch");
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int b = negative.length - 1; b >= 0; b--) {
+            seen += negative[b];
+            if (seen >= rank) {
+                return clamp(~representative(b));
+            }
+        }
+        for (int b = 0; b < positive.length; b++) {
+            seen += positive[b];
+            if (seen >= rank) {
+                return clamp(representative(b));
+            }
+        }
+        return max;
+    }
+
+    private int clamp(int value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private int bucket(int u) {
+        if (u < subBuckets) {
+            return u;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(u);
+        int shift = exponent - precision;
+        return subBuckets + shift * subBuckets + ((u >>> shift) & (subBuckets - 1));
+    }
+
+    /** Middle of the bucket's value range. */
+    private int representative(int bucket) {
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+        int k = bucket - subBuckets;
+        int shift = k / subBuckets;
+        long lower = (long) (subBuckets + k % subBuckets) << shift;
+        long width = 1L << shift;
+        return (int) (lower + (width - 1) / 2);
+    }
+}
@@ -0,0 +1,44 @@
+package com.gft.stream;
+
+/**
+ * Count, sum, minimum and maximum of an {@code int} stream, as materialized by {@link PrimitiveSinks#stats()}.
+ * An empty stream has {@code min = Integer.MAX_VALUE} and {@code max = Integer.MIN_VALUE}.
+ */
+public final class IntStats {
+
+    public final long count;
+    public final long sum;
+    public final int min;
+    public final int max;
+
+    public IntStats(long count, long sum, int min, int max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /** {@code NaN} for an empty stream. */
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / (double) count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IntStats)) {
+            return false;
+        }
+        IntStats other = (IntStats) o;
+        return count == other.count && sum == other.sum && min == other.min && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (31 * (31 * (31 * count + sum) + min) + max);
+    }
+
+    @Override
+    public String toString() {
+        return "IntStats(count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ")";
+    }
+}
@@ -0,0 +1,260 @@
+package com.gft.stream;
+
+import akka.japi.Pair;
+import akka.japi.function.Function;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.UniformFanInShape;
+import akka.stream.UniformFanOutShape;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.GraphDSL;
+import akka.stream.javadsl.Merge;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStageLogic;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallelism across keys with the order kept within each key (per endpoint, per user...), over a fixed
+ * number of lanes instead of a {@code groupBy} substream per key:
+ * - an element goes to lane {@code hash(key) mod lanes}, so all elements of a key take the same lane and
+ *   leave it in order
+ * - each lane is one worker: an async {@code map} for {@link #map}, a {@code mapAsync(1)} for {@link #mapAsync}
+ * - lanes are merged as they produce, taking turns when several are ready
+ * - each lane queues at most {@code lane-buffer} elements in front of its worker
+ *
+ * The output is in input order per key only. A full lane stops the intake for all lanes, since the element at
+ * the head must wait for it: a hot key slows the others down only once its lane's buffer is full, so size the
+ * buffer to absorb the bursts of the hottest key. The materialized {@link Stats} show the lanes' load and these
+ * stalls.
+ *
+ * Element failures follow the supervision strategy of the enclosing graph, as for {@code map}; the dispatcher
+ * attribute applies to the workers:
+ * <pre>
+ * requests
+ *     .via(KeyedLanes.map(8, Request::userId, Pricing::evaluate)
+ *             .withAttributes(ActorAttributes.dispatcher("gft.stream-cpu-dispatcher")))
+ *     .runWith(sink, system);
+ * </pre>
+ *
+ * Settings: {@code gft.stream.keyed-lanes}.
+ */
+public final class KeyedLanes {
+
+    private KeyedLanes() { }
+
+    /** Live view of one materialized set of lanes, updated by its router. */
+    public static final class Stats {
+        private final AtomicLongArray routed;
+        private final AtomicIntegerArray queued;
+        private volatile int maxQueued;
+        private volatile long stalls;
+
+        Stats(int lanes) {
+            this.routed = new AtomicLongArray(lanes);
+            this.queued = new AtomicIntegerArray(lanes);
+        }
+
+        public int getLanes() {
+            return routed.length();
+        }
+
+        /** Elements sent to {@code lane} so far. */
+        public long getRouted(int lane) {
+            return routed.get(lane);
+        }
+
+        /** Elements waiting in front of {@code lane}'s worker. */
+        public int getQueued(int lane) {
+            return queued.get(lane);
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        /** Times the intake stopped because the next element's lane was full. */
+        public long getStalls() {
+            return stalls;
+        }
+
+        @Override
+        public String toString() {
+            return "KeyedLanes.Stats(routed=" + routed + ", queued=" + queued + ", maxQueued=" + maxQueued
+                    + ", stalls=" + stalls + ")";
+        }
+    }
+
+    /** Lane buffer from {@code gft.stream.keyed-lanes.lane-buffer}. */
+    public static <In, K, Out> Flow<In, Out, Stats> map(int lanes, Function<In, K> key, Function<In, Out> f) {
+        return map(lanes, 0, key, f);
+    }
+
+    /** {@code laneBuffer <= 0}: {@code gft.stream.keyed-lanes.lane-buffer}. */
+    public static <In, K, Out> Flow<In, Out, Stats> map(int lanes, int laneBuffer, Function<In, K> key,
+                                                        Function<In, Out> f) {
+        return create(lanes, laneBuffer, key, Flow.<In>create().map(f).async());
+    }
+
+    /** One call in flight per lane, so the calls of a key run one after the other. */
+    public static <In, K, Out> Flow<In, Out, Stats> mapAsync(int lanes, Function<In, K> key,
+                                                             Function<In, CompletionStage<Out>> f) {
+        return mapAsync(lanes, 0, key, f);
+    }
+
+    /** {@code laneBuffer <= 0}: {@code gft.stream.keyed-lanes.lane-buffer}. */
+    public static <In, K, Out> Flow<In, Out, Stats> mapAsync(int lanes, int laneBuffer, Function<In, K> key,
+                                                             Function<In, CompletionStage<Out>> f) {
+        return create(lanes, laneBuffer, key, Flow.<In>create().mapAsync(1, f));
+    }
+
+    private static <In, K, Out> Flow<In, Out, Stats> create(int lanes, int laneBuffer, Function<In, K> key,
+                                                            Flow<In, Out, ?> worker) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes must be positive, got " + lanes);
+        }
+        return Flow.fromGraph(GraphDSL.create(new Router<>(lanes, laneBuffer, key), (builder, router) -> {
+            UniformFanInShape<Out, Out> merge = builder.add(Merge.create(lanes));
+            for (int i = 0; i < lanes; i++) {
+                builder.from(router.out(i)).via(builder.add(worker)).toInlet(merge.in(i));
+            }
+            return FlowShape.of(router.in(), merge.out());
+        }));
+    }
+
+    /** Lane of a key: its hash, mixed so that keys with similar hashes still spread. */
+    static int lane(Object key, int lanes) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), lanes);
+    }
+
+    /**
+     * Sends each element to its key's lane through a queue per lane. Upstream is pulled while the lane of the
+     * last element has room, so at most one lane is full at a time and the intake resumes when it drains.
+     */
+    private static final class Router<In, K>
+            extends AbstractGraphStageWithMaterializedValue<UniformFanOutShape<In, In>, Stats> {
+        private final Inlet<In> in = Inlet.create("KeyedLanes.in");
+        private final Outlet<In>[] outs;
+        private final UniformFanOutShape<In, In> shape;
+        private final int laneBuffer;
+        private final Function<In, K> key;
+
+        @SuppressWarnings("unchecked")
+        Router(int lanes, int laneBuffer, Function<In, K> key) {
+            this.outs = (Outlet<In>[]) new Outlet<?>[lanes];
+            for (int i = 0; i < lanes; i++) {
+                outs[i] = Outlet.create("KeyedLanes.out" + i);
+            }
+            this.shape = new UniformFanOutShape<>(in, outs);
+            this.laneBuffer = laneBuffer;
+            this.key = key;
+        }
+
+        @Override
+        public UniformFanOutShape<In, In> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("keyedLanes");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, Stats> createLogicAndMaterializedValuePair(Attributes attributes) {
+            Stats stats = new Stats(outs.length);
+            return Pair.create(new Logic(stats), stats);
+        }
+
+        private final class Logic extends GraphStageLogic {
+            private final Stats stats;
+            private final ArrayDeque<In>[] queues;
+            private int capacity;
+            /** Lane whose full queue holds up the intake, or -1. */
+            private int blocked = -1;
+
+            @SuppressWarnings("unchecked")
+            Logic(Stats stats) {
+                super(shape);
+                this.stats = stats;
+                this.queues = (ArrayDeque<In>[]) new ArrayDeque<?>[outs.length];
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() throws Exception {
+                        In element = grab(in);
+                        int lane = lane(key.apply(element), outs.length);
+                        stats.routed.lazySet(lane, stats.routed.get(lane) + 1);
+                        ArrayDeque<In> queue = queues[lane];
+                        if (queue.isEmpty() && isAvailable(outs[lane])) {
+                            push(outs[lane], element);
+                        } else {
+                            queue.add(element);
+                            stats.queued.lazySet(lane, queue.size());
+                            if (queue.size() > stats.maxQueued) {
+                                stats.maxQueued = queue.size();
+                            }
+                        }
+                        if (queue.size() < capacity) {
+                            pull(in);
+                        } else {
+                            blocked = lane;
+                            stats.stalls++;
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        for (int i = 0; i < outs.length; i++) {
+                            if (queues[i].isEmpty()) {
+                                complete(outs[i]);
+                            }
+                        }
+                    }
+                });
+                for (int i = 0; i < outs.length; i++) {
+                    int lane = i;
+                    queues[i] = new ArrayDeque<>();
+                    setHandler(outs[i], new AbstractOutHandler() {
+                        @Override
+                        public void onPull() {
+                            ArrayDeque<In> queue = queues[lane];
+                            In element = queue.poll();
+                            if (element == null) {
+                                return;
+                            }
+                            push(outs[lane], element);
+                            stats.queued.lazySet(lane, queue.size());
+                            if (blocked == lane) {
+                                blocked = -1;
+                                if (!isClosed(in)) {
+                                    pull(in);
+                                }
+                            }
+                            if (queue.isEmpty() && isClosed(in)) {
+                                complete(outs[lane]);
+                            }
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void preStart() {
+                capacity = laneBuffer > 0 ? laneBuffer
+                        : materializer().system().settings().config().getInt("gft.stream.keyed-lanes.lane-buffer");
+                if (capacity < 1) {
+                    throw new IllegalArgumentException("Lane buffer must be positive, got " + capacity);
+                }
+                pull(in);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.gft.stream;
+
+import akka.japi.Pair;
+import akka.stream.Attributes;
+import akka.stream.Inlet;
+import akka.stream.SinkShape;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.GraphStageLogic;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Writes primitive array chunks back to back into a memory-mapped file, mapping one region at a time, so the
+ * heap holds only the chunk in hand; the page cache does the rest. The file is truncated to the bytes written
+ * when the stream completes. Backs the {@code mapped*} sinks of {@link PrimitiveSinks}.
+ */
+final class MappedChunkSink<T> extends AbstractGraphStageWithMaterializedValue<SinkShape<T>, CompletionStage<Long>> {
+
+    /** How a chunk type is written: elements per chunk, bytes per element, and a bulk copy. */
+    interface Encoding<T> {
+        int length(T chunk);
+
+        int elementBytes();
+
+        void put(MappedByteBuffer region, T chunk, int from, int count);
+    }
+
+    static final Encoding<int[]> INTS = new Encoding<int[]>() {
+        @Override
+        public int length(int[] chunk) {
+            return chunk.length;
+        }
+
+        @Override
+        public int elementBytes() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void put(MappedByteBuffer region, int[] chunk, int from, int count) {
+            region.asIntBuffer().put(chunk, from, count);
+            region.position(region.position() + count * Integer.BYTES);
+        }
+    };
+
+    static final Encoding<long[]> LONGS = new Encoding<long[]>() {
+        @Override
+        public int length(long[] chunk) {
+            return chunk.length;
+        }
+
+        @Override
+        public int elementBytes() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void put(MappedByteBuffer region, long[] chunk, int from, int count) {
+            region.asLongBuffer().put(chunk, from, count);
+            region.position(region.position() + count * Long.BYTES);
+        }
+    };
+
+    private final Inlet<T> in = Inlet.create("MappedChunkSink.in");
+    private final SinkShape<T> shape = SinkShape.of(in);
+    private final Path file;
+    private final Encoding<T> encoding;
+    private final long regionSize;
+
+    /** {@code regionSize <= 0}: {@code gft.stream.mapped-sink.region-size}. */
+    MappedChunkSink(Path file, Encoding<T> encoding, long regionSize) {
+        this.file = file;
+        this.encoding = encoding;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public SinkShape<T> shape() {
+        return shape;
+    }
+
+    @Override
+    public Attributes initialAttributes() {
+        return Attributes.name("mappedChunkSink");
+    }
+
+    @Override
+    public Pair<GraphStageLogic, CompletionStage<Long>> createLogicAndMaterializedValuePair(Attributes attributes) {
+        CompletableFuture<Long> written = new CompletableFuture<>();
+        return Pair.create(new Logic(written), written);
+    }
+
+    private final class Logic extends GraphStageLogic {
+        private final CompletableFuture<Long> written;
+        private FileChannel channel;
+        private MappedByteBuffer region;
+        private long size;
+        /** File offset of {@code region}. */
+        private long regionStart;
+        private long elements;
+
+        Logic(CompletableFuture<Long> written) {
+            super(shape);
+            this.written = written;
+            setHandler(in, new AbstractInHandler() {
+                @Override
+                public void onPush() throws IOException {
+                    write(grab(in));
+                    pull(in);
+                }
+
+                @Override
+                public void onUpstreamFinish() throws IOException {
+                    close();
+                    written.complete(elements);
+                    completeStage();
+                }
+
+                @Override
+                public void onUpstreamFailure(Throwable ex) throws Exception {
+                    written.completeExceptionally(ex);
+                    super.onUpstreamFailure(ex);
+                }
+            });
+        }
+
+        @Override
+        public void preStart() throws IOException {
+            size = regionSize > 0 ? regionSize
+                    : materializer().system().settings().config().getBytes("gft.stream.mapped-sink.region-size");
+            if (size % Long.BYTES != 0) {
+                throw new IllegalArgumentException("Region size must be a multiple of 8 bytes, got " + size);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(0);
+            pull(in);
+        }
+
+        @Override
+        public void postStop() throws IOException {
+            if (!written.isDone()) {
+                written.completeExceptionally(new IllegalStateException("Stream stopped before completion, "
+                        + elements + " values written to " + file));
+            }
+            if (channel != null && channel.isOpen()) {
+                channel.close();
+            }
+        }
+
+        private void write(T chunk) throws IOException {
+            int length = encoding.length(chunk);
+            int bytes = encoding.elementBytes();
+            int from = 0;
+            while (from < length) {
+                if (!region.hasRemaining()) {
+                    map(regionStart + size);
+                }
+                int count = Math.min(length - from, region.remaining() / bytes);
+                encoding.put(region, chunk, from, count);
+                from += count;
+            }
+            elements += length;
+        }
+
+        private void map(long start) throws IOException {
+            regionStart = start;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            region.order(ByteOrder.nativeOrder());
+        }
+
+        /** Cuts the file to the bytes written; the last region stays mapped until collected. */
+        private void close() throws IOException {
+            channel.truncate(regionStart + region.position());
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.japi.Pair;
+import akka.japi.function.Function;
+import akka.stream.ActorAttributes;
+import akka.stream.Attributes;
+import akka.stream.BidiShape;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.Supervision;
+import akka.stream.UniformFanInShape;
+import akka.stream.UniformFanOutShape;
+import akka.stream.javadsl.Balance;
+import akka.stream.javadsl.BidiFlow;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.GraphDSL;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Merge;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+
+/**
+ * A CPU-bound mapping spread over {@code parallelism} async workers, with the output in input order:
+ * elements are sequence-numbered, balanced across the workers (the first idle worker takes the next element),
+ * merged and put back in order by a reorder buffer.
+ *
+ * Memory is bounded by the reorder window: at most {@code window} elements are between the split and the
+ * merge, so a straggling worker stalls the intake once the window fills instead of letting the buffer grow.
+ * Size the window to a few elements per worker beyond the workers' input buffers (16 by default).
+ *
+ * Element failures follow the supervision strategy of the enclosing graph, as for {@code map}:
+ * - {@code resume} / {@code restart}: the element is dropped and the order of the others is kept
+ * - {@code stop} (the default): the stream fails
+ *
+ * Usage:
+ * <pre>
+ * source
+ *     .via(OrderedBalance.map(4, Pricing::evaluate)
+ *             .withAttributes(ActorAttributes.dispatcher("gft.stream-cpu-dispatcher")
+ *                     .and(ActorAttributes.withSupervisionStrategy(Supervision.getResumingDecider()))))
+ *     .runWith(sink, system);
+ * </pre>
+ * The dispatcher attribute applies to the workers. The materialized {@link Stats} show the reorder buffer.
+ *
+ * Settings: {@code gft.stream.ordered-balance}.
+ */
+public final class OrderedBalance {
+
+    private OrderedBalance() { }
+
+    /** Live view of one materialized reorder buffer, updated by its stage. */
+    public static final class Stats {
+        private volatile int reordered;
+        private volatile int maxReordered;
+        private volatile long dropped;
+
+        /** Elements back from the workers and waiting for an earlier one. */
+        public int getReordered() {
+            return reordered;
+        }
+
+        public int getMaxReordered() {
+            return maxReordered;
+        }
+
+        /** Elements whose failure was resumed. */
+        public long getDropped() {
+            return dropped;
+        }
+
+        @Override
+        public String toString() {
+            return "OrderedBalance.Stats(reordered=" + reordered + ", maxReordered=" + maxReordered
+                    + ", dropped=" + dropped + ")";
+        }
+    }
+
+    /** Window from {@code gft.stream.ordered-balance.reorder-window}. */
+    public static <In, Out> Flow<In, Out, Stats> map(int parallelism, Function<In, Out> f) {
+        return map(parallelism, 0, f);
+    }
+
+    /** {@code window <= 0}: {@code gft.stream.ordered-balance.reorder-window}. */
+    public static <In, Out> Flow<In, Out, Stats> map(int parallelism, int window, Function<In, Out> f) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, got " + parallelism);
+        }
+        Flow<Sequenced<In>, Sequenced<Out>, NotUsed> workers = Flow.fromGraph(GraphDSL.create(builder -> {
+            UniformFanOutShape<Sequenced<In>, Sequenced<In>> balance = builder.add(Balance.create(parallelism));
+            UniformFanInShape<Sequenced<Out>, Sequenced<Out>> merge = builder.add(Merge.create(parallelism));
+            for (int i = 0; i < parallelism; i++) {
+                FlowShape<Sequenced<In>, Sequenced<Out>> worker =
+                        builder.add(Flow.fromGraph(new Apply<>(f)).async());
+                builder.from(balance.out(i)).via(worker).toInlet(merge.in(i));
+            }
+            return FlowShape.of(balance.in(), merge.out());
+        }));
+        return BidiFlow.fromGraph(new Reorder<In, Out>(window)).join(workers, Keep.left());
+    }
+
+    /** An element with its position in the input; {@code skipped} when its failure was resumed. */
+    private static final class Sequenced<T> {
+        final long seq;
+        final T value;
+        final boolean skipped;
+
+        Sequenced(long seq, T value, boolean skipped) {
+            this.seq = seq;
+            this.value = value;
+            this.skipped = skipped;
+        }
+    }
+
+    /** One worker: applies {@code f}, turning a resumed failure into a skipped element so the order survives. */
+    private static final class Apply<In, Out> extends GraphStage<FlowShape<Sequenced<In>, Sequenced<Out>>> {
+        private final Inlet<Sequenced<In>> in = Inlet.create("OrderedBalance.Apply.in");
+        private final Outlet<Sequenced<Out>> out = Outlet.create("OrderedBalance.Apply.out");
+        private final FlowShape<Sequenced<In>, Sequenced<Out>> shape = FlowShape.of(in, out);
+        private final Function<In, Out> f;
+
+        Apply(Function<In, Out> f) {
+            this.f = f;
+        }
+
+        @Override
+        public FlowShape<Sequenced<In>, Sequenced<Out>> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("orderedBalanceWorker");
+        }
+
+        @Override
+        public GraphStageLogic createLogic(Attributes attributes) {
+            scala.Function1<Throwable, Supervision.Directive> decider = attributes
+                    .getAttribute(ActorAttributes.SupervisionStrategy.class)
+                    .map(ActorAttributes.SupervisionStrategy::decider)
+                    .orElse(Supervision.stoppingDecider());
+            return new GraphStageLogic(shape) {{
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() throws Exception {
+                        Sequenced<In> element = grab(in);
+                        Out result;
+                        try {
+                            result = f.apply(element.value);
+                        } catch (Exception e) {
+                            if (decider.apply(e) == Supervision.stop()) {
+                                throw e;
+                            }
+                            push(out, new Sequenced<>(element.seq, null, true));
+                            return;
+                        }
+                        push(out, new Sequenced<>(element.seq, result, false));
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        pull(in);
+                    }
+                });
+            }};
+        }
+    }
+
+    /**
+     * Both ends of the parallel section: numbers elements on the way in, and on the way out holds them in a
+     * ring of {@code window} slots until their predecessors have been emitted. Upstream is only pulled while
+     * fewer than {@code window} elements are out, so the ring never overflows and the merge is always pulled.
+     */
+    private static final class Reorder<In, Out>
+            extends AbstractGraphStageWithMaterializedValue<BidiShape<In, Sequenced<In>, Sequenced<Out>, Out>, Stats> {
+        private final Inlet<In> in = Inlet.create("OrderedBalance.in");
+        private final Outlet<Sequenced<In>> toWorkers = Outlet.create("OrderedBalance.toWorkers");
+        private final Inlet<Sequenced<Out>> fromWorkers = Inlet.create("OrderedBalance.fromWorkers");
+        private final Outlet<Out> out = Outlet.create("OrderedBalance.out");
+        private final BidiShape<In, Sequenced<In>, Sequenced<Out>, Out> shape =
+                BidiShape.of(in, toWorkers, fromWorkers, out);
+        private final int window;
+
+        Reorder(int window) {
+            this.window = window;
+        }
+
+        @Override
+        public BidiShape<In, Sequenced<In>, Sequenced<Out>, Out> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("orderedBalance");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, Stats> createLogicAndMaterializedValuePair(Attributes attributes) {
+            Stats stats = new Stats();
+            return Pair.create(new Logic(stats), stats);
+        }
+
+        private final class Logic extends GraphStageLogic {
+            private final Stats stats;
+            private Sequenced<Out>[] ring;
+            /** Next sequence number to hand out, and to emit. */
+            private long nextIn;
+            private long nextOut;
+            private int reordered;
+
+            Logic(Stats stats) {
+                super(shape);
+                this.stats = stats;
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        push(toWorkers, new Sequenced<>(nextIn++, grab(in), false));
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        complete(toWorkers);
+                    }
+                });
+                setHandler(toWorkers, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        pullIfWindowAllows();
+                    }
+                });
+                setHandler(fromWorkers, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        Sequenced<Out> element = grab(fromWorkers);
+                        ring[slot(element.seq)] = element;
+                        reordered++;
+                        stats.reordered = reordered;
+                        if (reordered > stats.maxReordered) {
+                            stats.maxReordered = reordered;
+                        }
+                        pull(fromWorkers);
+                        drain();
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        drain();
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        drain();
+                    }
+                });
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void preStart() {
+                int size = window > 0 ? window
+                        : materializer().system().settings().config().getInt("gft.stream.ordered-balance.reorder-window");
+                if (size < 1) {
+                    throw new IllegalArgumentException("Reorder window must be positive, got " + size);
+                }
+                ring = (Sequenced<Out>[]) new Sequenced<?>[size];
+                pull(fromWorkers);
+            }
+
+            /** Emits the run of consecutive elements starting at {@code nextOut}, skipping dropped ones. */
+            private void drain() {
+                Sequenced<Out> next;
+                while ((next = ring[slot(nextOut)]) != null && next.seq == nextOut
+                        && (next.skipped || isAvailable(out))) {
+                    ring[slot(nextOut)] = null;
+                    nextOut++;
+                    reordered--;
+                    if (next.skipped) {
+                        stats.dropped++;
+                    } else {
+                        push(out, next.value);
+                    }
+                }
+                stats.reordered = reordered;
+                if (nextOut == nextIn && isClosed(fromWorkers)) {
+                    completeStage();
+                } else {
+                    pullIfWindowAllows();
+                }
+            }
+
+            private void pullIfWindowAllows() {
+                if (isAvailable(toWorkers) && !hasBeenPulled(in) && !isClosed(in) && nextIn - nextOut < ring.length) {
+                    pull(in);
+                }
+            }
+
+            private int slot(long seq) {
+                return (int) (seq % ring.length);
+            }
+        }
+    }
+}
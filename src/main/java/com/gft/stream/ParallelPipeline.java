@@ -0,0 +1,547 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.japi.function.Function;
+import akka.japi.function.Predicate;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.javadsl.Flow;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.AsyncCallback;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A chain of {@code map}/{@code filter} steps that decides at runtime how to run: fused on the stream actor as
+ * {@code Flow.map(...).filter(...)} would, or with its CPU-heavy steps offloaded to parallel batches.
+ *
+ * {@link #planned()} runs the first {@code gft.stream.planner.calibration-elements} elements fused while
+ * timing every step, then picks a {@link PipelinePlan} for the rest of the stream:
+ * - total cost below {@code offload-threshold} per element, or parallelism 1: stays fused
+ * - otherwise the span from the first to the last heavy step (at least {@code heavy-step-share} of the total,
+ *   or all steps when none is) runs in batches sized to {@code target-batch-cost} on {@code dispatcher}, {@code parallelism} batches at
+ *   once; with {@code ordered} (default) elements keep their order, as with {@code mapAsync}
+ * - cheap steps before and after the span stay on the stream actor
+ *
+ * Everything runs in one stage, so a plan that stays fused costs no more than the plain {@link #fused()} flow.
+ * Steps must be stateless: offloaded ones run on several threads at once.
+ *
+ * Usage:
+ * <pre>
+ * Flow&lt;Integer, Integer, CompletionStage&lt;PipelinePlan&gt;&gt; flow = ParallelPipeline.of(Integer.class)
+ *         .map("score", this::score)
+ *         .filter("relevant", i -&gt; i % 4 == 0)
+ *         .planned();
+ * </pre>
+ */
+public final class ParallelPipeline<In, Out> {
+
+    /** Result of a step for an element a filter dropped. */
+    private static final Object SKIP = new Object();
+    private static final String FLUSH = "flush";
+
+    private final List<Step> steps;
+    private final int parallelism;
+    private final Boolean ordered;
+
+    private ParallelPipeline(List<Step> steps, int parallelism, Boolean ordered) {
+        this.steps = steps;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+
+    public static <T> ParallelPipeline<T, T> of(Class<T> type) {
+        return new ParallelPipeline<>(Collections.emptyList(), 0, null);
+    }
+
+    public <R> ParallelPipeline<In, R> map(String name, Function<Out, R> f) {
+        @SuppressWarnings("unchecked")
+        Function<Object, Object> untyped = (Function<Object, Object>) (Function<?, ?>) f;
+        return new ParallelPipeline<>(append(new Step(name, untyped, null)), parallelism, ordered);
+    }
+
+    public ParallelPipeline<In, Out> filter(String name, Predicate<Out> p) {
+        @SuppressWarnings("unchecked")
+        Predicate<Object> untyped = (Predicate<Object>) (Predicate<?>) p;
+        return new ParallelPipeline<>(append(new Step(name, null, untyped)), parallelism, ordered);
+    }
+
+    /** Overrides {@code gft.stream.planner.parallelism}. */
+    public ParallelPipeline<In, Out> withParallelism(int parallelism) {
+        return new ParallelPipeline<>(steps, parallelism, ordered);
+    }
+
+    /** Overrides {@code gft.stream.planner.ordered}. */
+    public ParallelPipeline<In, Out> withOrdered(boolean ordered) {
+        return new ParallelPipeline<>(steps, parallelism, ordered);
+    }
+
+    private List<Step> append(Step step) {
+        List<Step> result = new ArrayList<>(steps);
+        result.add(step);
+        return Collections.unmodifiableList(result);
+    }
+
+    /** The steps as plain fused {@code map}/{@code filter} stages, without calibration. */
+    @SuppressWarnings("unchecked")
+    public Flow<In, Out, NotUsed> fused() {
+        Flow<Object, Object, NotUsed> flow = Flow.create();
+        for (Step step : steps) {
+            flow = step.map != null ? flow.map(step.map) : flow.filter(step.filter);
+        }
+        return (Flow<In, Out, NotUsed>) (Flow<?, ?, ?>) flow;
+    }
+
+    /**
+     * Calibrates on the first elements, then runs the rest as planned; materializes the chosen plan, or the
+     * failure of the stage when it fails before choosing one.
+     */
+    @SuppressWarnings("unchecked")
+    public Flow<In, Out, CompletionStage<PipelinePlan>> planned() {
+        return (Flow<In, Out, CompletionStage<PipelinePlan>>) (Flow<?, ?, ?>) Flow.fromGraph(new PlannedStage());
+    }
+
+    // ------------------------------------------------------------
+    // Planning
+    // ------------------------------------------------------------
+
+    private PipelinePlan decide(Calibration calibration, Settings settings) {
+        calibration.finish();
+        int n = steps.size();
+        List<PipelinePlan.StepCost> costs = new ArrayList<>(n);
+        double[] effective = new double[n];
+        double[] entering = new double[n];
+        double reaching = 1;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            long in = calibration.in[i];
+            double perElement = in == 0 ? 0 : calibration.nanos[i] / in;
+            double selectivity = in == 0 ? 1 : calibration.out[i] / (double) in;
+            entering[i] = reaching;
+            effective[i] = perElement * reaching;
+            total += effective[i];
+            costs.add(new PipelinePlan.StepCost(steps.get(i).name, perElement, selectivity, effective[i]));
+            reaching *= selectivity;
+        }
+
+        if (settings.parallelism <= 1) {
+            return PipelinePlan.fused(costs, "parallelism 1");
+        }
+        if (total < settings.offloadThresholdNanos) {
+            return PipelinePlan.fused(costs, String.format("%.0fns/element below offload-threshold", total));
+        }
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            if (effective[i] >= settings.heavyStepShare * total) {
+                first = first < 0 ? i : first;
+                last = i;
+            }
+        }
+        if (first < 0) {
+            // the cost is spread too evenly for any step to stand out: offload all of them
+            first = 0;
+            last = n - 1;
+        }
+        double span = 0;
+        for (int i = first; i <= last; i++) {
+            span += effective[i];
+        }
+        // cost of one element entering the span, which is what a batch is made of
+        double perSpanElement = entering[first] == 0 ? span : span / entering[first];
+        int batch = (int) Math.max(1, Math.min(settings.maxBatchSize,
+                Math.ceil(settings.targetBatchNanos / Math.max(1, perSpanElement))));
+        return new PipelinePlan(costs, first, last, batch, settings.parallelism, settings.ordered,
+                String.format("%.0fns/element, %.0f%% offloaded", total, 100 * span / total));
+    }
+
+    private Object apply(int from, int to, Object element) throws Exception {
+        Object current = element;
+        for (int i = from; i < to && current != SKIP; i++) {
+            current = steps.get(i).apply(current);
+        }
+        return current;
+    }
+
+    private List<Object> applyAll(int from, int to, List<Object> batch) throws Exception {
+        List<Object> out = new ArrayList<>(batch.size());
+        for (Object element : batch) {
+            Object mapped = apply(from, to, element);
+            if (mapped != SKIP) {
+                out.add(mapped);
+            }
+        }
+        return out;
+    }
+
+    // ------------------------------------------------------------
+    // Stage
+    // ------------------------------------------------------------
+
+    private final class PlannedStage extends AbstractGraphStageWithMaterializedValue<FlowShape<Object, Object>, CompletionStage<PipelinePlan>> {
+        private final Inlet<Object> in = Inlet.create("ParallelPipeline.in");
+        private final Outlet<Object> out = Outlet.create("ParallelPipeline.out");
+        private final FlowShape<Object, Object> shape = FlowShape.of(in, out);
+
+        @Override
+        public FlowShape<Object, Object> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("parallelPipeline");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, CompletionStage<PipelinePlan>> createLogicAndMaterializedValuePair(Attributes attributes) {
+            CompletableFuture<PipelinePlan> planned = new CompletableFuture<>();
+            return Pair.create(new Logic(planned), planned);
+        }
+
+        /**
+         * Calibration and fused plans: pull on demand, map and push, like a fused map/filter.
+         * Offloaded plans: pull while fewer than {@code parallelism} batches are in flight or awaiting
+         * emission; emit the head batch (ordered) or any completed one.
+         */
+        private final class Logic extends TimerGraphStageLogic {
+            private final CompletableFuture<PipelinePlan> planned;
+            private Settings settings;
+            private Executor executor;
+            private Calibration calibration;
+            private PipelinePlan plan;
+            /** Why the stage failed before a plan was chosen; the materialized plan fails with it. */
+            private Throwable failure;
+
+            private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+            private List<Object> building = new ArrayList<>();
+            private Iterator<Object> emitting = Collections.emptyIterator();
+            private AsyncCallback<Batch> onBatchDone;
+
+            Logic(CompletableFuture<PipelinePlan> planned) {
+                super(shape);
+                this.planned = planned;
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() throws Exception {
+                        Object element = grab(in);
+                        if (plan == null) {
+                            Object result;
+                            try {
+                                result = calibration.run(element);
+                            } catch (Exception e) {
+                                failure = e;
+                                throw e;
+                            }
+                            if (calibration.complete()) {
+                                choosePlan();
+                            }
+                            pushOrPull(result);
+                        } else if (plan.isFused()) {
+                            pushOrPull(apply(0, steps.size(), element));
+                        } else {
+                            Object result = apply(0, plan.firstOffloaded, element);
+                            if (result != SKIP) {
+                                building.add(result);
+                                if (building.size() >= plan.batchSize) {
+                                    submit();
+                                } else if (building.size() == 1) {
+                                    scheduleOnce(FLUSH, settings.maxBatchDelay);
+                                }
+                            }
+                            pullIfCapacity();
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() throws Exception {
+                        if (plan == null) {
+                            choosePlan();
+                        }
+                        if (plan.isFused()) {
+                            completeStage();
+                        } else {
+                            if (!building.isEmpty()) {
+                                submit();
+                            }
+                            emit();
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFailure(Throwable ex) {
+                        failure = ex;
+                        failStage(ex);
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() throws Exception {
+                        if (plan == null || plan.isFused()) {
+                            pull(in);
+                        } else {
+                            emit();
+                            pullIfCapacity();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void preStart() {
+                ActorSystem system = materializer().system();
+                try {
+                    settings = new Settings(system.settings().config().getConfig("gft.stream.planner"), parallelism,
+                            ordered);
+                    executor = system.dispatchers().lookup(settings.dispatcher);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    throw e;
+                }
+                calibration = new Calibration(settings.calibrationElements);
+                onBatchDone = createAsyncCallback(batch -> {
+                    batch.done = true;
+                    emit();
+                    pullIfCapacity();
+                });
+            }
+
+            @Override
+            public void postStop() {
+                if (planned.isDone()) {
+                    return;
+                }
+                // a plan from the samples of a failed calibration would be a guess
+                if (failure != null) {
+                    planned.completeExceptionally(failure);
+                } else if (calibration == null) {
+                    planned.completeExceptionally(new IllegalStateException("Stopped before calibration started"));
+                } else {
+                    planned.complete(decide(calibration, settings));
+                }
+            }
+
+            @Override
+            public void onTimer(Object key) {
+                if (!building.isEmpty()) {
+                    submit();
+                }
+            }
+
+            private void choosePlan() {
+                plan = decide(calibration, settings);
+                planned.complete(plan);
+            }
+
+            private void pushOrPull(Object result) {
+                if (result == SKIP) {
+                    pull(in);
+                } else {
+                    push(out, result);
+                }
+            }
+
+            private void pullIfCapacity() {
+                if (!isClosed(in) && !hasBeenPulled(in) && batches.size() < plan.parallelism) {
+                    pull(in);
+                }
+            }
+
+            private void submit() {
+                cancelTimer(FLUSH);
+                Batch batch = new Batch(building);
+                building = new ArrayList<>(plan.batchSize);
+                batches.add(batch);
+                int from = plan.firstOffloaded;
+                int to = plan.lastOffloaded + 1;
+                executor.execute(() -> {
+                    try {
+                        batch.output = applyAll(from, to, batch.input);
+                    } catch (Throwable t) {
+                        batch.failure = t;
+                    }
+                    onBatchDone.invoke(batch);
+                });
+            }
+
+            /** Pushes the next result of the batch being emitted, moving on to the next completed batch. */
+            private void emit() throws Exception {
+                int suffix = plan.lastOffloaded + 1;
+                while (isAvailable(out)) {
+                    if (emitting.hasNext()) {
+                        Object result = apply(suffix, steps.size(), emitting.next());
+                        if (result != SKIP) {
+                            push(out, result);
+                        }
+                        continue;
+                    }
+                    Batch next = nextCompleted();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.failure != null) {
+                        failStage(next.failure);
+                        return;
+                    }
+                    emitting = next.output.iterator();
+                }
+                if (isClosed(in) && building.isEmpty() && batches.isEmpty() && !emitting.hasNext()) {
+                    completeStage();
+                }
+            }
+
+            private Batch nextCompleted() {
+                if (plan.ordered) {
+                    return !batches.isEmpty() && batches.peekFirst().done ? batches.pollFirst() : null;
+                }
+                for (Iterator<Batch> it = batches.iterator(); it.hasNext(); ) {
+                    Batch batch = it.next();
+                    if (batch.done) {
+                        it.remove();
+                        return batch;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    /** Offloaded elements; results and failure are published to the stage by the completion callback. */
+    private static final class Batch {
+        final List<Object> input;
+        List<Object> output;
+        Throwable failure;
+        boolean done;
+
+        Batch(List<Object> input) {
+            this.input = input;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Calibration
+    // ------------------------------------------------------------
+
+    /**
+     * Runs elements through all steps, timing each step over the second half of them (the first half warms up
+     * the JIT). The slowest 5% of the timings are dropped so that a GC pause or a preemption during calibration
+     * does not make a cheap step look heavy.
+     */
+    private final class Calibration {
+        final double[] nanos = new double[steps.size()];
+        final long[] in = new long[steps.size()];
+        final long[] out = new long[steps.size()];
+        private final int elements;
+        private final long[][] samples;
+        private int seen;
+
+        Calibration(int elements) {
+            this.elements = elements;
+            this.samples = new long[steps.size()][elements - elements / 2];
+        }
+
+        boolean complete() {
+            return seen >= elements;
+        }
+
+        Object run(Object element) throws Exception {
+            boolean timed = seen++ >= elements / 2;
+            Object current = element;
+            for (int i = 0; i < steps.size() && current != SKIP; i++) {
+                long start = timed ? System.nanoTime() : 0;
+                current = steps.get(i).apply(current);
+                if (timed) {
+                    samples[i][(int) in[i]++] = System.nanoTime() - start;
+                    if (current != SKIP) {
+                        out[i]++;
+                    }
+                }
+            }
+            return current;
+        }
+
+        /** Computes {@link #nanos} from the samples so far; also used when the stream ends during calibration. */
+        void finish() {
+            for (int i = 0; i < steps.size(); i++) {
+                nanos[i] = trimmedTotal(samples[i], (int) in[i]);
+            }
+        }
+
+        /** Sum of the samples with the slowest 5% replaced by the mean of the others. */
+        private double trimmedTotal(long[] samples, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            Arrays.sort(samples, 0, count);
+            int kept = Math.max(1, count - count / 20);
+            long sum = 0;
+            for (int j = 0; j < kept; j++) {
+                sum += samples[j];
+            }
+            return sum * (double) count / kept;
+        }
+    }
+
+    private static final class Step {
+        final String name;
+        final Function<Object, Object> map;
+        final Predicate<Object> filter;
+
+        Step(String name, Function<Object, Object> map, Predicate<Object> filter) {
+            this.name = name;
+            this.map = map;
+            this.filter = filter;
+        }
+
+        Object apply(Object element) throws Exception {
+            if (map != null) {
+                return map.apply(element);
+            }
+            return filter.test(element) ? element : SKIP;
+        }
+    }
+
+    private static final class Settings {
+        final int calibrationElements;
+        final int parallelism;
+        final boolean ordered;
+        final long offloadThresholdNanos;
+        final double heavyStepShare;
+        final long targetBatchNanos;
+        final int maxBatchSize;
+        final Duration maxBatchDelay;
+        final String dispatcher;
+
+        Settings(Config config, int parallelism, Boolean ordered) {
+            this.calibrationElements = Math.max(1, config.getInt("calibration-elements"));
+            int configured = parallelism > 0 ? parallelism : config.getInt("parallelism");
+            this.parallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+            this.ordered = ordered != null ? ordered : config.getBoolean("ordered");
+            this.offloadThresholdNanos = config.getDuration("offload-threshold", TimeUnit.NANOSECONDS);
+            this.heavyStepShare = config.getDouble("heavy-step-share");
+            this.targetBatchNanos = config.getDuration("target-batch-cost", TimeUnit.NANOSECONDS);
+            this.maxBatchSize = config.getInt("max-batch-size");
+            this.maxBatchDelay = config.getDuration("max-batch-delay");
+            this.dispatcher = config.getString("dispatcher");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gft.stream;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How a {@link ParallelPipeline} runs after calibration: the measured cost of every step and which steps
+ * were offloaded to parallel batches.
+ *
+ * Steps {@code [0, firstOffloaded)} and {@code (lastOffloaded, n)} run on the stream actor;
+ * {@code [firstOffloaded, lastOffloaded]} run in batches of {@code batchSize} elements on the planner's
+ * dispatcher, up to {@code parallelism} batches at once. A fused plan has {@code firstOffloaded = -1}.
+ */
+public final class PipelinePlan {
+
+    /** Calibration result of one step. */
+    public static final class StepCost {
+        public final String name;
+        /** Time per element entering the step. */
+        public final double nanosPerElement;
+        /** Elements leaving / entering the step: 1 for map, the pass rate for filter. */
+        public final double selectivity;
+        /** Time per element entering the pipeline, i.e. weighted by the selectivity of the steps before. */
+        public final double effectiveNanos;
+
+        StepCost(String name, double nanosPerElement, double selectivity, double effectiveNanos) {
+            this.name = name;
+            this.nanosPerElement = nanosPerElement;
+            this.selectivity = selectivity;
+            this.effectiveNanos = effectiveNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s=%.0fns/el(x%.2f)", name, nanosPerElement, selectivity);
+        }
+    }
+
+    public final List<StepCost> steps;
+    public final int firstOffloaded;
+    public final int lastOffloaded;
+    public final int batchSize;
+    public final int parallelism;
+    public final boolean ordered;
+    /** Why the plan was chosen, for logs. */
+    public final String reason;
+
+    PipelinePlan(List<StepCost> steps, int firstOffloaded, int lastOffloaded, int batchSize, int parallelism,
+                 boolean ordered, String reason) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.firstOffloaded = firstOffloaded;
+        this.lastOffloaded = lastOffloaded;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+        this.reason = reason;
+    }
+
+    static PipelinePlan fused(List<StepCost> steps, String reason) {
+        return new PipelinePlan(steps, -1, -1, 1, 1, true, reason);
+    }
+
+    public boolean isFused() {
+        return firstOffloaded < 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isFused()) {
+            return "PipelinePlan(fused " + steps + ": " + reason + ")";
+        }
+        return "PipelinePlan(" + steps
+                + ", offloaded " + steps.get(firstOffloaded).name + ".." + steps.get(lastOffloaded).name
+                + " in batches of " + batchSize + " x" + parallelism + (ordered ? " ordered" : " unordered")
+                + ": " + reason + ")";
+    }
+}
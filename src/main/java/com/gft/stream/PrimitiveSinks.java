@@ -0,0 +1,217 @@
+package com.gft.stream;
+
+import akka.japi.Pair;
+import akka.stream.AbruptStageTerminationException;
+import akka.stream.Attributes;
+import akka.stream.Inlet;
+import akka.stream.SinkShape;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.GraphStageLogic;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sinks for large {@code int} streams that run in bounded memory, unlike {@code Sink.seq()}:
+ * - {@link #stats()}: count, sum, min, max in four primitives
+ * - {@link #quantiles()}: a fixed-size {@link IntQuantileSketch}
+ * - {@link #topK(int)}: the {@code k} largest values in an {@code int[k]} heap
+ * - {@link #mappedInts}, {@link #mappedIntChunks}, {@link #mappedLongChunks}: all values written to a
+ *   memory-mapped file, one {@code gft.stream.mapped-sink.region-size} region mapped at a time
+ *
+ * Accumulators are created per materialization, so the sinks can be reused like any other.
+ */
+public final class PrimitiveSinks {
+
+    static final int DEFAULT_PRECISION = 7;
+    private static final int CHUNK_SIZE = 1024;
+
+    private PrimitiveSinks() { }
+
+    public static Sink<Integer, CompletionStage<IntStats>> stats() {
+        return accumulate(StatsAccumulator::new, StatsAccumulator::add, StatsAccumulator::result);
+    }
+
+    /** Quantile sketch with 7 bits of precision (relative error under 1%). */
+    public static Sink<Integer, CompletionStage<IntQuantileSketch>> quantiles() {
+        return quantiles(DEFAULT_PRECISION);
+    }
+
+    public static Sink<Integer, CompletionStage<IntQuantileSketch>> quantiles(int precision) {
+        return accumulate(() -> new IntQuantileSketch(precision), IntQuantileSketch::add, sketch -> sketch);
+    }
+
+    /** The {@code k} largest values, largest first; fewer if the stream is shorter. */
+    public static Sink<Integer, CompletionStage<int[]>> topK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive, got " + k);
+        }
+        return accumulate(() -> new TopK(k), TopK::add, TopK::result);
+    }
+
+    /** Writes every value to {@code file} (native byte order); materializes the number of values written. */
+    public static Sink<Integer, CompletionStage<Long>> mappedInts(Path file) {
+        return IntChunks.chunked(CHUNK_SIZE).toMat(mappedIntChunks(file), Keep.right());
+    }
+
+    /** Writes the chunks back to back to {@code file} (native byte order); materializes the number of values. */
+    public static Sink<int[], CompletionStage<Long>> mappedIntChunks(Path file) {
+        return Sink.fromGraph(new MappedChunkSink<>(file, MappedChunkSink.INTS, 0));
+    }
+
+    /** As {@link #mappedIntChunks}, with a region size overriding {@code gft.stream.mapped-sink.region-size}. */
+    public static Sink<int[], CompletionStage<Long>> mappedIntChunks(Path file, long regionSize) {
+        return Sink.fromGraph(new MappedChunkSink<>(file, MappedChunkSink.INTS, regionSize));
+    }
+
+    public static Sink<long[], CompletionStage<Long>> mappedLongChunks(Path file) {
+        return Sink.fromGraph(new MappedChunkSink<>(file, MappedChunkSink.LONGS, 0));
+    }
+
+    private static <A, R> Sink<Integer, CompletionStage<R>> accumulate(
+            Supplier<A> create, BiConsumer<A, Integer> add, Function<A, R> result) {
+        return Sink.fromGraph(new AccumulatingSink<>(create, add, result));
+    }
+
+    /** One accumulator per materialization, fed in place: no per-element allocation beyond the element. */
+    private static final class AccumulatingSink<A, R> extends AbstractGraphStageWithMaterializedValue<SinkShape<Integer>, CompletionStage<R>> {
+        private final Inlet<Integer> in = Inlet.create("PrimitiveSinks.in");
+        private final SinkShape<Integer> shape = SinkShape.of(in);
+        private final Supplier<A> create;
+        private final BiConsumer<A, Integer> add;
+        private final Function<A, R> result;
+
+        AccumulatingSink(Supplier<A> create, BiConsumer<A, Integer> add, Function<A, R> result) {
+            this.create = create;
+            this.add = add;
+            this.result = result;
+        }
+
+        @Override
+        public SinkShape<Integer> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("primitiveSink");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, CompletionStage<R>> createLogicAndMaterializedValuePair(Attributes attributes) {
+            CompletableFuture<R> done = new CompletableFuture<>();
+            A accumulator = create.get();
+            GraphStageLogic logic = new GraphStageLogic(shape) {
+                {
+                    setHandler(in, new AbstractInHandler() {
+                        @Override
+                        public void onPush() {
+                            add.accept(accumulator, grab(in));
+                            pull(in);
+                        }
+
+                        @Override
+                        public void onUpstreamFinish() {
+                            done.complete(result.apply(accumulator));
+                            completeStage();
+                        }
+
+                        @Override
+                        public void onUpstreamFailure(Throwable ex) {
+                            done.completeExceptionally(ex);
+                            failStage(ex);
+                        }
+                    });
+                }
+
+                @Override
+                public void preStart() {
+                    pull(in);
+                }
+
+                @Override
+                public void postStop() {
+                    if (!done.isDone()) {
+                        done.completeExceptionally(new AbruptStageTerminationException(this));
+                    }
+                }
+            };
+            return Pair.create(logic, done);
+        }
+    }
+
+    private static final class StatsAccumulator {
+        long count;
+        long sum;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+
+        void add(int value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        IntStats result() {
+            return new IntStats(count, sum, min, max);
+        }
+    }
+
+    /** Binary min-heap of the largest values seen: the root is the smallest one kept. */
+    private static final class TopK {
+        final int[] heap;
+        int size;
+
+        TopK(int k) {
+            this.heap = new int[k];
+        }
+
+        void add(int value) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > value) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = value;
+            } else if (value > heap[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && heap[child + 1] < heap[child]) {
+                        child++;
+                    }
+                    if (heap[child] >= value) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = value;
+            }
+        }
+
+        int[] result() {
+            int[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+                int t = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = t;
+            }
+            return sorted;
+        }
+    }
+}
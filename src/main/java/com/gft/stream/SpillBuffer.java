@@ -0,0 +1,373 @@
+package com.gft.stream;
+
+import akka.japi.Pair;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.javadsl.Flow;
+import akka.stream.stage.AbstractGraphStageWithMaterializedValue;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStageLogic;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * A buffer for slow downstreams that keeps a bounded window in memory and spills the overflow to disk, instead
+ * of choosing between backpressuring the source and an unbounded in-memory buffer.
+ *
+ * - up to {@code memory-elements} wait on the heap; further elements are encoded with a {@link Codec} and
+ *   appended to memory-mapped segment files of {@code segment-size}
+ * - once something is spilled, new elements go to disk behind it, and the disk is replayed into memory as
+ *   downstream drains it, so the order is kept
+ * - consumed segments are recycled: up to {@code recycled-segments} are kept mapped and rewritten from the
+ *   start, the others deleted; the files live in a fresh directory removed when the stage stops
+ * - upstream is backpressured once {@code max-spill-size} bytes are on disk
+ *
+ * Spilled elements do not survive the stream (nothing is fsynced or reopened): this is overflow space,
+ * not a journal. The materialized {@link Stats} show the spill.
+ *
+ * Settings: {@code gft.stream.spill-buffer}.
+ */
+public final class SpillBuffer {
+
+    private SpillBuffer() { }
+
+    /** Binary form of the spilled elements. */
+    public interface Codec<T> {
+        byte[] encode(T element);
+
+        T decode(byte[] bytes);
+    }
+
+    public static final Codec<Integer> INTS = new Codec<Integer>() {
+        @Override
+        public byte[] encode(Integer element) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(element).array();
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+    };
+
+    public static final Codec<String> UTF8 = new Codec<String>() {
+        @Override
+        public byte[] encode(String element) {
+            return element.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /** Live view of one materialized spill buffer, updated by its stage. */
+    public static final class Stats {
+        private volatile int inMemory;
+        private volatile long spilled;
+        private volatile long spilledBytes;
+        private volatile long totalSpilled;
+        private volatile int segmentsCreated;
+        private volatile int segmentsRecycled;
+
+        public int getInMemory() {
+            return inMemory;
+        }
+
+        /** Elements on disk now. */
+        public long getSpilled() {
+            return spilled;
+        }
+
+        /** Bytes on disk now, record headers included. */
+        public long getSpilledBytes() {
+            return spilledBytes;
+        }
+
+        public long getTotalSpilled() {
+            return totalSpilled;
+        }
+
+        /** Segment files created; a recycled segment is reused without creating one. */
+        public int getSegmentsCreated() {
+            return segmentsCreated;
+        }
+
+        /** Segments reused after being consumed, instead of creating and mapping a new file. */
+        public int getSegmentsRecycled() {
+            return segmentsRecycled;
+        }
+
+        @Override
+        public String toString() {
+            return "SpillBuffer.Stats(inMemory=" + inMemory + ", spilled=" + spilled + ", spilledBytes=" + spilledBytes
+                    + ", totalSpilled=" + totalSpilled + ", segmentsCreated=" + segmentsCreated
+                    + ", segmentsRecycled=" + segmentsRecycled + ")";
+        }
+    }
+
+    /** Memory window, segments and directory from {@code gft.stream.spill-buffer}. */
+    public static <T> Flow<T, T, Stats> create(Codec<T> codec) {
+        return create(codec, 0, null);
+    }
+
+    /** {@code memoryElements <= 0} or {@code dir == null}: from {@code gft.stream.spill-buffer}. */
+    public static <T> Flow<T, T, Stats> create(Codec<T> codec, int memoryElements, Path dir) {
+        return Flow.fromGraph(new Stage<>(codec, memoryElements, dir));
+    }
+
+    /** One mapped segment file: the writer appends through {@code write}, the reader follows through {@code read}. */
+    private static final class Segment {
+        static final int HEADER = Integer.BYTES;
+        /** Written where the next record does not fit: the reader moves on to the next segment. */
+        static final int END = -1;
+
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer write;
+        final ByteBuffer read;
+
+        Segment(Path file, int size) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.write = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.read = write.duplicate();
+        }
+
+        void rewind() {
+            write.clear();
+            read.clear();
+        }
+
+        /** The mapping stays until collected; the file is gone from the directory at once. */
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static final class Stage<T> extends AbstractGraphStageWithMaterializedValue<FlowShape<T, T>, Stats> {
+        private final Inlet<T> in = Inlet.create("SpillBuffer.in");
+        private final Outlet<T> out = Outlet.create("SpillBuffer.out");
+        private final FlowShape<T, T> shape = FlowShape.of(in, out);
+        private final Codec<T> codec;
+        private final int memoryElements;
+        private final Path dir;
+
+        Stage(Codec<T> codec, int memoryElements, Path dir) {
+            this.codec = codec;
+            this.memoryElements = memoryElements;
+            this.dir = dir;
+        }
+
+        @Override
+        public FlowShape<T, T> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("spillBuffer");
+        }
+
+        @Override
+        public Pair<GraphStageLogic, Stats> createLogicAndMaterializedValuePair(Attributes attributes) {
+            Stats stats = new Stats();
+            return Pair.create(new Logic(stats), stats);
+        }
+
+        private final class Logic extends GraphStageLogic {
+            private final Stats stats;
+            private final ArrayDeque<T> memory = new ArrayDeque<>();
+            /** Oldest first: the reader is in the first, the writer in the last. */
+            private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+            private final ArrayDeque<Segment> recycled = new ArrayDeque<>();
+            private int capacity;
+            private int segmentSize;
+            private long maxSpillBytes;
+            private int maxRecycled;
+            private Path spillDir;
+            private int nextFile;
+            private long spilled;
+            private long spilledBytes;
+
+            Logic(Stats stats) {
+                super(shape);
+                this.stats = stats;
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() throws IOException {
+                        T element = grab(in);
+                        if (spilled == 0 && memory.size() < capacity) {
+                            memory.add(element);
+                        } else {
+                            spill(element);
+                        }
+                        if (isAvailable(out)) {
+                            emit();
+                        }
+                        pullIfRoom();
+                        updateStats();
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        if (memory.isEmpty() && spilled == 0) {
+                            completeStage();
+                        }
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() throws IOException {
+                        emit();
+                        pullIfRoom();
+                        updateStats();
+                    }
+                });
+            }
+
+            @Override
+            public void preStart() throws IOException {
+                Config config = materializer().system().settings().config().getConfig("gft.stream.spill-buffer");
+                capacity = memoryElements > 0 ? memoryElements : config.getInt("memory-elements");
+                long size = config.getBytes("segment-size");
+                if (size < 64 || size > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("segment-size must be between 64 bytes and 2 GiB, got " + size);
+                }
+                segmentSize = (int) size;
+                maxSpillBytes = config.getBytes("max-spill-size");
+                maxRecycled = config.getInt("recycled-segments");
+                Path base = dir != null ? dir
+                        : config.getString("dir").isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir"))
+                        : Paths.get(config.getString("dir"));
+                Files.createDirectories(base);
+                spillDir = Files.createTempDirectory(base, "spill-");
+                pull(in);
+            }
+
+            @Override
+            public void postStop() throws IOException {
+                for (Segment segment : segments) {
+                    segment.delete();
+                }
+                for (Segment segment : recycled) {
+                    segment.delete();
+                }
+                segments.clear();
+                recycled.clear();
+                if (spillDir != null) {
+                    Files.deleteIfExists(spillDir);
+                }
+            }
+
+            private void emit() throws IOException {
+                if (memory.size() <= capacity / 2 && spilled > 0) {
+                    replay();
+                }
+                T element = memory.poll();
+                if (element != null) {
+                    push(out, element);
+                }
+                if (memory.isEmpty() && spilled == 0 && isClosed(in)) {
+                    completeStage();
+                }
+            }
+
+            private void pullIfRoom() {
+                if (!isClosed(in) && !hasBeenPulled(in) && spilledBytes < maxSpillBytes) {
+                    pull(in);
+                }
+            }
+
+            private void spill(T element) throws IOException {
+                byte[] bytes = codec.encode(element);
+                int record = Segment.HEADER + bytes.length;
+                if (record > segmentSize - Segment.HEADER) {
+                    throw new IllegalArgumentException("Element of " + bytes.length + " bytes does not fit a spill segment of "
+                            + segmentSize + " bytes");
+                }
+                Segment writer = segments.peekLast();
+                // a record always leaves room for the END marker behind it
+                if (writer == null || writer.write.remaining() < record + Segment.HEADER) {
+                    if (writer != null) {
+                        writer.write.putInt(Segment.END);
+                    }
+                    writer = newSegment();
+                    segments.add(writer);
+                }
+                writer.write.putInt(bytes.length).put(bytes);
+                spilled++;
+                spilledBytes += record;
+                stats.totalSpilled++;
+            }
+
+            /** Refills memory from disk, oldest first, recycling each segment read to its end. */
+            private void replay() throws IOException {
+                while (spilled > 0 && memory.size() < capacity) {
+                    Segment reader = segments.peekFirst();
+                    int length = reader.read.getInt();
+                    if (length == Segment.END) {
+                        recycle(segments.pollFirst());
+                        continue;
+                    }
+                    byte[] bytes = new byte[length];
+                    reader.read.get(bytes);
+                    memory.add(codec.decode(bytes));
+                    spilled--;
+                    spilledBytes -= Segment.HEADER + length;
+                }
+                if (spilled == 0) {
+                    // the disk is caught up: the writer segment starts over, all others are done
+                    while (segments.size() > 1) {
+                        recycle(segments.pollFirst());
+                    }
+                    Segment last = segments.peekFirst();
+                    if (last != null) {
+                        last.rewind();
+                    }
+                }
+            }
+
+            private Segment newSegment() throws IOException {
+                Segment segment = recycled.poll();
+                if (segment != null) {
+                    stats.segmentsRecycled++;
+                    return segment;
+                }
+                stats.segmentsCreated++;
+                return new Segment(spillDir.resolve(String.format("%08d.spill", nextFile++)), segmentSize);
+            }
+
+            private void recycle(Segment segment) throws IOException {
+                if (recycled.size() < maxRecycled) {
+                    segment.rewind();
+                    recycled.add(segment);
+                } else {
+                    segment.delete();
+                }
+            }
+
+            private void updateStats() {
+                stats.inMemory = memory.size();
+                stats.spilled = spilled;
+                stats.spilledBytes = spilledBytes;
+            }
+        }
+    }
+}
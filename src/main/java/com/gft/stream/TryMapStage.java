@@ -0,0 +1,165 @@
+package com.gft.stream;
+
+import akka.japi.function.Function;
+import akka.stream.Attributes;
+import akka.stream.FanOutShape2;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import scala.util.control.NonFatal;
+
+/**
+ * Maps each element to {@code out0}, or sends it with its error to {@code out1}, in one stage. Either mode is
+ * set: {@code mapper} with {@code errorType} catches exceptions of that type, {@code eitherMapper} takes the
+ * error from a {@link Either#left}. Other exceptions, and fatal errors even of {@code errorType}
+ * ({@link NonFatal}), fail the stage.
+ *
+ * Like {@code Partition}, an element waits for demand on the outlet it goes to, so a slow failure sink slows
+ * the main output down. A failure sink that cancels (e.g. {@code Sink.head}) does not stop the main output:
+ * the failed elements after it are dropped.
+ */
+final class TryMapStage<In, Out, E> extends GraphStage<FanOutShape2<In, Out, Failed<In, E>>> {
+
+    private final Function<In, Out> mapper;
+    private final Class<? extends E> errorType;
+    private final Function<In, Either<E, Out>> eitherMapper;
+
+    private final Inlet<In> in = Inlet.create("TryMap.in");
+    private final Outlet<Out> out = Outlet.create("TryMap.out");
+    private final Outlet<Failed<In, E>> failures = Outlet.create("TryMap.failures");
+    private final FanOutShape2<In, Out, Failed<In, E>> shape = new FanOutShape2<>(in, out, failures);
+
+    private TryMapStage(Function<In, Out> mapper, Class<? extends E> errorType, Function<In, Either<E, Out>> eitherMapper) {
+        this.mapper = mapper;
+        this.errorType = errorType;
+        this.eitherMapper = eitherMapper;
+    }
+
+    static <In, Out, E extends Throwable> TryMapStage<In, Out, E> catching(Function<In, Out> mapper, Class<E> errorType) {
+        return new TryMapStage<>(mapper, errorType, null);
+    }
+
+    static <In, Out, E> TryMapStage<In, Out, E> either(Function<In, Either<E, Out>> mapper) {
+        return new TryMapStage<>(null, null, mapper);
+    }
+
+    @Override
+    public FanOutShape2<In, Out, Failed<In, E>> shape() {
+        return shape;
+    }
+
+    @Override
+    public Attributes initialAttributes() {
+        return Attributes.name(eitherMapper != null ? "mapEither" : "mapTry");
+    }
+
+    @Override
+    public GraphStageLogic createLogic(Attributes inheritedAttributes) {
+        return new GraphStageLogic(shape) {
+            private Out pendingValue;
+            private boolean hasPendingValue;
+            private Failed<In, E> pendingFailure;
+
+            {
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() throws Exception {
+                        In element = grab(in);
+                        if (eitherMapper != null) {
+                            Either<E, Out> result = eitherMapper.apply(element);
+                            if (result.isRight()) {
+                                emitValue(result.right());
+                            } else {
+                                emitFailure(new Failed<>(element, result.left()));
+                            }
+                        } else {
+                            Out value;
+                            try {
+                                value = mapper.apply(element);
+                            } catch (Throwable e) {
+                                if (!errorType.isInstance(e) || !NonFatal.apply(e)) {
+                                    throw e;
+                                }
+                                emitFailure(new Failed<>(element, errorType.cast(e)));
+                                return;
+                            }
+                            emitValue(value);
+                        }
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        if (!hasPendingValue && pendingFailure == null) {
+                            completeStage();
+                        }
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        if (hasPendingValue) {
+                            Out value = pendingValue;
+                            pendingValue = null;
+                            hasPendingValue = false;
+                            push(out, value);
+                        }
+                        pullOrComplete();
+                    }
+                });
+                setHandler(failures, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        if (pendingFailure != null) {
+                            Failed<In, E> failure = pendingFailure;
+                            pendingFailure = null;
+                            push(failures, failure);
+                        }
+                        pullOrComplete();
+                    }
+
+                    @Override
+                    public void onDownstreamFinish(Throwable cause) {
+                        pendingFailure = null;
+                        pullOrComplete();
+                    }
+                });
+            }
+
+            private void emitValue(Out value) {
+                if (isAvailable(out)) {
+                    push(out, value);
+                    pullOrComplete();
+                } else {
+                    pendingValue = value;
+                    hasPendingValue = true;
+                }
+            }
+
+            private void emitFailure(Failed<In, E> failure) {
+                if (isClosed(failures)) {
+                    pullOrComplete();
+                } else if (isAvailable(failures)) {
+                    push(failures, failure);
+                    pullOrComplete();
+                } else {
+                    pendingFailure = failure;
+                }
+            }
+
+            /** Pulls once the held element is out and some outlet can take the next one. */
+            private void pullOrComplete() {
+                if (hasPendingValue || pendingFailure != null) {
+                    return;
+                }
+                if (isClosed(in)) {
+                    completeStage();
+                } else if (!hasBeenPulled(in) && (isAvailable(out) || isAvailable(failures))) {
+                    pull(in);
+                }
+            }
+        };
+    }
+}
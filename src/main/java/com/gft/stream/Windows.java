@@ -0,0 +1,462 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.javadsl.Flow;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Windowed aggregation of {@code int} values, e.g. {@code Compute} results into per-second statistics, folded
+ * as the elements pass instead of collecting the stream and post-processing it.
+ *
+ * - time windows, by processing time (the clock when the element arrives) or event time (a timestamp of the
+ *   element): {@link #tumbling}, {@link #sliding}, {@link #tumblingEventTime}, {@link #slidingEventTime}
+ * - count windows: {@link #tumblingCount}, {@link #slidingCount}
+ *
+ * Each element is added to one pane of {@code slide} (the whole window when tumbling) with an
+ * {@link Aggregation}; a sliding window merges its {@code size / slide} panes when it closes. So the state is
+ * a fixed ring of panes whatever the rate, and an element costs one {@code add}. Time windows are aligned to
+ * the epoch, so a 1 s window is one wall-clock second.
+ *
+ * A window closes and is emitted as a {@link Window}:
+ * - processing time: on the first element after its end, or at the latest on a tick at its end
+ * - event time: once the watermark, the highest timestamp seen minus {@code allowedLateness}, passes its end;
+ *   an element for a window already emitted is dropped and counted in the next window's {@link Window#late}
+ * - count: when its last element arrives
+ * Windows without elements are not emitted. When upstream completes, the windows holding its last elements are
+ * emitted, partly filled. While downstream backpressures a closed window, upstream is not pulled.
+ *
+ * Usage, per-second and per-minute statistics of the {@code Compute} results:
+ * <pre>
+ * results.via(Windows.tumbling(Duration.ofSeconds(1), IntResult::getAsInt, Windows.stats()))
+ * results.via(Windows.sliding(Duration.ofMinutes(1), Duration.ofSeconds(1), IntResult::getAsInt, Windows.stats()))
+ * </pre>
+ */
+public final class Windows {
+
+    private Windows() { }
+
+    /**
+     * An incremental fold of {@code int} values into a mutable accumulator. {@link #result} is called once,
+     * after which the window does not touch the accumulator again: the result may be the accumulator itself.
+     */
+    public interface Aggregation<A, R> {
+        A create();
+
+        void add(A acc, int value);
+
+        /** Adds {@code from}, the accumulator of a pane, to {@code into}. */
+        void merge(A into, A from);
+
+        R result(A acc);
+    }
+
+    /** One closed window and its aggregate. */
+    public static final class Window<R> {
+        /** Time windows: epoch milliseconds, end exclusive. Count windows: element positions, end exclusive. */
+        public final long start;
+        public final long end;
+        /** Elements in the window. */
+        public final long count;
+        /** Event time: late elements dropped since the previous window was emitted. */
+        public final long late;
+        public final R result;
+
+        public Window(long start, long end, long count, long late, R result) {
+            this.start = start;
+            this.end = end;
+            this.count = count;
+            this.late = late;
+            this.result = result;
+        }
+
+        @Override
+        public String toString() {
+            return "Window(" + start + ".." + end + ", count=" + count + ", late=" + late + ", result=" + result + ")";
+        }
+    }
+
+    /** Count, sum, min and max, as {@link PrimitiveSinks#stats()}. */
+    public static Aggregation<?, IntStats> stats() {
+        return STATS;
+    }
+
+    /** A {@link IntQuantileSketch} of the default precision (7 bits, 50 KiB per pane). */
+    public static Aggregation<?, IntQuantileSketch> quantiles() {
+        return quantiles(PrimitiveSinks.DEFAULT_PRECISION);
+    }
+
+    public static Aggregation<?, IntQuantileSketch> quantiles(int precision) {
+        if (precision < 1 || precision > 16) {
+            throw new IllegalArgumentException("precision must be within 1..16, got " + precision);
+        }
+        return new Aggregation<IntQuantileSketch, IntQuantileSketch>() {
+            @Override
+            public IntQuantileSketch create() {
+                return new IntQuantileSketch(precision);
+            }
+
+            @Override
+            public void add(IntQuantileSketch acc, int value) {
+                acc.add(value);
+            }
+
+            @Override
+            public void merge(IntQuantileSketch into, IntQuantileSketch from) {
+                into.merge(from);
+            }
+
+            @Override
+            public IntQuantileSketch result(IntQuantileSketch acc) {
+                return acc;
+            }
+        };
+    }
+
+    /** {@code {count, sum, min, max}}. */
+    private static final Aggregation<long[], IntStats> STATS = new Aggregation<long[], IntStats>() {
+        @Override
+        public long[] create() {
+            return new long[] {0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        }
+
+        @Override
+        public void add(long[] acc, int value) {
+            acc[0]++;
+            acc[1] += value;
+            acc[2] = Math.min(acc[2], value);
+            acc[3] = Math.max(acc[3], value);
+        }
+
+        @Override
+        public void merge(long[] into, long[] from) {
+            into[0] += from[0];
+            into[1] += from[1];
+            into[2] = Math.min(into[2], from[2]);
+            into[3] = Math.max(into[3], from[3]);
+        }
+
+        @Override
+        public IntStats result(long[] acc) {
+            return new IntStats(acc[0], acc[1], (int) acc[2], (int) acc[3]);
+        }
+    };
+
+    /** Processing-time windows of {@code size}, one after the other. */
+    public static <T, R> Flow<T, Window<R>, NotUsed> tumbling(Duration size, ToIntFunction<T> value,
+                                                              Aggregation<?, R> aggregation) {
+        return sliding(size, size, value, aggregation);
+    }
+
+    /** Processing-time windows of {@code size} every {@code slide}; {@code size} must be a multiple of {@code slide}. */
+    public static <T, R> Flow<T, Window<R>, NotUsed> sliding(Duration size, Duration slide, ToIntFunction<T> value,
+                                                             Aggregation<?, R> aggregation) {
+        return create(Mode.PROCESSING_TIME, size.toMillis(), slide.toMillis(), 0, null, value, aggregation);
+    }
+
+    /** Event-time windows of {@code size} by {@code timestamp} (epoch milliseconds), one after the other. */
+    public static <T, R> Flow<T, Window<R>, NotUsed> tumblingEventTime(Duration size, ToLongFunction<T> timestamp,
+                                                                       Duration allowedLateness, ToIntFunction<T> value,
+                                                                       Aggregation<?, R> aggregation) {
+        return slidingEventTime(size, size, timestamp, allowedLateness, value, aggregation);
+    }
+
+    /** Event-time windows of {@code size} every {@code slide}; {@code size} must be a multiple of {@code slide}. */
+    public static <T, R> Flow<T, Window<R>, NotUsed> slidingEventTime(Duration size, Duration slide,
+                                                                      ToLongFunction<T> timestamp,
+                                                                      Duration allowedLateness, ToIntFunction<T> value,
+                                                                      Aggregation<?, R> aggregation) {
+        if (allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("allowedLateness must not be negative, got " + allowedLateness);
+        }
+        return create(Mode.EVENT_TIME, size.toMillis(), slide.toMillis(), allowedLateness.toMillis(), timestamp, value,
+                aggregation);
+    }
+
+    /** Windows of {@code size} elements, one after the other. */
+    public static <T, R> Flow<T, Window<R>, NotUsed> tumblingCount(int size, ToIntFunction<T> value,
+                                                                   Aggregation<?, R> aggregation) {
+        return slidingCount(size, size, value, aggregation);
+    }
+
+    /**
+     * The last {@code size} elements every {@code step} elements; {@code size} must be a multiple of {@code step}.
+     * As with time windows, the first {@code size / step - 1} windows hold fewer elements.
+     */
+    public static <T, R> Flow<T, Window<R>, NotUsed> slidingCount(int size, int step, ToIntFunction<T> value,
+                                                                  Aggregation<?, R> aggregation) {
+        return create(Mode.COUNT, size, step, 0, null, value, aggregation);
+    }
+
+    private static <T, A, R> Flow<T, Window<R>, NotUsed> create(Mode mode, long size, long slide, long lateness,
+                                                                ToLongFunction<T> timestamp, ToIntFunction<T> value,
+                                                                Aggregation<A, R> aggregation) {
+        if (slide < 1 || size < slide || size % slide != 0) {
+            throw new IllegalArgumentException("size must be a positive multiple of slide, got size " + size
+                    + " and slide " + slide + (mode == Mode.COUNT ? "" : " ms"));
+        }
+        return Flow.fromGraph(new Stage<>(mode, slide, (int) (size / slide), lateness, timestamp, value, aggregation));
+    }
+
+    private enum Mode { PROCESSING_TIME, EVENT_TIME, COUNT }
+
+    /** The accumulator of one slide; {@code index} is the pane number, {@code Long.MIN_VALUE} when unused. */
+    private static final class Pane<A> {
+        long index = Long.MIN_VALUE;
+        long count;
+        A acc;
+    }
+
+    /**
+     * Panes are numbered {@code floor(time / slide)} (or {@code position / slide}) and the window numbered
+     * {@code q} is made of panes {@code q - panes + 1 .. q}. {@code nextToClose} is the first window not yet
+     * emitted, so only panes from {@code nextToClose - panes + 1} on are kept, in a ring indexed by pane number.
+     */
+    private static final class Stage<T, A, R> extends GraphStage<FlowShape<T, Window<R>>> {
+        private static final String TICK = "tick";
+
+        private final Inlet<T> in = Inlet.create("Windows.in");
+        private final Outlet<Window<R>> out = Outlet.create("Windows.out");
+        private final FlowShape<T, Window<R>> shape = FlowShape.of(in, out);
+        private final Mode mode;
+        private final long slide;
+        private final int panes;
+        private final long lateness;
+        private final ToLongFunction<T> timestamp;
+        private final ToIntFunction<T> value;
+        private final Aggregation<A, R> aggregation;
+
+        Stage(Mode mode, long slide, int panes, long lateness, ToLongFunction<T> timestamp, ToIntFunction<T> value,
+              Aggregation<A, R> aggregation) {
+            this.mode = mode;
+            this.slide = slide;
+            this.panes = panes;
+            this.lateness = lateness;
+            this.timestamp = timestamp;
+            this.value = value;
+            this.aggregation = aggregation;
+        }
+
+        @Override
+        public FlowShape<T, Window<R>> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("windows");
+        }
+
+        @Override
+        public GraphStageLogic createLogic(Attributes attributes) {
+            return new Logic();
+        }
+
+        private final class Logic extends TimerGraphStageLogic {
+            /** Room for a whole window, the panes within the allowed lateness, and one pane ahead. */
+            private final Pane<A>[] ring = newRing(panes + (int) Math.min(1 << 16, (lateness + slide - 1) / slide) + 1);
+            private boolean started = mode == Mode.COUNT;
+            private long nextToClose;
+            private long newestPane = Long.MIN_VALUE;
+            private long maxTimestamp = Long.MIN_VALUE;
+            private long position;
+            private long late;
+            private int emitting;
+
+            Logic() {
+                super(shape);
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        T element = grab(in);
+                        switch (mode) {
+                            case PROCESSING_TIME:
+                                long pane = Math.floorDiv(System.currentTimeMillis(), slide);
+                                start(pane);
+                                closeBefore(pane);
+                                add(pane, value.applyAsInt(element));
+                                break;
+                            case EVENT_TIME:
+                                long time = timestamp.applyAsLong(element);
+                                if (time > maxTimestamp) {
+                                    maxTimestamp = time;
+                                    long watermark = Math.floorDiv(time - lateness, slide);
+                                    start(watermark);
+                                    closeBefore(watermark);
+                                }
+                                add(Math.floorDiv(time, slide), value.applyAsInt(element));
+                                break;
+                            default:
+                                long current = position / slide;
+                                add(current, value.applyAsInt(element));
+                                position++;
+                                if (position % slide == 0) {
+                                    closeBefore(current + 1);
+                                }
+                        }
+                        pullIfIdle();
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        if (newestPane != Long.MIN_VALUE) {
+                            closeBefore(newestPane + 1);
+                        }
+                        complete(out);
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        pullIfIdle();
+                    }
+                });
+            }
+
+            @Override
+            public void preStart() {
+                if (mode == Mode.PROCESSING_TIME) {
+                    scheduleTick();
+                }
+            }
+
+            @Override
+            public void onTimer(Object key) {
+                long pane = Math.floorDiv(System.currentTimeMillis(), slide);
+                if (started) {
+                    closeBefore(pane);
+                }
+                scheduleTick();
+            }
+
+            /** Just past the end of the current pane. */
+            private void scheduleTick() {
+                scheduleOnce(TICK, Duration.ofMillis(slide - Math.floorMod(System.currentTimeMillis(), slide) + 1));
+            }
+
+            private void start(long firstOpen) {
+                if (!started) {
+                    started = true;
+                    nextToClose = firstOpen;
+                }
+            }
+
+            private void add(long pane, int v) {
+                if (pane < nextToClose - panes + 1) {
+                    late++;
+                    return;
+                }
+                if (pane - nextToClose >= ring.length - panes + 1) {
+                    // far ahead of the open windows (a clock jump, or a timestamp beyond the lateness): make room
+                    closeBefore(pane - ring.length + panes);
+                }
+                Pane<A> slot = ring[slot(pane)];
+                if (slot.index != pane) {
+                    slot.index = pane;
+                    slot.count = 0;
+                    slot.acc = aggregation.create();
+                }
+                aggregation.add(slot.acc, v);
+                slot.count++;
+                newestPane = Math.max(newestPane, pane);
+            }
+
+            /** Emits the windows numbered below {@code pane} that hold elements. */
+            private void closeBefore(long pane) {
+                if (pane <= nextToClose) {
+                    return;
+                }
+                List<Window<R>> closed = null;
+                long last = newestPane == Long.MIN_VALUE ? nextToClose - 1 : Math.min(pane - 1, newestPane + panes - 1);
+                for (long q = nextToClose; q <= last; q++) {
+                    Window<R> window = close(q);
+                    if (window != null) {
+                        if (closed == null) {
+                            closed = new ArrayList<>(2);
+                        }
+                        closed.add(window);
+                    }
+                }
+                nextToClose = pane;
+                if (closed != null) {
+                    emitting++;
+                    emitMultiple(out, closed.iterator(), () -> {
+                        emitting--;
+                        pullIfIdle();
+                    });
+                }
+            }
+
+            /** The window numbered {@code q}, or null if empty; its first pane is released. */
+            private Window<R> close(long q) {
+                long first = q - panes + 1;
+                Pane<A> oldest = ring[slot(first)];
+                A acc;
+                long count = 0;
+                if (panes == 1) {
+                    if (oldest.index != q) {
+                        return null;
+                    }
+                    acc = oldest.acc;
+                    count = oldest.count;
+                } else {
+                    acc = null;
+                    for (long p = first; p <= q; p++) {
+                        Pane<A> pane = ring[slot(p)];
+                        if (pane.index == p) {
+                            if (acc == null) {
+                                acc = aggregation.create();
+                            }
+                            aggregation.merge(acc, pane.acc);
+                            count += pane.count;
+                        }
+                    }
+                    if (acc == null) {
+                        return null;
+                    }
+                }
+                if (oldest.index == first) {
+                    oldest.index = Long.MIN_VALUE;
+                    oldest.acc = null;
+                }
+                long start = mode == Mode.COUNT ? Math.max(0, first * slide) : first * slide;
+                long end = mode == Mode.COUNT ? Math.min((q + 1) * slide, position) : (q + 1) * slide;
+                Window<R> window = new Window<>(start, end, count, late, aggregation.result(acc));
+                late = 0;
+                return window;
+            }
+
+            private void pullIfIdle() {
+                if (emitting == 0 && !hasBeenPulled(in) && !isClosed(in)) {
+                    pull(in);
+                }
+            }
+
+            private int slot(long pane) {
+                return (int) Math.floorMod(pane, (long) ring.length);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <A> Pane<A>[] newRing(int size) {
+            Pane<A>[] ring = (Pane<A>[]) new Pane<?>[size];
+            for (int i = 0; i < size; i++) {
+                ring[i] = new Pane<>();
+            }
+            return ring;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.gft.stream;
+
+import akka.NotUsed;
+import akka.actor.ActorRef;
+import akka.actor.Terminated;
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.javadsl.Flow;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+import com.gft.actor.WorkerActor;
+import com.typesafe.config.Config;
+import scala.runtime.BoxedUnit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Streams {@code Compute} operands through a {@link WorkerActor} (or a router of them) without an ask per element.
+ *
+ * Elements are sent as {@link WorkerActor.ComputeBatch} messages from the stage's own actor, which receives
+ * the {@link WorkerActor.BatchResult} replies directly:
+ * - credit-based flow control: at most {@code max-batches-in-flight} batches are sent and not yet emitted;
+ *   without a credit the stage stops pulling upstream, so a slow worker backpressures the stream instead of
+ *   filling its mailbox
+ * - results are emitted in input order, also when a router's routees reply out of order
+ * - one timeout check for the whole stage instead of a temporary actor and a scheduled timeout per element
+ * - the stage fails when the worker terminates or the oldest batch has no reply within {@code reply-timeout}
+ *
+ * Defaults come from {@code gft.stream.worker-flow}.
+ */
+public final class WorkerFlow {
+
+    private static final String FLUSH = "flush";
+    private static final String TIMEOUT = "timeout";
+
+    private WorkerFlow() { }
+
+    /** {@code x -> x * 2} on {@code worker}, with the settings of {@code gft.stream.worker-flow}. */
+    public static Flow<Integer, Integer, NotUsed> compute(ActorRef worker) {
+        return compute(worker, 0, 0);
+    }
+
+    /** As {@link #compute(ActorRef)}; a positive {@code batchSize} or {@code maxBatchesInFlight} overrides the config. */
+    public static Flow<Integer, Integer, NotUsed> compute(ActorRef worker, int batchSize, int maxBatchesInFlight) {
+        return Flow.fromGraph(new Stage(worker, batchSize, maxBatchesInFlight));
+    }
+
+    private static final class Stage extends GraphStage<FlowShape<Integer, Integer>> {
+        private final Inlet<Integer> in = Inlet.create("WorkerFlow.in");
+        private final Outlet<Integer> out = Outlet.create("WorkerFlow.out");
+        private final FlowShape<Integer, Integer> shape = FlowShape.of(in, out);
+        private final ActorRef worker;
+        private final int batchSize;
+        private final int maxBatchesInFlight;
+
+        Stage(ActorRef worker, int batchSize, int maxBatchesInFlight) {
+            this.worker = worker;
+            this.batchSize = batchSize;
+            this.maxBatchesInFlight = maxBatchesInFlight;
+        }
+
+        @Override
+        public FlowShape<Integer, Integer> shape() {
+            return shape;
+        }
+
+        @Override
+        public Attributes initialAttributes() {
+            return Attributes.name("workerFlow");
+        }
+
+        @Override
+        public GraphStageLogic createLogic(Attributes attributes) {
+            return new Logic();
+        }
+
+        /**
+         * Batch ids are consecutive: {@code [nextToEmit, nextId)} are in flight, replies wait in {@code arrived}
+         * until every earlier batch has been emitted.
+         */
+        private final class Logic extends TimerGraphStageLogic {
+            private int size;
+            private int credits;
+            private long replyTimeoutNanos;
+            private Duration maxBatchDelay;
+            private ActorRef self;
+
+            private int[] building;
+            private int buildingCount;
+            private boolean flushDue;
+
+            private long nextId;
+            private long nextToEmit;
+            /** Send time of batch {@code id} at {@code id % credits}. */
+            private long[] sentAt;
+            private final Map<Long, int[]> arrived = new HashMap<>();
+            private int[] emitting = new int[0];
+            private int emitted;
+
+            Logic() {
+                super(shape);
+                setHandler(in, new AbstractInHandler() {
+                    @Override
+                    public void onPush() {
+                        building[buildingCount++] = grab(in);
+                        if (buildingCount == 1) {
+                            scheduleOnce(FLUSH, maxBatchDelay);
+                        }
+                        trySend();
+                        pullIfRoom();
+                    }
+
+                    @Override
+                    public void onUpstreamFinish() {
+                        flushDue = true;
+                        trySend();
+                        completeIfDone();
+                    }
+                });
+                setHandler(out, new AbstractOutHandler() {
+                    @Override
+                    public void onPull() {
+                        emit();
+                    }
+                });
+            }
+
+            @Override
+            public void preStart() {
+                Config config = materializer().system().settings().config().getConfig("gft.stream.worker-flow");
+                size = batchSize > 0 ? batchSize : config.getInt("batch-size");
+                credits = maxBatchesInFlight > 0 ? maxBatchesInFlight : config.getInt("max-batches-in-flight");
+                maxBatchDelay = config.getDuration("max-batch-delay");
+                Duration replyTimeout = config.getDuration("reply-timeout");
+                replyTimeoutNanos = replyTimeout.toNanos();
+                building = new int[size];
+                sentAt = new long[credits];
+
+                StageActor stageActor = getStageActor(message -> {
+                    onMessage(message._2());
+                    return BoxedUnit.UNIT;
+                });
+                stageActor.watch(worker);
+                self = stageActor.ref();
+                Duration check = replyTimeout.dividedBy(4);
+                scheduleWithFixedDelay(TIMEOUT, check, check);
+                pull(in);
+            }
+
+            private void onMessage(Object msg) {
+                if (msg instanceof WorkerActor.BatchResult) {
+                    WorkerActor.BatchResult result = (WorkerActor.BatchResult) msg;
+                    if (result.id >= nextToEmit && result.id < nextId) {
+                        arrived.put(result.id, result.values);
+                        emit();
+                    }
+                } else if (msg instanceof Terminated && ((Terminated) msg).actor().equals(worker)) {
+                    failStage(new IllegalStateException("Worker " + worker + " terminated"));
+                }
+            }
+
+            @Override
+            public void onTimer(Object key) {
+                if (FLUSH.equals(key)) {
+                    flushDue = true;
+                    trySend();
+                    return;
+                }
+                long now = System.nanoTime();
+                for (long id = nextToEmit; id < nextId; id++) {
+                    if (!arrived.containsKey(id)) {
+                        if (now - sentAt[(int) (id % credits)] > replyTimeoutNanos) {
+                            failStage(new TimeoutException("No reply from " + worker + " to batch " + id
+                                    + " within " + Duration.ofNanos(replyTimeoutNanos)));
+                        }
+                        return;
+                    }
+                }
+            }
+
+            /** Sends the batch being built when it is full (or due) and a credit is free. */
+            private void trySend() {
+                if (buildingCount == 0 || (buildingCount < size && !flushDue) || nextId - nextToEmit >= credits) {
+                    return;
+                }
+                cancelTimer(FLUSH);
+                worker.tell(new WorkerActor.ComputeBatch(nextId, Arrays.copyOf(building, buildingCount)), self);
+                sentAt[(int) (nextId % credits)] = System.nanoTime();
+                nextId++;
+                buildingCount = 0;
+                flushDue = isClosed(in);
+                pullIfRoom();
+            }
+
+            private void pullIfRoom() {
+                if (buildingCount < size && !isClosed(in) && !hasBeenPulled(in)) {
+                    pull(in);
+                }
+            }
+
+            private void emit() {
+                while (isAvailable(out)) {
+                    if (emitted < emitting.length) {
+                        push(out, emitting[emitted++]);
+                        continue;
+                    }
+                    int[] next = arrived.remove(nextToEmit);
+                    if (next == null) {
+                        break;
+                    }
+                    nextToEmit++;
+                    emitting = next;
+                    emitted = 0;
+                    trySend();
+                }
+                completeIfDone();
+            }
+
+            private void completeIfDone() {
+                if (isClosed(in) && buildingCount == 0 && nextToEmit == nextId && emitted == emitting.length) {
+                    completeStage();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gft.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mutable counters for one tracked actor (or for the overflow bucket).
+ * Written by the mailbox and by the instrumented receive, read by snapshots.
+ */
+final class ActorStats {
+
+    final String path;
+    volatile String actorClass = ActorTelemetry.UNKNOWN_CLASS;
+
+    final LongAdder messages = new LongAdder();
+    final LongAdder handlerNanos = new LongAdder();
+    final LongAdder mailboxNanos = new LongAdder();
+    final LongAdder mailboxSamples = new LongAdder();
+    final AtomicLong maxHandlerNanos = new AtomicLong();
+
+    volatile int mailboxDepth;
+    final AtomicLong maxMailboxDepth = new AtomicLong();
+
+    // messages/sec is recomputed at most once per RATE_WINDOW_NANOS, so that
+    // concurrent readers (API and JMX) do not shorten each other's window
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private long createdNanos = System.nanoTime();
+    private long windowCount;
+    private long windowStartNanos = createdNanos;
+    private double rate = -1.0;
+
+    ActorStats(String path) {
+        this.path = path;
+    }
+
+    void recordDepth(int depth) {
+        mailboxDepth = depth;
+        long max = maxMailboxDepth.get();
+        while (depth > max && !maxMailboxDepth.compareAndSet(max, depth)) {
+            max = maxMailboxDepth.get();
+        }
+    }
+
+    void recordMailboxTime(long nanos) {
+        mailboxNanos.add(nanos);
+        mailboxSamples.increment();
+    }
+
+    void recordHandler(long nanos) {
+        messages.increment();
+        handlerNanos.add(nanos);
+        long max = maxHandlerNanos.get();
+        while (nanos > max && !maxHandlerNanos.compareAndSet(max, nanos)) {
+            max = maxHandlerNanos.get();
+        }
+    }
+
+    /** Adds the totals of a retired actor to this (per-class) aggregate. */
+    void absorb(ActorStats other) {
+        messages.add(other.messages.sum());
+        handlerNanos.add(other.handlerNanos.sum());
+        mailboxNanos.add(other.mailboxNanos.sum());
+        mailboxSamples.add(other.mailboxSamples.sum());
+        recordDepth(0);
+        long otherMaxDepth = other.maxMailboxDepth.get();
+        long max = maxMailboxDepth.get();
+        while (otherMaxDepth > max && !maxMailboxDepth.compareAndSet(max, otherMaxDepth)) {
+            max = maxMailboxDepth.get();
+        }
+        long otherMaxHandler = other.maxHandlerNanos.get();
+        max = maxHandlerNanos.get();
+        while (otherMaxHandler > max && !maxHandlerNanos.compareAndSet(max, otherMaxHandler)) {
+            max = maxHandlerNanos.get();
+        }
+    }
+
+    /**
+     * Zeroes the counters in place, so that the mailbox and the instrumented receive holding this instance keep
+     * recording into it. The current mailbox depth is live state and stays; it becomes the new maximum.
+     */
+    synchronized void reset() {
+        messages.reset();
+        handlerNanos.reset();
+        mailboxNanos.reset();
+        mailboxSamples.reset();
+        maxHandlerNanos.set(0);
+        maxMailboxDepth.set(mailboxDepth);
+        createdNanos = System.nanoTime();
+        windowCount = 0;
+        windowStartNanos = createdNanos;
+        rate = -1.0;
+    }
+
+    synchronized double messagesPerSecond(long count, long nowNanos) {
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            rate = (count - windowCount) * 1e9 / elapsed;
+            windowCount = count;
+            windowStartNanos = nowNanos;
+        }
+        if (rate < 0) {
+            long sinceCreation = nowNanos - createdNanos;
+            return sinceCreation > 0 ? count * 1e9 / sinceCreation : 0.0;
+        }
+        return rate;
+    }
+
+    ActorStatsSnapshot snapshot(long nowNanos) {
+        long count = messages.sum();
+        long samples = mailboxSamples.sum();
+        return new ActorStatsSnapshot(
+                path,
+                actorClass,
+                count,
+                messagesPerSecond(count, nowNanos),
+                count == 0 ? 0L : handlerNanos.sum() / count,
+                maxHandlerNanos.get(),
+                samples == 0 ? 0L : mailboxNanos.sum() / samples,
+                mailboxDepth,
+                maxMailboxDepth.get());
+    }
+}
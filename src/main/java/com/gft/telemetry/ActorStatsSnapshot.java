@@ -0,0 +1,64 @@
+package com.gft.telemetry;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of the telemetry of one actor path or one actor class.
+ * Getter-based so that it maps to {@code CompositeData} on the MXBean.
+ */
+public final class ActorStatsSnapshot {
+
+    private final String path;
+    private final String actorClass;
+    private final long messages;
+    private final double messagesPerSecond;
+    private final long meanHandlerNanos;
+    private final long maxHandlerNanos;
+    private final long meanMailboxNanos;
+    private final int mailboxDepth;
+    private final long maxMailboxDepth;
+
+    @ConstructorProperties({"path", "actorClass", "messages", "messagesPerSecond", "meanHandlerNanos",
+            "maxHandlerNanos", "meanMailboxNanos", "mailboxDepth", "maxMailboxDepth"})
+    public ActorStatsSnapshot(String path, String actorClass, long messages, double messagesPerSecond,
+                              long meanHandlerNanos, long maxHandlerNanos, long meanMailboxNanos,
+                              int mailboxDepth, long maxMailboxDepth) {
+        this.path = path;
+        this.actorClass = actorClass;
+        this.messages = messages;
+        this.messagesPerSecond = messagesPerSecond;
+        this.meanHandlerNanos = meanHandlerNanos;
+        this.maxHandlerNanos = maxHandlerNanos;
+        this.meanMailboxNanos = meanMailboxNanos;
+        this.mailboxDepth = mailboxDepth;
+        this.maxMailboxDepth = maxMailboxDepth;
+    }
+
+    /** Actor path, or the class name for per-class aggregates. */
+    public String getPath() { return path; }
+
+    public String getActorClass() { return actorClass; }
+
+    public long getMessages() { return messages; }
+
+    /** Handled messages per second over the last rate window (about one second). */
+    public double getMessagesPerSecond() { return messagesPerSecond; }
+
+    public long getMeanHandlerNanos() { return meanHandlerNanos; }
+
+    public long getMaxHandlerNanos() { return maxHandlerNanos; }
+
+    public long getMeanMailboxNanos() { return meanMailboxNanos; }
+
+    public int getMailboxDepth() { return mailboxDepth; }
+
+    public long getMaxMailboxDepth() { return maxMailboxDepth; }
+
+    @Override
+    public String toString() {
+        return "ActorStatsSnapshot(" + path + ", " + actorClass + ", messages=" + messages
+                + ", msg/s=" + String.format("%.1f", messagesPerSecond)
+                + ", handler=" + meanHandlerNanos + "ns, mailbox=" + meanMailboxNanos
+                + "ns, depth=" + mailboxDepth + "/" + maxMailboxDepth + ")";
+    }
+}
@@ -0,0 +1,400 @@
+package com.gft.telemetry;
+
+import akka.actor.AbstractActor;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorCell;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.actor.NoSerializationVerificationNeeded;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ActorSystem extension collecting per-actor telemetry:
+ * - mailbox depth and time-in-mailbox, via {@link TelemetryMailboxType}
+ * - handler time and messages/sec, via {@link #instrument(AbstractActor.ActorContext, AbstractActor.Receive)}
+ * - per-stream-stage throughput, wait times and fill level, via {@link StreamTelemetry#instrument}
+ *
+ * Usage inside an actor:
+ * <pre>
+ * public Receive createReceive() {
+ *     return ActorTelemetry.get(getContext().getSystem()).instrument(getContext(), receiveBuilder()
+ *             .match(...)
+ *             .build());
+ * }
+ * </pre>
+ * and {@code Props.withMailbox("gft.telemetry-mailbox")} (or the telemetry mailbox as default mailbox) for the
+ * mailbox figures. Actors instrumented without that mailbox are retired when they stop all the same, through a
+ * watcher started with the first of them.
+ *
+ * Telemetry is off by default ({@code gft.telemetry.enabled}) and can be toggled at runtime; while off,
+ * the instrumented paths cost a single volatile read.
+ */
+public final class ActorTelemetry implements Extension, ActorTelemetryMXBean {
+
+    public static final String UNKNOWN_CLASS = "<unknown>";
+    public static final String OVERFLOW_PATH = "<overflow>";
+
+    public static final Id ID = new Id();
+
+    public static ActorTelemetry get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<ActorTelemetry> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public ActorTelemetry createExtension(ExtendedActorSystem system) {
+            return new ActorTelemetry(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final ExtendedActorSystem system;
+    private final LoggingAdapter log;
+    private final int maxTrackedActors;
+    private final int maxTrackedStages;
+    private final int stageSampleEvery;
+    private volatile boolean enabled;
+
+    private final ConcurrentHashMap<String, ActorStats> byPath = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ActorStats> retiredByClass = new ConcurrentHashMap<>();
+    private final ActorStats overflow = new ActorStats(OVERFLOW_PATH);
+    private final ConcurrentHashMap<String, StageStats> byStage = new ConcurrentHashMap<>();
+    private final StageStats stageOverflow = new StageStats(OVERFLOW_PATH);
+
+    /** Started on first use: the telemetry mailbox of its own would look this extension up while it is created. */
+    private volatile ActorRef retirer;
+
+    private ActorTelemetry(ExtendedActorSystem system) {
+        this.system = system;
+        Config config = system.settings().config().getConfig("gft.telemetry");
+        this.log = Logging.getLogger(system, getClass());
+        this.maxTrackedActors = config.getInt("max-tracked-actors");
+        this.maxTrackedStages = config.getInt("max-tracked-stages");
+        this.stageSampleEvery = config.getInt("stage-sample-every");
+        if (stageSampleEvery < 1) {
+            throw new IllegalArgumentException("gft.telemetry.stage-sample-every must be positive, got "
+                    + stageSampleEvery);
+        }
+        this.enabled = config.getBoolean("enabled");
+
+        if (config.getBoolean("jmx-enabled")) {
+            registerMBean(system);
+        }
+    }
+
+    private void registerMBean(ActorSystem system) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("com.gft:type=ActorTelemetry,system=" + ObjectName.quote(system.name()));
+            server.registerMBean(this, name);
+            system.registerOnTermination(() -> {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException e) {
+                    log.debug("Could not unregister {}: {}", name, e.getMessage());
+                }
+            });
+        } catch (JMException e) {
+            // typically two systems with the same name in one JVM: telemetry still works via the API
+            log.warning("ActorTelemetry MBean not registered: {}", e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Instrumentation
+    // ------------------------------------------------------------
+
+    /**
+     * Wraps {@code receive} so that handler time and throughput of the actor owning {@code context}
+     * are recorded. The returned Receive behaves exactly like the original one.
+     */
+    public AbstractActor.Receive instrument(AbstractActor.ActorContext context, AbstractActor.Receive receive) {
+        String actorClass = context.props().actorClass().getName();
+        ActorStats stats = null;
+        if (onTelemetryMailbox(context)) {
+            // tracked by the mailbox already, which retires it in cleanUp
+            stats = statsFor(context.self());
+            if (stats != overflow) {
+                stats.actorClass = actorClass;
+            }
+        } else if (enabled) {
+            stats = track(context.self(), actorClass);
+        }
+        // otherwise tracked from its first message while telemetry is on
+        return new AbstractActor.Receive(
+                new InstrumentedReceive(this, context.self(), actorClass, stats, receive.onMessage()));
+    }
+
+    /** Tracks an actor without the telemetry mailbox, to be retired by the watcher when it stops. */
+    ActorStats track(ActorRef actor, String actorClass) {
+        ActorStats stats = statsFor(actor);
+        if (stats != overflow) {
+            stats.actorClass = actorClass;
+            retirer().tell(new RetireOnStop(actor, stats), ActorRef.noSender());
+        }
+        return stats;
+    }
+
+    private static boolean onTelemetryMailbox(AbstractActor.ActorContext context) {
+        return context instanceof ActorCell && ((ActorCell) context).mailbox().messageQueue()
+                instanceof TelemetryMailboxType.TelemetryMessageQueue;
+    }
+
+    ActorStats statsFor(ActorRef actor) {
+        String path = actor.path().toStringWithoutAddress();
+        ActorStats stats = byPath.get(path);
+        if (stats != null) {
+            return stats;
+        }
+        if (byPath.size() >= maxTrackedActors) {
+            return overflow;
+        }
+        return byPath.computeIfAbsent(path, ActorStats::new);
+    }
+
+    /** Stops tracking {@code actor} individually; its totals stay visible in the per-class view. */
+    public void retire(ActorRef actor) {
+        ActorStats stats = byPath.remove(actor.path().toStringWithoutAddress());
+        if (stats != null) {
+            retiredByClass.computeIfAbsent(stats.actorClass, ActorStats::new).absorb(stats);
+        }
+    }
+
+    /** As {@link #retire(ActorRef)}, unless the path is tracked by another {@code stats} by now (a new actor). */
+    void retire(String path, ActorStats stats) {
+        if (byPath.remove(path, stats)) {
+            retiredByClass.computeIfAbsent(stats.actorClass, ActorStats::new).absorb(stats);
+        }
+    }
+
+    private ActorRef retirer() {
+        ActorRef ref = retirer;
+        if (ref == null) {
+            synchronized (this) {
+                ref = retirer;
+                if (ref == null) {
+                    ref = system.systemActorOf(Props.create(Retirer.class, () -> new Retirer(this)),
+                            "gft-telemetry-retirer");
+                    retirer = ref;
+                }
+            }
+        }
+        return ref;
+    }
+
+    StageStats stageStatsFor(String name) {
+        StageStats stats = byStage.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        if (byStage.size() >= maxTrackedStages) {
+            return stageOverflow;
+        }
+        return byStage.computeIfAbsent(name, StageStats::new);
+    }
+
+    int stageSampleEvery() {
+        return stageSampleEvery;
+    }
+
+    // ------------------------------------------------------------
+    // Snapshot API (also exposed through JMX)
+    // ------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getTrackedActors() {
+        return byPath.size();
+    }
+
+    /** Per-path snapshot, including the overflow bucket when it has seen traffic. */
+    @Override
+    public List<ActorStatsSnapshot> getActors() {
+        long now = System.nanoTime();
+        List<ActorStatsSnapshot> result = new ArrayList<>(byPath.size() + 1);
+        for (ActorStats stats : byPath.values()) {
+            result.add(stats.snapshot(now));
+        }
+        ActorStats overflowStats = overflow;
+        if (overflowStats.messages.sum() > 0 || overflowStats.mailboxSamples.sum() > 0) {
+            result.add(overflowStats.snapshot(now));
+        }
+        result.sort(Comparator.comparing(ActorStatsSnapshot::getPath));
+        return result;
+    }
+
+    @Override
+    public int getTrackedStages() {
+        return byStage.size();
+    }
+
+    /** Per-stage snapshot of the {@link StreamTelemetry} stages, including the overflow bucket when used. */
+    @Override
+    public List<StageStatsSnapshot> getStages() {
+        long now = System.nanoTime();
+        List<StageStatsSnapshot> result = new ArrayList<>(byStage.size() + 1);
+        for (StageStats stats : byStage.values()) {
+            result.add(stats.snapshot(now));
+        }
+        StageStats overflowStats = stageOverflow;
+        if (overflowStats.hasTraffic()) {
+            result.add(overflowStats.snapshot(now));
+        }
+        result.sort(Comparator.comparing(StageStatsSnapshot::getName));
+        return result;
+    }
+
+    /** Per-class snapshot: live actors plus the totals of retired ones. */
+    @Override
+    public List<ActorStatsSnapshot> getActorClasses() {
+        long now = System.nanoTime();
+        Map<String, ClassAggregate> byClass = new TreeMap<>();
+        for (ActorStats stats : byPath.values()) {
+            byClass.computeIfAbsent(stats.actorClass, ClassAggregate::new).add(stats, now, true);
+        }
+        for (ActorStats stats : retiredByClass.values()) {
+            byClass.computeIfAbsent(stats.path, ClassAggregate::new).add(stats, now, false);
+        }
+        List<ActorStatsSnapshot> result = new ArrayList<>(byClass.size());
+        for (ClassAggregate aggregate : byClass.values()) {
+            result.add(aggregate.toSnapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Zeroes the counters of the tracked actors and stages in place (the mailboxes, instrumented receives and
+     * stage probes keep recording into them) and forgets the retired actors.
+     */
+    @Override
+    public void reset() {
+        for (ActorStats stats : byPath.values()) {
+            stats.reset();
+        }
+        retiredByClass.clear();
+        overflow.reset();
+        for (StageStats stats : byStage.values()) {
+            stats.reset();
+        }
+        stageOverflow.reset();
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    private static final class RetireOnStop implements NoSerializationVerificationNeeded {
+        final ActorRef actor;
+        final ActorStats stats;
+
+        RetireOnStop(ActorRef actor, ActorStats stats) {
+            this.actor = actor;
+            this.stats = stats;
+        }
+    }
+
+    /** Retires the instrumented actors without the telemetry mailbox when they stop. */
+    private static final class Retirer extends AbstractActor {
+        private final ActorTelemetry telemetry;
+        private final Map<ActorRef, ActorStats> watched = new HashMap<>();
+
+        Retirer(ActorTelemetry telemetry) {
+            this.telemetry = telemetry;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(RetireOnStop.class, m -> {
+                        // instrument() runs again on every restart
+                        if (watched.putIfAbsent(m.actor, m.stats) == null) {
+                            getContext().watch(m.actor);
+                        }
+                    })
+                    .match(Terminated.class, t -> {
+                        ActorStats stats = watched.remove(t.getActor());
+                        if (stats != null) {
+                            telemetry.retire(t.getActor().path().toStringWithoutAddress(), stats);
+                        }
+                    })
+                    .build();
+        }
+    }
+
+    private static final class ClassAggregate {
+        private final String actorClass;
+        private long messages;
+        private double rate;
+        private long handlerNanos;
+        private long maxHandlerNanos;
+        private long mailboxNanos;
+        private long mailboxSamples;
+        private int depth;
+        private long maxDepth;
+
+        ClassAggregate(String actorClass) {
+            this.actorClass = actorClass;
+        }
+
+        void add(ActorStats stats, long now, boolean live) {
+            long count = stats.messages.sum();
+            messages += count;
+            if (live) {
+                rate += stats.messagesPerSecond(count, now);
+                depth += stats.mailboxDepth;
+            }
+            handlerNanos += stats.handlerNanos.sum();
+            maxHandlerNanos = Math.max(maxHandlerNanos, stats.maxHandlerNanos.get());
+            mailboxNanos += stats.mailboxNanos.sum();
+            mailboxSamples += stats.mailboxSamples.sum();
+            maxDepth = Math.max(maxDepth, stats.maxMailboxDepth.get());
+        }
+
+        ActorStatsSnapshot toSnapshot() {
+            return new ActorStatsSnapshot(
+                    actorClass,
+                    actorClass,
+                    messages,
+                    rate,
+                    messages == 0 ? 0L : handlerNanos / messages,
+                    maxHandlerNanos,
+                    mailboxSamples == 0 ? 0L : mailboxNanos / mailboxSamples,
+                    depth,
+                    maxDepth);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.gft.telemetry;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link ActorTelemetry}, registered as
+ * {@code com.gft:type=ActorTelemetry,system=<system name>}.
+ */
+public interface ActorTelemetryMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    int getTrackedActors();
+
+    List<ActorStatsSnapshot> getActors();
+
+    List<ActorStatsSnapshot> getActorClasses();
+
+    int getTrackedStages();
+
+    List<StageStatsSnapshot> getStages();
+
+    void reset();
+}
@@ -0,0 +1,457 @@
+package com.gft.telemetry;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+import scala.Function0;
+import scala.concurrent.BlockContext;
+import scala.concurrent.CanAwait;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ActorSystem extension reporting blocking calls made on dispatcher threads: {@code Await.result},
+ * {@code Future.get}/{@code join}, {@code Thread.sleep}, blocking I/O and other waits (locks, latches, queues).
+ * Each call site is reported with the number of times it blocked and the total and maximum blocked time.
+ *
+ * Modes ({@code gft.blocking-detector.mode}):
+ * - {@code off}: nothing runs.
+ * - {@code sampling}: a daemon thread takes the stacks of the {@code gft.blocking-detector.dispatchers}
+ *   threads every {@code sample-interval} and classifies them. Dispatcher threads run unmodified, so this is the
+ *   mode for production; blocked time is estimated from the samples and calls shorter than the interval are
+ *   mostly missed.
+ * - {@code instrumented}: sampling every {@code instrumented-sample-interval}, plus exact timing and call sites
+ *   for {@code Await.result} and {@code scala.concurrent.blocking} on dispatchers configured with
+ *   {@code executor = "com.gft.telemetry.BlockingDetectorExecutorConfigurator"}.
+ *
+ * Results via {@link #getSites()} and the {@code com.gft:type=BlockingDetector} MBean; with
+ * {@code log-new-sites} every new call site is also logged as a warning.
+ */
+public final class BlockingDetector implements Extension, BlockingDetectorMXBean {
+
+    public static final String KIND_AWAIT = "await";
+    public static final String KIND_FUTURE_GET = "future-get";
+    public static final String KIND_SLEEP = "sleep";
+    public static final String KIND_IO = "io";
+    public static final String KIND_WAIT = "wait";
+
+    public static final String OVERFLOW_SITE = "<overflow>";
+
+    private static final String[] INFRASTRUCTURE = {"java.", "javax.", "jdk.", "sun.", "com.sun.", "scala.", "akka."};
+    private static final String[] IO_CLASSES = {"java.io.", "java.net.", "java.nio.channels.", "java.nio.file.", "sun.nio.", "sun.net."};
+    private static final long REFRESH_THREADS_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * System settings -> detector, for the executors of instrumented dispatchers. The settings instance stands
+     * for the system (the executors only get the settings): systems sharing a name stay apart.
+     */
+    private static final Map<ActorSystem.Settings, BlockingDetector> INSTRUMENTED = new ConcurrentHashMap<>();
+
+    public static final Id ID = new Id();
+
+    public static BlockingDetector get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<BlockingDetector> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public BlockingDetector createExtension(ExtendedActorSystem system) {
+            return new BlockingDetector(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final LoggingAdapter log;
+    private final String mode;
+    private final String systemName;
+    private final List<String> dispatchers;
+    private final int maxStackDepth;
+    private final int maxSites;
+    private final boolean logNewSites;
+    private final ConcurrentHashMap<String, Site> sites = new ConcurrentHashMap<>();
+
+    private BlockingDetector(ExtendedActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.blocking-detector");
+        this.log = Logging.getLogger(system, getClass());
+        this.mode = config.getString("mode");
+        this.systemName = system.name();
+        this.dispatchers = config.getStringList("dispatchers");
+        this.maxStackDepth = config.getInt("max-stack-depth");
+        this.maxSites = config.getInt("max-sites");
+        this.logNewSites = config.getBoolean("log-new-sites");
+
+        long intervalNanos;
+        switch (mode) {
+            case "off":
+                return;
+            case "sampling":
+                intervalNanos = config.getDuration("sample-interval", TimeUnit.NANOSECONDS);
+                break;
+            case "instrumented":
+                intervalNanos = config.getDuration("instrumented-sample-interval", TimeUnit.NANOSECONDS);
+                ActorSystem.Settings settings = system.settings();
+                INSTRUMENTED.put(settings, this);
+                system.registerOnTermination(() -> INSTRUMENTED.remove(settings, this));
+                break;
+            default:
+                throw new IllegalArgumentException("gft.blocking-detector.mode must be off, sampling or instrumented: " + mode);
+        }
+        Sampler sampler = new Sampler(intervalNanos);
+        Thread thread = new Thread(sampler, systemName + "-blocking-detector");
+        thread.setDaemon(true);
+        thread.start();
+        system.registerOnTermination(() -> {
+            sampler.running = false;
+            thread.interrupt();
+        });
+
+        if (config.getBoolean("jmx-enabled")) {
+            registerMBean(system);
+        }
+    }
+
+    private void registerMBean(ActorSystem system) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("com.gft:type=BlockingDetector,system=" + ObjectName.quote(system.name()));
+            server.registerMBean(this, name);
+            system.registerOnTermination(() -> {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException e) {
+                    log.debug("Could not unregister {}: {}", name, e.getMessage());
+                }
+            });
+        } catch (JMException e) {
+            log.warning("BlockingDetector MBean not registered: {}", e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Snapshot API (also exposed through JMX)
+    // ------------------------------------------------------------
+
+    @Override
+    public String getMode() {
+        return mode;
+    }
+
+    /** All call sites seen so far, longest total blocked time first. */
+    @Override
+    public List<BlockingSiteSnapshot> getSites() {
+        List<BlockingSiteSnapshot> result = new ArrayList<>(sites.size());
+        for (Site site : sites.values()) {
+            result.add(site.snapshot());
+        }
+        result.sort(Comparator.comparingLong(BlockingSiteSnapshot::getTotalBlockedNanos).reversed());
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        sites.clear();
+    }
+
+    // ------------------------------------------------------------
+    // Recording
+    // ------------------------------------------------------------
+
+    /** The detector of the system with {@code settings} when it runs in instrumented mode, otherwise null. */
+    static BlockingDetector instrumented(ActorSystem.Settings settings) {
+        return INSTRUMENTED.get(settings);
+    }
+
+    /** Wraps the thread's current block context so that blocking through it is timed. */
+    BlockContext measuring(BlockContext previous, String dispatcher) {
+        return new MeasuringBlockContext(this, previous, dispatcher);
+    }
+
+    private Site site(String kind, String callSite, String dispatcher, boolean measured) {
+        String key = kind + ' ' + dispatcher + ' ' + callSite + (measured ? " measured" : "");
+        Site site = sites.get(key);
+        if (site != null) {
+            return site;
+        }
+        if (sites.size() >= maxSites) {
+            return sites.computeIfAbsent(OVERFLOW_SITE, k -> new Site(kind, OVERFLOW_SITE, dispatcher, measured));
+        }
+        Site created = new Site(kind, callSite, dispatcher, measured);
+        site = sites.putIfAbsent(key, created);
+        if (site == null) {
+            if (logNewSites) {
+                log.warning("Blocking call ({}) on dispatcher {} at {}", kind, dispatcher, callSite);
+            }
+            return created;
+        }
+        return site;
+    }
+
+    /** Dispatcher id of a thread named {@code <system>-<dispatcher>-<n>}, or null for other threads. */
+    String dispatcherOf(String threadName) {
+        for (String dispatcher : dispatchers) {
+            String prefix = systemName + '-' + dispatcher + '-';
+            if (threadName.startsWith(prefix)) {
+                return dispatcher;
+            }
+        }
+        return null;
+    }
+
+    /** Index of the first application frame, or -1 when the stack is all JDK, Scala and Akka. */
+    static int firstApplicationFrame(StackTraceElement[] stack) {
+        for (int i = 0; i < stack.length; i++) {
+            String className = stack[i].getClassName();
+            if (!startsWithAny(className, INFRASTRUCTURE) && !className.startsWith(BlockingDetector.class.getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * What the frames above the application frame {@code caller} are blocked in, or null when the thread is
+     * running. Native I/O counts as blocking although the thread state stays RUNNABLE.
+     */
+    static String classify(Thread.State state, StackTraceElement[] stack, int caller) {
+        boolean io = false;
+        boolean sleep = false;
+        boolean futureGet = false;
+        for (int i = 0; i < caller; i++) {
+            String className = stack[i].getClassName();
+            String method = stack[i].getMethodName();
+            if (className.startsWith("scala.concurrent.Await")
+                    || (className.equals("scala.concurrent.package$") && method.equals("blocking"))) {
+                return KIND_AWAIT;
+            } else if ((className.equals("java.util.concurrent.CompletableFuture")
+                    && (method.equals("get") || method.equals("join") || method.endsWith("Get")))
+                    || (className.equals("java.util.concurrent.FutureTask") && method.equals("get"))) {
+                futureGet = true;
+            } else if (className.equals("java.lang.Thread") && method.startsWith("sleep")) {
+                sleep = true;
+            } else if (startsWithAny(className, IO_CLASSES)) {
+                io = true;
+            }
+        }
+        if (futureGet) {
+            return KIND_FUTURE_GET;
+        }
+        if (sleep) {
+            return KIND_SLEEP;
+        }
+        if (io && (state != Thread.State.RUNNABLE || stack[0].isNativeMethod())) {
+            return KIND_IO;
+        }
+        if (state == Thread.State.BLOCKED || state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+            return KIND_WAIT;
+        }
+        return null;
+    }
+
+    private static boolean startsWithAny(String s, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (s.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String callSite(StackTraceElement frame) {
+        return frame.getClassName() + '.' + frame.getMethodName()
+                + '(' + frame.getFileName() + ':' + frame.getLineNumber() + ')';
+    }
+
+    // ------------------------------------------------------------
+    // Sampling
+    // ------------------------------------------------------------
+
+    private final class Sampler implements Runnable {
+        private final long intervalNanos;
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        /** thread id -> blocking episode in progress */
+        private final Map<Long, Episode> episodes = new HashMap<>();
+        private long[] watched = new long[0];
+        private String[] watchedDispatchers = new String[0];
+        private long lastRefresh;
+        volatile boolean running = true;
+
+        Sampler(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void run() {
+            long last = System.nanoTime();
+            while (running) {
+                long now = System.nanoTime();
+                if (now - lastRefresh >= REFRESH_THREADS_NANOS) {
+                    refresh(now);
+                }
+                try {
+                    sample(now - last);
+                } catch (RuntimeException e) {
+                    log.error(e, "Blocking detector sample failed");
+                }
+                last = now;
+                long sleep = intervalNanos - (System.nanoTime() - now);
+                if (sleep > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleep);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /** Picks up dispatcher threads started since the last refresh (pools grow on demand). */
+        private void refresh(long now) {
+            lastRefresh = now;
+            List<Long> ids = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+                String dispatcher = info == null ? null : dispatcherOf(info.getThreadName());
+                if (dispatcher != null) {
+                    ids.add(info.getThreadId());
+                    names.add(dispatcher);
+                }
+            }
+            long[] newWatched = new long[ids.size()];
+            for (int i = 0; i < newWatched.length; i++) {
+                newWatched[i] = ids.get(i);
+            }
+            watched = newWatched;
+            watchedDispatchers = names.toArray(new String[0]);
+            episodes.keySet().retainAll(ids);
+        }
+
+        private void sample(long elapsedNanos) {
+            if (watched.length == 0) {
+                return;
+            }
+            ThreadInfo[] infos = threads.getThreadInfo(watched, maxStackDepth);
+            for (int i = 0; i < infos.length; i++) {
+                ThreadInfo info = infos[i];
+                Site site = info == null ? null : siteOf(info, watchedDispatchers[i]);
+                if (site == null) {
+                    if (info != null) {
+                        episodes.remove(info.getThreadId());
+                    }
+                    continue;
+                }
+                Episode episode = episodes.get(info.getThreadId());
+                if (episode == null || episode.site != site) {
+                    episode = new Episode(site);
+                    episodes.put(info.getThreadId(), episode);
+                    site.count.increment();
+                }
+                episode.blockedNanos += elapsedNanos;
+                site.totalNanos.add(elapsedNanos);
+                site.maxNanos.accumulate(episode.blockedNanos);
+            }
+        }
+
+        private Site siteOf(ThreadInfo info, String dispatcher) {
+            StackTraceElement[] stack = info.getStackTrace();
+            int caller = firstApplicationFrame(stack);
+            if (caller < 0) {
+                return null;
+            }
+            for (int i = 0; i < caller; i++) {
+                if (stack[i].getClassName().equals(MeasuringBlockContext.class.getName())) {
+                    return null; // timed exactly by the instrumented executor
+                }
+            }
+            String kind = classify(info.getThreadState(), stack, caller);
+            return kind == null ? null : site(kind, callSite(stack[caller]), dispatcher, false);
+        }
+    }
+
+    private static final class Episode {
+        final Site site;
+        long blockedNanos;
+
+        Episode(Site site) {
+            this.site = site;
+        }
+    }
+
+    private static final class Site {
+        final String kind;
+        final String callSite;
+        final String dispatcher;
+        final boolean measured;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Site(String kind, String callSite, String dispatcher, boolean measured) {
+            this.kind = kind;
+            this.callSite = callSite;
+            this.dispatcher = dispatcher;
+            this.measured = measured;
+        }
+
+        BlockingSiteSnapshot snapshot() {
+            return new BlockingSiteSnapshot(kind, callSite, dispatcher, count.sum(), totalNanos.sum(), maxNanos.get(), measured);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Instrumented Await / blocking
+    // ------------------------------------------------------------
+
+    /** Times {@code blockOn} and then blocks through the context that was current before. */
+    private static final class MeasuringBlockContext implements BlockContext {
+        private final BlockingDetector detector;
+        private final BlockContext previous;
+        private final String dispatcher;
+
+        MeasuringBlockContext(BlockingDetector detector, BlockContext previous, String dispatcher) {
+            this.detector = detector;
+            this.previous = previous;
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public <T> T blockOn(Function0<T> thunk, CanAwait permission) {
+            long start = System.nanoTime();
+            try {
+                return previous.blockOn(thunk, permission);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                StackTraceElement[] stack = new Throwable().getStackTrace();
+                int caller = firstApplicationFrame(stack);
+                Site site = detector.site(KIND_AWAIT, caller < 0 ? "<unknown>" : callSite(stack[caller]), dispatcher, true);
+                site.count.increment();
+                site.totalNanos.add(nanos);
+                site.maxNanos.accumulate(nanos);
+            }
+        }
+    }
+}
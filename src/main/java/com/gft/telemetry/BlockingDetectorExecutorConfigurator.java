@@ -0,0 +1,114 @@
+package com.gft.telemetry;
+
+import akka.actor.ActorSystem;
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import akka.dispatch.ForkJoinExecutorConfigurator;
+import akka.dispatch.ThreadPoolExecutorConfigurator;
+import com.typesafe.config.Config;
+import scala.concurrent.BlockContext;
+import scala.concurrent.BlockContext$;
+import scala.runtime.BoxedUnit;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatcher executor for the {@code instrumented} mode of {@link BlockingDetector}: runs every task through a
+ * block context that times {@code Await.result} and {@code scala.concurrent.blocking} and records their call site.
+ * Without an instrumented detector for the system, tasks run as they are.
+ *
+ * <pre>
+ * akka.actor.default-dispatcher {
+ *   executor = "com.gft.telemetry.BlockingDetectorExecutorConfigurator"
+ *   # the executor actually running the tasks, configured by its usual section (default fork-join-executor)
+ *   blocking-detector-executor = "thread-pool-executor"
+ * }
+ * </pre>
+ */
+public final class BlockingDetectorExecutorConfigurator extends ExecutorServiceConfigurator {
+
+    private final ExecutorServiceConfigurator delegate;
+    private final ActorSystem.Settings settings;
+
+    public BlockingDetectorExecutorConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        this.settings = prerequisites.settings();
+        String executor = config.hasPath("blocking-detector-executor")
+                ? config.getString("blocking-detector-executor") : "fork-join-executor";
+        switch (executor) {
+            case "fork-join-executor":
+                delegate = new ForkJoinExecutorConfigurator(config.getConfig(executor), prerequisites);
+                break;
+            case "thread-pool-executor":
+                delegate = new ThreadPoolExecutorConfigurator(config.getConfig(executor), prerequisites);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "blocking-detector-executor must be fork-join-executor or thread-pool-executor: " + executor);
+        }
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        ExecutorServiceFactory factory = delegate.createExecutorServiceFactory(id, threadFactory);
+        return () -> new MeasuringExecutorService(factory.createExecutorService(), settings, id);
+    }
+
+    private static final class MeasuringExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final ActorSystem.Settings settings;
+        private final String dispatcher;
+
+        MeasuringExecutorService(ExecutorService delegate, ActorSystem.Settings settings, String dispatcher) {
+            this.delegate = delegate;
+            this.settings = settings;
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            BlockingDetector detector = BlockingDetector.instrumented(settings);
+            if (detector == null) {
+                delegate.execute(task);
+                return;
+            }
+            delegate.execute(() -> {
+                BlockContext measuring = detector.measuring(BlockContext$.MODULE$.current(), dispatcher);
+                BlockContext$.MODULE$.withBlockContext(measuring, () -> {
+                    task.run();
+                    return BoxedUnit.UNIT;
+                });
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
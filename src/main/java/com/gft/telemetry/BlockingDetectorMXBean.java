@@ -0,0 +1,16 @@
+package com.gft.telemetry;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link BlockingDetector}, registered as
+ * {@code com.gft:type=BlockingDetector,system=<system name>}.
+ */
+public interface BlockingDetectorMXBean {
+
+    String getMode();
+
+    List<BlockingSiteSnapshot> getSites();
+
+    void reset();
+}
@@ -0,0 +1,56 @@
+package com.gft.telemetry;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of one blocking call site seen by {@link BlockingDetector}.
+ * Getter-based so that it maps to {@code CompositeData} on the MXBean.
+ */
+public final class BlockingSiteSnapshot {
+
+    private final String kind;
+    private final String callSite;
+    private final String dispatcher;
+    private final long count;
+    private final long totalBlockedNanos;
+    private final long maxBlockedNanos;
+    private final boolean measured;
+
+    @ConstructorProperties({"kind", "callSite", "dispatcher", "count", "totalBlockedNanos", "maxBlockedNanos", "measured"})
+    public BlockingSiteSnapshot(String kind, String callSite, String dispatcher, long count,
+                                long totalBlockedNanos, long maxBlockedNanos, boolean measured) {
+        this.kind = kind;
+        this.callSite = callSite;
+        this.dispatcher = dispatcher;
+        this.count = count;
+        this.totalBlockedNanos = totalBlockedNanos;
+        this.maxBlockedNanos = maxBlockedNanos;
+        this.measured = measured;
+    }
+
+    /** One of the {@code BlockingDetector.KIND_*} constants. */
+    public String getKind() { return kind; }
+
+    /** First application frame below the blocking call, as in a stack trace. */
+    public String getCallSite() { return callSite; }
+
+    /** Dispatcher whose thread blocked, e.g. {@code akka.actor.default-dispatcher}. */
+    public String getDispatcher() { return dispatcher; }
+
+    /** Number of blocking episodes: consecutive samples of one thread blocked at this site count once. */
+    public long getCount() { return count; }
+
+    public long getTotalBlockedNanos() { return totalBlockedNanos; }
+
+    public long getMaxBlockedNanos() { return maxBlockedNanos; }
+
+    /** true when timed around the call (instrumented {@code Await}), false when estimated from samples. */
+    public boolean isMeasured() { return measured; }
+
+    @Override
+    public String toString() {
+        return "BlockingSiteSnapshot(" + kind + " at " + callSite + " on " + dispatcher + ", count=" + count
+                + ", total=" + totalBlockedNanos / 1_000_000 + "ms, max=" + maxBlockedNanos / 1_000_000 + "ms"
+                + (measured ? ", measured" : ", sampled") + ")";
+    }
+}
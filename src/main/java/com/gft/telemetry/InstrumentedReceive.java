@@ -0,0 +1,56 @@
+package com.gft.telemetry;
+
+import akka.actor.ActorRef;
+import scala.Function1;
+import scala.PartialFunction;
+import scala.runtime.AbstractPartialFunction;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Receive wrapper timing each handled message. Unhandled messages fall through
+ * to the default function untimed and uncounted, as Akka does for the original Receive.
+ */
+final class InstrumentedReceive extends AbstractPartialFunction<Object, BoxedUnit> {
+
+    private final ActorTelemetry telemetry;
+    private final ActorRef self;
+    private final String actorClass;
+    /** Null until the first message handled with telemetry on; only touched by the actor's own thread. */
+    private ActorStats stats;
+    private final PartialFunction<Object, BoxedUnit> delegate;
+
+    InstrumentedReceive(ActorTelemetry telemetry, ActorRef self, String actorClass, ActorStats stats,
+                        PartialFunction<Object, BoxedUnit> delegate) {
+        this.telemetry = telemetry;
+        this.self = self;
+        this.actorClass = actorClass;
+        this.stats = stats;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isDefinedAt(Object message) {
+        return delegate.isDefinedAt(message);
+    }
+
+    @Override
+    public <A1, B1> B1 applyOrElse(A1 message, Function1<A1, B1> fallback) {
+        if (!telemetry.enabled()) {
+            return delegate.applyOrElse(message, fallback);
+        }
+        if (!delegate.isDefinedAt(message)) {
+            return fallback.apply(message);
+        }
+        if (stats == null) {
+            stats = telemetry.track(self, actorClass);
+        }
+        long start = System.nanoTime();
+        try {
+            @SuppressWarnings("unchecked")
+            B1 result = (B1) delegate.apply(message);
+            return result;
+        } finally {
+            stats.recordHandler(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.gft.telemetry;
+
+import akka.stream.Attributes;
+import akka.stream.BidiShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import akka.stream.stage.TimerGraphStageLogic;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pass-through on both sides of an instrumented stage: {@code in -> toStage}, stage, {@code fromStage -> out}.
+ * One logic sees both edges, so the in-flight count needs no synchronization; counters are kept locally and
+ * added to the shared {@link StageStats} every {@link #FLUSH_EVERY} events, every second and on stop.
+ *
+ * Wait times are measured on one in {@code stage-sample-every} elements only (two {@code nanoTime} calls)
+ * and scaled up. The gap between samples is random around that mean, so that a periodic stream (a throttle,
+ * a batching stage) cannot line up with the samples.
+ */
+final class StageProbe<In, Out> extends GraphStage<BidiShape<In, In, Out, Out>> {
+
+    private static final int FLUSH_EVERY = 64;
+    private static final String FLUSH = "flush";
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final Inlet<In> in = Inlet.create("StageProbe.in");
+    private final Outlet<In> toStage = Outlet.create("StageProbe.toStage");
+    private final Inlet<Out> fromStage = Inlet.create("StageProbe.fromStage");
+    private final Outlet<Out> out = Outlet.create("StageProbe.out");
+    private final BidiShape<In, In, Out, Out> shape = BidiShape.of(in, toStage, fromStage, out);
+    private final String name;
+
+    StageProbe(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public BidiShape<In, In, Out, Out> shape() {
+        return shape;
+    }
+
+    @Override
+    public Attributes initialAttributes() {
+        return Attributes.name("stageProbe");
+    }
+
+    @Override
+    public GraphStageLogic createLogic(Attributes attributes) {
+        return new Logic();
+    }
+
+    private final class Logic extends TimerGraphStageLogic {
+        private ActorTelemetry telemetry;
+        private StageStats stats;
+        private int sampleEvery;
+
+        // not yet flushed
+        private long elementsIn;
+        private long elementsOut;
+        private long upstreamWait;
+        private long downstreamWait;
+        private int events;
+
+        private long inFlight;
+        private long flushedInFlight;
+        private long maxInFlight;
+
+        private int upstreamCountdown;
+        private int downstreamCountdown;
+        /** Start of the sampled wait, 0 when none is being measured. */
+        private long upstreamWaitStart;
+        private long downstreamWaitStart;
+
+        Logic() {
+            super(shape);
+            setHandler(in, new AbstractInHandler() {
+                @Override
+                public void onPush() {
+                    push(toStage, grab(in));
+                    if (upstreamWaitStart != 0) {
+                        upstreamWait += System.nanoTime() - upstreamWaitStart;
+                        upstreamWaitStart = 0;
+                    }
+                    inFlight++;
+                    if (inFlight > maxInFlight) {
+                        maxInFlight = inFlight;
+                    }
+                    if (telemetry.enabled()) {
+                        elementsIn++;
+                        if (++events >= FLUSH_EVERY) {
+                            flush();
+                        }
+                    }
+                }
+
+                @Override
+                public void onUpstreamFinish() {
+                    complete(toStage);
+                }
+
+                @Override
+                public void onUpstreamFailure(Throwable ex) {
+                    fail(toStage, ex);
+                }
+            });
+            setHandler(toStage, new AbstractOutHandler() {
+                @Override
+                public void onPull() {
+                    if (--upstreamCountdown <= 0 && telemetry.enabled()) {
+                        upstreamCountdown = nextSample();
+                        upstreamWaitStart = System.nanoTime();
+                    }
+                    pull(in);
+                }
+
+                @Override
+                public void onDownstreamFinish(Throwable cause) {
+                    cancel(in, cause);
+                }
+            });
+            setHandler(fromStage, new AbstractInHandler() {
+                @Override
+                public void onPush() {
+                    push(out, grab(fromStage));
+                    inFlight--;
+                    if (telemetry.enabled()) {
+                        elementsOut++;
+                        if (--downstreamCountdown <= 0) {
+                            downstreamCountdown = nextSample();
+                            downstreamWaitStart = System.nanoTime();
+                        }
+                        if (++events >= FLUSH_EVERY) {
+                            flush();
+                        }
+                    }
+                }
+
+                @Override
+                public void onUpstreamFinish() {
+                    complete(out);
+                }
+
+                @Override
+                public void onUpstreamFailure(Throwable ex) {
+                    fail(out, ex);
+                }
+            });
+            setHandler(out, new AbstractOutHandler() {
+                @Override
+                public void onPull() {
+                    if (downstreamWaitStart != 0) {
+                        downstreamWait += System.nanoTime() - downstreamWaitStart;
+                        downstreamWaitStart = 0;
+                    }
+                    pull(fromStage);
+                }
+
+                @Override
+                public void onDownstreamFinish(Throwable cause) {
+                    cancel(fromStage, cause);
+                }
+            });
+        }
+
+        @Override
+        public void preStart() {
+            telemetry = ActorTelemetry.get(materializer().system());
+            stats = telemetry.stageStatsFor(name);
+            sampleEvery = telemetry.stageSampleEvery();
+            scheduleWithFixedDelay(FLUSH, FLUSH_INTERVAL, FLUSH_INTERVAL);
+        }
+
+        @Override
+        public void onTimer(Object key) {
+            flush();
+        }
+
+        @Override
+        public void postStop() {
+            // whatever is still inside the stage is dropped with it
+            inFlight = 0;
+            flush();
+        }
+
+        /** Elements until the next sample: uniform in {@code [1, 2 * sampleEvery - 1]}, mean {@code sampleEvery}. */
+        private int nextSample() {
+            return sampleEvery == 1 ? 1 : 1 + ThreadLocalRandom.current().nextInt(2 * sampleEvery - 1);
+        }
+
+        private void flush() {
+            stats.elementsIn.add(elementsIn);
+            stats.elementsOut.add(elementsOut);
+            stats.upstreamWaitNanos.add(upstreamWait * sampleEvery);
+            stats.downstreamWaitNanos.add(downstreamWait * sampleEvery);
+            stats.inFlight.add(inFlight - flushedInFlight);
+            stats.recordMaxInFlight(maxInFlight);
+            // from here on the maximum since this flush, so that a reset of the shared stats sticks
+            maxInFlight = inFlight;
+            flushedInFlight = inFlight;
+            elementsIn = 0;
+            elementsOut = 0;
+            upstreamWait = 0;
+            downstreamWait = 0;
+            events = 0;
+        }
+    }
+}
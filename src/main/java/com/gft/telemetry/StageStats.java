@@ -0,0 +1,103 @@
+package com.gft.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mutable counters for one instrumented stream stage (or for the overflow bucket), summed over all of its
+ * materializations. Written by the {@link StageProbe}s in batches, read by snapshots.
+ */
+final class StageStats {
+
+    final String name;
+
+    final LongAdder elementsIn = new LongAdder();
+    final LongAdder elementsOut = new LongAdder();
+    /** Already scaled up by the sampling factor. */
+    final LongAdder upstreamWaitNanos = new LongAdder();
+    final LongAdder downstreamWaitNanos = new LongAdder();
+    final LongAdder inFlight = new LongAdder();
+    final AtomicLong maxInFlight = new AtomicLong();
+
+    // rates and wait shares are recomputed at most once per RATE_WINDOW_NANOS, as in ActorStats
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private long createdNanos = System.nanoTime();
+    private long windowStartNanos = createdNanos;
+    private long windowOut;
+    private long windowUpstream;
+    private long windowDownstream;
+    private double rate = -1.0;
+    private double upstreamShare;
+    private double downstreamShare;
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    void recordMaxInFlight(long value) {
+        long max = maxInFlight.get();
+        while (value > max && !maxInFlight.compareAndSet(max, value)) {
+            max = maxInFlight.get();
+        }
+    }
+
+    boolean hasTraffic() {
+        return elementsIn.sum() > 0 || elementsOut.sum() > 0;
+    }
+
+    /**
+     * Zeroes the counters in place, so that the probes of running materializations keep recording into them.
+     * The elements in flight are live state and stay; they become the new maximum.
+     */
+    synchronized void reset() {
+        elementsIn.reset();
+        elementsOut.reset();
+        upstreamWaitNanos.reset();
+        downstreamWaitNanos.reset();
+        maxInFlight.set(Math.max(0L, inFlight.sum()));
+        createdNanos = System.nanoTime();
+        windowStartNanos = createdNanos;
+        windowOut = 0;
+        windowUpstream = 0;
+        windowDownstream = 0;
+        rate = -1.0;
+        upstreamShare = 0;
+        downstreamShare = 0;
+    }
+
+    synchronized StageStatsSnapshot snapshot(long nowNanos) {
+        long out = elementsOut.sum();
+        long upstream = upstreamWaitNanos.sum();
+        long downstream = downstreamWaitNanos.sum();
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            rate = (out - windowOut) * 1e9 / elapsed;
+            upstreamShare = (double) (upstream - windowUpstream) / elapsed;
+            downstreamShare = (double) (downstream - windowDownstream) / elapsed;
+            windowOut = out;
+            windowUpstream = upstream;
+            windowDownstream = downstream;
+            windowStartNanos = nowNanos;
+        }
+        double currentRate = rate;
+        double currentUpstream = upstreamShare;
+        double currentDownstream = downstreamShare;
+        if (rate < 0) {
+            long sinceCreation = Math.max(1, nowNanos - createdNanos);
+            currentRate = out * 1e9 / sinceCreation;
+            currentUpstream = (double) upstream / sinceCreation;
+            currentDownstream = (double) downstream / sinceCreation;
+        }
+        return new StageStatsSnapshot(
+                name,
+                elementsIn.sum(),
+                out,
+                currentRate,
+                currentUpstream,
+                currentDownstream,
+                upstream,
+                downstream,
+                Math.max(0L, inFlight.sum()),
+                maxInFlight.get());
+    }
+}
@@ -0,0 +1,75 @@
+package com.gft.telemetry;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of the telemetry of one instrumented stream stage, summed over its materializations.
+ * Getter-based so that it maps to {@code CompositeData} on the MXBean.
+ */
+public final class StageStatsSnapshot {
+
+    private final String name;
+    private final long elementsIn;
+    private final long elementsOut;
+    private final double elementsPerSecond;
+    private final double upstreamWaitShare;
+    private final double downstreamWaitShare;
+    private final long upstreamWaitNanos;
+    private final long downstreamWaitNanos;
+    private final long inFlight;
+    private final long maxInFlight;
+
+    @ConstructorProperties({"name", "elementsIn", "elementsOut", "elementsPerSecond", "upstreamWaitShare",
+            "downstreamWaitShare", "upstreamWaitNanos", "downstreamWaitNanos", "inFlight", "maxInFlight"})
+    public StageStatsSnapshot(String name, long elementsIn, long elementsOut, double elementsPerSecond,
+                              double upstreamWaitShare, double downstreamWaitShare, long upstreamWaitNanos,
+                              long downstreamWaitNanos, long inFlight, long maxInFlight) {
+        this.name = name;
+        this.elementsIn = elementsIn;
+        this.elementsOut = elementsOut;
+        this.elementsPerSecond = elementsPerSecond;
+        this.upstreamWaitShare = upstreamWaitShare;
+        this.downstreamWaitShare = downstreamWaitShare;
+        this.upstreamWaitNanos = upstreamWaitNanos;
+        this.downstreamWaitNanos = downstreamWaitNanos;
+        this.inFlight = inFlight;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Name given to {@link StreamTelemetry#instrument}, or {@link ActorTelemetry#OVERFLOW_PATH}. */
+    public String getName() { return name; }
+
+    public long getElementsIn() { return elementsIn; }
+
+    public long getElementsOut() { return elementsOut; }
+
+    /** Emitted elements per second over the last rate window (about one second). */
+    public double getElementsPerSecond() { return elementsPerSecond; }
+
+    /** Share of the rate window the stage spent starved: it asked for an element and upstream had none yet. */
+    public double getUpstreamWaitShare() { return upstreamWaitShare; }
+
+    /** Share of the rate window the stage spent backpressured: it had emitted and downstream had not asked again. */
+    public double getDownstreamWaitShare() { return downstreamWaitShare; }
+
+    /** Total time starved since tracking started, estimated from the sampled elements. */
+    public long getUpstreamWaitNanos() { return upstreamWaitNanos; }
+
+    /** Total time backpressured since tracking started, estimated from the sampled elements. */
+    public long getDownstreamWaitNanos() { return downstreamWaitNanos; }
+
+    /** Elements inside the stage (taken, not yet emitted): its buffer fill level. */
+    public long getInFlight() { return inFlight; }
+
+    public long getMaxInFlight() { return maxInFlight; }
+
+    @Override
+    public String toString() {
+        return "StageStatsSnapshot(" + name + ", in=" + elementsIn + ", out=" + elementsOut
+                + ", el/s=" + String.format("%.1f", elementsPerSecond)
+                + ", upstreamWait=" + String.format("%.2f", upstreamWaitShare)
+                + ", downstreamWait=" + String.format("%.2f", downstreamWaitShare)
+                + ", waitNanos=" + upstreamWaitNanos + "/" + downstreamWaitNanos
+                + ", inFlight=" + inFlight + "/" + maxInFlight + ")";
+    }
+}
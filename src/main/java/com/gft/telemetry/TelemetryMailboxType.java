@@ -0,0 +1,109 @@
+package com.gft.telemetry;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unbounded mailbox that feeds {@link ActorTelemetry} with mailbox depth and time-in-mailbox.
+ * Configured as {@code gft.telemetry-mailbox}; it can also replace
+ * {@code akka.actor.default-mailbox.mailbox-type} to instrument every actor of a system.
+ */
+public final class TelemetryMailboxType implements MailboxType, ProducesMessageQueue<TelemetryMailboxType.TelemetryMessageQueue> {
+
+    public TelemetryMailboxType(ActorSystem.Settings settings, Config config) {
+        // no mailbox-specific settings
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        if (owner.isDefined() && system.isDefined()) {
+            ActorTelemetry telemetry = ActorTelemetry.get(system.get());
+            return new TelemetryMessageQueue(telemetry, telemetry.statsFor(owner.get()));
+        }
+        return new TelemetryMessageQueue(null, null);
+    }
+
+    public static final class TelemetryMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+        /** Queued when telemetry is on; plain Envelopes are queued otherwise. */
+        private static final class TimedEnvelope {
+            final Envelope envelope;
+            final long enqueuedNanos;
+
+            TimedEnvelope(Envelope envelope, long enqueuedNanos) {
+                this.envelope = envelope;
+                this.enqueuedNanos = enqueuedNanos;
+            }
+        }
+
+        private final ActorTelemetry telemetry;
+        private final ActorStats stats;
+        private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        TelemetryMessageQueue(ActorTelemetry telemetry, ActorStats stats) {
+            this.telemetry = telemetry;
+            this.stats = stats;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            int depth = size.incrementAndGet();
+            if (stats != null && telemetry.enabled()) {
+                queue.add(new TimedEnvelope(handle, System.nanoTime()));
+                stats.recordDepth(depth);
+            } else {
+                queue.add(handle);
+            }
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Object next = queue.poll();
+            if (next == null) {
+                return null;
+            }
+            int depth = size.decrementAndGet();
+            if (next instanceof TimedEnvelope) {
+                TimedEnvelope timed = (TimedEnvelope) next;
+                stats.recordMailboxTime(System.nanoTime() - timed.enqueuedNanos);
+                stats.recordDepth(depth);
+                return timed.envelope;
+            }
+            return (Envelope) next;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            Object next;
+            while ((next = queue.poll()) != null) {
+                size.decrementAndGet();
+                Envelope envelope = next instanceof TimedEnvelope ? ((TimedEnvelope) next).envelope : (Envelope) next;
+                deadLetters.enqueue(owner, envelope);
+            }
+            if (stats != null) {
+                telemetry.retire(owner);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.gft.timer;
+
+import akka.actor.AbstractActor;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import com.typesafe.config.Config;
+import scala.concurrent.ExecutionContextExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared periodic ticks for large numbers of actors, instead of one scheduler entry per actor.
+ *
+ * - one hashed wheel per interval class (interval rounded to {@code resolution}), driven by a single
+ *   scheduler entry that advances one slot every {@code resolution}
+ * - subscribers are spread round-robin over the slots of their wheel, so with a 200 ms interval and
+ *   10 ms resolution they wake in 20 groups instead of all on the same millisecond
+ * - each slot is split in buckets of at most {@code fan-out-batch-size} subscribers; every bucket is one
+ *   dispatcher task, so a large slot fans out in parallel batches
+ * - the subscriber's message is sent as is: pass a singleton (e.g. {@code Tick.INSTANCE}) to avoid
+ *   allocating per tick
+ * - subscriptions are removed automatically when the subscriber stops; a restart keeps the same
+ *   {@code ActorRef}, so subscribing again with the same interval and message is a no-op
+ *
+ * Delivery is at fixed rate, like {@code scheduleAtFixedRate}; the first tick arrives between 0 and one
+ * interval after subscribing, depending on the slot.
+ */
+public final class TickBus implements Extension {
+
+    public static final Id ID = new Id();
+
+    public static TickBus get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    public static final class Id extends AbstractExtensionId<TickBus> implements ExtensionIdProvider {
+        private Id() { }
+
+        @Override
+        public TickBus createExtension(ExtendedActorSystem system) {
+            return new TickBus(system);
+        }
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+    }
+
+    private final ActorSystem system;
+    private final long resolutionNanos;
+    private final int batchSize;
+    private final boolean wallClock;
+    private final ExecutionContextExecutor dispatcher;
+    private final ActorRef watcher;
+
+    private final ConcurrentHashMap<Long, Wheel> wheels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ActorRef, List<Subscription>> bySubscriber = new ConcurrentHashMap<>();
+
+    private TickBus(ExtendedActorSystem system) {
+        Config config = system.settings().config().getConfig("gft.tick-bus");
+        this.system = system;
+        this.resolutionNanos = config.getDuration("resolution", TimeUnit.NANOSECONDS);
+        this.batchSize = config.getInt("fan-out-batch-size");
+        this.wallClock = config.getBoolean("wall-clock");
+        this.dispatcher = system.dispatchers().lookup(config.getString("dispatcher"));
+        this.watcher = system.systemActorOf(Props.create(Watcher.class, () -> new Watcher(this)), "gft-tick-bus");
+    }
+
+    /**
+     * Sends {@code message} to {@code subscriber} every {@code interval} (rounded to the bus resolution)
+     * until {@link #unsubscribe} or until the subscriber stops. Does nothing if {@code subscriber} already
+     * gets an equal {@code message} at this interval.
+     */
+    public void subscribe(ActorRef subscriber, Duration interval, Object message) {
+        long slots = Math.max(1, Math.round((double) interval.toNanos() / resolutionNanos));
+        Wheel wheel = wheels.computeIfAbsent(slots, Wheel::new);
+
+        boolean[] first = {false};
+        bySubscriber.compute(subscriber, (ref, list) -> {
+            if (list == null) {
+                list = new CopyOnWriteArrayList<>();
+                first[0] = true;
+            }
+            for (Subscription existing : list) {
+                if (existing.interval == slots && existing.message.equals(message)) {
+                    return list;
+                }
+            }
+            list.add(wheel.add(subscriber, message));
+            return list;
+        });
+        if (first[0]) {
+            watcher.tell(subscriber, ActorRef.noSender());
+        }
+    }
+
+    /** Removes every subscription of {@code subscriber}. */
+    public void unsubscribe(ActorRef subscriber) {
+        List<Subscription> subscriptions = bySubscriber.remove(subscriber);
+        if (subscriptions != null) {
+            for (Subscription s : subscriptions) {
+                s.bucket.remove(s);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return bySubscriber.size();
+    }
+
+    // ------------------------------------------------------------
+    // Wheel
+    // ------------------------------------------------------------
+
+    private static final class Subscription {
+        final ActorRef subscriber;
+        final Object message;
+        final Bucket bucket;
+        /** in slots of the bus resolution */
+        final long interval;
+
+        Subscription(ActorRef subscriber, Object message, Bucket bucket, long interval) {
+            this.subscriber = subscriber;
+            this.message = message;
+            this.bucket = bucket;
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * One fan-out batch, delivered as a single dispatcher task. Fixed capacity (the batch size);
+     * removal leaves a null hole that the next add reuses, so concurrent delivery never sees a
+     * subscription twice or skips a live one.
+     */
+    private static final class Bucket implements Runnable {
+        private final AtomicReferenceArray<Subscription> entries;
+        /** high-water mark of used entries */
+        private volatile int limit;
+        /** guarded by this */
+        private int holes;
+
+        Bucket(int capacity) {
+            this.entries = new AtomicReferenceArray<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            int n = limit;
+            for (int i = 0; i < n; i++) {
+                Subscription s = entries.get(i);
+                if (s != null) {
+                    s.subscriber.tell(s.message, ActorRef.noSender());
+                }
+            }
+        }
+
+        synchronized boolean tryAdd(Subscription s) {
+            if (holes > 0) {
+                for (int i = 0; i < limit; i++) {
+                    if (entries.get(i) == null) {
+                        entries.set(i, s);
+                        holes--;
+                        return true;
+                    }
+                }
+            }
+            if (limit == entries.length()) {
+                return false;
+            }
+            entries.set(limit, s);
+            limit++;
+            return true;
+        }
+
+        synchronized void remove(Subscription s) {
+            for (int i = 0; i < limit; i++) {
+                if (entries.get(i) == s) {
+                    entries.set(i, null);
+                    holes++;
+                    return;
+                }
+            }
+        }
+    }
+
+    private final class Wheel implements Runnable {
+        private final List<List<Bucket>> slots;
+        private final AtomicInteger nextSlot = new AtomicInteger();
+        private final Cancellable driver;
+        private final long startNanos = System.nanoTime();
+        /** slots delivered so far and scheduler callbacks so far; guarded by this */
+        private long delivered;
+        private long callbacks;
+
+        Wheel(long slotCount) {
+            this.slots = new ArrayList<>((int) slotCount);
+            for (long i = 0; i < slotCount; i++) {
+                slots.add(new CopyOnWriteArrayList<>());
+            }
+            Duration resolution = Duration.ofNanos(resolutionNanos);
+            this.driver = system.scheduler().scheduleAtFixedRate(resolution, resolution, this, dispatcher);
+            system.registerOnTermination(driver::cancel);
+        }
+
+        Subscription add(ActorRef subscriber, Object message) {
+            // round-robin over slots spreads wake-ups evenly across the interval
+            List<Bucket> slot = slots.get(Math.floorMod(nextSlot.getAndIncrement(), slots.size()));
+            synchronized (slot) {
+                // newest bucket first: earlier buckets are full unless an unsubscribe left a hole
+                for (int i = slot.size() - 1; i >= 0; i--) {
+                    Bucket bucket = slot.get(i);
+                    Subscription subscription = new Subscription(subscriber, message, bucket, slots.size());
+                    if (bucket.tryAdd(subscription)) {
+                        return subscription;
+                    }
+                }
+                Bucket bucket = new Bucket(batchSize);
+                Subscription subscription = new Subscription(subscriber, message, bucket, slots.size());
+                bucket.tryAdd(subscription);
+                slot.add(bucket);
+                return subscription;
+            }
+        }
+
+        /**
+         * Scheduler callback. With {@code wall-clock = on} the slots due are derived from elapsed time
+         * rather than from the number of callbacks, so scheduler jitter neither drops nor duplicates ticks;
+         * with a virtual-time scheduler (callbacks without wall time passing) each callback is one slot.
+         */
+        @Override
+        public synchronized void run() {
+            callbacks++;
+            long due = wallClock ? (System.nanoTime() - startNanos) / resolutionNanos : callbacks;
+            while (delivered < due) {
+                fanOut(slots.get((int) (delivered % slots.size())));
+                delivered++;
+            }
+        }
+
+        private void fanOut(List<Bucket> slot) {
+            int n = slot.size();
+            for (int i = 0; i < n; i++) {
+                Bucket bucket = slot.get(i);
+                if (bucket.limit == 0) {
+                    continue;
+                }
+                if (i == n - 1) {
+                    bucket.run(); // last batch on the current thread
+                } else {
+                    dispatcher.execute(bucket);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Automatic unsubscription
+    // ------------------------------------------------------------
+
+    private static final class Watcher extends AbstractActor {
+        private final TickBus bus;
+
+        Watcher(TickBus bus) {
+            this.bus = bus;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(ActorRef.class, ref -> getContext().watch(ref))
+                    .match(Terminated.class, t -> bus.unsubscribe(t.getActor()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gft.bench;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.stream.Attributes;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.RunnableGraph;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.AdaptiveBuffer;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input buffer size matrix for a three-island pipeline (source, two CPU stages, sink separated by {@code async}):
+ * - buffer: {@code Attributes.inputBuffer(n, n)} on the whole graph for n = 1 (the TestAkka3/4 fixtures), 4,
+ *   16 (the Akka default), 64, 256; and "adaptive": input buffers of 1 with an {@link AdaptiveBuffer} (1..256)
+ *   in front of every boundary
+ * - stage cost: busy-spin per element in each CPU stage, 0, 1us and 10us
+ * - element size: payload bytes carried by each element, 16 and 1024
+ *
+ * Reports thousand elements/s and the source-to-sink latency p50/p99 in microseconds, medians over the runs.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.BufferSizeBenchmark -Dexec.classpathScope=test}
+ * (args: measured runs, default 3).
+ */
+public final class BufferSizeBenchmark {
+
+    private static final int[] BUFFER_SIZES = {1, 4, 16, 64, 256};
+    private static final long[] STAGE_NANOS = {0, 1_000, 10_000};
+    private static final int[] PAYLOAD_BYTES = {16, 1024};
+
+    private static final class Element {
+        final int index;
+        final byte[] payload;
+        final long emittedAt = System.nanoTime();
+
+        Element(int index, int payloadBytes) {
+            this.index = index;
+            this.payload = new byte[payloadBytes];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        ActorSystem system = ActorSystem.create("buffer-size-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%d available processors; median of %d runs%n", Runtime.getRuntime().availableProcessors(), runs);
+            System.out.printf("%8s %8s %9s %10s %10s %10s%n", "cost ns", "bytes", "buffer", "k el/s", "p50 us", "p99 us");
+            for (long stageNanos : STAGE_NANOS) {
+                int elements = stageNanos == 0 ? 200_000 : (int) Math.min(200_000, 2_000_000_000L / stageNanos / 10);
+                for (int payloadBytes : PAYLOAD_BYTES) {
+                    for (int size : BUFFER_SIZES) {
+                        measure(system, stageNanos, payloadBytes, String.valueOf(size), elements, runs,
+                                pipeline(stageNanos, false), Attributes.inputBuffer(size, size));
+                    }
+                    measure(system, stageNanos, payloadBytes, "adaptive", elements, runs,
+                            pipeline(stageNanos, true), Attributes.inputBuffer(1, 1).and(AdaptiveBuffer.bounds(1, 256)));
+                }
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static Flow<Element, Element, NotUsed> pipeline(long stageNanos, boolean adaptive) {
+        Flow<Element, Element, NotUsed> flow = Flow.create();
+        for (int stage = 0; stage < 2; stage++) {
+            if (adaptive) {
+                flow = flow.via(AdaptiveBuffer.create());
+            }
+            flow = flow.async().map(e -> spin(e, stageNanos));
+        }
+        if (adaptive) {
+            flow = flow.via(AdaptiveBuffer.create());
+        }
+        return flow.async();
+    }
+
+    private static Element spin(Element e, long nanos) {
+        if (nanos > 0) {
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                // busy
+            }
+        }
+        return e;
+    }
+
+    private static void measure(ActorSystem system, long stageNanos, int payloadBytes, String buffer, int elements,
+                                int runs, Flow<Element, Element, NotUsed> pipeline, Attributes attributes) throws Exception {
+        double[] throughput = new double[runs];
+        double[] p50 = new double[runs];
+        double[] p99 = new double[runs];
+        long[] latency = new long[elements];
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            RunnableGraph<CompletionStage<Done>> graph = Source.range(0, elements - 1)
+                    .map(i -> new Element(i, payloadBytes))
+                    .via(pipeline)
+                    .toMat(Sink.foreach(e -> latency[e.index] = System.nanoTime() - e.emittedAt), Keep.right())
+                    .withAttributes(attributes);
+            long start = System.nanoTime();
+            graph.run(system).toCompletableFuture().get(300, TimeUnit.SECONDS);
+            if (run >= 0) {
+                throughput[run] = elements / ((System.nanoTime() - start) / 1e9) / 1e3;
+                Arrays.sort(latency);
+                p50[run] = latency[elements / 2] / 1e3;
+                p99[run] = latency[(int) (elements * 0.99)] / 1e3;
+            }
+        }
+        Arrays.sort(throughput);
+        Arrays.sort(p50);
+        Arrays.sort(p99);
+        System.out.printf("%8d %8d %9s %10.0f %10.1f %10.1f%n", stageNanos, payloadBytes, buffer,
+                throughput[runs / 2], p50[runs / 2], p99[runs / 2]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.HubPipeline;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * One request = one {@code i -> i * 2} element, two ways:
+ * - per-request: {@code Source.single(i).via(flow).runWith(Sink.head())}, one materialization per request
+ * - hub: {@link HubPipeline#submit} into a pipeline materialized once
+ *
+ * Sequential: one request at a time, latency p50/p99 in microseconds. Concurrent: up to 64 requests
+ * outstanding, thousand requests/s (for per-request, also the materializations per second).
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.HubPipelineBenchmark -Dexec.classpathScope=test}
+ * (args: requests per run, default 100000; measured runs, default 3).
+ */
+public final class HubPipelineBenchmark {
+
+    private static final int WINDOW = 64;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ActorSystem system = ActorSystem.create("hub-pipeline-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            Flow<Integer, Integer, ?> flow = Flow.of(Integer.class).map(i -> i * 2);
+            HubPipeline<Integer, Integer> pipeline = HubPipeline.start(system, "benchmark",
+                    HubPipeline.<Integer>flow().map(i -> i * 2));
+
+            System.out.printf("%d requests, median of %d runs%n", requests, runs);
+            System.out.printf("%-12s %12s %10s %10s%n", "variant", "k req/s", "p50 us", "p99 us");
+            measure("per-request", requests, runs, i -> Source.single(i).via(flow).runWith(Sink.head(), system));
+            measure("hub", requests, runs, pipeline::submit);
+            pipeline.shutdown().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void measure(String variant, int requests, int runs, IntFunction<CompletionStage<Integer>> call)
+            throws Exception {
+        double[] throughput = new double[runs];
+        double[] p50 = new double[runs];
+        double[] p99 = new double[runs];
+        int sequential = requests / 10;
+        long[] latency = new long[sequential];
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            for (int i = 0; i < sequential; i++) {
+                long start = System.nanoTime();
+                call.apply(i).toCompletableFuture().get(10, TimeUnit.SECONDS);
+                latency[i] = System.nanoTime() - start;
+            }
+
+            Semaphore window = new Semaphore(WINDOW);
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                window.acquire();
+                call.apply(i).whenComplete((r, e) -> window.release());
+            }
+            window.acquire(WINDOW);
+            if (run >= 0) {
+                throughput[run] = requests / ((System.nanoTime() - start) / 1e9) / 1e3;
+                Arrays.sort(latency);
+                p50[run] = latency[sequential / 2] / 1e3;
+                p99[run] = latency[(int) (sequential * 0.99)] / 1e3;
+            }
+        }
+        Arrays.sort(throughput);
+        Arrays.sort(p50);
+        Arrays.sort(p99);
+        System.out.printf("%-12s %12.1f %10.1f %10.1f%n", variant, throughput[runs / 2], p50[runs / 2], p99[runs / 2]);
+    }
+}
@@ -0,0 +1,140 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.ActorAttributes;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.KeyedLanes;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a per-key ordered CPU-bound ~1us {@code map} over 10000 keys, for three key distributions:
+ * - uniform: every key equally likely
+ * - zipf: Zipf with exponent 1.1, the first keys taking most elements
+ * - hot: half the elements on one key, the rest uniform
+ *
+ * Variants:
+ * - fused: plain {@code map}, the single-actor baseline
+ * - groupBy-lane: {@code groupBy(8, hash mod 8)} with an async {@code map} per substream, the built-in way to
+ *   the same lanes
+ * - groupBy-key: {@code groupBy(10000, key)}, a substream per key
+ * - lanes: {@link KeyedLanes#map} with 8 lanes on the stream's dispatcher; also the busiest lane's share of
+ *   the elements and the intake stalls on a full lane
+ * - lanes-cpu: the same with the lanes on {@code gft.stream-cpu-dispatcher}
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.KeyedLanesBenchmark -Dexec.classpathScope=test}
+ * (args: elements, default 500000; measured runs, default 3).
+ */
+public final class KeyedLanesBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final int LANES = 8;
+    private static final String DISPATCHER = "gft.stream-cpu-dispatcher";
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ActorSystem system = ActorSystem.create("keyed-lanes-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%d available processors, %d elements, %d keys, %d lanes; thousand elements/s, median of %d%n",
+                    Runtime.getRuntime().availableProcessors(), elements, KEYS, LANES, runs);
+            System.out.printf("%-8s %8s %13s %12s %8s %10s %10s %8s%n",
+                    "keys", "fused", "groupBy-lane", "groupBy-key", "lanes", "lanes-cpu", "busiest %", "stalls");
+            for (String distribution : new String[] {"uniform", "zipf", "hot"}) {
+                int[] keys = keys(distribution, elements);
+                double fused = measure(system, Flow.of(Integer.class).map(i -> mix(keys[i])), elements, runs).first();
+                double byLane = measure(system, Flow.of(Integer.class)
+                        .groupBy(LANES, i -> Math.floorMod(Integer.hashCode(keys[i]), LANES))
+                        .map(i -> mix(keys[i])).async()
+                        .mergeSubstreams(), elements, runs).first();
+                double byKey = measure(system, Flow.of(Integer.class)
+                        .groupBy(KEYS, i -> keys[i])
+                        .map(i -> mix(keys[i])).async()
+                        .mergeSubstreams(), elements, runs).first();
+                Pair<Double, KeyedLanes.Stats> lanes = measure(system,
+                        KeyedLanes.map(LANES, (Integer i) -> keys[i], (Integer i) -> mix(keys[i])), elements, runs);
+                double lanesCpu = measure(system,
+                        KeyedLanes.map(LANES, (Integer i) -> keys[i], (Integer i) -> mix(keys[i]))
+                                .withAttributes(ActorAttributes.dispatcher(DISPATCHER)), elements, runs).first();
+                KeyedLanes.Stats stats = lanes.second();
+                long busiest = 0;
+                for (int lane = 0; lane < stats.getLanes(); lane++) {
+                    busiest = Math.max(busiest, stats.getRouted(lane));
+                }
+                System.out.printf("%-8s %8.0f %13.0f %12.0f %8.0f %10.0f %10.1f %8d%n", distribution, fused, byLane,
+                        byKey, lanes.first(), lanesCpu, 100.0 * busiest / elements, stats.getStalls());
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    /** Median throughput, and the materialized value of the last run. */
+    private static <M> Pair<Double, M> measure(ActorSystem system, Flow<Integer, Integer, M> flow, int elements,
+                                               int runs) throws Exception {
+        double[] samples = new double[runs];
+        M last = null;
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            Pair<M, CompletionStage<akka.Done>> result = Source.range(0, elements - 1)
+                    .viaMat(flow, Keep.right())
+                    .toMat(Sink.ignore(), Keep.both())
+                    .run(system);
+            result.second().toCompletableFuture().get(300, TimeUnit.SECONDS);
+            last = result.first();
+            if (run >= 0) {
+                samples[run] = elements / ((System.nanoTime() - start) / 1e9) / 1e3;
+            }
+        }
+        Arrays.sort(samples);
+        return Pair.create(samples[runs / 2], last);
+    }
+
+    private static int[] keys(String distribution, int elements) {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] keys = new int[elements];
+        double[] zipf = null;
+        if (distribution.equals("zipf")) {
+            zipf = new double[KEYS];
+            double total = 0;
+            for (int k = 0; k < KEYS; k++) {
+                total += 1 / Math.pow(k + 1, 1.1);
+                zipf[k] = total;
+            }
+        }
+        for (int i = 0; i < elements; i++) {
+            switch (distribution) {
+                case "zipf":
+                    int k = Arrays.binarySearch(zipf, random.nextDouble() * zipf[KEYS - 1]);
+                    keys[i] = k >= 0 ? k : -k - 1;
+                    break;
+                case "hot":
+                    keys[i] = random.nextBoolean() ? 0 : random.nextInt(KEYS);
+                    break;
+                default:
+                    keys[i] = random.nextInt(KEYS);
+            }
+        }
+        return keys;
+    }
+
+    /** About 1us of integer mixing. */
+    private static int mix(int i) {
+        long h = i;
+        for (int k = 0; k < 700; k++) {
+            h = (h * 6364136223846793005L + 1442695040888963407L) ^ (h >>> 29);
+        }
+        return (int) h;
+    }
+}
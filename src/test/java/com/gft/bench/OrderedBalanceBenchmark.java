@@ -0,0 +1,80 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.dispatch.MessageDispatcher;
+import akka.stream.ActorAttributes;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.OrderedBalance;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of an ordered CPU-bound ~3us {@code map} spread over N workers, for N = 1, 2, 4 .. up to twice the
+ * available processors (at least 8):
+ * - fused: plain {@code map}, the single-actor baseline
+ * - mapAsync: {@code mapAsync(N, i -> supplyAsync(...))} on {@code gft.stream-cpu-dispatcher}, a future per element
+ * - balance: {@link OrderedBalance#map} with N workers on the stream's dispatcher
+ * - balance-cpu: the same with the workers on {@code gft.stream-cpu-dispatcher}
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.OrderedBalanceBenchmark -Dexec.classpathScope=test}
+ * (args: elements, default 200000; measured runs, default 3).
+ */
+public final class OrderedBalanceBenchmark {
+
+    private static final String DISPATCHER = "gft.stream-cpu-dispatcher";
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        ActorSystem system = ActorSystem.create("ordered-balance-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        MessageDispatcher cpu = system.dispatchers().lookup(DISPATCHER);
+        try {
+            System.out.printf("%d available processors, %d elements; thousand elements/s, median of %d%n",
+                    cores, elements, runs);
+            System.out.printf("%-4s %10s %10s %10s %12s%n", "N", "fused", "mapAsync", "balance", "balance-cpu");
+            double fused = measure(system, Flow.of(Integer.class).map(OrderedBalanceBenchmark::mix), elements, runs);
+            for (int n = 1; n <= Math.max(8, 2 * cores); n *= 2) {
+                double async = measure(system, Flow.of(Integer.class).mapAsync(n, i ->
+                        CompletableFuture.supplyAsync(() -> mix(i), cpu)), elements, runs);
+                double balance = measure(system, OrderedBalance.map(n, OrderedBalanceBenchmark::mix), elements, runs);
+                double balanceCpu = measure(system, OrderedBalance.map(n, OrderedBalanceBenchmark::mix)
+                        .withAttributes(ActorAttributes.dispatcher(DISPATCHER)), elements, runs);
+                System.out.printf("%-4d %10.0f %10.0f %10.0f %12.0f%n", n, fused, async, balance, balanceCpu);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static double measure(ActorSystem system, Flow<Integer, Integer, ?> flow, int elements, int runs)
+            throws Exception {
+        double[] samples = new double[runs];
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            Source.range(1, elements).via(flow).runWith(Sink.ignore(), system).toCompletableFuture().get(120, TimeUnit.SECONDS);
+            if (run >= 0) {
+                samples[run] = elements / ((System.nanoTime() - start) / 1e9) / 1e3;
+            }
+        }
+        Arrays.sort(samples);
+        return samples[runs / 2];
+    }
+
+    /** About 3us of integer mixing. */
+    private static int mix(int i) {
+        long h = i;
+        for (int k = 0; k < 2000; k++) {
+            h = (h * 6364136223846793005L + 1442695040888963407L) ^ (h >>> 29);
+        }
+        return (int) h;
+    }
+}
@@ -0,0 +1,104 @@
+package com.gft.bench;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.WorkerActor;
+import com.gft.persistence.PersistentWorkerActor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Segment-file journal write throughput (fsync on/off, 1..N workers) and recovery time as a
+ * function of the snapshot interval.
+ *
+ * Usage: {@code PersistenceBenchmark [events=100000]}
+ */
+public final class PersistenceBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        for (boolean fsync : new boolean[] {true, false}) {
+            for (int workers : new int[] {1, 8}) {
+                Path dir = Files.createTempDirectory("journal-bench");
+                ActorSystem system = ActorSystem.create("persistence-benchmark", config(dir, fsync, 1_000_000));
+                try {
+                    long elapsed = write(system, workers, events);
+                    System.out.printf("write fsync=%-5s workers=%d events=%d throughput=%.0f events/s%n",
+                            fsync, workers, events, events * 1e9 / elapsed);
+                } finally {
+                    TestKit.shutdownActorSystem(system);
+                    delete(dir);
+                }
+            }
+        }
+
+        for (long snapshotEvery : new long[] {100, 1_000, 10_000, 1_000_000}) {
+            Path dir = Files.createTempDirectory("journal-bench");
+            Config config = config(dir, false, snapshotEvery);
+            ActorSystem system = ActorSystem.create("persistence-benchmark", config);
+            try {
+                write(system, 1, events);
+            } finally {
+                TestKit.shutdownActorSystem(system);
+            }
+            ActorSystem recovering = ActorSystem.create("persistence-benchmark", config);
+            try {
+                ActorRef worker = recovering.actorOf(PersistentWorkerActor.props("w0"));
+                PersistentWorkerActor.RecoveryStats stats = (PersistentWorkerActor.RecoveryStats) Patterns.ask(
+                        worker, PersistentWorkerActor.GetRecoveryStats.INSTANCE, TIMEOUT).toCompletableFuture().get(60, TimeUnit.SECONDS);
+                System.out.printf("recovery snapshot-every=%-8d events=%d replayed=%d recovery=%.1f ms%n",
+                        snapshotEvery, events, stats.eventsReplayed, stats.recoveryNanos / 1e6);
+            } finally {
+                TestKit.shutdownActorSystem(recovering);
+                delete(dir);
+            }
+        }
+    }
+
+    private static long write(ActorSystem system, int workers, int events) throws Exception {
+        ActorRef[] refs = new ActorRef[workers];
+        for (int i = 0; i < workers; i++) {
+            refs[i] = system.actorOf(PersistentWorkerActor.props("w" + i));
+        }
+        Semaphore permits = new Semaphore(1024);
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            permits.acquire();
+            Patterns.ask(refs[i % workers], WorkerActor.Compute.of(i & 1023), TIMEOUT)
+                    .whenComplete((r, e) -> permits.release());
+        }
+        permits.acquire(1024);
+        return System.nanoTime() - start;
+    }
+
+    private static Config config(Path dir, boolean fsync, long snapshotEvery) {
+        return ConfigFactory.parseString(
+                "gft.persistence.segment-journal.dir = \"" + dir.resolve("journal").toString().replace('\\', '/') + "\"\n"
+                        + "gft.persistence.segment-journal.fsync = " + fsync + "\n"
+                        + "akka.persistence.snapshot-store.local.dir = \"" + dir.resolve("snapshots").toString().replace('\\', '/') + "\"\n"
+                        + "gft.persistence.worker.snapshot-every = " + snapshotEvery + "\n"
+                        + "gft.persistence.worker.delete-events-on-snapshot = off\n"
+                        + "akka.loglevel = WARNING")
+                .withFallback(ConfigFactory.load());
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
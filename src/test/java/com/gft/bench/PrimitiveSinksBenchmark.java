@@ -0,0 +1,80 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.PrimitiveSinks;
+import com.typesafe.config.ConfigFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Sink.seq()} against the bounded-memory {@link PrimitiveSinks} on {@code Source.range(1, n)}: throughput,
+ * GC time and peak heap during the run (the heap pools' peak usage, reset before each sink).
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.PrimitiveSinksBenchmark -Dexec.classpathScope=test}
+ * (args: elements, default 10000000).
+ */
+public final class PrimitiveSinksBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        ActorSystem system = ActorSystem.create("primitive-sinks-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        Path file = Files.createTempFile("primitive-sinks-benchmark", ".ints");
+        try {
+            System.out.printf("%d elements, max heap %d MiB%n", elements, Runtime.getRuntime().maxMemory() >> 20);
+            System.out.printf("%-12s %10s %10s %14s%n", "sink", "M el/s", "GC ms", "peak heap MiB");
+            for (int round = 0; round < 2; round++) {
+                // the first round warms up
+                boolean print = round == 1;
+                measure(system, "seq", Sink.seq(), elements, print);
+                measure(system, "stats", PrimitiveSinks.stats(), elements, print);
+                measure(system, "quantiles", PrimitiveSinks.quantiles(), elements, print);
+                measure(system, "topK(100)", PrimitiveSinks.topK(100), elements, print);
+                measure(system, "mappedInts", PrimitiveSinks.mappedInts(file), elements, print);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void measure(ActorSystem system, String name, Sink<Integer, ? extends CompletionStage<?>> sink,
+                                int elements, boolean print) throws Exception {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        Source.range(1, elements).runWith(sink, system).toCompletableFuture().get(600, TimeUnit.SECONDS);
+        long nanos = System.nanoTime() - start;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        if (print) {
+            System.out.printf("%-12s %10.2f %10d %14d%n", name, elements / (nanos / 1e9) / 1e6,
+                    gcMillis() - gcBefore, peak >> 20);
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += gc.getCollectionTime();
+        }
+        return total;
+    }
+}
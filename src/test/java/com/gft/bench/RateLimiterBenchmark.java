@@ -0,0 +1,91 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.stream.ThrottleMode;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.ratelimit.TokenBucket;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One remote quota used by a stream and by direct calls, the direct caller busy half of the time
+ * (250ms on, 250ms off):
+ * - split: the quota divided up front, {@code throttle(quota / 2)} on the stream and a half-quota bucket
+ *   for the direct calls, so the stream cannot use what the idle caller leaves
+ * - shared: one {@link TokenBucket} for both
+ * Reports permits/s actually used against the quota. Then the cost of {@link TokenBucket#tryAcquire()} when
+ * permits are available and when they are not.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.RateLimiterBenchmark -Dexec.classpathScope=test}
+ * (args: quota per second, default 2000; seconds per run, default 3).
+ */
+public final class RateLimiterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int quota = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int burst = Math.max(1, quota / 50);
+        ActorSystem system = ActorSystem.create("rate-limiter-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("quota %d/s, burst %d, %ds per run%n", quota, burst, seconds);
+            System.out.printf("%-8s %10s %10s %10s %8s%n", "variant", "stream/s", "direct/s", "total/s", "quota %");
+            TokenBucket half = new TokenBucket("direct", quota / 2.0, Math.max(1, burst / 2));
+            run(system, "split", Flow.of(Integer.class).throttle(quota / 2, Duration.ofSeconds(1), Math.max(1, burst / 2),
+                    ThrottleMode.shaping()), half, quota, seconds);
+            TokenBucket shared = new TokenBucket("shared", quota, burst);
+            run(system, "shared", shared.<Integer>throttle(), shared, quota, seconds);
+
+            System.out.printf("%n%-24s %8s%n", "tryAcquire", "ns/op");
+            System.out.printf("%-24s %8.1f%n", "granted", tryAcquireNanos(new TokenBucket("open", 1e9, 1_000_000)));
+            TokenBucket empty = new TokenBucket("empty", 1, 1);
+            empty.tryAcquire();
+            System.out.printf("%-24s %8.1f%n", "rejected", tryAcquireNanos(empty));
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void run(ActorSystem system, String variant, Flow<Integer, Integer, ?> streamLimit,
+                            TokenBucket directLimit, int quota, int seconds) throws Exception {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        CompletionStage<Long> streamed = Source.repeat(1)
+                .via(streamLimit)
+                .takeWithin(Duration.ofSeconds(seconds))
+                .runWith(Sink.fold(0L, (n, i) -> n + 1), system);
+        long direct = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            boolean busy = ((now - start) / TimeUnit.MILLISECONDS.toNanos(250)) % 2 == 0;
+            if (!busy) {
+                Thread.sleep(5);
+            } else if (directLimit.tryAcquire(1, Duration.ofMillis(20))) {
+                direct++;
+            }
+        }
+        long stream = streamed.toCompletableFuture().get(seconds + 10, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8s %10.0f %10.0f %10.0f %8.1f%n", variant, stream / elapsed, direct / elapsed,
+                (stream + direct) / elapsed, (stream + direct) / elapsed / quota * 100);
+    }
+
+    private static double tryAcquireNanos(TokenBucket bucket) {
+        int calls = 10_000_000;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                bucket.tryAcquire();
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (double) calls);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,100 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.SerializerWithStringManifest;
+import akka.serialization.Serializers;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.LegacyTimerActor;
+import com.gft.actor.WorkerActor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Bytes/message and ns/round-trip of CompactMessageSerializer vs plain Java serialization.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.SerializerBenchmark -Dexec.classpathScope=test}
+ * (or from the IDE).
+ */
+public final class SerializerBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        ActorSystem system = ActorSystem.create("serializer-benchmark");
+        try {
+            Object[] messages = {
+                    WorkerActor.Compute.of(21),
+                    WorkerActor.Compute.typed(123_456),
+                    new WorkerActor.ComputeLong(1L << 40),
+                    LegacySchedulerActor.Tick.INSTANCE,
+                    LegacyTimerActor.TimerTick.INSTANCE
+            };
+            System.out.printf("%-28s %10s %10s %14s %14s%n", "message", "compact B", "java B", "compact ns/rt", "java ns/rt");
+            for (Object message : messages) {
+                Serializer compact = SerializationExtension.get(system).findSerializerFor(message);
+                String manifest = Serializers.manifestFor(compact, message);
+
+                int compactBytes = compact.toBinary(message).length;
+                int javaBytes = javaSerialize(message).length;
+
+                runCompact(compact, manifest, message, WARMUP);
+                long compactNs = runCompact(compact, manifest, message, ITERATIONS);
+                runJava(message, WARMUP / 10);
+                long javaNs = runJava(message, ITERATIONS / 10);
+
+                System.out.printf("%-28s %10d %10d %14.1f %14.1f%n",
+                        manifest + " " + message.getClass().getSimpleName(),
+                        compactBytes, javaBytes,
+                        compactNs / (double) ITERATIONS, javaNs / (double) (ITERATIONS / 10));
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static long runCompact(Serializer serializer, String manifest, Object message, int iterations) throws Exception {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            byte[] bytes = serializer.toBinary(message);
+            Object back = ((SerializerWithStringManifest) serializer).fromBinary(bytes, manifest);
+            sink += bytes.length + (back == null ? 1 : 0);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    private static long runJava(Object message, int iterations) throws Exception {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            byte[] bytes = javaSerialize(message);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                sink += bytes.length + (in.readObject() == null ? 1 : 0);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    private static byte[] javaSerialize(Object message) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,58 @@
+package com.gft.bench;
+
+import akka.actor.ActorRef;
+import akka.pattern.Patterns;
+import com.gft.actor.WorkerActor;
+import com.gft.cluster.ComputeEnvelope;
+import com.gft.cluster.WorkerSharding;
+import com.gft.test.LoopbackCluster;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compute throughput of the sharded WorkerActor with 1..N loopback nodes in one JVM.
+ * Requests are spread over all regions (as clients on every node would); every node hosts workers.
+ * All nodes share this JVM's cores, so the numbers show the cost of distribution (remote hops,
+ * serialization) rather than real scale-out; run one node per host for capacity planning.
+ *
+ * Usage: {@code ShardedWorkerBenchmark [maxNodes=3] [requests=200000] [inFlight=512]}
+ */
+public final class ShardedWorkerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int maxNodes = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+
+        try (LoopbackCluster cluster = new LoopbackCluster("sharded-worker-benchmark")) {
+            List<ActorRef> regions = new ArrayList<>();
+            for (int nodes = 1; nodes <= maxNodes; nodes++) {
+                regions.add(WorkerSharding.start(cluster.addNode()));
+                run(regions, requests / 10, inFlight); // warm-up and rebalance
+                Thread.sleep(3000);
+                long elapsed = run(regions, requests, inFlight);
+                System.out.printf("nodes=%d requests=%d throughput=%.0f req/s%n",
+                        nodes, requests, requests * 1e9 / elapsed);
+            }
+        }
+    }
+
+    private static long run(List<ActorRef> regions, int requests, int inFlight) throws Exception {
+        Semaphore permits = new Semaphore(inFlight);
+        Duration timeout = Duration.ofSeconds(10);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            permits.acquire();
+            ActorRef region = regions.get(i % regions.size());
+            Patterns.ask(region, new ComputeEnvelope("key-" + (i % 1000), WorkerActor.Compute.of(i & 1023)), timeout)
+                    .whenComplete((r, e) -> permits.release());
+        }
+        permits.acquire(inFlight);
+        long elapsed = System.nanoTime() - start;
+        permits.release(inFlight);
+        return elapsed;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gft.bench;
+
+import akka.Done;
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.OverflowStrategy;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.SpillBuffer;
+import com.typesafe.config.ConfigFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * The spill path of {@link SpillBuffer}: downstream blocks until upstream has pushed every element into the
+ * buffer (spill phase, nearly all of it to disk), then drains it (replay phase). Against an in-memory
+ * {@code buffer(n, backpressure)} of the same elements. Ints spill as 8-byte records, strings as 104-byte ones.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.SpillBufferBenchmark -Dexec.classpathScope=test}
+ * (args: elements, default 2000000).
+ */
+public final class SpillBufferBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        ActorSystem system = ActorSystem.create("spill-buffer-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING\ngft.stream.spill-buffer.max-spill-size = 4 GiB")
+                        .withFallback(ConfigFactory.load()));
+        Path dir = Files.createTempDirectory("spill-buffer-benchmark");
+        String padding = new String(new char[92]).replace('\0', 'x');
+        try {
+            System.out.printf("%d elements; M el/s and MiB/s on disk%n", elements);
+            System.out.printf("%-16s %10s %10s %12s %12s%n", "variant", "spill", "replay", "spill MiB/s", "replay MiB/s");
+            for (int round = 0; round < 2; round++) {
+                // the first round warms up
+                boolean print = round == 1;
+                measure(system, "memory ints", Flow.<Integer>create().buffer(elements, OverflowStrategy.backpressure()),
+                        i -> i, elements, 0, print);
+                measure(system, "spill ints", SpillBuffer.create(SpillBuffer.INTS, 1024, dir),
+                        i -> i, elements, 8, print);
+                measure(system, "memory strings", Flow.<String>create().buffer(elements, OverflowStrategy.backpressure()),
+                        i -> String.format("%08d", i) + padding, elements, 0, print);
+                measure(system, "spill strings", SpillBuffer.create(SpillBuffer.UTF8, 1024, dir),
+                        i -> String.format("%08d", i) + padding, elements, 104, print);
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static <T> void measure(ActorSystem system, String variant, Flow<T, T, ?> buffer, IntFunction<T> element,
+                                    int elements, int recordBytes, boolean print) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Pair<CompletionStage<Done>, CompletionStage<Done>> done = Source.range(1, elements)
+                .map(element::apply)
+                .watchTermination(Keep.right())
+                .via(buffer)
+                .async()
+                .map(e -> {
+                    release.await();
+                    return e;
+                })
+                .toMat(Sink.ignore(), Keep.both())
+                .run(system);
+        done.first().toCompletableFuture().get(600, TimeUnit.SECONDS);
+        long filled = System.nanoTime();
+        release.countDown();
+        done.second().toCompletableFuture().get(600, TimeUnit.SECONDS);
+        long drained = System.nanoTime();
+        if (print) {
+            double spill = (filled - start) / 1e9;
+            double replay = (drained - filled) / 1e9;
+            double mib = (double) elements * recordBytes / (1 << 20);
+            System.out.printf("%-16s %10.2f %10.2f %12s %12s%n", variant, elements / spill / 1e6, elements / replay / 1e6,
+                    recordBytes == 0 ? "-" : String.format("%.0f", mib / spill),
+                    recordBytes == 0 ? "-" : String.format("%.0f", mib / replay));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.gft.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time-to-first-request of {@code com.gft.service.WorkerService} in fresh JVMs: without class data sharing,
+ * with the JDK's default CDS archive, and with the AppCDS archive of the {@code appcds} profile. Measured
+ * from process start until the service prints its first reply; runs of the three modes are interleaved.
+ *
+ * Run {@code mvn -Pappcds package -DskipTests} first, then:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.StartupBenchmark -Dexec.classpathScope=test}
+ * (args: runs per mode, default 5; archive directory, default {@code target/appcds}).
+ */
+public final class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        File dir = new File(args.length > 1 ? args[1] : "target/appcds").getAbsoluteFile();
+        File archive = new File(dir, "worker-service.jsa");
+        if (!archive.isFile()) {
+            throw new IllegalStateException("No archive in " + dir + ", run mvn -Pappcds package first");
+        }
+        String classpath = new String(Files.readAllBytes(Paths.get(dir.getPath(), "classpath.txt")), StandardCharsets.UTF_8)
+                .trim().replace("lib/", dir.getPath() + "/lib/");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        String[][] modes = {
+                {"no CDS", "-Xshare:off"},
+                {"JDK CDS", "-Xshare:auto"},
+                {"AppCDS", "-XX:SharedArchiveFile=" + archive.getPath()}
+        };
+        List<List<Long>> samples = new ArrayList<>();
+        for (String[] mode : modes) {
+            samples.add(new ArrayList<>());
+        }
+        // first round warms the OS file cache and the config cache, not recorded
+        for (int run = -1; run < runs; run++) {
+            for (int m = 0; m < modes.length; m++) {
+                long millis = timeToFirstRequest(java, modes[m][1], classpath);
+                if (run >= 0) {
+                    samples.get(m).add(millis);
+                }
+            }
+        }
+
+        System.out.printf("%-8s %8s %8s %8s   (ms to first request, %d runs)%n", "mode", "min", "median", "max", runs);
+        for (int m = 0; m < modes.length; m++) {
+            List<Long> s = samples.get(m);
+            Collections.sort(s);
+            System.out.printf("%-8s %8d %8d %8d%n", modes[m][0], s.get(0), s.get(s.size() / 2), s.get(s.size() - 1));
+        }
+    }
+
+    private static long timeToFirstRequest(String java, String shareOption, String classpath) throws Exception {
+        List<String> command = new ArrayList<>(Arrays.asList(java, shareOption, "-Xlog:cds=off", "-cp", classpath,
+                "com.gft.service.WorkerService", "--exit-after-first-request"));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long elapsed = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (elapsed < 0 && line.startsWith("FIRST-REQUEST")) {
+                    elapsed = (System.nanoTime() - start) / 1_000_000;
+                }
+            }
+        }
+        if (process.waitFor() != 0 || elapsed < 0) {
+            throw new IllegalStateException("WorkerService failed: " + command);
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,112 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.stream.ActorAttributes;
+import akka.stream.Supervision;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.Either;
+import com.gft.stream.ErrorChannel;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream throughput when a fraction of the elements fails to map: {@code map} with a
+ * {@code Supervision.resume} decider vs {@link ErrorChannel#mapTry} (still throws, no supervision) vs
+ * {@link ErrorChannel#mapEither} (no exception at all), at 0/1/5/10/25% failing elements.
+ *
+ * The mapping is {@code Integer.parseInt}: its {@code NumberFormatException} is created with a full stack
+ * trace on every failure, as application exceptions are. (An implicit {@code ArithmeticException} like
+ * {@code 10 / 0} becomes a preallocated, stackless exception once the JIT compiles the division, which hides
+ * most of the cost.)
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.StreamErrorBenchmark -Dexec.classpathScope=test}
+ * (args: elements per run, default 1000000; measured runs, default 5).
+ */
+public final class StreamErrorBenchmark {
+
+    private static final double[] ERROR_RATES = {0, 0.01, 0.05, 0.10, 0.25};
+    private static final String NOT_A_NUMBER = "not a number";
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ActorSystem system = ActorSystem.create("stream-error-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%-7s %16s %16s %16s   (million elements/s, median of %d)%n",
+                    "errors", "resume decider", "mapTry", "mapEither", runs);
+            for (double rate : ERROR_RATES) {
+                List<String> input = input(elements, rate);
+                double[] result = new double[3];
+                for (int variant = 0; variant < 3; variant++) {
+                    result[variant] = median(system, variant, input, runs);
+                }
+                System.out.printf("%5.0f%%  %16.2f %16.2f %16.2f%n", rate * 100, result[0], result[1], result[2]);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static List<String> input(int elements, double rate) {
+        int failingPerThousand = (int) Math.round(rate * 1000);
+        List<String> input = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            input.add(i % 1000 < failingPerThousand ? "x" + i : Integer.toString(i));
+        }
+        return input;
+    }
+
+    private static double median(ActorSystem system, int variant, List<String> input, int runs) throws Exception {
+        for (int i = 0; i < 2; i++) {
+            run(system, variant, input);
+        }
+        double[] samples = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            run(system, variant, input);
+            samples[i] = input.size() / ((System.nanoTime() - start) / 1e9) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[runs / 2];
+    }
+
+    private static long run(ActorSystem system, int variant, List<String> input) throws Exception {
+        Source<Integer, ?> parsed;
+        switch (variant) {
+            case 0:
+                parsed = Source.from(input)
+                        .map(Integer::parseInt)
+                        .withAttributes(ActorAttributes.withSupervisionStrategy(e ->
+                                e instanceof NumberFormatException ? Supervision.resume() : Supervision.stop()));
+                break;
+            case 1:
+                parsed = Source.from(input)
+                        .via(ErrorChannel.mapTry(Integer::parseInt, NumberFormatException.class, Sink.ignore()));
+                break;
+            default:
+                parsed = Source.from(input)
+                        .via(ErrorChannel.mapEither(StreamErrorBenchmark::parse, Sink.ignore()));
+        }
+        return parsed.runWith(Sink.<Long, Integer>fold(0L, (sum, i) -> sum + i), system).toCompletableFuture().get(60, TimeUnit.SECONDS);
+    }
+
+    /** Non-negative decimal int without throwing; enough for the benchmark input. */
+    private static Either<String, Integer> parse(String s) {
+        int value = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Either.left(NOT_A_NUMBER);
+            }
+            value = value * 10 + digit;
+        }
+        return Either.right(value);
+    }
+}
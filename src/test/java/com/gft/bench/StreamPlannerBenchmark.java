@@ -0,0 +1,93 @@
+package com.gft.bench;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.ParallelPipeline;
+import com.gft.stream.PipelinePlan;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ParallelPipeline} against the same steps fused into one actor:
+ * - light: the {@code map(i * 2).filter(i % 4 == 0)} pipeline of the stream fixtures, which should stay fused
+ * - heavy: the same with a ~3us CPU-bound {@code map} in between, planned with parallelism 1, 2, 4 .. up to
+ *   twice the available processors (at least 4)
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.StreamPlannerBenchmark -Dexec.classpathScope=test}
+ * (args: light elements, default 2000000; heavy elements, default 200000; measured runs, default 3).
+ */
+public final class StreamPlannerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int lightElements = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int heavyElements = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        ActorSystem system = ActorSystem.create("stream-planner-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%d available processors; thousand elements/s, median of %d%n", cores, runs);
+            System.out.printf("%-8s %-14s %10s   %s%n", "pipeline", "variant", "k el/s", "plan");
+
+            ParallelPipeline<Integer, Integer> light = ParallelPipeline.of(Integer.class)
+                    .map("double", i -> i * 2)
+                    .filter("multipleOfFour", i -> i % 4 == 0);
+            measure(system, "light", "fused", light.fused(), lightElements, runs);
+            measure(system, "light", "planned", light.planned(), lightElements, runs);
+
+            ParallelPipeline<Integer, Integer> heavy = ParallelPipeline.of(Integer.class)
+                    .map("double", i -> i * 2)
+                    .map("mix", StreamPlannerBenchmark::mix)
+                    .filter("multipleOfFour", i -> i % 4 == 0);
+            measure(system, "heavy", "fused", heavy.fused(), heavyElements, runs);
+            for (int parallelism = 1; parallelism <= Math.max(4, 2 * cores); parallelism *= 2) {
+                measure(system, "heavy", "planned x" + parallelism, heavy.withParallelism(parallelism).planned(), heavyElements, runs);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void measure(ActorSystem system, String pipeline, String variant, Flow<Integer, Integer, ?> flow,
+                                int elements, int runs) throws Exception {
+        double[] samples = new double[runs];
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            Source.range(1, elements).via(flow).runWith(Sink.ignore(), system).toCompletableFuture().get(120, TimeUnit.SECONDS);
+            if (run >= 0) {
+                samples[run] = elements / ((System.nanoTime() - start) / 1e9) / 1e3;
+            }
+        }
+        Arrays.sort(samples);
+        System.out.printf("%-8s %-14s %10.0f   %s%n", pipeline, variant, samples[runs / 2], describe(system, flow));
+    }
+
+    /** The plan a planned flow picks, from one more short run. */
+    @SuppressWarnings("unchecked")
+    private static String describe(ActorSystem system, Flow<Integer, Integer, ?> flow) throws Exception {
+        Object mat = Source.range(1, 2000).viaMat(flow, Keep.right()).to(Sink.ignore()).run(system);
+        if (mat instanceof CompletionStage) {
+            PipelinePlan plan = ((CompletionStage<PipelinePlan>) mat).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            return plan.isFused() ? "fused (" + plan.reason + ")" : "steps " + plan.firstOffloaded + ".." + plan.lastOffloaded
+                    + ", batch " + plan.batchSize + " x" + plan.parallelism;
+        }
+        return "-";
+    }
+
+    /** About 3us of integer mixing; the result keeps the parity of {@code i}. */
+    private static int mix(int i) {
+        long h = i;
+        for (int k = 0; k < 2000; k++) {
+            h = (h * 6364136223846793005L + 1442695040888963407L) ^ (h >>> 29);
+        }
+        return (int) (h & ~3L) | (i & 3);
+    }
+}
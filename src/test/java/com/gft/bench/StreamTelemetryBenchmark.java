@@ -0,0 +1,78 @@
+package com.gft.bench;
+
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.telemetry.ActorTelemetry;
+import com.gft.telemetry.StreamTelemetry;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link StreamTelemetry}: {@code Source.range(1, n)} through four cheap {@code map} stages into
+ * {@code Sink.ignore()}, each stage plain, instrumented with telemetry on, and instrumented with telemetry off.
+ * The overhead column is per element and per instrumented stage, against plain.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.StreamTelemetryBenchmark -Dexec.classpathScope=test}
+ * (args: elements, default 5000000; measured runs, default 5).
+ */
+public final class StreamTelemetryBenchmark {
+
+    private static final int STAGES = 4;
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ActorSystem system = ActorSystem.create("stream-telemetry-benchmark", ConfigFactory.parseString(
+                "akka.loglevel = WARNING\ngft.telemetry.jmx-enabled = off").withFallback(ConfigFactory.load()));
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        try {
+            System.out.printf("%d elements, %d map stages, median of %d runs%n", elements, STAGES, runs);
+            System.out.printf("%-16s %10s %16s%n", "variant", "M el/s", "ns/el/stage");
+            double plain = measure(system, pipeline(elements, false), elements, runs);
+            System.out.printf("%-16s %10.2f %16s%n", "plain", elements / plain / 1e6, "-");
+            telemetry.setEnabled(true);
+            report("instrumented", measure(system, pipeline(elements, true), elements, runs), plain, elements);
+            telemetry.setEnabled(false);
+            report("instrumented-off", measure(system, pipeline(elements, true), elements, runs), plain, elements);
+            System.out.println(telemetry.getStages());
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static Source<Integer, NotUsed> pipeline(int elements, boolean instrumented) {
+        Source<Integer, NotUsed> source = Source.range(1, elements);
+        for (int stage = 0; stage < STAGES; stage++) {
+            int k = stage + 1;
+            Flow<Integer, Integer, NotUsed> map = Flow.of(Integer.class).map(i -> i + k);
+            source = source.via(instrumented ? StreamTelemetry.instrument("stage-" + stage, map) : map);
+        }
+        return source;
+    }
+
+    private static void report(String variant, double seconds, double plain, int elements) {
+        System.out.printf("%-16s %10.2f %16.1f%n", variant, elements / seconds / 1e6,
+                (seconds - plain) * 1e9 / elements / STAGES);
+    }
+
+    /** Median seconds per run, after one warmup run. */
+    private static double measure(ActorSystem system, Source<Integer, NotUsed> source, int elements, int runs)
+            throws Exception {
+        double[] seconds = new double[runs];
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            source.runWith(Sink.ignore(), system).toCompletableFuture().get(600, TimeUnit.SECONDS);
+            if (run >= 0) {
+                seconds[run] = (System.nanoTime() - start) / 1e9;
+            }
+        }
+        Arrays.sort(seconds);
+        return seconds[runs / 2];
+    }
+}
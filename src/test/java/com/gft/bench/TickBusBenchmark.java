@@ -0,0 +1,112 @@
+package com.gft.bench;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.gft.timer.TickBus;
+import com.typesafe.config.ConfigFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-actor {@code scheduleAtFixedRate} vs the shared {@link TickBus} with 10k/100k/1M subscribed
+ * actors ticking every 200 ms: registration time, heap retained by the timers, delivered ticks/s
+ * (expected: actors * 5) and process CPU per delivered tick. CPU/tick is only comparable while the
+ * machine is not saturated (ticks/s close to expected).
+ *
+ * Usage: {@code TickBusBenchmark [sizes=10000,100000,1000000] [seconds=5]}; 1M actors need about -Xmx3g.
+ */
+public final class TickBusBenchmark {
+
+    private static final Duration INTERVAL = Duration.ofMillis(200);
+    private static final Object TICK = "tick";
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "10000,100000,1000000").split(",");
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        for (String size : sizes) {
+            int actors = Integer.parseInt(size.trim());
+            for (boolean bus : new boolean[] {false, true}) {
+                run(actors, bus, seconds);
+            }
+        }
+    }
+
+    private static void run(int actors, boolean bus, int seconds) throws Exception {
+        ActorSystem system = ActorSystem.create("tick-bus-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            LongAdder ticks = new LongAdder();
+            Cancellable[] timers = bus ? null : new Cancellable[actors];
+            TickBus tickBus = TickBus.get(system);
+            ActorRef[] counters = new ActorRef[actors];
+            for (int i = 0; i < actors; i++) {
+                counters[i] = system.actorOf(Props.create(Counter.class, () -> new Counter(ticks)));
+            }
+            long heapBefore = usedHeapAfterGc();
+            long registerStart = System.nanoTime();
+            for (int i = 0; i < actors; i++) {
+                ActorRef counter = counters[i];
+                if (bus) {
+                    tickBus.subscribe(counter, INTERVAL, TICK);
+                } else {
+                    timers[i] = system.scheduler().scheduleAtFixedRate(
+                            INTERVAL, INTERVAL, counter, TICK, system.dispatcher(), ActorRef.noSender());
+                }
+            }
+            long registerNanos = System.nanoTime() - registerStart;
+            long timerHeap = usedHeapAfterGc() - heapBefore;
+            Thread.sleep(1000); // settle
+            long startTicks = ticks.sum();
+            long startCpu = cpuNanos();
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1000L);
+            long delivered = ticks.sum() - startTicks;
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            long cpu = cpuNanos() - startCpu;
+
+            System.out.printf("actors=%-8d mode=%-9s register=%6.1f ms timer-heap=%6.1f MB ticks/s=%-10.0f expected=%-8d cpu/tick=%.0f ns%n",
+                    actors, bus ? "tick-bus" : "per-actor", registerNanos / 1e6, timerHeap / 1e6, delivered / elapsed,
+                    actors * 1000L / INTERVAL.toMillis(), delivered == 0 ? 0.0 : cpu / (double) delivered);
+            if (timers != null) {
+                for (Cancellable c : timers) {
+                    c.cancel();
+                }
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system, scala.concurrent.duration.Duration.create(60, "s"), false);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long cpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    public static class Counter extends AbstractActor {
+        private final LongAdder ticks;
+
+        public Counter(LongAdder ticks) {
+            this.ticks = ticks;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().matchAny(t -> ticks.increment()).build();
+        }
+    }
+}
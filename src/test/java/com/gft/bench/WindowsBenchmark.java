@@ -0,0 +1,109 @@
+package com.gft.bench;
+
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.IntStats;
+import com.gft.stream.Windows;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-second statistics of a stream of {@code int} results, three ways:
+ * - collect: every element with its arrival time into {@code Sink.seq}, then grouped by second and folded
+ * - tumbling: {@link Windows#tumbling} of 1 s with {@link Windows#stats()}
+ * - sliding: {@link Windows#sliding} of 60 s every 1 s, the per-minute statistics every second
+ *
+ * Reports million elements/s, the windows produced, and the heap held once all elements have passed, in MiB
+ * (after a GC, left out of the time, so a rough figure): the collected elements for collect, the open panes for
+ * the windows.
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.WindowsBenchmark -Dexec.classpathScope=test}
+ * (args: elements per run, default 10000000; measured runs, default 3).
+ */
+public final class WindowsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ActorSystem system = ActorSystem.create("windows-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%d elements, median of %d runs%n", elements, runs);
+            System.out.printf("%-10s %12s %10s %10s%n", "variant", "M el/s", "windows", "heap MiB");
+            measure("collect", elements, runs, system, null);
+            measure("tumbling", elements, runs, system,
+                    Windows.tumbling(Duration.ofSeconds(1), (Integer i) -> i, Windows.stats()));
+            measure("sliding", elements, runs, system,
+                    Windows.sliding(Duration.ofMinutes(1), Duration.ofSeconds(1), (Integer i) -> i, Windows.stats()));
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void measure(String variant, int elements, int runs, ActorSystem system,
+                                Flow<Integer, Windows.Window<IntStats>, NotUsed> windows) throws Exception {
+        double[] throughput = new double[runs];
+        double[] heap = new double[runs];
+        long count = 0;
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            long before = usedHeap();
+            long start = System.nanoTime();
+            long retained;
+            long gc;
+            if (windows == null) {
+                List<Pair<Long, Integer>> all = Source.range(1, elements)
+                        .map(i -> Pair.create(System.currentTimeMillis(), i))
+                        .runWith(Sink.seq(), system)
+                        .toCompletableFuture().get(5, TimeUnit.MINUTES);
+                gc = System.nanoTime();
+                retained = usedHeap();
+                gc = System.nanoTime() - gc;
+                Map<Long, long[]> seconds = new TreeMap<>();
+                for (Pair<Long, Integer> e : all) {
+                    long[] acc = seconds.computeIfAbsent(e.first() / 1000,
+                            s -> new long[] {0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE});
+                    acc[0]++;
+                    acc[1] += e.second();
+                    acc[2] = Math.min(acc[2], e.second());
+                    acc[3] = Math.max(acc[3], e.second());
+                }
+                count = seconds.values().stream()
+                        .map(a -> new IntStats(a[0], a[1], (int) a[2], (int) a[3]))
+                        .count();
+            } else {
+                count = Source.range(1, elements)
+                        .via(windows)
+                        .runWith(Sink.fold(0L, (acc, w) -> acc + 1), system)
+                        .toCompletableFuture().get(5, TimeUnit.MINUTES);
+                gc = System.nanoTime();
+                retained = usedHeap();
+                gc = System.nanoTime() - gc;
+            }
+            if (run >= 0) {
+                throughput[run] = elements / ((System.nanoTime() - start - gc) / 1e9) / 1e6;
+                heap[run] = Math.max(0, retained - before) / (1024.0 * 1024);
+            }
+        }
+        Arrays.sort(throughput);
+        Arrays.sort(heap);
+        System.out.printf("%-10s %12.2f %10d %10.1f%n", variant, throughput[runs / 2], count, heap[runs / 2]);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
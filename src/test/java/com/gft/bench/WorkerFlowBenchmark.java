@@ -0,0 +1,92 @@
+package com.gft.bench;
+
+import akka.NotUsed;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.routing.RoundRobinPool;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.WorkerActor;
+import com.gft.actor.WorkerClient;
+import com.gft.stream.WorkerFlow;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WorkerFlow} against {@code mapAsync} + ask per element, on one {@link WorkerActor} and on a round-robin
+ * pool of four:
+ * - throughput: thousand elements/s over the whole run
+ * - latency: time from the source emitting an element to the sink receiving its result, p50 and p99 in
+ *   microseconds, under the same full load (so it includes queueing in the batches and the mailbox)
+ *
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=com.gft.bench.WorkerFlowBenchmark -Dexec.classpathScope=test}
+ * (args: elements per run, default 500000; measured runs, default 3).
+ */
+public final class WorkerFlowBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ActorSystem system = ActorSystem.create("worker-flow-benchmark",
+                ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%d elements, median of %d runs%n", elements, runs);
+            System.out.printf("%-8s %-22s %10s %10s %10s%n", "target", "variant", "k el/s", "p50 us", "p99 us");
+            ActorRef worker = system.actorOf(WorkerActor.props(), "worker");
+            ActorRef pool = system.actorOf(new RoundRobinPool(4).props(WorkerActor.props()), "pool");
+            for (ActorRef target : new ActorRef[] {worker, pool}) {
+                String name = target.path().name();
+                for (int parallelism : new int[] {1, 8, 32}) {
+                    measure(system, name, "ask mapAsync(" + parallelism + ")", Flow.of(Integer.class)
+                            .mapAsync(parallelism, x -> WorkerClient.computeInt(target, x, TIMEOUT))
+                            .map(r -> r.value), elements, runs);
+                }
+                measure(system, name, "WorkerFlow 64x4", WorkerFlow.compute(target), elements, runs);
+                measure(system, name, "WorkerFlow 16x2", WorkerFlow.compute(target, 16, 2), elements, runs);
+                measure(system, name, "WorkerFlow 256x8", WorkerFlow.compute(target, 256, 8), elements, runs);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static void measure(ActorSystem system, String target, String variant, Flow<Integer, Integer, NotUsed> flow,
+                                int elements, int runs) throws Exception {
+        double[] throughput = new double[runs];
+        double[] p50 = new double[runs];
+        double[] p99 = new double[runs];
+        long[] emittedAt = new long[elements];
+        long[] latency = new long[elements];
+        // first run warms up, not recorded
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            // results are x * 2 and arrive in order for both variants, so result / 2 - 1 is the element's index
+            Source.range(1, elements)
+                    .map(x -> {
+                        emittedAt[x - 1] = System.nanoTime();
+                        return x;
+                    })
+                    .via(flow)
+                    .runWith(Sink.foreach(r -> latency[r / 2 - 1] = System.nanoTime() - emittedAt[r / 2 - 1]), system)
+                    .toCompletableFuture().get(120, TimeUnit.SECONDS);
+            if (run >= 0) {
+                throughput[run] = elements / ((System.nanoTime() - start) / 1e9) / 1e3;
+                Arrays.sort(latency);
+                p50[run] = latency[elements / 2] / 1e3;
+                p99[run] = latency[(int) (elements * 0.99)] / 1e3;
+            }
+        }
+        Arrays.sort(throughput);
+        Arrays.sort(p50);
+        Arrays.sort(p99);
+        System.out.printf("%-8s %-22s %10.0f %10.1f %10.1f%n", target, variant,
+                throughput[runs / 2], p50[runs / 2], p99[runs / 2]);
+    }
+}
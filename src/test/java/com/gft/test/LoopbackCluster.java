@@ -0,0 +1,81 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.cluster.Cluster;
+import akka.cluster.Member;
+import akka.cluster.MemberStatus;
+import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Several cluster nodes (ActorSystems) in one JVM on 127.0.0.1, random ports. Shared by the
+ * sharding test and benchmark.
+ */
+public final class LoopbackCluster implements AutoCloseable {
+
+    private static final Config NODE_CONFIG = ConfigFactory.parseString(
+            "akka.actor.provider = cluster\n"
+                    + "akka.remote.artery.canonical.hostname = 127.0.0.1\n"
+                    + "akka.remote.artery.canonical.port = 0\n"
+                    + "akka.cluster.jmx.multi-mbeans-in-same-jvm = on\n"
+                    + "akka.cluster.sharding.rebalance-interval = 1s\n"
+                    + "akka.loglevel = WARNING\n"
+                    + "gft.telemetry.jmx-enabled = off\n");
+
+    private final String name;
+    private final Config config;
+    private final List<ActorSystem> nodes = new ArrayList<>();
+
+    public LoopbackCluster(String name) {
+        this(name, ConfigFactory.empty());
+    }
+
+    public LoopbackCluster(String name, Config overrides) {
+        this.name = name;
+        this.config = overrides.withFallback(NODE_CONFIG).withFallback(ConfigFactory.load());
+    }
+
+    /** Starts a node, joins it to the first node and waits until every node sees all members Up. */
+    public ActorSystem addNode() throws InterruptedException {
+        ActorSystem node = ActorSystem.create(name, config);
+        ActorSystem seed = nodes.isEmpty() ? node : nodes.get(0);
+        Cluster.get(node).join(Cluster.get(seed).selfAddress());
+        nodes.add(node);
+        awaitAllUp(TimeUnit.SECONDS.toMillis(20));
+        return node;
+    }
+
+    public List<ActorSystem> nodes() {
+        return nodes;
+    }
+
+    private void awaitAllUp(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            boolean allUp = nodes.stream().allMatch(n -> {
+                Iterable<Member> members = Cluster.get(n).state().getMembers();
+                return StreamSupport.stream(members.spliterator(), false)
+                        .filter(m -> m.status() == MemberStatus.up()).count() == nodes.size();
+            });
+            if (allUp) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Cluster " + name + " did not converge with " + nodes.size() + " nodes");
+    }
+
+    @Override
+    public void close() {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            TestKit.shutdownActorSystem(nodes.get(i));
+        }
+        nodes.clear();
+    }
+}
@@ -0,0 +1,241 @@
+package com.gft.test;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.gft.telemetry.ActorStatsSnapshot;
+import com.gft.telemetry.ActorTelemetry;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING) // test02 saturates the tracked-actors limit
+public class TestActorTelemetry {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("telemetry-test", ConfigFactory.parseString(
+                "gft.telemetry.enabled = on\n"
+                        + "gft.telemetry.max-tracked-actors = 2\n"
+                        + "gft.telemetry.jmx-enabled = off")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void test01_shouldRecordHandlerAndMailboxStats_andStopWhenDisabled() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        new TestKit(system) {{
+            ActorRef echo = system.actorOf(Props.create(InstrumentedEcho.class)
+                    .withMailbox("gft.telemetry-mailbox"), "echo");
+
+            for (int i = 0; i < 10; i++) {
+                echo.tell(i, getRef());
+            }
+            receiveN(10);
+
+            ActorStatsSnapshot stats = find(telemetry.getActors(), "/user/echo");
+            assertEquals(10, stats.getMessages());
+            assertEquals(InstrumentedEcho.class.getName(), stats.getActorClass());
+            assertTrue(stats.getMaxMailboxDepth() >= 1);
+
+            telemetry.setEnabled(false);
+            echo.tell("off", getRef());
+            expectMsg("off");
+            assertEquals(10, find(telemetry.getActors(), "/user/echo").getMessages());
+            telemetry.setEnabled(true);
+
+            watch(echo);
+            system.stop(echo);
+            expectTerminated(echo);
+            awaitAssert(() -> {
+                assertEquals(10, find(telemetry.getActorClasses(), InstrumentedEcho.class.getName()).getMessages());
+                return null;
+            });
+        }};
+    }
+
+    @Test
+    public void test01b_shouldResetLiveActorsInPlace() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        new TestKit(system) {{
+            ActorRef echo = system.actorOf(Props.create(InstrumentedEcho.class)
+                    .withMailbox("gft.telemetry-mailbox"), "reset-echo");
+            for (int i = 0; i < 5; i++) {
+                echo.tell(i, getRef());
+            }
+            receiveN(5);
+            // the handler time is recorded right after the reply
+            awaitAssert(() -> {
+                assertEquals(5, find(telemetry.getActors(), "/user/reset-echo").getMessages());
+                return null;
+            });
+
+            telemetry.reset();
+            assertEquals(0, find(telemetry.getActors(), "/user/reset-echo").getMessages());
+            for (int i = 0; i < 3; i++) {
+                echo.tell(i, getRef());
+            }
+            receiveN(3);
+            awaitAssert(() -> {
+                assertEquals(3, find(telemetry.getActors(), "/user/reset-echo").getMessages());
+                return null;
+            });
+
+            watch(echo);
+            system.stop(echo);
+            expectTerminated(echo);
+            awaitAssert(() -> {
+                assertEquals(3, find(telemetry.getActorClasses(), InstrumentedEcho.class.getName()).getMessages());
+                return null;
+            });
+        }};
+    }
+
+    @Test
+    public void test01c_shouldRetireActorsInstrumentedWithoutTheTelemetryMailbox() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        telemetry.reset();
+        new TestKit(system) {{
+            ActorRef echo = system.actorOf(Props.create(InstrumentedEcho.class), "plain-echo");
+            echo.tell("hello", getRef());
+            expectMsg("hello");
+            assertEquals(1, telemetry.getTrackedActors());
+
+            watch(echo);
+            system.stop(echo);
+            expectTerminated(echo);
+            awaitAssert(() -> {
+                assertEquals(0, telemetry.getTrackedActors());
+                assertEquals(1, find(telemetry.getActorClasses(), InstrumentedEcho.class.getName()).getMessages());
+                return null;
+            });
+        }};
+    }
+
+    @Test
+    public void test01c2_shouldNotCountUnhandledMessages() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        new TestKit(system) {{
+            ActorRef picky = system.actorOf(Props.create(InstrumentedIntegerEcho.class), "picky-echo");
+            picky.tell("unhandled", getRef());
+            picky.tell(1, getRef());
+            expectMsg(1);
+            picky.tell("unhandled", getRef());
+            picky.tell(2, getRef());
+            expectMsg(2);
+            awaitAssert(() -> {
+                assertEquals(2, find(telemetry.getActors(), "/user/picky-echo").getMessages());
+                return null;
+            });
+
+            watch(picky);
+            system.stop(picky);
+            expectTerminated(picky);
+            awaitAssert(() -> {
+                assertEquals(0, telemetry.getTrackedActors());
+                return null;
+            });
+        }};
+    }
+
+    @Test
+    public void test01d_shouldRetireActorsWithoutTheTelemetryMailbox_whenMessagesAreSerialized() {
+        ActorSystem serializing = ActorSystem.create("telemetry-serialize-test", ConfigFactory.parseString(
+                "gft.telemetry.enabled = on\n"
+                        + "gft.telemetry.jmx-enabled = off\n"
+                        + "akka.actor.serialize-messages = on")
+                .withFallback(ConfigFactory.load()));
+        try {
+            ActorTelemetry telemetry = ActorTelemetry.get(serializing);
+            new TestKit(serializing) {{
+                for (int i = 0; i < 3; i++) {
+                    ActorRef echo = serializing.actorOf(Props.create(InstrumentedEcho.class), "plain-echo-" + i);
+                    echo.tell(i, getRef());
+                    expectMsg(i);
+                    watch(echo);
+                    serializing.stop(echo);
+                    expectTerminated(echo);
+                }
+                awaitAssert(() -> {
+                    assertEquals(0, telemetry.getTrackedActors());
+                    assertEquals(3, find(telemetry.getActorClasses(), InstrumentedEcho.class.getName()).getMessages());
+                    return null;
+                });
+
+                // not tracked before its first message with telemetry on
+                telemetry.setEnabled(false);
+                ActorRef idle = serializing.actorOf(Props.create(InstrumentedEcho.class), "idle-echo");
+                idle.tell("off", getRef());
+                expectMsg("off");
+                assertEquals(0, telemetry.getTrackedActors());
+                telemetry.setEnabled(true);
+                idle.tell("on", getRef());
+                expectMsg("on");
+                awaitAssert(() -> {
+                    assertEquals(1, find(telemetry.getActors(), "/user/idle-echo").getMessages());
+                    return null;
+                });
+            }};
+        } finally {
+            TestKit.shutdownActorSystem(serializing);
+        }
+    }
+
+    @Test
+    public void test02_shouldFoldActorsBeyondCardinalityLimitIntoOverflow() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        new TestKit(system) {{
+            for (int i = 0; i < 4; i++) {
+                ActorRef echo = system.actorOf(Props.create(InstrumentedEcho.class), "many-" + i);
+                echo.tell(i, getRef());
+                expectMsg(i);
+            }
+            assertTrue(telemetry.getTrackedActors() <= 2);
+            assertTrue(find(telemetry.getActors(), ActorTelemetry.OVERFLOW_PATH).getMessages() >= 2);
+        }};
+    }
+
+    private static ActorStatsSnapshot find(List<ActorStatsSnapshot> snapshots, String path) {
+        for (ActorStatsSnapshot s : snapshots) {
+            if (s.getPath().equals(path)) {
+                return s;
+            }
+        }
+        throw new AssertionError("No telemetry for " + path + " in " + snapshots);
+    }
+
+    public static class InstrumentedIntegerEcho extends AbstractActor {
+        @Override
+        public Receive createReceive() {
+            return ActorTelemetry.get(getContext().getSystem()).instrument(getContext(), receiveBuilder()
+                    .match(Integer.class, i -> getSender().tell(i, getSelf()))
+                    .build());
+        }
+    }
+
+    public static class InstrumentedEcho extends AbstractActor {
+        @Override
+        public Receive createReceive() {
+            return ActorTelemetry.get(getContext().getSystem()).instrument(getContext(), receiveBuilder()
+                    .matchAny(o -> getSender().tell(o, getSelf()))
+                    .build());
+        }
+    }
+}
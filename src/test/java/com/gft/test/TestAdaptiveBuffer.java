@@ -0,0 +1,95 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.Attributes;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.AdaptiveBuffer;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestAdaptiveBuffer {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("adaptive-buffer-test",
+                ConfigFactory.parseString("gft.stream.adaptive-buffer.adjust-interval = 20ms").withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void passesEveryElementInOrder_withBoundsFromTheEnclosingGraph() throws Exception {
+        Pair<AdaptiveBuffer.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 10_000)
+                .viaMat(AdaptiveBuffer.create(), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .withAttributes(AdaptiveBuffer.bounds(8, 2, 32))
+                .run(system);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, result.second().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertTrue(result.first().toString(), result.first().getCapacity() >= 2 && result.first().getCapacity() <= 32);
+    }
+
+    @Test
+    public void burstsOnBothSides_growTheBuffer() throws Exception {
+        // upstream delivers 50 elements every 10ms; downstream, behind an async boundary, stalls 10ms every 100 (faster on average)
+        Pair<AdaptiveBuffer.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 6000)
+                .grouped(50).throttle(1, Duration.ofMillis(10)).mapConcat(l -> l)
+                .viaMat(AdaptiveBuffer.<Integer>create().withAttributes(AdaptiveBuffer.bounds(1, 256)), Keep.right())
+                .async()
+                .map(i -> {
+                    if (i % 100 == 0) {
+                        Thread.sleep(10);
+                    }
+                    return i;
+                })
+                .toMat(Sink.seq(), Keep.both())
+                .withAttributes(Attributes.inputBuffer(1, 1))
+                .run(system);
+
+        assertEquals(6000, result.second().toCompletableFuture().get(10, TimeUnit.SECONDS).size());
+        assertTrue(result.first().toString(), result.first().getGrowths() > 0);
+        assertTrue(result.first().toString(), result.first().getCapacity() > 1);
+    }
+
+    @Test
+    public void steadyFastDownstream_shrinksTheBuffer() throws Exception {
+        Pair<AdaptiveBuffer.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 300)
+                .throttle(1, Duration.ofMillis(1))
+                .viaMat(AdaptiveBuffer.<Integer>create().withAttributes(AdaptiveBuffer.bounds(64, 1, 256)), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        assertEquals(300, result.second().toCompletableFuture().get(10, TimeUnit.SECONDS).size());
+        assertEquals(result.first().toString(), 1, result.first().getCapacity());
+        assertEquals(0, result.first().getGrowths());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBounds_areRejected() {
+        AdaptiveBuffer.bounds(8, 4);
+    }
+}
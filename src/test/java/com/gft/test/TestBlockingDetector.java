@@ -0,0 +1,167 @@
+package com.gft.test;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.gft.telemetry.BlockingDetector;
+import com.gft.telemetry.BlockingSiteSnapshot;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.Promise$;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class TestBlockingDetector {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    /** Blocks its dispatcher thread for about 300ms in the way named by the message. */
+    static final class Blocker extends AbstractActor {
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchEquals("sleep", m -> {
+                        Thread.sleep(300);
+                        getSender().tell("done", getSelf());
+                    })
+                    .matchEquals("future-get", m -> {
+                        try {
+                            new CompletableFuture<String>().get(300, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException expected) {
+                            getSender().tell("done", getSelf());
+                        }
+                    })
+                    .matchEquals("io", m -> {
+                        try (ServerSocket socket = new ServerSocket(0)) {
+                            socket.setSoTimeout(300);
+                            socket.accept();
+                        } catch (java.net.SocketTimeoutException expected) {
+                            getSender().tell("done", getSelf());
+                        }
+                    })
+                    .matchEquals("await", m -> {
+                        try {
+                            Await.result(Promise$.MODULE$.apply().future(),
+                                    scala.concurrent.duration.Duration.create(300, TimeUnit.MILLISECONDS));
+                        } catch (TimeoutException expected) {
+                            getSender().tell("done", getSelf());
+                        }
+                    })
+                    .build();
+        }
+    }
+
+    private static ActorSystem system(String name, String config) {
+        return ActorSystem.create(name, ConfigFactory.parseString(config).withFallback(ConfigFactory.load()));
+    }
+
+    private static BlockingSiteSnapshot awaitSite(TestKit probe, BlockingDetector detector, String kind) {
+        BlockingSiteSnapshot[] found = new BlockingSiteSnapshot[1];
+        probe.awaitCond(TIMEOUT, Duration.ofMillis(20), "no " + kind + " site", () -> {
+            for (BlockingSiteSnapshot site : detector.getSites()) {
+                if (site.getKind().equals(kind)) {
+                    found[0] = site;
+                    return true;
+                }
+            }
+            return false;
+        });
+        return found[0];
+    }
+
+    @Test
+    public void sampling_reportsSleepFutureGetAndIo_withCallSite() {
+        ActorSystem system = system("blocking-sampling",
+                "gft.blocking-detector { mode = sampling, sample-interval = 5ms, log-new-sites = off }");
+        try {
+            TestKit probe = new TestKit(system);
+            BlockingDetector detector = BlockingDetector.get(system);
+            assertEquals("sampling", detector.getMode());
+            ActorRef blocker = system.actorOf(Props.create(Blocker.class, Blocker::new));
+
+            for (String kind : new String[] {BlockingDetector.KIND_SLEEP, BlockingDetector.KIND_FUTURE_GET, BlockingDetector.KIND_IO}) {
+                blocker.tell(kind, probe.getRef());
+                probe.expectMsgEquals(TIMEOUT, "done");
+                BlockingSiteSnapshot site = awaitSite(probe, detector, kind);
+                assertTrue(site.toString(), site.getCallSite().startsWith(Blocker.class.getName()));
+                assertEquals("akka.actor.default-dispatcher", site.getDispatcher());
+                assertEquals(site.toString(), 1, site.getCount());
+                assertTrue(site.toString(), site.getTotalBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+                assertFalse(site.isMeasured());
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void instrumented_timesAwaitExactly() {
+        ActorSystem system = system("blocking-instrumented",
+                "gft.blocking-detector { mode = instrumented, log-new-sites = off }\n"
+                        + "akka.actor.default-dispatcher.executor = \"com.gft.telemetry.BlockingDetectorExecutorConfigurator\"");
+        try {
+            TestKit probe = new TestKit(system);
+            BlockingDetector detector = BlockingDetector.get(system);
+            ActorRef blocker = system.actorOf(Props.create(Blocker.class, Blocker::new));
+
+            blocker.tell(BlockingDetector.KIND_AWAIT, probe.getRef());
+            probe.expectMsgEquals(TIMEOUT, "done");
+            BlockingSiteSnapshot site = awaitSite(probe, detector, BlockingDetector.KIND_AWAIT);
+            assertTrue(site.toString(), site.isMeasured());
+            assertTrue(site.toString(), site.getCallSite().startsWith(Blocker.class.getName()));
+            assertEquals(1, site.getCount());
+            assertTrue(site.toString(), site.getTotalBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertEquals(1, detector.getSites().stream().filter(s -> s.getKind().equals(BlockingDetector.KIND_AWAIT)).count());
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void instrumented_keepsSystemsWithTheSameNameApart() {
+        String config = "gft.blocking-detector { mode = instrumented, log-new-sites = off, jmx-enabled = off }\n"
+                + "akka.actor.default-dispatcher.executor = \"com.gft.telemetry.BlockingDetectorExecutorConfigurator\"";
+        ActorSystem first = system("blocking-twins", config);
+        ActorSystem second = system("blocking-twins", config);
+        try {
+            BlockingDetector firstDetector = BlockingDetector.get(first);
+            BlockingDetector secondDetector = BlockingDetector.get(second);
+            TestKit probe = new TestKit(first);
+            ActorRef blocker = first.actorOf(Props.create(Blocker.class, Blocker::new));
+
+            blocker.tell(BlockingDetector.KIND_AWAIT, probe.getRef());
+            probe.expectMsgEquals(TIMEOUT, "done");
+            assertTrue(awaitSite(probe, firstDetector, BlockingDetector.KIND_AWAIT).isMeasured());
+            assertTrue(secondDetector.getSites().stream().noneMatch(s -> s.getKind().equals(BlockingDetector.KIND_AWAIT)));
+        } finally {
+            TestKit.shutdownActorSystem(second);
+            TestKit.shutdownActorSystem(first);
+        }
+    }
+
+    @Test
+    public void off_recordsNothing() {
+        ActorSystem system = system("blocking-off", "");
+        try {
+            // not loaded with the system while off
+            assertFalse(system.hasExtension(BlockingDetector.ID));
+            TestKit probe = new TestKit(system);
+            ActorRef blocker = system.actorOf(Props.create(Blocker.class, Blocker::new));
+            blocker.tell(BlockingDetector.KIND_SLEEP, probe.getRef());
+            probe.expectMsgEquals(TIMEOUT, "done");
+            assertEquals("off", BlockingDetector.get(system).getMode());
+            assertTrue(BlockingDetector.get(system).getSites().isEmpty());
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.actor.Status;
+import akka.testkit.javadsl.TestKit;
+import com.gft.interop.BridgeExecutorSnapshot;
+import com.gft.interop.BridgeExecutors;
+import com.gft.interop.PipeTo;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestBridgeExecutors {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("bridge-test", ConfigFactory.parseString(
+                "gft.bridge.executors.tiny { threads = 1, queue-size = 2 }")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void supplyAsync_runsOnNamedThread_andPipesResultOrCause() {
+        TestKit probe = new TestKit(system);
+        BridgeExecutors bridge = BridgeExecutors.get(system);
+        PipeTo toProbe = PipeTo.to(probe.getRef());
+
+        bridge.supplyAsync("blocking-io", () -> Thread.currentThread().getName()).whenComplete(toProbe);
+        String thread = probe.expectMsgClass(String.class);
+        assertTrue(thread, thread.startsWith("bridge-test-bridge-blocking-io-"));
+
+        IllegalStateException boom = new IllegalStateException("boom");
+        bridge.supplyAsync("blocking-io", () -> { throw boom; }).whenComplete(toProbe);
+        assertSame(boom, probe.expectMsgClass(Status.Failure.class).cause());
+    }
+
+    @Test
+    public void fullQueue_rejects_andIsVisibleInSnapshot() throws Exception {
+        BridgeExecutors bridge = BridgeExecutors.get(system);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        bridge.runAsync("tiny", () -> {
+            running.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued1 = bridge.runAsync("tiny", () -> { });
+        CompletableFuture<Void> queued2 = bridge.runAsync("tiny", () -> { });
+
+        BridgeExecutorSnapshot snapshot = bridge.snapshot("tiny");
+        assertEquals(2, snapshot.getQueueDepth());
+        assertEquals(2, snapshot.getQueueCapacity());
+        assertEquals(1, snapshot.getActiveThreads());
+
+        CompletableFuture<Void> rejected = bridge.runAsync("tiny", () -> { });
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail("expected rejection");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+            assertEquals(1, bridge.snapshot("tiny").getRejectedTasks());
+        }
+
+        release.countDown();
+        CompletableFuture.allOf(queued1, queued2).get(5, TimeUnit.SECONDS);
+        assertTrue(bridge.getExecutors().stream().anyMatch(s -> s.getName().equals("tiny")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownExecutor_isRejected() {
+        BridgeExecutors.get(system).executor("no-such-executor");
+    }
+
+    @Test
+    public void pipe_unwrapsCompletionException() {
+        TestKit probe = new TestKit(system);
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        BridgeExecutors.pipe(stage.thenApply(s -> s), probe.getRef(), probe.getRef());
+        RuntimeException cause = new RuntimeException("upstream");
+        stage.completeExceptionally(new CompletionException(cause));
+        assertSame(cause, probe.expectMsgClass(Status.Failure.class).cause());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
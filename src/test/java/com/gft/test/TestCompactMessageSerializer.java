@@ -0,0 +1,109 @@
+package com.gft.test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.IntResult;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.LegacyTimerActor;
+import com.gft.actor.LongResult;
+import com.gft.actor.WorkerActor;
+import com.gft.actor.WorkerClient;
+import com.gft.serialization.CompactMessageSerializer;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestCompactMessageSerializer {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        // every message sent locally goes through serialization and back
+        system = ActorSystem.create("compact-serializer-test", ConfigFactory.parseString(
+                "akka.actor.serialize-messages = on")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void roundTrip_preservesValues_andPools() throws Exception {
+        Serialization serialization = SerializationExtension.get(system);
+
+        for (int x : new int[] {0, 1, -1, 63, 64, 1023, 1024, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            WorkerActor.Compute c = (WorkerActor.Compute) roundTrip(serialization, WorkerActor.Compute.typed(x));
+            assertEquals(x, c.x);
+            assertTrue(c.typedReply);
+            assertEquals(x, ((IntResult) roundTrip(serialization, IntResult.of(x))).value);
+        }
+        assertSame(WorkerActor.Compute.of(21), roundTrip(serialization, WorkerActor.Compute.of(21)));
+        assertEquals(Long.MIN_VALUE, ((LongResult) roundTrip(serialization, LongResult.of(Long.MIN_VALUE))).value);
+        assertEquals(-5L, ((WorkerActor.ComputeLong) roundTrip(serialization, new WorkerActor.ComputeLong(-5))).x);
+        assertSame(LegacySchedulerActor.Tick.INSTANCE, roundTrip(serialization, LegacySchedulerActor.Tick.INSTANCE));
+        assertSame(LegacyTimerActor.TimerTick.INSTANCE, roundTrip(serialization, LegacyTimerActor.TimerTick.INSTANCE));
+
+        int[] xs = {0, -1, 64, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        WorkerActor.ComputeBatch batch = (WorkerActor.ComputeBatch) roundTrip(serialization, new WorkerActor.ComputeBatch(1L << 40, xs));
+        assertEquals(1L << 40, batch.id);
+        assertArrayEquals(xs, batch.xs);
+        WorkerActor.BatchResult result = (WorkerActor.BatchResult) roundTrip(serialization, new WorkerActor.BatchResult(3, new int[0]));
+        assertEquals(3, result.id);
+        assertEquals(0, result.values.length);
+    }
+
+    @Test
+    public void encoding_isCompact() {
+        Serialization serialization = SerializationExtension.get(system);
+        Serializer serializer = serialization.findSerializerFor(WorkerActor.Compute.of(21));
+
+        assertEquals(CompactMessageSerializer.IDENTIFIER, serializer.identifier());
+        assertEquals(1, serializer.toBinary(WorkerActor.Compute.of(21)).length);
+        assertEquals(0, serializer.toBinary(LegacySchedulerActor.Tick.INSTANCE).length);
+        assertEquals(0, serializer.toBinary(LegacyTimerActor.TimerTick.INSTANCE).length);
+    }
+
+    @Test
+    public void actors_workWithSerializeMessagesOn() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+
+        assertEquals(42, Patterns.ask(worker, WorkerActor.Compute.of(21), Duration.ofSeconds(3))
+                .toCompletableFuture().get(3, TimeUnit.SECONDS));
+        assertEquals(42, WorkerClient.computeInt(worker, 21, Duration.ofSeconds(3))
+                .toCompletableFuture().get(3, TimeUnit.SECONDS).value);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        worker.tell(new WorkerActor.Ping(latch), ActorRef.noSender());
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+
+        new TestKit(system) {{
+            ActorRef ticking = system.actorOf(LegacyTimerActor.props(getRef()));
+            expectMsgEquals(Duration.ofSeconds(2), LegacyTimerActor.TimerTick.INSTANCE);
+            system.stop(ticking);
+        }};
+    }
+
+    private static Object roundTrip(Serialization serialization, Object message) throws Exception {
+        Serializer serializer = serialization.findSerializerFor(message);
+        String manifest = Serializers.manifestFor(serializer, message);
+        byte[] bytes = serialization.serialize(message).get();
+        return serialization.deserialize(bytes, serializer.identifier(), manifest).get();
+    }
+}
@@ -0,0 +1,138 @@
+package com.gft.test;
+
+import akka.Done;
+import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
+import akka.japi.Pair;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.Either;
+import com.gft.stream.ErrorChannel;
+import com.gft.stream.Failed;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestErrorChannel {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("error-channel-test", ConfigFactory.parseString("akka.log-dead-letters = off")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void mapTry_divertsTheDeclaredError_andKeepsTheRest() throws Exception {
+        Pair<CompletionStage<List<Failed<Integer, ArithmeticException>>>, CompletionStage<List<Integer>>> result =
+                Source.range(1, 6)
+                        .viaMat(ErrorChannel.mapTry(i -> 10 / (i - 3), ArithmeticException.class, Sink.seq()), Keep.right())
+                        .toMat(Sink.seq(), Keep.both())
+                        .run(system);
+
+        assertEquals(Arrays.asList(-5, -10, 10, 5, 3), result.second().toCompletableFuture().get(3, TimeUnit.SECONDS));
+        List<Failed<Integer, ArithmeticException>> failures = result.first().toCompletableFuture().get(3, TimeUnit.SECONDS);
+        assertEquals(1, failures.size());
+        assertEquals(Integer.valueOf(3), failures.get(0).element);
+        assertNotNull(failures.get(0).error);
+    }
+
+    @Test
+    public void mapTry_otherErrorsFailTheStream() throws Exception {
+        CompletionStage<List<Integer>> result = Source.range(1, 3)
+                .via(ErrorChannel.<Integer, Integer, ArithmeticException, CompletionStage<Done>>mapTry(i -> {
+                    if (i == 2) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return i;
+                }, ArithmeticException.class, Sink.ignore()))
+                .runWith(Sink.seq(), system);
+        try {
+            result.toCompletableFuture().get(3, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void mapTry_divertsErrorsThatAreNotExceptions() throws Exception {
+        Pair<CompletionStage<List<Failed<Integer, AssertionError>>>, CompletionStage<List<Integer>>> result =
+                Source.range(1, 3)
+                        .viaMat(ErrorChannel.mapTry(i -> {
+                            if (i == 2) {
+                                throw new AssertionError("two");
+                            }
+                            return i;
+                        }, AssertionError.class, Sink.seq()), Keep.right())
+                        .toMat(Sink.seq(), Keep.both())
+                        .run(system);
+
+        assertEquals(Arrays.asList(1, 3), result.second().toCompletableFuture().get(3, TimeUnit.SECONDS));
+        assertEquals(1, result.first().toCompletableFuture().get(3, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void mapTry_keepsTheMainFlow_whenTheFailureSinkCancels() throws Exception {
+        Pair<CompletionStage<Failed<Integer, ArithmeticException>>, CompletionStage<List<Integer>>> result =
+                Source.range(1, 20)
+                        .viaMat(ErrorChannel.mapTry(i -> i % 5 == 0 ? 1 / 0 : i, ArithmeticException.class,
+                                Sink.<Failed<Integer, ArithmeticException>>head()), Keep.right())
+                        .toMat(Sink.seq(), Keep.both())
+                        .run(system);
+
+        List<Integer> out = result.second().toCompletableFuture().get(3, TimeUnit.SECONDS);
+        assertEquals(16, out.size());
+        assertEquals(Integer.valueOf(19), out.get(15));
+        assertEquals(Integer.valueOf(5), result.first().toCompletableFuture().get(3, TimeUnit.SECONDS).element);
+    }
+
+    @Test
+    public void mapEither_routesLeftsToTheSideChannel_withoutLosingElements() throws Exception {
+        int n = 10_000;
+        Pair<CompletionStage<List<Failed<Integer, String>>>, CompletionStage<Integer>> result = Source.range(1, n)
+                .viaMat(ErrorChannel.<Integer, Integer, String, CompletionStage<List<Failed<Integer, String>>>>mapEither(
+                        i -> i % 10 == 0 ? Either.left("multiple of ten") : Either.right(i), Sink.seq()), Keep.right())
+                .toMat(Sink.fold(0, (count, i) -> count + 1), Keep.both())
+                .run(system);
+
+        assertEquals(Integer.valueOf(n - n / 10), result.second().toCompletableFuture().get(3, TimeUnit.SECONDS));
+        List<Failed<Integer, String>> failures = result.first().toCompletableFuture().get(3, TimeUnit.SECONDS);
+        assertEquals(n / 10, failures.size());
+        assertEquals(new Failed<>(10, "multiple of ten"), failures.get(0));
+    }
+
+    @Test
+    public void deadLetters_publishesFailedElements() throws Exception {
+        TestKit probe = new TestKit(system);
+        system.getEventStream().subscribe(probe.getRef(), DeadLetter.class);
+
+        CompletionStage<Done> done = Source.from(Arrays.asList(1, 3, 5))
+                .via(ErrorChannel.mapTry(i -> 10 / (i - 3), ArithmeticException.class, ErrorChannel.deadLetters(system)))
+                .runWith(Sink.ignore(), system);
+        done.toCompletableFuture().get(3, TimeUnit.SECONDS);
+
+        DeadLetter letter = probe.expectMsgClass(DeadLetter.class);
+        assertTrue(letter.message() instanceof Failed);
+        assertEquals(3, ((Failed<?, ?>) letter.message()).element);
+        system.getEventStream().unsubscribe(probe.getRef());
+    }
+}
@@ -0,0 +1,122 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.HubPipeline;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class TestHubPipeline {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("hub-pipeline-test",
+                ConfigFactory.parseString("gft.stream.hub-pipeline.request-timeout = 300ms").withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static Throwable failureOf(CompletionStage<?> stage) throws Exception {
+        try {
+            stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("expected a failure");
+    }
+
+    @Test
+    public void concurrentSubmits_getTheirOwnResponses() throws Exception {
+        HubPipeline<Integer, Integer> pipeline = HubPipeline.start(system, "doubling",
+                HubPipeline.<Integer>flow().mapAsync(4, i -> CompletableFuture.supplyAsync(() -> i * 2)));
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int offset = p * 1000;
+                done.add(producers.submit(() -> {
+                    for (int i = offset; i < offset + 1000; i++) {
+                        assertEquals(Integer.valueOf(i * 2), pipeline.submit(i).toCompletableFuture().get(5, TimeUnit.SECONDS));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get(20, TimeUnit.SECONDS);
+            }
+            assertEquals(0, pipeline.pendingCount());
+        } finally {
+            producers.shutdown();
+            pipeline.shutdown().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void ingressProducers_areVisibleOnResults() throws Exception {
+        HubPipeline<Integer, String> pipeline = HubPipeline.start(system, "formatting",
+                HubPipeline.<Integer>flow().map(i -> "#" + i));
+        CompletionStage<List<Pair<Integer, String>>> results = pipeline.results().take(3).runWith(Sink.seq(), system);
+        Thread.sleep(200); // the BroadcastHub consumer attaches asynchronously
+
+        Source.range(1, 3).runWith(pipeline.ingress(), system);
+
+        List<Pair<Integer, String>> seen = results.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(Pair.create(1, "#1"), seen.get(0));
+        assertEquals(Pair.create(3, "#3"), seen.get(2));
+        pipeline.shutdown().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void droppedRequest_timesOut() throws Exception {
+        HubPipeline<Integer, Integer> pipeline = HubPipeline.start(system, "filtering",
+                HubPipeline.<Integer>flow().filter(i -> i % 2 == 0));
+
+        assertEquals(Integer.valueOf(2), pipeline.submit(2).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertTrue(failureOf(pipeline.submit(1)) instanceof TimeoutException);
+        assertEquals(0, pipeline.pendingCount());
+        pipeline.shutdown().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void processingFailure_stopsThePipeline_andFailsLaterSubmits() throws Exception {
+        HubPipeline<Integer, Integer> pipeline = HubPipeline.start(system, "failing",
+                HubPipeline.<Integer>flow().map(i -> 10 / i));
+
+        assertEquals(Integer.valueOf(5), pipeline.submit(2).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertTrue(failureOf(pipeline.submit(0)) instanceof IllegalStateException);
+        assertTrue(failureOf(pipeline.submit(1)) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void shutdown_failsLaterSubmits() throws Exception {
+        HubPipeline<Integer, Integer> pipeline = HubPipeline.start(system, "stopping", HubPipeline.<Integer>flow());
+
+        assertEquals(Integer.valueOf(7), pipeline.submit(7).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        pipeline.shutdown().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(failureOf(pipeline.submit(8)) instanceof IllegalStateException);
+    }
+}
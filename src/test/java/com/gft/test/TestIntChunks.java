@@ -0,0 +1,88 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.IntChunks;
+import com.gft.stream.IntStats;
+import com.gft.stream.PrimitiveSinks;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestIntChunks {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("int-chunks-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static <T> T await(CompletionStage<T> stage) throws Exception {
+        return stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void range_chunksLikeSourceRange() throws Exception {
+        List<int[]> chunks = await(IntChunks.range(1, 10, 4).runWith(Sink.seq(), system));
+
+        assertEquals(3, chunks.size());
+        assertArrayEquals(new int[] {1, 2, 3, 4}, chunks.get(0));
+        assertArrayEquals(new int[] {9, 10}, chunks.get(2));
+        assertTrue(await(IntChunks.range(5, 4, 4).runWith(Sink.seq(), system)).isEmpty());
+        assertEquals(Integer.MAX_VALUE,
+                await(IntChunks.range(Integer.MAX_VALUE - 2, Integer.MAX_VALUE, 2).runWith(IntChunks.stats(), system)).max);
+    }
+
+    @Test
+    public void mapFilterSum_matchTheBoxedPipeline() throws Exception {
+        long boxed = await(Source.range(1, 100_000).map(i -> i * 2).filter(i -> i % 4 == 0)
+                .runWith(Sink.fold(0L, (acc, i) -> acc + i), system));
+
+        long chunked = await(IntChunks.range(1, 100_000, 1000)
+                .via(IntChunks.map(i -> i * 2))
+                .via(IntChunks.filter(i -> i % 4 == 0))
+                .runWith(IntChunks.sum(), system));
+
+        assertEquals(boxed, chunked);
+    }
+
+    @Test
+    public void filter_dropsEmptyChunks_andPassesFullOnesThrough() throws Exception {
+        int[] all = {2, 4, 6};
+        List<int[]> chunks = await(Source.from(Arrays.asList(new int[] {1, 3}, all, new int[] {5, 8}))
+                .via(IntChunks.filter(i -> i % 2 == 0))
+                .runWith(Sink.seq(), system));
+
+        assertEquals(2, chunks.size());
+        assertSame(all, chunks.get(0));
+        assertArrayEquals(new int[] {8}, chunks.get(1));
+    }
+
+    @Test
+    public void chunkedAndFlatten_roundTrip_andStatsMatchPrimitiveSinks() throws Exception {
+        List<Integer> values = Arrays.asList(5, -3, 7, 0, 12);
+
+        assertEquals(values, await(Source.from(values).via(IntChunks.chunked(2)).via(IntChunks.flatten())
+                .runWith(Sink.seq(), system)));
+        IntStats fromChunks = await(IntChunks.from(new int[] {5, -3, 7, 0, 12}, 2).runWith(IntChunks.stats(), system));
+        assertEquals(await(Source.from(values).runWith(PrimitiveSinks.stats(), system)), fromChunks);
+        assertEquals(Long.valueOf(-3 * 5 * 7 * 12), await(IntChunks.from(new int[] {-3, 5, 7, 12}, 3)
+                .runWith(IntChunks.fold(1, (acc, i) -> acc * i), system)));
+    }
+}
@@ -0,0 +1,158 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.pattern.Patterns;
+import akka.stream.ActorAttributes;
+import akka.stream.Supervision;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.KeyedLanes;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestKeyedLanes {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("keyed-lanes-test",
+                ConfigFactory.parseString("gft.stream.keyed-lanes.lane-buffer = 8").withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void keepsOrderWithinEachKey_andSpreadsKeysOverLanes() throws Exception {
+        Pair<KeyedLanes.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 5000)
+                .viaMat(KeyedLanes.map(4, (Integer i) -> i % 37, (Integer i) -> {
+                    if (i % 101 == 0) {
+                        Thread.sleep(2);
+                    }
+                    return i;
+                }), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        List<Integer> out = result.second().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(5000, out.size());
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int i : out) {
+            Integer previous = last.put(i % 37, i);
+            assertTrue("key " + i % 37 + ": " + previous + " before " + i, previous == null || previous < i);
+        }
+        KeyedLanes.Stats stats = result.first();
+        long routed = 0;
+        for (int lane = 0; lane < stats.getLanes(); lane++) {
+            assertTrue(stats.toString(), stats.getRouted(lane) > 0);
+            routed += stats.getRouted(lane);
+        }
+        assertEquals(5000, routed);
+    }
+
+    @Test
+    public void hotKey_fillsOnlyItsLaneBuffer_thenStallsTheIntake() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger taken = new AtomicInteger();
+        Pair<KeyedLanes.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 200)
+                .map(i -> {
+                    taken.incrementAndGet();
+                    return i;
+                })
+                .viaMat(KeyedLanes.map(2, 4, (Integer i) -> "hot", (Integer i) -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return i;
+                }), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        KeyedLanes.Stats stats = result.first();
+        new TestKit(system) {{
+            awaitAssert(() -> {
+                assertTrue(stats.getStalls() >= 1);
+                return null;
+            });
+        }};
+        int hot = stats.getRouted(0) > 0 ? 0 : 1;
+        assertEquals(4, stats.getQueued(hot));
+        assertEquals(0, stats.getRouted(1 - hot));
+        // the queue, the worker's async input buffer and the element in the worker: far from the 200
+        Thread.sleep(100);
+        assertTrue("taken " + taken.get(), taken.get() < 40);
+
+        release.countDown();
+        assertEquals(200, result.second().toCompletableFuture().get(10, TimeUnit.SECONDS).size());
+        assertEquals(4, stats.getMaxQueued());
+        assertEquals(0, stats.getQueued(hot));
+    }
+
+    @Test
+    public void resumedFailure_dropsTheElement_andKeepsTheKeyOrder() throws Exception {
+        List<Integer> out = Source.range(1, 100)
+                .via(KeyedLanes.map(3, (Integer i) -> i % 5, (Integer i) -> {
+                    if (i % 10 == 0) {
+                        throw new IllegalStateException("bad " + i);
+                    }
+                    return i;
+                }).withAttributes(ActorAttributes.withSupervisionStrategy(Supervision.getResumingDecider())))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(90, out.size());
+        assertFalse(out.contains(10));
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int i : out) {
+            Integer previous = last.put(i % 5, i);
+            assertTrue(previous == null || previous < i);
+        }
+    }
+
+    @Test
+    public void mapAsync_runsOneCallPerKeyAtATime() throws Exception {
+        Map<Integer, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> out = Source.range(1, 400)
+                .via(KeyedLanes.mapAsync(4, (Integer i) -> i % 8, (Integer i) -> {
+                    AtomicInteger calls = inFlight.computeIfAbsent(i % 8, k -> new AtomicInteger());
+                    if (calls.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    return Patterns.after(Duration.ofMillis(1), system, () -> {
+                        calls.decrementAndGet();
+                        return CompletableFuture.completedFuture(i);
+                    });
+                }))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(20, TimeUnit.SECONDS);
+
+        assertEquals(400, out.size());
+        assertEquals(0, overlaps.get());
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int i : out) {
+            Integer previous = last.put(i % 8, i);
+            assertTrue(previous == null || previous < i);
+        }
+    }
+}
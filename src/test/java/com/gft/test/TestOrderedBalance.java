@@ -0,0 +1,142 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.ActorAttributes;
+import akka.stream.Supervision;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.OrderedBalance;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestOrderedBalance {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("ordered-balance-test",
+                ConfigFactory.parseString("gft.stream.ordered-balance.reorder-window = 64").withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void keepsInputOrder_withUnevenElementCosts() throws Exception {
+        Pair<OrderedBalance.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 2000)
+                .viaMat(OrderedBalance.map(4, (Integer i) -> {
+                    if (i % 97 == 0) {
+                        Thread.sleep(5);
+                    }
+                    return i * 2;
+                }), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            expected.add(i * 2);
+        }
+        assertEquals(expected, result.second().toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals(0, result.first().getReordered());
+        assertTrue(result.first().toString(), result.first().getMaxReordered() <= 64);
+    }
+
+    @Test
+    public void dropsFailedElements_underResumingSupervision() throws Exception {
+        Pair<OrderedBalance.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 1000)
+                .viaMat(OrderedBalance.map(3, (Integer i) -> 1000 / (i % 10)), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .withAttributes(ActorAttributes.withSupervisionStrategy(Supervision.getResumingDecider()))
+                .run(system);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            if (i % 10 != 0) {
+                expected.add(1000 / (i % 10));
+            }
+        }
+        assertEquals(expected, result.second().toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals(100, result.first().getDropped());
+    }
+
+    @Test
+    public void failsTheStream_underDefaultStoppingSupervision() throws Exception {
+        CompletionStage<List<Integer>> result = Source.range(1, 1000)
+                .via(OrderedBalance.map(3, (Integer i) -> {
+                    if (i == 500) {
+                        throw new IllegalStateException("element " + i);
+                    }
+                    return i;
+                }))
+                .runWith(Sink.seq(), system);
+
+        try {
+            result.toCompletableFuture().get(10, TimeUnit.SECONDS);
+            fail("Expected the stream to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("element 500", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void boundsMemory_whileOneWorkerStraggles() throws Exception {
+        int window = 32;
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Pair<OrderedBalance.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 5000)
+                .map(i -> {
+                    taken.incrementAndGet();
+                    return i;
+                })
+                .viaMat(OrderedBalance.map(4, window, (Integer i) -> {
+                    if (i == 5) {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    return i;
+                }), Keep.right())
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        // the other workers drain everything the window admits, then the intake stops at element 4 + window;
+        // the elements queued behind the straggler count against the window too
+        new TestKit(system) {{
+            awaitAssert(() -> {
+                assertEquals(4 + window, taken.get());
+                return null;
+            });
+        }};
+        Thread.sleep(200);
+        assertEquals(4 + window, taken.get());
+        assertTrue(result.first().toString(), result.first().getReordered() > 0);
+        assertTrue(result.first().toString(), result.first().getMaxReordered() < window);
+
+        release.countDown();
+        List<Integer> output = result.second().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(5000, output.size());
+        for (int i = 0; i < output.size(); i++) {
+            assertEquals(i + 1, (int) output.get(i));
+        }
+        assertTrue(result.first().getMaxReordered() < window);
+    }
+}
@@ -0,0 +1,195 @@
+package com.gft.test;
+
+import akka.NotUsed;
+import akka.ConfigurationException;
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.ParallelPipeline;
+import com.gft.stream.PipelinePlan;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestParallelPipeline {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("parallel-pipeline-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    /** About 20us of CPU per call. */
+    private static int heavy(int i) {
+        long h = i;
+        long end = System.nanoTime() + 20_000;
+        while (System.nanoTime() < end) {
+            h = h * 31 + 7;
+        }
+        return h == 42 ? -i : i;
+    }
+
+    private static Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> run(
+            Flow<Integer, Integer, CompletionStage<PipelinePlan>> flow, int elements) {
+        return Source.range(1, elements).viaMat(flow, Keep.right()).toMat(Sink.seq(), Keep.both()).run(system);
+    }
+
+    @Test
+    public void cheapPipeline_staysFused() throws Exception {
+        ParallelPipeline<Integer, Integer> pipeline = ParallelPipeline.of(Integer.class)
+                .map("double", i -> i * 2)
+                .filter("multipleOfFour", i -> i % 4 == 0)
+                .withParallelism(4);
+        Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> result = run(pipeline.planned(), 5000);
+
+        List<Integer> expected = Source.range(1, 5000).via(pipeline.fused()).runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(expected, result.second().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        PipelinePlan plan = result.first().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(plan.toString(), plan.isFused());
+        assertEquals(0.5, plan.steps.get(1).selectivity, 0.01);
+    }
+
+    @Test
+    public void heavyStep_isOffloaded_andOrderIsKept() throws Exception {
+        Flow<Integer, Integer, CompletionStage<PipelinePlan>> flow = ParallelPipeline.of(Integer.class)
+                .filter("odd", i -> i % 2 == 1)
+                .map("heavy", TestParallelPipeline::heavy)
+                .map("plusOne", i -> i + 1)
+                .withParallelism(4)
+                .planned();
+        Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> result = run(flow, 3000);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 3000; i += 2) {
+            expected.add(i + 1);
+        }
+        assertEquals(expected, result.second().toCompletableFuture().get(20, TimeUnit.SECONDS));
+        PipelinePlan plan = result.first().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertFalse(plan.toString(), plan.isFused());
+        assertEquals(plan.toString(), 1, plan.firstOffloaded);
+        assertEquals(plan.toString(), 1, plan.lastOffloaded);
+        assertEquals(4, plan.parallelism);
+        assertTrue(plan.toString(), plan.batchSize > 1 && plan.batchSize < 100);
+    }
+
+    @Test
+    public void evenlySpreadCost_offloadsAllSteps() throws Exception {
+        // twelve steps of ~1/12 each: none reaches heavy-step-share, but the pipeline is heavy
+        ParallelPipeline<Integer, Integer> pipeline = ParallelPipeline.of(Integer.class);
+        for (int s = 0; s < 12; s++) {
+            pipeline = pipeline.map("heavy" + s, TestParallelPipeline::heavy);
+        }
+        Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> result =
+                run(pipeline.withParallelism(2).planned(), 1500);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 1500; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, result.second().toCompletableFuture().get(30, TimeUnit.SECONDS));
+        PipelinePlan plan = result.first().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertFalse(plan.toString(), plan.isFused());
+        assertEquals(plan.toString(), 0, plan.firstOffloaded);
+        assertEquals(plan.toString(), 11, plan.lastOffloaded);
+    }
+
+    @Test
+    public void unordered_deliversEveryElement() throws Exception {
+        Flow<Integer, Integer, CompletionStage<PipelinePlan>> flow = ParallelPipeline.of(Integer.class)
+                .map("heavy", TestParallelPipeline::heavy)
+                .withParallelism(4)
+                .withOrdered(false)
+                .planned();
+        List<Integer> result = new ArrayList<>(run(flow, 2000).second().toCompletableFuture().get(20, TimeUnit.SECONDS));
+        Collections.sort(result);
+        assertEquals(2000, result.size());
+        assertEquals(Integer.valueOf(1), result.get(0));
+        assertEquals(Integer.valueOf(2000), result.get(1999));
+    }
+
+    @Test
+    public void shortAndEmptyStreams_completeDuringCalibration() throws Exception {
+        Flow<Integer, Integer, CompletionStage<PipelinePlan>> flow = ParallelPipeline.of(Integer.class)
+                .map("double", i -> i * 2)
+                .planned();
+        assertEquals(Arrays.asList(2, 4, 6), run(flow, 3).second().toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+        Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> empty =
+                Source.<Integer>empty().viaMat(flow, Keep.right()).toMat(Sink.seq(), Keep.both()).run(system);
+        assertTrue(empty.second().toCompletableFuture().get(5, TimeUnit.SECONDS).isEmpty());
+        assertTrue(empty.first().toCompletableFuture().get(5, TimeUnit.SECONDS).isFused());
+    }
+
+    @Test
+    public void failureDuringCalibration_failsThePlan() throws Exception {
+        Pair<CompletionStage<PipelinePlan>, CompletionStage<List<Integer>>> result = run(ParallelPipeline.of(Integer.class)
+                .map("failing", i -> {
+                    if (i == 10) {
+                        throw new IllegalStateException("bad " + i);
+                    }
+                    return i;
+                })
+                .planned(), 100);
+
+        for (CompletionStage<?> stage : Arrays.asList(result.first(), result.second())) {
+            try {
+                stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause().toString(), e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void unknownDispatcher_failsThePlan() throws Exception {
+        ActorSystem misconfigured = ActorSystem.create("parallel-pipeline-misconfigured", ConfigFactory.parseString(
+                "gft.stream.planner.dispatcher = \"no-such-dispatcher\"").withFallback(ConfigFactory.load()));
+        try {
+            CompletionStage<PipelinePlan> plan = Source.range(1, 10)
+                    .viaMat(ParallelPipeline.of(Integer.class).map("double", i -> i * 2).planned(), Keep.right())
+                    .to(Sink.ignore())
+                    .run(misconfigured);
+            try {
+                plan.toCompletableFuture().get(5, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause().toString(), e.getCause() instanceof ConfigurationException);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(misconfigured);
+        }
+    }
+
+    @Test
+    public void fused_matchesThePlainFlow() throws Exception {
+        Flow<Integer, Integer, NotUsed> plain = Flow.of(Integer.class).map(i -> i * 2).filter(i -> i % 4 == 0);
+        Flow<Integer, Integer, NotUsed> fused = ParallelPipeline.of(Integer.class)
+                .map("double", i -> i * 2).filter("multipleOfFour", i -> i % 4 == 0).fused();
+        assertEquals(Source.range(1, 5).via(plain).runWith(Sink.seq(), system).toCompletableFuture().get(5, TimeUnit.SECONDS),
+                Source.range(1, 5).via(fused).runWith(Sink.seq(), system).toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+}
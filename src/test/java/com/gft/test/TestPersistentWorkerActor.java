@@ -0,0 +1,139 @@
+package com.gft.test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.WorkerActor;
+import com.gft.persistence.PersistentWorkerActor;
+import com.gft.persistence.WorkerAggregate;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestPersistentWorkerActor {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recovery_startsFromLatestSnapshot_andSurvivesTornTail() throws Exception {
+        File journal = temporaryFolder.newFolder("journal");
+        Config config = config(journal, "");
+
+        WorkerAggregate expected = WorkerAggregate.EMPTY;
+        ActorSystem system = ActorSystem.create("persistent-worker-test", config);
+        try {
+            ActorRef worker = system.actorOf(PersistentWorkerActor.props("a"));
+            for (int i = 1; i <= 25; i++) {
+                assertEquals(i * 2, ask(worker, WorkerActor.Compute.of(i)));
+                expected = expected.plus(i * 2);
+            }
+            assertEquals(expected, ask(worker, PersistentWorkerActor.GetAggregate.INSTANCE));
+
+            stop(system, worker);
+            ActorRef recovered = system.actorOf(PersistentWorkerActor.props("a"));
+
+            assertEquals(expected, ask(recovered, PersistentWorkerActor.GetAggregate.INSTANCE));
+            PersistentWorkerActor.RecoveryStats stats =
+                    (PersistentWorkerActor.RecoveryStats) ask(recovered, PersistentWorkerActor.GetRecoveryStats.INSTANCE);
+            assertEquals(20, stats.snapshotSequenceNr);
+            assertEquals(5, stats.eventsReplayed);
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+
+        // simulate a crash in the middle of a write: half a record header at the end of the log
+        File[] segments = journal.listFiles()[0].listFiles((d, name) -> name.endsWith(".seg"));
+        assertNotNull(segments);
+        File last = segments[segments.length - 1];
+        for (File f : segments) {
+            if (f.getName().compareTo(last.getName()) > 0) {
+                last = f;
+            }
+        }
+        Files.write(last.toPath(), new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        ActorSystem restarted = ActorSystem.create("persistent-worker-test", config);
+        try {
+            ActorRef worker = restarted.actorOf(PersistentWorkerActor.props("a"));
+            assertEquals(expected, ask(worker, PersistentWorkerActor.GetAggregate.INSTANCE));
+            assertEquals(52, ask(worker, WorkerActor.Compute.of(26)));
+            assertEquals(expected.plus(52), ask(worker, PersistentWorkerActor.GetAggregate.INSTANCE));
+        } finally {
+            TestKit.shutdownActorSystem(restarted);
+        }
+    }
+
+    @Test
+    public void recovery_keepsTheHighestSequenceNr_whenTheLastSegmentIsEmpty() throws Exception {
+        File journal = temporaryFolder.newFolder("journal");
+        // a segment per event
+        Config config = config(journal, "gft.persistence.segment-journal.segment-size = 1");
+
+        WorkerAggregate expected = WorkerAggregate.EMPTY;
+        ActorSystem system = ActorSystem.create("persistent-worker-test", config);
+        try {
+            ActorRef worker = system.actorOf(PersistentWorkerActor.props("a"));
+            for (int i = 1; i <= 25; i++) {
+                assertEquals(i * 2, ask(worker, WorkerActor.Compute.of(i)));
+                expected = expected.plus(i * 2);
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+
+        // crash right after rolling to the segment of event 26, with a torn first record that is cut to nothing
+        File pidDir = journal.listFiles()[0];
+        File rolled = new File(pidDir, String.format("%020d.seg", 26));
+        Files.write(rolled.toPath(), new byte[] {0, 0, 0, 42, 1, 2});
+
+        ActorSystem restarted = ActorSystem.create("persistent-worker-test", config);
+        try {
+            ActorRef worker = restarted.actorOf(PersistentWorkerActor.props("a"));
+            assertEquals(expected, ask(worker, PersistentWorkerActor.GetAggregate.INSTANCE));
+            assertEquals(52, ask(worker, WorkerActor.Compute.of(26)));
+            stop(restarted, worker);
+
+            // event 26 got its own sequence nr instead of overwriting one that recovery replays
+            ActorRef recovered = restarted.actorOf(PersistentWorkerActor.props("a"));
+            assertEquals(expected.plus(52), ask(recovered, PersistentWorkerActor.GetAggregate.INSTANCE));
+        } finally {
+            TestKit.shutdownActorSystem(restarted);
+        }
+    }
+
+    private Config config(File journal, String extra) throws Exception {
+        File snapshots = temporaryFolder.newFolder("snapshots");
+        return ConfigFactory.parseString(extra + "\n"
+                        + "gft.persistence.segment-journal.dir = \"" + journal.getAbsolutePath().replace('\\', '/') + "\"\n"
+                        + "akka.persistence.snapshot-store.local.dir = \"" + snapshots.getAbsolutePath().replace('\\', '/') + "\"\n"
+                        + "gft.persistence.worker.snapshot-every = 10\n"
+                        + "gft.telemetry.jmx-enabled = off")
+                .withFallback(ConfigFactory.load());
+    }
+
+    private static Object ask(ActorRef actor, Object message) throws Exception {
+        return Patterns.ask(actor, message, TIMEOUT).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private static void stop(ActorSystem system, ActorRef actor) {
+        new TestKit(system) {{
+            watch(actor);
+            system.stop(actor);
+            expectTerminated(actor);
+        }};
+    }
+}
@@ -0,0 +1,120 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.IntQuantileSketch;
+import com.gft.stream.IntStats;
+import com.gft.stream.PrimitiveSinks;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestPrimitiveSinks {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("primitive-sinks-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static <T> T await(CompletionStage<T> stage) throws Exception {
+        return stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void stats_matchTheElements_andAreReusable() throws Exception {
+        Sink<Integer, CompletionStage<IntStats>> stats = PrimitiveSinks.stats();
+
+        assertEquals(new IntStats(1_000_000, 500_000_500_000L, 1, 1_000_000), await(Source.range(1, 1_000_000).runWith(stats, system)));
+        assertEquals(new IntStats(3, 0, -1, 1), await(Source.from(Arrays.asList(-1, 0, 1)).runWith(stats, system)));
+        IntStats empty = await(Source.<Integer>empty().runWith(stats, system));
+        assertEquals(0, empty.count);
+        assertTrue(Double.isNaN(empty.mean()));
+    }
+
+    @Test
+    public void quantiles_areWithinTheRelativeError() throws Exception {
+        IntQuantileSketch sketch = await(Source.range(-50_000, 150_000).runWith(PrimitiveSinks.quantiles(), system));
+
+        assertEquals(200_001, sketch.count());
+        assertEquals(-50_000, sketch.quantile(0));
+        assertEquals(150_000, sketch.quantile(1));
+        for (double q : new double[] {0.01, 0.1, 0.25, 0.5, 0.9, 0.99, 0.999}) {
+            double exact = -50_000 + Math.ceil(q * 200_001) - 1;
+            assertEquals("q=" + q, exact, sketch.quantile(q), Math.abs(exact) / 128 + 1);
+        }
+    }
+
+    @Test
+    public void topK_keepsTheLargestValues() throws Exception {
+        List<Integer> shuffled = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            shuffled.add(i);
+        }
+        Collections.shuffle(shuffled, new Random(42));
+
+        assertArrayEquals(new int[] {9999, 9998, 9997, 9996, 9995},
+                await(Source.from(shuffled).runWith(PrimitiveSinks.topK(5), system)));
+        assertArrayEquals(new int[] {3, 1}, await(Source.from(Arrays.asList(1, 3)).runWith(PrimitiveSinks.topK(5), system)));
+    }
+
+    @Test
+    public void mappedChunks_spanRegions_andTheFileHoldsExactlyTheValues() throws Exception {
+        Path file = Files.createTempFile("primitive-sinks", ".ints");
+        try {
+            // 64-byte regions: 16 ints, so the 10-int chunks straddle region boundaries
+            long written = await(Source.range(0, 99).map(i -> {
+                int[] chunk = new int[10];
+                Arrays.fill(chunk, i);
+                return chunk;
+            }).runWith(PrimitiveSinks.mappedIntChunks(file, 64), system));
+
+            assertEquals(1000, written);
+            byte[] bytes = Files.readAllBytes(file);
+            assertEquals(4000, bytes.length);
+            IntBuffer ints = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i / 10, ints.get(i));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void mappedInts_writesEveryElement() throws Exception {
+        Path file = Files.createTempFile("primitive-sinks", ".ints");
+        try {
+            assertEquals(Long.valueOf(5000), await(Source.range(1, 5000).runWith(PrimitiveSinks.mappedInts(file), system)));
+            IntBuffer ints = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.nativeOrder()).asIntBuffer();
+            assertEquals(5000, ints.remaining());
+            assertEquals(5000, ints.get(4999));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.SpillBuffer;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestSpillBuffer {
+
+    private static ActorSystem system;
+    private static Path dir;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        // 4 KiB segments hold 511 spilled ints, the spill limit 2048
+        system = ActorSystem.create("spill-buffer-test", ConfigFactory.parseString(
+                "gft.stream.spill-buffer.segment-size = 4 KiB\n"
+                        + "gft.stream.spill-buffer.max-spill-size = 16 KiB\n"
+                        + "gft.stream.spill-buffer.recycled-segments = 2")
+                .withFallback(ConfigFactory.load()));
+        dir = Files.createTempDirectory("spill-buffer-test");
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void spillsAndReplaysInOrder_recyclingSegments() throws Exception {
+        // bursts of 1000 every 20ms against a consumer of about 1000 per 30ms: the disk fills and drains repeatedly
+        Pair<SpillBuffer.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 10_000)
+                .grouped(1000)
+                .throttle(1, Duration.ofMillis(20))
+                .mapConcat(burst -> burst)
+                .viaMat(SpillBuffer.create(SpillBuffer.INTS, 100, dir), Keep.right())
+                .async()
+                .map(i -> {
+                    if (i % 250 == 0) {
+                        Thread.sleep(8);
+                    }
+                    return i;
+                })
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        List<Integer> output = result.second().toCompletableFuture().get(20, TimeUnit.SECONDS);
+        assertEquals(10_000, output.size());
+        for (int i = 0; i < output.size(); i++) {
+            assertEquals(i + 1, (int) output.get(i));
+        }
+        SpillBuffer.Stats stats = result.first();
+        assertTrue(stats.toString(), stats.getTotalSpilled() > 1000);
+        assertTrue(stats.toString(), stats.getSegmentsCreated() > 1);
+        assertTrue(stats.toString(), stats.getSegmentsRecycled() > 0);
+        assertEquals(0, stats.getSpilled());
+        assertSpillDirectoryRemoved();
+    }
+
+    @Test
+    public void backpressuresUpstream_atMaxSpillSize() throws Exception {
+        AtomicInteger taken = new AtomicInteger();
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        Pair<SpillBuffer.Stats, CompletionStage<List<Integer>>> result = Source.range(1, 5000)
+                .map(i -> {
+                    taken.incrementAndGet();
+                    return i;
+                })
+                .viaMat(SpillBuffer.create(SpillBuffer.INTS, 100, dir), Keep.right())
+                .mapAsync(1, i -> gate.thenApply(open -> i))
+                .toMat(Sink.seq(), Keep.both())
+                .run(system);
+
+        new TestKit(system) {{
+            awaitAssert(() -> {
+                assertEquals(16 * 1024, result.first().getSpilledBytes());
+                return null;
+            });
+        }};
+        Thread.sleep(100);
+        // the gated element, the memory window and 2048 spilled elements of 8 bytes
+        assertEquals(1 + 100 + 2048, taken.get());
+
+        gate.complete(0);
+        List<Integer> output = result.second().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(5000, output.size());
+        for (int i = 0; i < output.size(); i++) {
+            assertEquals(i + 1, (int) output.get(i));
+        }
+        assertSpillDirectoryRemoved();
+    }
+
+    @Test
+    public void failsOnElementsLargerThanASegment() throws Exception {
+        CompletableFuture<String> gate = new CompletableFuture<>();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            large.append('x');
+        }
+        CompletionStage<List<String>> result = Source.from(Arrays.asList("a", "b", large.toString()))
+                .via(SpillBuffer.create(SpillBuffer.UTF8, 1, dir))
+                .mapAsync(1, s -> gate)
+                .runWith(Sink.seq(), system);
+
+        try {
+            result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("Expected the stream to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertSpillDirectoryRemoved();
+    }
+
+    private static void assertSpillDirectoryRemoved() {
+        new TestKit(system) {{
+            awaitAssert(() -> {
+                assertArrayEquals(new String[0], dir.toFile().list());
+                return null;
+            });
+        }};
+    }
+}
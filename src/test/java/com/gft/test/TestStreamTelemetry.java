@@ -0,0 +1,212 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.stream.OverflowStrategy;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.telemetry.ActorTelemetry;
+import com.gft.telemetry.StageStatsSnapshot;
+import com.gft.telemetry.StreamTelemetry;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING) // test05 saturates the tracked-stages limit
+public class TestStreamTelemetry {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("stream-telemetry-test", ConfigFactory.parseString(
+                "gft.telemetry.enabled = on\n"
+                        + "gft.telemetry.max-tracked-stages = 6\n"
+                        + "gft.telemetry.stage-sample-every = 1\n"
+                        + "gft.telemetry.jmx-enabled = off")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void test01_shouldCountElementsAndKeepTheMaterializedValue() throws Exception {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        Flow<Integer, Integer, CompletionStage<Integer>> counting = Flow.of(Integer.class)
+                .map(i -> i * 2)
+                .alsoToMat(Sink.fold(0, (acc, i) -> acc + 1), Keep.right());
+
+        Source.range(1, 1000)
+                .via(StreamTelemetry.instrument("double", counting))
+                .runWith(Sink.ignore(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        awaitStage(telemetry, "double", s -> s.getElementsOut() == 1000);
+        StageStatsSnapshot stats = find(telemetry.getStages(), "double");
+        assertEquals(1000, stats.getElementsIn());
+        assertEquals(0, stats.getInFlight());
+        assertTrue(stats.getElementsPerSecond() > 0);
+
+        int materialized = Source.range(1, 10)
+                .viaMat(StreamTelemetry.instrument("double", counting), Keep.right())
+                .to(Sink.ignore())
+                .run(system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(10, materialized);
+        awaitStage(telemetry, "double", s -> s.getElementsOut() == 1010);
+    }
+
+    @Test
+    public void test02_shouldTellStarvedFromBackpressuredStages() {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        Duration tick = Duration.ofMillis(10);
+
+        Source.range(1, 100)
+                .throttle(1, tick)
+                .via(StreamTelemetry.instrument("starved", Flow.of(Integer.class).map(i -> i + 1)))
+                .runWith(Sink.ignore(), system)
+                .toCompletableFuture().join();
+        Source.range(1, 100)
+                .via(StreamTelemetry.instrument("backpressured", Flow.of(Integer.class).map(i -> i + 1)))
+                .throttle(1, tick)
+                .runWith(Sink.ignore(), system)
+                .toCompletableFuture().join();
+
+        awaitStage(telemetry, "starved", s -> s.getElementsOut() == 100);
+        awaitStage(telemetry, "backpressured", s -> s.getElementsOut() == 100);
+        StageStatsSnapshot starved = find(telemetry.getStages(), "starved");
+        StageStatsSnapshot backpressured = find(telemetry.getStages(), "backpressured");
+        // about one second of throttling each; the shares cover the last rate window, the totals the whole run
+        long halfSecond = TimeUnit.MILLISECONDS.toNanos(500);
+        long tenthOfSecond = TimeUnit.MILLISECONDS.toNanos(100);
+        assertTrue(starved.toString(), starved.getUpstreamWaitNanos() > halfSecond);
+        assertTrue(starved.toString(), starved.getDownstreamWaitNanos() < tenthOfSecond);
+        assertTrue(backpressured.toString(), backpressured.getDownstreamWaitNanos() > halfSecond);
+        assertTrue(backpressured.toString(), backpressured.getUpstreamWaitNanos() < tenthOfSecond);
+    }
+
+    @Test
+    public void test03_shouldReportBufferFillLevel() throws Exception {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+
+        CompletionStage<?> done = Source.range(1, 50)
+                .via(StreamTelemetry.instrument("buffered",
+                        Flow.of(Integer.class).buffer(100, OverflowStrategy.backpressure())))
+                .mapAsync(1, i -> gate)
+                .runWith(Sink.ignore(), system);
+
+        // downstream holds on to at most one element, the other ones wait in the buffer
+        awaitStage(telemetry, "buffered", s -> s.getElementsIn() == 50 && s.getInFlight() >= 48);
+        StageStatsSnapshot stats = find(telemetry.getStages(), "buffered");
+        assertEquals(50 - stats.getElementsOut(), stats.getInFlight());
+        assertEquals(stats.getInFlight(), stats.getMaxInFlight());
+
+        gate.complete(0);
+        done.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        awaitStage(telemetry, "buffered", s -> s.getInFlight() == 0 && s.getElementsOut() == 50);
+    }
+
+    @Test
+    public void test04_shouldStopCountingWhenDisabled() throws Exception {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        Flow<Integer, Integer, ?> stage = StreamTelemetry.instrument("toggled", Flow.of(Integer.class));
+
+        Source.range(1, 100).via(stage).runWith(Sink.ignore(), system).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        awaitStage(telemetry, "toggled", s -> s.getElementsOut() == 100);
+
+        telemetry.setEnabled(false);
+        try {
+            Source.range(1, 100).via(stage).runWith(Sink.ignore(), system)
+                    .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } finally {
+            telemetry.setEnabled(true);
+        }
+        Source.range(1, 10).via(stage).runWith(Sink.ignore(), system).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        awaitStage(telemetry, "toggled", s -> s.getElementsOut() == 110);
+        assertEquals(110, find(telemetry.getStages(), "toggled").getElementsIn());
+    }
+
+    @Test
+    public void test04b_shouldResetRunningStagesInPlace() throws Exception {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        // a burst filling the buffer while the first element is held downstream, then a trickle
+        CompletionStage<?> done = Source.range(1, 100)
+                .concat(Source.range(101, 400).throttle(1, Duration.ofMillis(5)))
+                .via(StreamTelemetry.instrument("reset",
+                        Flow.of(Integer.class).buffer(100, OverflowStrategy.backpressure())))
+                .mapAsync(1, i -> i == 1 ? gate : CompletableFuture.completedFuture(i))
+                .runWith(Sink.ignore(), system);
+
+        awaitStage(telemetry, "reset", s -> s.getMaxInFlight() >= 90);
+        gate.complete(1);
+        awaitStage(telemetry, "reset", s -> s.getElementsOut() >= 120 && s.getInFlight() <= 2);
+        telemetry.reset();
+        StageStatsSnapshot afterReset = find(telemetry.getStages(), "reset");
+        assertTrue(afterReset.toString(), afterReset.getElementsOut() < 20);
+
+        // the probe of the running stream keeps counting into the same entry, and its flushes (one per 64
+        // events here) report the maximum since the previous flush, not since materialization
+        awaitStage(telemetry, "reset", s -> s.getElementsOut() >= afterReset.getElementsOut() + 100);
+        StageStatsSnapshot trickle = find(telemetry.getStages(), "reset");
+        assertTrue(trickle.toString(), trickle.getMaxInFlight() <= 2);
+
+        done.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        awaitStage(telemetry, "reset", s -> s.getElementsOut() < 400 && s.getInFlight() == 0);
+    }
+
+    @Test
+    public void test05_shouldFoldStagesBeyondCardinalityLimitIntoOverflow() throws Exception {
+        ActorTelemetry telemetry = ActorTelemetry.get(system);
+        for (int i = 0; i < 4; i++) {
+            Source.range(1, 10)
+                    .via(StreamTelemetry.instrument("many-" + i, Flow.of(Integer.class)))
+                    .runWith(Sink.ignore(), system)
+                    .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(telemetry.getTrackedStages() <= 6);
+        awaitStage(telemetry, ActorTelemetry.OVERFLOW_PATH, s -> s.getElementsOut() >= 10);
+    }
+
+    private interface Condition {
+        boolean test(StageStatsSnapshot stats);
+    }
+
+    /** Probes flush in batches and on stop, so the totals can trail the stream by a moment. */
+    private static void awaitStage(ActorTelemetry telemetry, String name, Condition condition) {
+        new TestKit(system) {{
+            awaitAssert(Duration.ofSeconds(5), () -> {
+                StageStatsSnapshot stats = find(telemetry.getStages(), name);
+                assertTrue(stats.toString(), condition.test(stats));
+                return null;
+            });
+        }};
+    }
+
+    private static StageStatsSnapshot find(List<StageStatsSnapshot> snapshots, String name) {
+        for (StageStatsSnapshot s : snapshots) {
+            if (s.getName().equals(name)) {
+                return s;
+            }
+        }
+        throw new AssertionError("No telemetry for stage " + name + " in " + snapshots);
+    }
+}
@@ -0,0 +1,133 @@
+package com.gft.test;
+
+import akka.stream.Materializer;
+import akka.stream.SystemMaterializer$;
+import com.gft.bootstrap.BootstrappedSystem;
+import com.gft.bootstrap.StartupReport;
+import com.gft.bootstrap.SystemBootstrap;
+import com.gft.shutdown.WorkDrain;
+import com.gft.telemetry.BlockingDetector;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TestSystemBootstrap {
+
+    @ClassRule
+    public static final TemporaryFolder cacheDir = new TemporaryFolder();
+
+    @ClassRule
+    public static final TemporaryFolder appDir = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setup() {
+        System.setProperty(SystemBootstrap.CACHE_DIR_PROPERTY, cacheDir.getRoot().getAbsolutePath());
+    }
+
+    @AfterClass
+    public static void teardown() {
+        System.clearProperty(SystemBootstrap.CACHE_DIR_PROPERTY);
+    }
+
+    @Test
+    public void cachedConfig_matchesTheRegularLoad_andOverridesWin() throws Exception {
+        try (BootstrappedSystem first = SystemBootstrap.create("bootstrap-test",
+                ConfigFactory.parseString("gft.tick-bus.fan-out-batch-size = 7"))) {
+            // one per config.file setting used by the tests so far
+            File[] cached = cacheDir.getRoot().listFiles((d, name) -> name.matches("[0-9a-f]{40}\\.conf"));
+            assertNotNull(cached);
+            assertTrue(cached.length >= 1);
+
+            StartupReport report = first.report();
+            assertTrue(report.phases().containsKey("config"));
+            assertTrue(report.phases().containsKey("actor-system"));
+
+            com.typesafe.config.Config config = first.system().settings().config();
+            assertEquals(7, config.getInt("gft.tick-bus.fan-out-batch-size"));
+            assertEquals(ConfigFactory.load().getConfig("akka.actor").root(), config.getConfig("akka.actor").root());
+            assertEquals(ConfigFactory.load().getDuration("gft.shutdown.drain.deadline"),
+                    config.getDuration("gft.shutdown.drain.deadline"));
+            assertEquals(ConfigFactory.load().getString("akka.actor.default-dispatcher.type"),
+                    config.getString("akka.actor.default-dispatcher.type"));
+        }
+        try (BootstrappedSystem second = SystemBootstrap.create("bootstrap-test")) {
+            assertTrue(second.report().configCacheHit);
+            assertEquals(1000, second.system().settings().config().getInt("gft.tick-bus.fan-out-batch-size"));
+        }
+    }
+
+    @Test
+    public void configFile_isReadOnEveryStart_andResolvedAgainstTheCachedReference() throws Exception {
+        File a = appDir.newFile("a.conf");
+        File b = appDir.newFile("b.conf");
+        Files.write(a.toPath(), "gft.tick-bus.fan-out-batch-size = 11".getBytes(StandardCharsets.UTF_8));
+        Files.write(b.toPath(), ("gft.tick-bus.fan-out-batch-size = 22\n"
+                + "akka.serialization.protobuf.whitelist-class = [\"com.example.Allowed\"]").getBytes(StandardCharsets.UTF_8));
+        try {
+            System.setProperty("config.file", a.getAbsolutePath());
+            ConfigFactory.invalidateCaches();
+            try (BootstrappedSystem first = SystemBootstrap.create("bootstrap-test")) {
+                assertEquals(11, first.system().settings().config().getInt("gft.tick-bus.fan-out-batch-size"));
+            }
+            System.setProperty("config.file", b.getAbsolutePath());
+            ConfigFactory.invalidateCaches();
+            try (BootstrappedSystem second = SystemBootstrap.create("bootstrap-test")) {
+                com.typesafe.config.Config config = second.system().settings().config();
+                assertEquals(22, config.getInt("gft.tick-bus.fan-out-batch-size"));
+                // reference.conf substitutes allowed-classes from whitelist-class: resolved after the application config
+                assertEquals(Collections.singletonList("com.example.Allowed"),
+                        config.getStringList("akka.serialization.protobuf.allowed-classes"));
+                // a self-referencing concatenation spread over several reference.conf files survives the cache
+                assertTrue(config.getStringList("akka.library-extensions")
+                        .contains("akka.serialization.SerializationExtension$"));
+            }
+        } finally {
+            System.clearProperty("config.file");
+            ConfigFactory.invalidateCaches();
+        }
+    }
+
+    @Test
+    public void cacheDirectory_isOwnerOnly() throws Exception {
+        try (BootstrappedSystem bootstrapped = SystemBootstrap.create("bootstrap-test")) {
+            // the config phase reads or writes the cache
+            assertTrue(bootstrapped.report().phases().containsKey("config"));
+            assertEquals(PosixFilePermissions.fromString("rwx------"),
+                    Files.getPosixFilePermissions(cacheDir.getRoot().toPath()));
+        }
+    }
+
+    @Test
+    public void deferredExtensions_loadOnFirstUse_eagerOnesAreTimed() throws Exception {
+        try (BootstrappedSystem bootstrapped = SystemBootstrap.create("bootstrap-test", ConfigFactory.parseString(
+                "gft.bootstrap.eager-extensions = [\"com.gft.shutdown.WorkDrain$Id\"]"))) {
+            assertFalse(bootstrapped.system().hasExtension(SystemMaterializer$.MODULE$));
+            assertNotNull(Materializer.matFromSystem(bootstrapped.system()));
+            assertTrue(bootstrapped.system().hasExtension(SystemMaterializer$.MODULE$));
+
+            assertTrue(bootstrapped.system().hasExtension(WorkDrain.ID));
+            assertTrue(bootstrapped.report().phases().containsKey("extension:com.gft.shutdown.WorkDrain$Id"));
+            assertFalse(bootstrapped.system().hasExtension(BlockingDetector.ID));
+        }
+    }
+
+    @Test
+    public void blockingDetector_startsWithTheSystem_unlessOff() throws Exception {
+        try (BootstrappedSystem bootstrapped = SystemBootstrap.create("bootstrap-test", ConfigFactory.parseString(
+                "gft.blocking-detector { mode = sampling, jmx-enabled = off }"))) {
+            assertTrue(bootstrapped.system().hasExtension(BlockingDetector.ID));
+            assertTrue(bootstrapped.report().phases().containsKey("extension:com.gft.telemetry.BlockingDetector$Id"));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.gft.test;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Kill;
+import akka.actor.OneForOneStrategy;
+import akka.actor.Props;
+import akka.actor.SupervisorStrategy;
+import akka.japi.pf.DeciderBuilder;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.LegacyTimerActor;
+import com.gft.timer.TickBus;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestTickBus {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("tick-bus-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void legacyActors_receiveTicksFromTheBus() {
+        new TestKit(system) {{
+            ActorRef scheduler = system.actorOf(LegacySchedulerActor.propsWithTickBus(getRef()));
+            expectMsgEquals(Duration.ofSeconds(2), LegacySchedulerActor.Tick.INSTANCE);
+            system.stop(scheduler);
+
+            ActorRef timer = system.actorOf(LegacyTimerActor.propsWithTickBus(getRef()));
+            expectMsgEquals(Duration.ofSeconds(2), LegacyTimerActor.TimerTick.INSTANCE);
+            system.stop(timer);
+        }};
+    }
+
+    @Test
+    public void subscribers_areSpreadOverTheInterval_andRemovedWhenStopped() {
+        TickBus bus = TickBus.get(system);
+        new TestKit(system) {{
+            int baseline = bus.subscriberCount();
+            List<ActorRef> subscribers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ActorRef subscriber = system.actorOf(Props.create(FirstTickReporter.class, () -> new FirstTickReporter(getRef())));
+                bus.subscribe(subscriber, Duration.ofMillis(200), "tick");
+                subscribers.add(subscriber);
+            }
+            assertEquals(baseline + 20, bus.subscriberCount());
+
+            List<Long> arrivals = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                arrivals.add(expectMsgClass(Duration.ofSeconds(2), Long.class));
+            }
+            long spreadMillis = (Collections.max(arrivals) - Collections.min(arrivals)) / 1_000_000;
+            assertTrue("first ticks should not all arrive together, spread=" + spreadMillis + "ms", spreadMillis >= 100);
+
+            subscribers.forEach(system::stop);
+            awaitAssert(Duration.ofSeconds(3), () -> {
+                assertEquals(baseline, bus.subscriberCount());
+                return null;
+            });
+        }};
+    }
+
+    @Test
+    public void restartedSubscribers_keepASingleTickStream() {
+        new TestKit(system) {{
+            for (Props child : Arrays.asList(LegacySchedulerActor.propsWithTickBus(getRef()),
+                    LegacyTimerActor.propsWithTickBus(getRef()))) {
+                ActorRef supervisor = system.actorOf(Props.create(RestartingSupervisor.class,
+                        () -> new RestartingSupervisor(child)));
+                supervisor.tell("child", getRef());
+                ActorRef subscriber = expectMsgClass(ActorRef.class);
+                for (int i = 0; i < 3; i++) {
+                    subscriber.tell(Kill.getInstance(), ActorRef.noSender());
+                }
+                expectMsgAnyClassOf(Duration.ofSeconds(2), LegacySchedulerActor.Tick.class,
+                        LegacyTimerActor.TimerTick.class);
+                // settle the restarts, then count: 200 ms interval, so about 5 per second with one stream
+                receiveWhile(Duration.ofMillis(300), msg -> msg);
+                int ticks = receiveWhile(Duration.ofSeconds(1), msg -> msg).size();
+                assertTrue("ticks in 1s: " + ticks, ticks >= 3 && ticks <= 7);
+                system.stop(supervisor);
+            }
+        }};
+    }
+
+    /** Restarts its child on any failure, including {@code Kill}. */
+    public static class RestartingSupervisor extends AbstractActor {
+        private final ActorRef child;
+
+        public RestartingSupervisor(Props child) {
+            this.child = getContext().actorOf(child);
+        }
+
+        @Override
+        public SupervisorStrategy supervisorStrategy() {
+            return new OneForOneStrategy(DeciderBuilder.matchAny(e -> SupervisorStrategy.restart()).build());
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchEquals("child", m -> getSender().tell(child, getSelf()))
+                    .build();
+        }
+    }
+
+    /** Reports the arrival time of its first tick. */
+    public static class FirstTickReporter extends AbstractActor {
+        private final ActorRef probe;
+        private boolean reported;
+
+        public FirstTickReporter(ActorRef probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchEquals("tick", t -> {
+                        if (!reported) {
+                            reported = true;
+                            probe.tell(System.nanoTime(), getSelf());
+                        }
+                    })
+                    .build();
+        }
+    }
+}
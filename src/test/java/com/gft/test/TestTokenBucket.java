@@ -0,0 +1,141 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.ratelimit.RateLimits;
+import com.gft.ratelimit.TokenBucket;
+import com.gft.ratelimit.TokenBucketSnapshot;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TestTokenBucket {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("token-bucket-test", ConfigFactory.parseString(
+                "gft.rate-limits.buckets.remote { permits-per-second = 50, burst = 5 }\n"
+                        + "gft.rate-limits.jmx-enabled = off")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void grantsTheBurst_thenWaitsForTheRate() throws Exception {
+        TokenBucket bucket = new TokenBucket("test", 10, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire(1, Duration.ofMillis(10)));
+
+        long start = System.nanoTime();
+        assertTrue(bucket.tryAcquire(1, Duration.ofMillis(500)));
+        long waited = System.nanoTime() - start;
+        assertTrue("waited " + waited, waited >= TimeUnit.MILLISECONDS.toNanos(80));
+        assertEquals(0, bucket.availablePermits());
+
+        try {
+            bucket.tryAcquire(6);
+            fail("More permits than the burst can never be granted");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void neverExceedsTheQuota_underConcurrentCallers() throws Exception {
+        TokenBucket bucket = new TokenBucket("test", 200, 10);
+        AtomicLong granted = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(500);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    if (bucket.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertTrue("granted " + granted, granted.get() <= 10 + Math.ceil(200 * seconds));
+        assertTrue("granted " + granted, granted.get() >= 200 * 0.5 * 0.8);
+    }
+
+    @Test
+    public void throttlesAStream_withoutLosingElements() throws Exception {
+        TokenBucket bucket = new TokenBucket("test", 100, 5);
+        long start = System.nanoTime();
+        List<Integer> result = Source.range(1, 50)
+                .via(bucket.<Integer>throttle())
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(50, result.size());
+        assertEquals(Integer.valueOf(50), result.get(49));
+        // the first 5 pass at once, the other 45 at 100/s
+        assertTrue("took " + elapsed, elapsed >= TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    @Test
+    public void sharesOneQuota_betweenStreamsAndDirectCalls() throws Exception {
+        TokenBucket bucket = RateLimits.get(system).bucket("remote");
+        assertSame(bucket, RateLimits.get(system).bucket("remote"));
+        assertEquals(50.0, bucket.permitsPerSecond(), 0.0);
+
+        long start = System.nanoTime();
+        CompletionStage<Long> streamed = Source.repeat(1)
+                .take(1000)
+                .via(bucket.<Integer>throttle(i -> 2))
+                .takeWithin(Duration.ofMillis(600))
+                .runWith(Sink.fold(0L, (n, i) -> n + 2), system);
+        long direct = 0;
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(600)) {
+            if (bucket.tryAcquire(1, Duration.ofMillis(50))) {
+                direct++;
+            }
+        }
+        long permits = streamed.toCompletableFuture().get(5, TimeUnit.SECONDS) + direct;
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertTrue("direct " + direct, direct > 0);
+        assertTrue("permits " + permits + " in " + seconds + "s", permits <= 5 + Math.ceil(50 * seconds) + 2);
+        TokenBucketSnapshot snapshot = RateLimits.get(system).getBuckets().get(0);
+        assertEquals("remote", snapshot.getName());
+        assertTrue(snapshot.toString(), snapshot.getGranted() >= permits);
+
+        try {
+            RateLimits.get(system).bucket("unknown");
+            fail("Undeclared buckets are rejected");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("gft.rate-limits.buckets.unknown"));
+        }
+    }
+}
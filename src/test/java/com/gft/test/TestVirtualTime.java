@@ -0,0 +1,106 @@
+package com.gft.test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.LegacySchedulerActor;
+import com.gft.actor.LegacyTimerActor;
+import com.gft.actor.WorkerActor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The TestAkka3 timer scenarios on virtual time: same intervals, no waiting.
+ */
+public class TestVirtualTime {
+
+    /** Only used to check that nothing else arrives; scheduled messages are enqueued on advance. */
+    private static final Duration QUIET = Duration.ofMillis(20);
+
+    private static ActorSystem system;
+    private static VirtualTime time;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("virtual-time-test", VirtualTime.config());
+        time = VirtualTime.of(system);
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void shouldUseSchedulerSchedule_periodicLegacyApi() {
+        new TestKit(system) {{
+            ActorRef actor = system.actorOf(LegacySchedulerActor.props(getRef()));
+            time.settle(this, actor);
+
+            time.advance(LegacySchedulerActor.INITIAL_DELAY.minusMillis(1));
+            expectNoMessage(QUIET);
+            time.advance(Duration.ofMillis(1));
+            expectMsgEquals(LegacySchedulerActor.Tick.INSTANCE);
+
+            time.advance(LegacySchedulerActor.INTERVAL.multipliedBy(3));
+            receiveN(3);
+            expectNoMessage(QUIET);
+            system.stop(actor);
+        }};
+    }
+
+    @Test
+    public void shouldUseTimers_startPeriodicTimer_legacyApi() {
+        new TestKit(system) {{
+            ActorRef actor = system.actorOf(LegacyTimerActor.props(getRef()));
+            time.settle(this, actor);
+
+            time.advance(LegacyTimerActor.INTERVAL);
+            expectMsgEquals(LegacyTimerActor.TimerTick.INSTANCE);
+
+            time.advance(LegacyTimerActor.INTERVAL.multipliedBy(4));
+            receiveN(4);
+            expectNoMessage(QUIET);
+            system.stop(actor);
+        }};
+    }
+
+    @Test
+    public void scheduleOnce_firesExactlyAtTheDeadline() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+        CountDownLatch latch = new CountDownLatch(1);
+        system.scheduler().scheduleOnce(Duration.ofMillis(200),
+                () -> worker.tell(new WorkerActor.Ping(latch), ActorRef.noSender()),
+                system.dispatcher());
+
+        time.advance(Duration.ofMillis(199));
+        assertFalse(latch.await(QUIET.toMillis(), TimeUnit.MILLISECONDS));
+        time.advance(Duration.ofMillis(1));
+        assertTrue("Ping should arrive", latch.await(2, TimeUnit.SECONDS));
+        system.stop(worker);
+    }
+
+    @Test
+    public void tickBus_advancesWithVirtualTime() {
+        new TestKit(system) {{
+            ActorRef actor = system.actorOf(LegacySchedulerActor.propsWithTickBus(getRef()));
+            time.settle(this, actor);
+
+            // the first tick lands somewhere in the first interval, then exactly one per interval
+            time.advance(LegacySchedulerActor.INTERVAL);
+            expectMsgEquals(LegacySchedulerActor.Tick.INSTANCE);
+            time.advance(LegacySchedulerActor.INTERVAL.multipliedBy(5));
+            receiveN(5);
+            expectNoMessage(QUIET);
+            system.stop(actor);
+        }};
+    }
+}
@@ -0,0 +1,129 @@
+package com.gft.test;
+
+import akka.actor.ActorSystem;
+import akka.japi.Pair;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.javadsl.TestKit;
+import com.gft.stream.IntQuantileSketch;
+import com.gft.stream.IntStats;
+import com.gft.stream.Windows;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestWindows {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("windows-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static Pair<Long, Integer> at(long millis, int value) {
+        return Pair.create(millis, value);
+    }
+
+    @Test
+    public void tumblingEventTime_closesOnWatermark_andDropsLateElements() throws Exception {
+        List<Windows.Window<IntStats>> windows = Source.from(Arrays.asList(
+                        at(1000, 1), at(1500, 2), at(2100, 3), at(1900, 4), at(3300, 5), at(1200, 6), at(3400, 7)))
+                .via(Windows.tumblingEventTime(Duration.ofSeconds(1), Pair::first, Duration.ofMillis(200),
+                        Pair::second, Windows.stats()))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, windows.size());
+        // 1900 arrives after 2100 but within the lateness; 1200 arrives once the watermark (3100) has passed 2000
+        assertEquals(1000, windows.get(0).start);
+        assertEquals(2000, windows.get(0).end);
+        assertEquals(new IntStats(3, 7, 1, 4), windows.get(0).result);
+        assertEquals(new IntStats(1, 3, 3, 3), windows.get(1).result);
+        assertEquals(1, windows.get(2).late);
+        assertEquals(3000, windows.get(2).start);
+        assertEquals(new IntStats(2, 12, 5, 7), windows.get(2).result);
+    }
+
+    @Test
+    public void slidingEventTime_mergesPanes_andSkipsEmptyWindows() throws Exception {
+        List<Windows.Window<IntStats>> windows = Source.from(Arrays.asList(
+                        at(0, 1), at(1000, 2), at(2000, 3), at(9000, 4)))
+                .via(Windows.slidingEventTime(Duration.ofSeconds(2), Duration.ofSeconds(1), Pair::first, Duration.ZERO,
+                        Pair::second, Windows.stats()))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        long[] starts = windows.stream().mapToLong(w -> w.start).toArray();
+        long[] sums = windows.stream().mapToLong(w -> w.result.sum).toArray();
+        // windows -1000..1000, 0..2000, 1000..3000, 2000..4000, then nothing until 8000..10000
+        assertArrayEquals(new long[] {-1000, 0, 1000, 2000, 8000}, starts);
+        assertArrayEquals(new long[] {1, 3, 5, 3, 4}, sums);
+        assertEquals(2000, windows.get(1).end - windows.get(1).start);
+    }
+
+    @Test
+    public void countWindows_tumblingAndSliding() throws Exception {
+        List<Windows.Window<IntStats>> tumbling = Source.range(1, 10)
+                .via(Windows.tumblingCount(4, (Integer i) -> i, Windows.stats()))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(3, tumbling.size());
+        assertEquals(new IntStats(4, 10, 1, 4), tumbling.get(0).result);
+        assertEquals(new IntStats(2, 19, 9, 10), tumbling.get(2).result);
+        assertEquals(8, tumbling.get(2).start);
+        assertEquals(10, tumbling.get(2).end);
+
+        List<Windows.Window<IntQuantileSketch>> sliding = Source.range(1, 8)
+                .via(Windows.slidingCount(4, 2, (Integer i) -> i, Windows.quantiles()))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+        long[] counts = sliding.stream().mapToLong(w -> w.count).toArray();
+        assertArrayEquals(new long[] {2, 4, 4, 4}, counts);
+        IntQuantileSketch last = sliding.get(3).result;
+        assertEquals(5, last.min());
+        assertEquals(8, last.max());
+        assertEquals(6, last.quantile(0.5));
+    }
+
+    @Test
+    public void tumblingProcessingTime_emitsOnTickWithoutFurtherElements() throws Exception {
+        Windows.Window<IntStats> window = Source.single(5)
+                .concat(Source.maybe())
+                .via(Windows.tumbling(Duration.ofMillis(100), (Integer i) -> i, Windows.stats()))
+                .runWith(Sink.head(), system)
+                .toCompletableFuture().get(3, TimeUnit.SECONDS);
+
+        assertEquals(new IntStats(1, 5, 5, 5), window.result);
+        assertEquals(100, window.end - window.start);
+        assertEquals(0, window.start % 100);
+        assertTrue(window.end <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void tumblingProcessingTime_countsEveryElementOnce() throws Exception {
+        List<Windows.Window<IntStats>> windows = Source.range(1, 200_000)
+                .via(Windows.tumbling(Duration.ofMillis(10), (Integer i) -> i, Windows.stats()))
+                .runWith(Sink.seq(), system)
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(200_000, windows.stream().mapToLong(w -> w.count).sum());
+        assertEquals(200_000L * 200_001 / 2, windows.stream().mapToLong(w -> w.result.sum).sum());
+        for (int i = 1; i < windows.size(); i++) {
+            assertTrue(windows.get(i).start >= windows.get(i - 1).end);
+        }
+    }
+}
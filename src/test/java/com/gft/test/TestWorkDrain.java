@@ -0,0 +1,148 @@
+package com.gft.test;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.CoordinatedShutdown;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.WorkerActor;
+import com.gft.actor.WorkerClient;
+import com.gft.shutdown.AdmissionClosedException;
+import com.gft.shutdown.DrainReport;
+import com.gft.shutdown.WorkDrain;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestWorkDrain {
+
+    private ActorSystem system;
+
+    @Before
+    public void setup() {
+        // drain closes admission for good: one system per test
+        system = ActorSystem.create("drain-test", ConfigFactory.parseString(
+                "akka.log-dead-letters = off\n"
+                        + "gft.shutdown.drain.stop-grace = 1s")
+                .withFallback(ConfigFactory.load()));
+    }
+
+    @After
+    public void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void queuedWork_isFinished_andAdmissionClosed() throws Exception {
+        WorkDrain drain = WorkDrain.get(system);
+        new TestKit(system) {{
+            ActorRef[] workers = new ActorRef[4];
+            for (int w = 0; w < workers.length; w++) {
+                workers[w] = system.actorOf(WorkerActor.props());
+            }
+            // workers register in preStart
+            awaitCond(() -> drain.registeredCount() == workers.length);
+            for (int i = 0; i < 5000; i++) {
+                for (ActorRef worker : workers) {
+                    worker.tell(WorkerActor.Compute.of(i % 100), getRef());
+                }
+            }
+
+            DrainReport report = drain.drain(Duration.ofSeconds(5)).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            assertEquals(4, report.actors);
+            assertEquals(0, report.timedOutActors);
+            assertEquals(0, report.droppedMessages);
+            assertTrue(report.drainedMessages <= 20000);
+            receiveN(20000, Duration.ofSeconds(5));
+
+            try {
+                drain.admit(() -> WorkerClient.computeInt(workers[0], 1, Duration.ofSeconds(1))).toCompletableFuture().join();
+                fail("admission should be closed");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof AdmissionClosedException);
+            }
+        }};
+    }
+
+    @Test
+    public void actorsMissingTheDeadline_areStopped_andTheirQueueReportedAsDropped() throws Exception {
+        WorkDrain drain = WorkDrain.get(system);
+        AtomicInteger processed = new AtomicInteger();
+        new TestKit(system) {{
+            ActorRef slow = system.actorOf(Props.create(SlowWorker.class, () -> new SlowWorker(processed)));
+            awaitCond(() -> drain.registeredCount() == 1);
+            for (int i = 0; i < 100; i++) {
+                slow.tell(i, ActorRef.noSender());
+            }
+            watch(slow);
+
+            DrainReport report = drain.drain(Duration.ofMillis(200)).toCompletableFuture().get(5, TimeUnit.SECONDS);
+            expectTerminated(slow);
+            assertEquals(1, report.timedOutActors);
+            assertTrue(report.drainedMessages > 0);
+            assertTrue(report.droppedMessages > 50);
+            // every message was either processed (before or during the drain) or reported
+            assertEquals(100, processed.get() + report.droppedMessages);
+        }};
+    }
+
+    @Test
+    public void coordinatedShutdown_runsTheDrain() throws Exception {
+        WorkDrain drain = WorkDrain.get(system);
+        new TestKit(system) {{
+            ActorRef worker = system.actorOf(WorkerActor.props());
+            awaitCond(() -> drain.registeredCount() == 1);
+            for (int i = 0; i < 1000; i++) {
+                worker.tell(WorkerActor.Compute.of(i % 100), getRef());
+            }
+            CoordinatedShutdown.get(system).runAll(CoordinatedShutdown.unknownReason())
+                    .toCompletableFuture().get(20, TimeUnit.SECONDS);
+
+            DrainReport report = drain.lastReport().orElseThrow(() -> new AssertionError("no drain report"));
+            assertEquals(1, report.actors);
+            assertEquals(0, report.droppedMessages);
+            assertFalse(drain.isAdmitting());
+        }};
+    }
+
+    /** 20 ms per message: 100 messages cannot finish within a 200 ms deadline. */
+    public static class SlowWorker extends AbstractActor {
+        private final AtomicInteger processed;
+        private final WorkDrain drain = WorkDrain.get(getContext().getSystem());
+
+        public SlowWorker(AtomicInteger processed) {
+            this.processed = processed;
+        }
+
+        @Override
+        public void preStart() {
+            drain.register(getSelf());
+        }
+
+        @Override
+        public void postStop() {
+            drain.unregister(getSelf());
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(Integer.class, i -> {
+                        Thread.sleep(20);
+                        processed.incrementAndGet();
+                        drain.recordProcessed();
+                    })
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.gft.test;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.IntResult;
+import com.gft.actor.LongResult;
+import com.gft.actor.WorkerActor;
+import com.gft.actor.WorkerClient;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestWorkerActor {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("worker-actor-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void legacyCompute_repliesBoxedInteger() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+
+        Object reply = Patterns.ask(worker, new WorkerActor.Compute(21), TIMEOUT)
+                .toCompletableFuture().get(3, TimeUnit.SECONDS);
+
+        assertEquals(42, reply);
+    }
+
+    @Test
+    public void typedCompute_repliesPrimitiveResults() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+
+        IntResult i = WorkerClient.computeInt(worker, 21, TIMEOUT).toCompletableFuture().get(3, TimeUnit.SECONDS);
+        LongResult l = WorkerClient.computeLong(worker, 3_000_000_000L, TIMEOUT).toCompletableFuture().get(3, TimeUnit.SECONDS);
+
+        assertEquals(42, i.value);
+        assertEquals(6_000_000_000L, l.getAsLong());
+    }
+
+    @Test
+    public void pooledMessages_areShared() {
+        assertSame(WorkerActor.Compute.of(7), WorkerActor.Compute.of(7));
+        assertSame(WorkerActor.Compute.typed(7), WorkerActor.Compute.typed(7));
+        assertNotSame(WorkerActor.Compute.of(7), WorkerActor.Compute.typed(7));
+        assertSame(IntResult.of(14), IntResult.of(14));
+        assertEquals(IntResult.of(1 << 20), IntResult.of(1 << 20));
+    }
+
+    @Test
+    public void typedReplies_canBeConsumedByTell() {
+        new TestKit(system) {{
+            ActorRef worker = system.actorOf(WorkerActor.props());
+            ActorRef summer = system.actorOf(Props.create(Summer.class, () -> new Summer(worker, getRef())));
+
+            summer.tell(5, ActorRef.noSender());
+
+            expectMsg(Long.valueOf(2 * (0 + 1 + 2 + 3 + 4)));
+        }};
+    }
+
+    /** Sends Compute.typed(0..n-1) and reports the sum of the doubled values. */
+    public static class Summer extends AbstractActor {
+        private final ActorRef worker;
+        private final ActorRef replyTo;
+        private long sum;
+        private int pending;
+
+        public Summer(ActorRef worker, ActorRef replyTo) {
+            this.worker = worker;
+            this.replyTo = replyTo;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(Integer.class, n -> {
+                        pending = n;
+                        for (int i = 0; i < n; i++) {
+                            worker.tell(WorkerActor.Compute.typed(i), getSelf());
+                        }
+                    })
+                    .match(IntResult.class, WorkerClient.onInt(v -> {
+                        sum += v;
+                        if (--pending == 0) {
+                            replyTo.tell(sum, getSelf());
+                        }
+                    }))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.gft.test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.routing.RoundRobinPool;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.testkit.TestProbe;
+import akka.testkit.javadsl.TestKit;
+import com.gft.actor.WorkerActor;
+import com.gft.stream.WorkerFlow;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestWorkerFlow {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create("worker-flow-test");
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static List<Integer> doubled(int elements) {
+        List<Integer> expected = new ArrayList<>(elements);
+        for (int i = 1; i <= elements; i++) {
+            expected.add(i * 2);
+        }
+        return expected;
+    }
+
+    @Test
+    public void singleWorker_computesEveryElementInOrder() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+
+        List<Integer> result = Source.range(1, 10_000).via(WorkerFlow.compute(worker))
+                .runWith(Sink.seq(), system).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(doubled(10_000), result);
+    }
+
+    @Test
+    public void router_repliesOutOfOrder_resultsStayInOrder() throws Exception {
+        ActorRef router = system.actorOf(new RoundRobinPool(4).props(WorkerActor.props()));
+
+        List<Integer> result = Source.range(1, 5_000).via(WorkerFlow.compute(router, 7, 8))
+                .runWith(Sink.seq(), system).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(doubled(5_000), result);
+    }
+
+    @Test
+    public void withoutCredits_noFurtherBatchIsSent() throws Exception {
+        TestProbe worker = new TestProbe(system);
+        CompletionStage<List<Integer>> result = Source.range(1, 30).via(WorkerFlow.compute(worker.ref(), 10, 2))
+                .runWith(Sink.seq(), system);
+
+        WorkerActor.ComputeBatch first = worker.expectMsgClass(WorkerActor.ComputeBatch.class);
+        WorkerActor.ComputeBatch second = worker.expectMsgClass(WorkerActor.ComputeBatch.class);
+        worker.expectNoMessage(scala.concurrent.duration.Duration.create(200, TimeUnit.MILLISECONDS));
+        assertEquals(10, first.xs.length);
+        assertEquals(11, second.xs[0]);
+
+        // replying to the second batch first keeps the credit taken until the first one is emitted
+        worker.reply(new WorkerActor.BatchResult(second.id, new int[10]));
+        worker.expectNoMessage(scala.concurrent.duration.Duration.create(200, TimeUnit.MILLISECONDS));
+        worker.lastSender().tell(new WorkerActor.BatchResult(first.id, new int[10]), worker.ref());
+        WorkerActor.ComputeBatch third = worker.expectMsgClass(WorkerActor.ComputeBatch.class);
+        assertEquals(21, third.xs[0]);
+        worker.reply(new WorkerActor.BatchResult(third.id, new int[10]));
+
+        assertEquals(30, result.toCompletableFuture().get(5, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void workerTermination_failsTheStream() throws Exception {
+        TestProbe worker = new TestProbe(system);
+        CompletionStage<List<Integer>> result = Source.range(1, 100).via(WorkerFlow.compute(worker.ref(), 10, 2))
+                .runWith(Sink.seq(), system);
+        worker.expectMsgClass(WorkerActor.ComputeBatch.class);
+
+        worker.ref().tell(PoisonPill.getInstance(), ActorRef.noSender());
+
+        try {
+            result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("expected the stream to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void partialBatch_isSentAfterTheBatchDelay() throws Exception {
+        ActorRef worker = system.actorOf(WorkerActor.props());
+
+        // upstream stays open: only the max-batch-delay timer sends the three elements
+        List<Integer> result = Source.range(1, 3).concat(Source.maybe())
+                .via(WorkerFlow.compute(worker, 64, 1)).take(3)
+                .runWith(Sink.seq(), system).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertEquals(doubled(3), result);
+    }
+}
@@ -0,0 +1,76 @@
+package com.gft.test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.cluster.sharding.ShardRegion;
+import akka.pattern.Patterns;
+import com.gft.actor.IntResult;
+import com.gft.actor.WorkerActor;
+import com.gft.cluster.ComputeEnvelope;
+import com.gft.cluster.WorkerSharding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestWorkerSharding {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private LoopbackCluster cluster;
+
+    @Before
+    public void setUp() {
+        cluster = new LoopbackCluster("sharding-test");
+    }
+
+    @After
+    public void tearDown() {
+        cluster.close();
+    }
+
+    @Test
+    public void shardedWorkers_replyLikeLocalOnes_andRebalanceOntoNewNode() throws Exception {
+        ActorRef region1 = WorkerSharding.start(cluster.addNode());
+        WorkerSharding.start(cluster.addNode());
+
+        for (int i = 0; i < 50; i++) {
+            Object reply = Patterns.ask(region1, new ComputeEnvelope("key-" + i, WorkerActor.Compute.of(i)), TIMEOUT)
+                    .toCompletableFuture().get(10, TimeUnit.SECONDS);
+            assertEquals(i * 2, reply);
+        }
+        IntResult typed = (IntResult) Patterns.ask(region1, new ComputeEnvelope("key-typed", WorkerActor.Compute.typed(21)), TIMEOUT)
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(42, typed.value);
+
+        ActorSystem node3 = cluster.addNode();
+        ActorRef region3 = WorkerSharding.start(node3);
+
+        long deadline = System.currentTimeMillis() + 20_000;
+        int shardsOnNode3 = 0;
+        while (shardsOnNode3 == 0 && System.currentTimeMillis() < deadline) {
+            // keep touching keys so that rebalanced shards are re-allocated
+            for (int i = 0; i < 50; i++) {
+                region1.tell(new ComputeEnvelope("key-" + i, WorkerActor.Compute.of(i)), ActorRef.noSender());
+            }
+            ShardRegion.CurrentShardRegionState state = (ShardRegion.CurrentShardRegionState) Patterns.ask(
+                    region3, ShardRegion.getShardRegionStateInstance(), TIMEOUT).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            shardsOnNode3 = state.getShards().size();
+            Thread.sleep(200);
+        }
+        assertTrue("new node should take over shards", shardsOnNode3 > 0);
+    }
+
+    @Test
+    public void singleNodeApi_isUnchanged() throws Exception {
+        ActorSystem node = cluster.addNode();
+        ActorRef worker = node.actorOf(WorkerActor.props());
+
+        assertEquals(20, Patterns.ask(worker, new WorkerActor.Compute(10), TIMEOUT)
+                .toCompletableFuture().get(3, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package com.gft.test;
+
+import akka.actor.ActorIdentity;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Identify;
+import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+
+/**
+ * Virtual time for timer-driven actor tests: the system scheduler is replaced by a
+ * {@link VirtualTimeScheduler}, which only fires when the test calls {@link #advance}.
+ * Everything built on the scheduler ({@code scheduleOnce}, {@code scheduleAtFixedRate},
+ * {@link akka.actor.TimerScheduler}, the tick bus) keeps its semantics but runs without waiting.
+ *
+ * Usage:
+ * - create the system with {@link #config()} (or {@link #config(Config)} for extra settings)
+ * - {@link #settle} the actor under test, so the timers it starts in {@code preStart} or on its first
+ *   message are registered
+ * - {@link #advance} and assert with the usual {@code expectMsg*}; scheduled messages are already
+ *   enqueued when {@code advance} returns
+ *
+ * Wall-clock timeouts (ask, {@code expectMsg} windows) are not virtual: keep them as they are.
+ */
+public final class VirtualTime {
+
+    private static final Config SCHEDULER_CONFIG = ConfigFactory.parseString(
+            "akka.scheduler.implementation = \"" + VirtualTimeScheduler.class.getName() + "\"\n"
+                    + "gft.tick-bus.wall-clock = off\n");
+
+    private final VirtualTimeScheduler scheduler;
+
+    private VirtualTime(VirtualTimeScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public static Config config() {
+        return config(ConfigFactory.empty());
+    }
+
+    public static Config config(Config overrides) {
+        return overrides.withFallback(SCHEDULER_CONFIG).withFallback(ConfigFactory.load());
+    }
+
+    /** The virtual clock of a system created with {@link #config()}. */
+    public static VirtualTime of(ActorSystem system) {
+        if (!(system.scheduler() instanceof VirtualTimeScheduler)) {
+            throw new IllegalStateException("Actor system " + system.name() + " is not using virtual time, create it with VirtualTime.config()");
+        }
+        return new VirtualTime((VirtualTimeScheduler) system.scheduler());
+    }
+
+    /** Moves the clock forward, running every task that falls due, periodic ones as often as they recur. */
+    public void advance(Duration duration) {
+        scheduler.advance(duration.toNanos());
+    }
+
+    /** Virtual milliseconds elapsed since the system started. */
+    public long nowMillis() {
+        return scheduler.nowNanos() / 1_000_000;
+    }
+
+    /**
+     * Returns once {@code actor} has processed its startup: the first round trip guarantees
+     * {@code preStart} has run, the second that anything it sent to itself there was processed too.
+     */
+    public void settle(TestKit probe, ActorRef actor) {
+        for (int i = 0; i < 2; i++) {
+            actor.tell(new Identify(i), probe.getRef());
+            probe.expectMsgClass(ActorIdentity.class);
+        }
+    }
+}
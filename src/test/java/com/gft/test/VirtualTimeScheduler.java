@@ -0,0 +1,171 @@
+package com.gft.test;
+
+import akka.actor.Cancellable;
+import akka.actor.Scheduler;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link Scheduler} whose clock only moves when {@link #advance(long)} is called. Plugged in with
+ * {@code akka.scheduler.implementation}, see {@link VirtualTime}.
+ *
+ * - due tasks run on the advancing thread, in deadline order, each with the clock set to its deadline;
+ *   a task that tells an actor has therefore enqueued the message when {@code advance} returns
+ * - periodic tasks are fixed rate: advancing several intervals runs them once per interval
+ * - on system termination the pending one-shot tasks run once (as Akka's default scheduler does),
+ *   so dispatcher shutdown timers fire and no threads are left behind
+ *
+ * Unlike {@code akka.testkit.ExplicitlyTriggeredScheduler} it does not sleep before advancing.
+ */
+public final class VirtualTimeScheduler implements Scheduler, Closeable {
+
+    private final LoggingAdapter log;
+    /** guarded by this */
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long nowNanos;
+    private long sequence;
+    private boolean closed;
+
+    public VirtualTimeScheduler(Config config, LoggingAdapter log, ThreadFactory threadFactory) {
+        this.log = log;
+    }
+
+    @Override
+    public Cancellable scheduleOnce(FiniteDuration delay, Runnable runnable, ExecutionContext executor) {
+        return enqueue(delay.toNanos(), 0, runnable);
+    }
+
+    // still the abstract method behind scheduleAtFixedRate and scheduleWithFixedDelay in Akka 2.6
+    @SuppressWarnings("deprecation")
+    @Override
+    public Cancellable schedule(FiniteDuration initialDelay, FiniteDuration interval, Runnable runnable, ExecutionContext executor) {
+        if (interval.toNanos() <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        return enqueue(initialDelay.toNanos(), interval.toNanos(), runnable);
+    }
+
+    @Override
+    public double maxFrequency() {
+        return 1_000_000_000.0;
+    }
+
+    public synchronized long nowNanos() {
+        return nowNanos;
+    }
+
+    /** Moves the clock forward by {@code nanos}, running every task that falls due on the way. */
+    public void advance(long nanos) {
+        long target;
+        synchronized (this) {
+            target = nowNanos + nanos;
+        }
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = queue.peek();
+                if (task == null || task.deadline > target) {
+                    nowNanos = target;
+                    return;
+                }
+                queue.poll();
+                nowNanos = task.deadline;
+            }
+            if (task.isCancelled()) {
+                continue;
+            }
+            run(task);
+            if (task.interval > 0) {
+                synchronized (this) {
+                    if (!task.isCancelled() && !closed) {
+                        task.deadline += task.interval;
+                        task.order = sequence++;
+                        queue.add(task);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Task> pending;
+        synchronized (this) {
+            closed = true;
+            pending = new ArrayList<>(queue);
+            queue.clear();
+        }
+        for (Task task : pending) {
+            if (task.interval == 0 && !task.isCancelled()) {
+                try {
+                    task.runnable.run();
+                } catch (IllegalStateException e) {
+                    // fixed-delay tasks try to schedule their next run
+                } catch (RuntimeException e) {
+                    log.error(e, "Scheduled task failed");
+                }
+            }
+        }
+    }
+
+    private synchronized Task enqueue(long delayNanos, long intervalNanos, Runnable runnable) {
+        if (closed) {
+            // the type Akka expects from a stopped scheduler, e.g. dispatchers then shut down at once
+            throw new IllegalStateException("cannot enqueue after timer shutdown");
+        }
+        Task task = new Task(nowNanos + Math.max(0, delayNanos), intervalNanos, runnable, sequence++);
+        queue.add(task);
+        return task;
+    }
+
+    private void run(Task task) {
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            log.error(e, "Scheduled task failed");
+        }
+    }
+
+    private static final class Task implements Cancellable, Comparable<Task> {
+        final long interval;
+        final Runnable runnable;
+        long deadline;
+        long order;
+        private volatile boolean cancelled;
+
+        Task(long deadline, long interval, Runnable runnable, long order) {
+            this.deadline = deadline;
+            this.interval = interval;
+            this.runnable = runnable;
+            this.order = order;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDeadline = Long.compare(deadline, other.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(order, other.order);
+        }
+    }
+}